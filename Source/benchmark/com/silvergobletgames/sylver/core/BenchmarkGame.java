@@ -0,0 +1,32 @@
+package com.silvergobletgames.sylver.core;
+
+import java.io.File;
+
+/**
+ * Sets up a headless Game for the benchmarks that need engine classes like Image, which look up their textures and 
+ * settings through Game.getInstance(). The system textures are loaded from the classpath. The sound system keeps
+ * threads running, so benchmarks that use this call System.exit() when they are done.
+ * @author Mike
+ */
+final class BenchmarkGame
+{
+    private BenchmarkGame()
+    {
+
+    }
+
+    /**
+     * Creates the headless game if it hasnt been created yet
+     */
+    static void create()
+    {
+        if(Game.getInstance().getConfiguration() != null)
+            return;
+
+        File workingDirectory = new File(System.getProperty("java.io.tmpdir"));
+        GameConfiguration configuration = new GameConfiguration(workingDirectory.toURI(), workingDirectory.toURI(), new EngineSettings());
+        configuration.setHeadless(true);
+        Game.getInstance().createGame(configuration);
+    }
+
+}
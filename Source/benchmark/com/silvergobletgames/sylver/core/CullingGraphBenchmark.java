@@ -0,0 +1,201 @@
+package com.silvergobletgames.sylver.core;
+
+import com.silvergobletgames.sylver.core.Scene.Layer;
+import com.silvergobletgames.sylver.core.SceneObject.CoreGroups;
+import com.silvergobletgames.sylver.graphics.ConcreteParticleEmitters.SparkEmitter;
+import com.silvergobletgames.sylver.graphics.Image;
+import com.silvergobletgames.sylver.graphics.Viewport;
+import com.silvergobletgames.sylver.util.SylverVector2f;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Benchmark of the frame task graphs. Builds a culling graph like the one RenderingPipelineGL3 runs, a task per world
+ * layer testing every image in that layer against the viewport, over 50,000 images, and times running it on the
+ * worker pool against running it on one thread. Then times a scene update with 200 spark emitters and 5,000 thread
+ * confined images, with parallel update on, where the emitters run in their own worker task, and off. Reports the
+ * average time per run and the speedup. The speedup depends on the number of processors.
+ *
+ * Run headless with the engine classes, their resources and dependencies on the classpath, no arguments needed:
+ * java com.silvergobletgames.sylver.core.CullingGraphBenchmark [images] [emitters] [runs]
+ * @author Mike
+ */
+public final class CullingGraphBenchmark
+{
+    //layers culled by the graph, the world layers of RenderingPipelineGL3
+    private static final Layer[] WORLD_LAYERS = {Layer.PARALLAX5, Layer.PARALLAX4,Layer.PARALLAX3,Layer.PARALLAX2,Layer.PARALLAX1,Layer.ATTACHED_BG,Layer.MAIN,Layer.ATTACHED_FG,Layer.FOREGROUND1,Layer.FOREGROUND2};
+    //size of the square world the images are spread over
+    private static final float WORLD_SIZE = 20_000;
+    //thread confined images updated alongside the emitters in the scene update
+    private static final int SCENE_IMAGES = 5_000;
+    //runs before timing starts, so the JIT has compiled everything
+    private static final int WARMUP_RUNS = 500;
+
+
+    public static void main(String[] args)
+    {
+        int imageCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int emitterCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+
+        BenchmarkGame.create();
+        System.out.println(Runtime.getRuntime().availableProcessors() + " processors, worker pool parallelism " + Game.getInstance().getWorkerPool().getParallelism());
+        cullingGraph(imageCount, runs);
+        sceneUpdate(emitterCount, runs);
+        System.exit(0);
+    }
+
+    /**
+     * Times the culling graph serially and on the worker pool
+     */
+    private static void cullingGraph(int imageCount, int runs)
+    {
+        Random random = new Random(470);
+        final SceneObjectManager manager = new SceneObjectManager();
+        for(int i = 0; i < imageCount; i++)
+        {
+            Image image = new Image("textureMissing.jpg");
+            image.setID(manager.generateUniqueID());
+            image.setPosition(random.nextFloat() * WORLD_SIZE, random.nextFloat() * WORLD_SIZE);
+            manager.add(image, WORLD_LAYERS[random.nextInt(WORLD_LAYERS.length)]);
+        }
+
+        final Viewport viewport = new Viewport();
+        viewport.centerAroundPoint(new SylverVector2f(WORLD_SIZE / 2, WORLD_SIZE / 2));
+
+        //a task per layer, each filling its own visible list
+        final ArrayList<SceneObject>[] visible = new ArrayList[Layer.values().length];
+        FrameTaskGraph graph = new FrameTaskGraph();
+        for(final Layer layer: WORLD_LAYERS)
+        {
+            visible[layer.ordinal()] = new ArrayList<>();
+            graph.addTask("Cull " + layer.name(), new Runnable(){
+                public void run()
+                {
+                    ArrayList<SceneObject> visibleSceneObjects = visible[layer.ordinal()];
+                    visibleSceneObjects.clear();
+                    ArrayList<SceneObject> layerObjects = manager.get(layer);
+                    for(int i = 0; i < layerObjects.size(); i++)
+                    {
+                        if(viewport.isSceneObjectVisible(layerObjects.get(i), layer))
+                            visibleSceneObjects.add(layerObjects.get(i));
+                    }
+                }
+            }, new String[]{Scene.SCENE_OBJECTS}, new String[]{"visible." + layer.name()});
+        }
+
+        long serial = time(graph, runs, false);
+        long parallel = time(graph, runs, true);
+        int visibleCount = 0;
+        for(Layer layer: WORLD_LAYERS)
+            visibleCount += visible[layer.ordinal()].size();
+
+        System.out.println("culling graph: " + imageCount + " images, " + WORLD_LAYERS.length + " layers, " + visibleCount + " visible, " + runs + " runs");
+        report(serial, parallel, runs);
+    }
+
+    private static long time(FrameTaskGraph graph, int runs, boolean parallel)
+    {
+        for(int i = 0; i < WARMUP_RUNS; i++)
+            run(graph, parallel);
+
+        long start = System.nanoTime();
+        for(int i = 0; i < runs; i++)
+            run(graph, parallel);
+        return System.nanoTime() - start;
+    }
+
+    private static void run(FrameTaskGraph graph, boolean parallel)
+    {
+        if(parallel)
+            graph.run(Game.getInstance().getWorkerPool());
+        else
+            graph.runSerially();
+    }
+
+    /**
+     * Times a scene update with parallel update off and on
+     */
+    private static void sceneUpdate(int emitterCount, int runs)
+    {
+        BenchmarkScene scene = new BenchmarkScene(emitterCount);
+        long serial = time(scene, runs, false);
+        long parallel = time(scene, runs, true);
+
+        System.out.println("scene update: " + emitterCount + " emitters, " + SCENE_IMAGES + " images, " + runs + " ticks");
+        report(serial, parallel, runs);
+    }
+
+    private static long time(BenchmarkScene scene, int runs, boolean parallel)
+    {
+        scene.setParallelUpdate(parallel);
+        for(int i = 0; i < WARMUP_RUNS; i++)
+            scene.update();
+
+        long start = System.nanoTime();
+        for(int i = 0; i < runs; i++)
+            scene.update();
+        return System.nanoTime() - start;
+    }
+
+    private static void report(long serial, long parallel, int runs)
+    {
+        System.out.println("    serial: " + (float)serial / runs / 1000f + " us per run");
+        System.out.println("    worker pool: " + (float)parallel / runs / 1000f + " us per run, " + (float)serial / parallel + "x speedup");
+    }
+
+
+    //================
+    // Inner Classes
+    //================
+
+    /**
+     * A scene of spark emitters that are replaced when they finish, and thread confined images
+     */
+    private static final class BenchmarkScene extends Scene
+    {
+        private final Random random = new Random(470);
+        private final int emitterCount;
+
+        private BenchmarkScene(int emitterCount)
+        {
+            this.emitterCount = emitterCount;
+            for(int i = 0; i < emitterCount; i++)
+                this.addEmitter();
+
+            for(int i = 0; i < SCENE_IMAGES; i++)
+            {
+                Image image = new Image("textureMissing.jpg");
+                image.setPosition(this.random.nextFloat() * WORLD_SIZE, this.random.nextFloat() * WORLD_SIZE);
+                image.setThreadConfined(true);
+                this.add(image, Layer.MAIN);
+            }
+        }
+
+        private void addEmitter()
+        {
+            SparkEmitter emitter = new SparkEmitter();
+            emitter.setPosition(this.random.nextFloat() * WORLD_SIZE, this.random.nextFloat() * WORLD_SIZE);
+            emitter.setDuration(60 + this.random.nextInt(60));
+            emitter.setParticlesPerFrame(5);
+            this.add(emitter, Layer.MAIN);
+        }
+
+        @Override
+        public void update()
+        {
+            super.update();
+
+            //finished emitters remove themselves, replace them
+            for(int i = this.getSceneObjectManager().getGroupArray(CoreGroups.EMITTER).length; i < this.emitterCount; i++)
+                this.addEmitter();
+        }
+
+        @Override
+        public void handleInput()
+        {
+
+        }
+    }
+
+}
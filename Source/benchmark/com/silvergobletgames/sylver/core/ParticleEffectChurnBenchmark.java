@@ -0,0 +1,155 @@
+package com.silvergobletgames.sylver.core;
+
+import com.silvergobletgames.sylver.graphics.AbstractParticleEmitter;
+import com.silvergobletgames.sylver.graphics.AbstractParticleEmitter.Particle;
+import com.silvergobletgames.sylver.graphics.Color;
+import com.silvergobletgames.sylver.graphics.ConcreteParticleEmitters.SparkEmitter;
+import com.silvergobletgames.sylver.graphics.Image;
+import com.silvergobletgames.sylver.graphics.ImageEffect;
+import com.silvergobletgames.sylver.graphics.ImageEffect.ImageEffectType;
+import com.silvergobletgames.sylver.graphics.PointParticleEmitter;
+import com.silvergobletgames.sylver.util.SylverVector2f;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Microbenchmark of particle and effect churn. Each tick updates 100 spark emitters, replacing the ones that finish,
+ * and 1,000 images that get a short scale effect again as soon as their last one expires. Reports the average time 
+ * and bytes allocated per tick, once with pooled particles and effects, and once building them with new as the 
+ * engine did before pooling.
+ *
+ * Run headless with the engine classes, their resources and dependencies on the classpath, no arguments needed:
+ * java com.silvergobletgames.sylver.core.ParticleEffectChurnBenchmark [emitters] [images] [ticks]
+ * @author Mike
+ */
+public final class ParticleEffectChurnBenchmark
+{
+    //ticks run before measuring starts, so the JIT has compiled everything and the pools are full
+    private static final int WARMUP_TICKS = 2_000;
+    //particles each emitter emits per tick
+    private static final float PARTICLES_PER_TICK = 5;
+    //duration of each scale effect in ticks
+    private static final int EFFECT_DURATION = 20;
+    //start and end of the scale effects, boxed once so both runs pass the same objects
+    private static final Float EFFECT_START = 1f, EFFECT_END = 1.5f;
+
+
+    public static void main(String[] args)
+    {
+        int emitterCount = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int imageCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+
+        BenchmarkGame.create();
+        run("unpooled", emitterCount, imageCount, ticks, false);
+        run("pooled", emitterCount, imageCount, ticks, true);
+        System.exit(0);
+    }
+
+    private static void run(String name, int emitterCount, int imageCount, int ticks, boolean pooled)
+    {
+        Random random = new Random(470);
+
+        //spread the emitters out in their lifetimes so some finish every tick
+        AbstractParticleEmitter[] emitters = new AbstractParticleEmitter[emitterCount];
+        for(int i = 0; i < emitterCount; i++)
+        {
+            emitters[i] = createEmitter(pooled, random);
+            for(int j = random.nextInt(60); j > 0; j--)
+                emitters[i].update();
+        }
+
+        Image[] images = new Image[imageCount];
+        for(int i = 0; i < imageCount; i++)
+            images[i] = new Image("textureMissing.jpg");
+
+        for(int i = 0; i < WARMUP_TICKS; i++)
+            tick(emitters, images, pooled, random);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long particles = 0;
+        for(int i = 0; i < ticks; i++)
+            particles += tick(emitters, images, pooled, random);
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.println(name + ": " + emitterCount + " emitters, " + imageCount + " images, " + ticks + " ticks, " + particles / ticks + " live particles per tick");
+        System.out.println("    " + (float)elapsed / ticks / 1000f + " us per tick");
+        System.out.println("    " + allocated / ticks + " bytes allocated per tick");
+    }
+
+    /**
+     * Updates every emitter and image once, replacing finished emitters and expired effects
+     * @return the number of live particles
+     */
+    private static int tick(AbstractParticleEmitter[] emitters, Image[] images, boolean pooled, Random random)
+    {
+        int particles = 0;
+        for(int i = 0; i < emitters.length; i++)
+        {
+            emitters[i].update();
+            if(emitters[i].isFinished())
+            {
+                //what the scene does when a finished emitter removes itself
+                emitters[i].removedFromScene();
+                emitters[i] = createEmitter(pooled, random);
+            }
+            particles += emitters[i].getParticleCount();
+        }
+
+        for(int i = 0; i < images.length; i++)
+        {
+            if(!images[i].hasImageEffectType(ImageEffectType.SCALE))
+            {
+                ImageEffect effect = pooled ? ImageEffect.obtain(ImageEffectType.SCALE, EFFECT_DURATION, EFFECT_START, EFFECT_END) : new ImageEffect(ImageEffectType.SCALE, EFFECT_DURATION, EFFECT_START, EFFECT_END);
+                images[i].addImageEffect("pulse", effect);
+            }
+            images[i].update();
+        }
+        return particles;
+    }
+
+    private static AbstractParticleEmitter createEmitter(boolean pooled, Random random)
+    {
+        AbstractParticleEmitter emitter = pooled ? new SparkEmitter() : new UnpooledSparkEmitter();
+        emitter.setPosition(random.nextFloat() * 1000, random.nextFloat() * 1000);
+        emitter.setParticlesPerFrame(PARTICLES_PER_TICK);
+        return emitter;
+    }
+
+
+    //================
+    // Inner Classes
+    //================
+
+    /**
+     * A SparkEmitter that builds its particles with new, as emitters did before particles were pooled
+     */
+    public static final class UnpooledSparkEmitter extends PointParticleEmitter
+    {
+        public UnpooledSparkEmitter()
+        {
+            super(new Color(Color.white), 1);
+        }
+
+        @Override
+        public Particle buildParticle()
+        {
+            Random rand = this.getRandom();
+            SylverVector2f pos = new SylverVector2f(this.getPosition().x, this.getPosition().y);
+            float randomedAngle = getAngle() + (rand.nextFloat() - .5f) * 90;
+            SylverVector2f velocity = new SylverVector2f(rand.nextFloat() * 5 * (float)Math.cos(randomedAngle * Math.PI / 180), rand.nextFloat() * 5 * (float)Math.sin(randomedAngle * Math.PI / 180));
+            SylverVector2f acceleration = new SylverVector2f(0, -.1f);
+            Color color = new Color(5f, .5f, .5f);
+            if(rand.nextFloat() < .5)
+                color.r += 1f;
+            color.a = 1f;
+            int ttl = 40 + rand.nextInt(20);
+            return new Particle(pos, velocity, acceleration, color, .18f, -.1f / ttl, ttl);
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.silvergobletgames.sylver.core;
+
+import com.silvergobletgames.sylver.core.Scene.Layer;
+import java.util.Random;
+import javax.media.opengl.GL2;
+
+/**
+ * Microbenchmark of add and remove churn in a SceneObjectManager. Fills a manager with 10,000 scene objects spread
+ * over the world layers, then each round removes a random tenth of them, adds them back to random layers, compacts
+ * the layers and asks for every layer, as a scene does when things spawn and die and then get drawn. Reports the average time per add/remove
+ * pair and per round, once with the default ordered removes and once with swap removes.
+ *
+ * Run with the engine classes and dependencies on the classpath, no arguments needed:
+ * java com.silvergobletgames.sylver.core.SceneObjectManagerChurnBenchmark [objects] [rounds]
+ * @author Mike
+ */
+public final class SceneObjectManagerChurnBenchmark
+{
+    //layers the scene objects are spread over
+    private static final Layer[] LAYERS = new Layer[]{Layer.BACKGROUND, Layer.PARALLAX2, Layer.MAIN, Layer.FOREGROUND1, Layer.ATTACHED_FG};
+    //rounds run before timing starts, so the JIT has compiled everything
+    private static final int WARMUP_ROUNDS = 2_000;
+
+
+    public static void main(String[] args)
+    {
+        int objectCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+
+        run("ordered remove", objectCount, rounds, false);
+        run("swap remove", objectCount, rounds, true);
+    }
+
+    private static void run(String name, int objectCount, int rounds, boolean swapRemove)
+    {
+        Random random = new Random(470);
+        SceneObjectManager manager = new SceneObjectManager();
+        for(Layer layer: LAYERS)
+            manager.setSwapRemove(layer, swapRemove);
+
+        //fill the manager
+        SceneObject[] sceneObjects = new SceneObject[objectCount];
+        for(int i = 0; i < objectCount; i++)
+        {
+            sceneObjects[i] = new BenchmarkSceneObject();
+            sceneObjects[i].setID(manager.generateUniqueID());
+            manager.add(sceneObjects[i], LAYERS[random.nextInt(LAYERS.length)]);
+        }
+
+        int churn = Math.max(1, objectCount / 10);
+        for(int i = 0; i < WARMUP_ROUNDS; i++)
+            round(manager, sceneObjects, churn, random);
+
+        long start = System.nanoTime();
+        int drawn = 0;
+        for(int i = 0; i < rounds; i++)
+            drawn += round(manager, sceneObjects, churn, random);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(name + ": " + objectCount + " objects, " + churn + " removes and adds per round, " + rounds + " rounds");
+        System.out.println("    " + (float)elapsed / ((long)rounds * churn) + " ns per remove and add");
+        System.out.println("    " + (float)elapsed / rounds / 1000f + " us per round, " + drawn / rounds + " objects in the layers");
+    }
+
+    /**
+     * Removes and re-adds some random scene objects, compacts, then gets every layer
+     * @return number of scene objects in the layers
+     */
+    private static int round(SceneObjectManager manager, SceneObject[] sceneObjects, int churn, Random random)
+    {
+        for(int i = 0; i < churn; i++)
+        {
+            SceneObject sceneObject = sceneObjects[random.nextInt(sceneObjects.length)];
+            manager.remove(sceneObject);
+            manager.add(sceneObject, LAYERS[random.nextInt(LAYERS.length)]);
+        }
+
+        //close the gaps, as the scene does at the end of a tick
+        manager.compactLayers();
+
+        int count = 0;
+        for(Layer layer: LAYERS)
+            count += manager.get(layer).size();
+        return count;
+    }
+
+
+    //================
+    // Inner Classes
+    //================
+
+    /**
+     * A scene object that does nothing
+     */
+    private static final class BenchmarkSceneObject extends SceneObject
+    {
+        @Override
+        public void update()
+        {
+
+        }
+
+        @Override
+        public void draw(GL2 gl)
+        {
+
+        }
+    }
+
+}
@@ -0,0 +1,287 @@
+package com.silvergobletgames.sylver.core;
+
+import com.silvergobletgames.sylver.core.Scene.Layer;
+import com.silvergobletgames.sylver.graphics.Color;
+import com.silvergobletgames.sylver.graphics.DarkSource;
+import com.silvergobletgames.sylver.graphics.Image;
+import com.silvergobletgames.sylver.graphics.ImageEffect;
+import com.silvergobletgames.sylver.graphics.ImageEffect.ImageEffectType;
+import com.silvergobletgames.sylver.graphics.LightEffect;
+import com.silvergobletgames.sylver.graphics.LightEffect.LightEffectType;
+import com.silvergobletgames.sylver.graphics.LightSource;
+import com.silvergobletgames.sylver.graphics.Text;
+import com.silvergobletgames.sylver.graphics.TextEffect;
+import com.silvergobletgames.sylver.graphics.TextEffect.TextEffectType;
+import com.silvergobletgames.sylver.netcode.NetworkedSceneObject;
+import com.silvergobletgames.sylver.netcode.RenderData;
+import com.silvergobletgames.sylver.netcode.SceneObjectRenderData;
+import com.silvergobletgames.sylver.netcode.SceneObjectRenderDataChanges;
+import com.silvergobletgames.sylver.util.SylverVector2f;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import javax.media.opengl.GL2;
+
+/**
+ * Microbenchmark of SceneSnapshotRing.capture(). Fills a scene object manager with 2,000 networked scene objects shaped like an Image,
+ * then captures a snapshot every tick, moving the objects between captures. Reports the average time and bytes
+ * allocated per capture, once with objects that only have dumpRenderData() and once with objects that override
+ * writeSnapshot() as the engine classes do. Before timing anything it checks that the writeSnapshot() of Image, Text,
+ * LightSource and DarkSource decodes to render data equal to their dumpRenderData(), and stops if one doesnt.
+ *
+ * Run headless with the engine classes, their resources and dependencies on the classpath, no arguments needed:
+ * java com.silvergobletgames.sylver.core.SceneSnapshotRingCaptureBenchmark [objects] [captures]
+ * @author Mike
+ */
+public final class SceneSnapshotRingCaptureBenchmark
+{
+    //layers the scene objects are spread over
+    private static final Layer[] LAYERS = new Layer[]{Layer.BACKGROUND, Layer.PARALLAX2, Layer.MAIN, Layer.FOREGROUND1, Layer.ATTACHED_FG};
+    //ticks of snapshots the ring keeps
+    private static final int RING_CAPACITY = 64;
+    //captures run before timing starts, so the JIT has compiled everything
+    private static final int WARMUP_CAPTURES = 5_000;
+
+
+    public static void main(String[] args)
+    {
+        int objectCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int captures = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+
+        BenchmarkGame.create();
+        verifyEngineClasses();
+
+        run("dumpRenderData", objectCount, captures, false);
+        run("writeSnapshot", objectCount, captures, true);
+        System.exit(0);
+    }
+
+    /**
+     * Captures one of each engine class that writes its own snapshot, with an effect on it, and checks that the
+     * snapshot decodes to its dumpRenderData()
+     */
+    private static void verifyEngineClasses()
+    {
+        Image image = new Image("textureMissing.jpg");
+        image.setPosition(12, 34);
+        image.setColor(new Color(.5f, .25f, 1f));
+        image.setHorizontalFlip(true);
+        image.addImageEffect(new ImageEffect(ImageEffectType.SCALE, 20, 1f, 2f));
+
+        Text text = new Text("snapshot");
+        text.setPosition(56, 78);
+        text.setScale(1.5f);
+        text.addTextEffect(new TextEffect(TextEffectType.ANGLE, 20, 0f, 90f));
+
+        LightSource lightSource = new LightSource();
+        lightSource.setPosition(90, 12);
+        lightSource.setSize(300);
+        lightSource.setDirection(45);
+        lightSource.addLightEffect(new LightEffect(LightEffectType.INTENSITY, 20, 1f, .5f));
+
+        DarkSource darkSource = new DarkSource("textureMissing.jpg");
+        darkSource.setPosition(34, 56);
+        darkSource.setIntensity(.75f);
+
+        NetworkedSceneObject[] sceneObjects = new NetworkedSceneObject[]{image, text, lightSource, darkSource};
+        SceneObjectManager manager = new SceneObjectManager();
+        for(NetworkedSceneObject sceneObject: sceneObjects)
+        {
+            sceneObject.setID(manager.generateUniqueID());
+            manager.add(sceneObject, Layer.MAIN);
+        }
+
+        SceneSnapshotRing ring = new SceneSnapshotRing(1, 1024);
+        ring.capture(manager, null, 0);
+        ArrayList<SceneObjectRenderData> decoded = new ArrayList<>();
+        ring.readRenderData(0, decoded);
+
+        for(int i = 0; i < sceneObjects.length; i++)
+        {
+            SceneObjectRenderData expected = sceneObjects[i].dumpRenderData();
+            if(!sameValue(expected, decoded.get(i)))
+                throw new RuntimeException(sceneObjects[i].getClass().getSimpleName() + " snapshot decodes to " + decoded.get(i).data + ", dumpRenderData() is " + expected.data);
+        }
+
+        System.out.println("writeSnapshot matches dumpRenderData for Image, Text, LightSource and DarkSource");
+    }
+
+    /**
+     * Compares two render data values field by field, render data has no equals()
+     */
+    private static boolean sameValue(Object expected, Object actual)
+    {
+        if(expected instanceof RenderData && actual instanceof RenderData)
+        {
+            if(expected.getClass() != actual.getClass())
+                return false;
+            if(expected instanceof SceneObjectRenderData)
+            {
+                SceneObjectRenderData expectedData = (SceneObjectRenderData)expected, actualData = (SceneObjectRenderData)actual;
+                if(expectedData.getSceneObjectClass() != actualData.getSceneObjectClass() || !Objects.equals(expectedData.getID(), actualData.getID()))
+                    return false;
+            }
+            return sameValue(((RenderData)expected).data, ((RenderData)actual).data);
+        }
+        else if(expected instanceof List && actual instanceof List)
+        {
+            List expectedList = (List)expected, actualList = (List)actual;
+            if(expectedList.size() != actualList.size())
+                return false;
+            for(int i = 0; i < expectedList.size(); i++)
+            {
+                if(!sameValue(expectedList.get(i), actualList.get(i)))
+                    return false;
+            }
+            return true;
+        }
+        else if(expected instanceof Map.Entry && actual instanceof Map.Entry)
+        {
+            Map.Entry expectedEntry = (Map.Entry)expected, actualEntry = (Map.Entry)actual;
+            return sameValue(expectedEntry.getKey(), actualEntry.getKey()) && sameValue(expectedEntry.getValue(), actualEntry.getValue());
+        }
+        else
+            return Objects.equals(expected, actual);
+    }
+
+    private static void run(String name, int objectCount, int captures, boolean direct)
+    {
+        Random random = new Random(470);
+        SceneObjectManager manager = new SceneObjectManager();
+
+        //fill the scene
+        BenchmarkSceneObject[] sceneObjects = new BenchmarkSceneObject[objectCount];
+        for(int i = 0; i < objectCount; i++)
+        {
+            sceneObjects[i] = direct ? new DirectBenchmarkSceneObject() : new BenchmarkSceneObject();
+            sceneObjects[i].setID(manager.generateUniqueID());
+            sceneObjects[i].setPosition(random.nextFloat() * 1000, random.nextFloat() * 1000);
+            manager.add(sceneObjects[i], LAYERS[random.nextInt(LAYERS.length)]);
+        }
+
+        SceneSnapshotRing ring = new SceneSnapshotRing(RING_CAPACITY, objectCount * 128);
+        long tick = 0;
+        for(int i = 0; i < WARMUP_CAPTURES; i++)
+            capture(ring, manager, sceneObjects, tick++);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for(int i = 0; i < captures; i++)
+            capture(ring, manager, sceneObjects, tick++);
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.println(name + ": " + objectCount + " objects, " + captures + " captures, " + ring.getSnapshotSize(tick - 1) + " bytes per snapshot");
+        System.out.println("    " + (float)elapsed / captures / 1000f + " us per capture, " + (float)elapsed / ((long)captures * objectCount) + " ns per object");
+        System.out.println("    " + allocated / captures + " bytes allocated per capture");
+    }
+
+    /**
+     * Moves every scene object a little, then captures a snapshot
+     */
+    private static void capture(SceneSnapshotRing ring, SceneObjectManager manager, BenchmarkSceneObject[] sceneObjects, long tick)
+    {
+        for(int i = 0; i < sceneObjects.length; i++)
+        {
+            SylverVector2f position = sceneObjects[i].getPosition();
+            sceneObjects[i].setPosition(position.x + 1, position.y);
+        }
+
+        ring.capture(manager, null, tick);
+    }
+
+
+    //================
+    // Inner Classes
+    //================
+
+    /**
+     * A networked scene object with the render data of a plain Image, that only has dumpRenderData()
+     */
+    private static class BenchmarkSceneObject extends NetworkedSceneObject
+    {
+        protected String textureRef = "benchmark.png";
+        protected float width = 64, height = 32, angle = 0, scale = 1, brightness = 1, alphaBrightness = 1;
+        protected Color color = new Color(Color.white);
+        protected boolean flippedHorizontal = false, flippedVertical = false;
+
+        @Override
+        public SceneObjectRenderData dumpRenderData()
+        {
+            SceneObjectRenderData renderData = new SceneObjectRenderData(CoreClasses.IMAGE, this.getID());
+            renderData.data.add(this.textureRef);
+            renderData.data.add(this.width);
+            renderData.data.add(this.height);
+            renderData.data.add(this.getPosition().x);
+            renderData.data.add(this.getPosition().y);
+            renderData.data.add(this.angle);
+            renderData.data.add(this.scale);
+            renderData.data.add(this.color);
+            renderData.data.add(this.flippedHorizontal);
+            renderData.data.add(this.flippedVertical);
+            renderData.data.add(this.alphaBrightness);
+            renderData.data.add(this.brightness);
+            return renderData;
+        }
+
+        @Override
+        public SceneObjectRenderDataChanges generateRenderDataChanges(SceneObjectRenderData oldData, SceneObjectRenderData newData)
+        {
+            return null;
+        }
+
+        @Override
+        public void reconcileRenderDataChanges(long lastTime, long futureTime, SceneObjectRenderDataChanges renderDataChanges)
+        {
+
+        }
+
+        @Override
+        public void interpolate(long currenttime)
+        {
+
+        }
+
+        @Override
+        public void update()
+        {
+
+        }
+
+        @Override
+        public void draw(GL2 gl)
+        {
+
+        }
+    }
+
+    /**
+     * The same scene object, writing its snapshot directly
+     */
+    private static final class DirectBenchmarkSceneObject extends BenchmarkSceneObject
+    {
+        @Override
+        public void writeSnapshot(SceneSnapshotRing.SnapshotWriter writer)
+        {
+            writer.beginRenderData(CoreClasses.IMAGE, this.getID(), 12);
+            writer.writeValue(this.textureRef);
+            writer.writeFloat(this.width);
+            writer.writeFloat(this.height);
+            writer.writeFloat(this.getPosition().x);
+            writer.writeFloat(this.getPosition().y);
+            writer.writeFloat(this.angle);
+            writer.writeFloat(this.scale);
+            writer.writeValue(this.color);
+            writer.writeBoolean(this.flippedHorizontal);
+            writer.writeBoolean(this.flippedVertical);
+            writer.writeFloat(this.alphaBrightness);
+            writer.writeFloat(this.brightness);
+        }
+    }
+
+}
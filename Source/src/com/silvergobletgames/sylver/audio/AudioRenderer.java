@@ -1,6 +1,7 @@
 
 package com.silvergobletgames.sylver.audio;
 
+import com.silvergobletgames.sylver.core.EngineEvents;
 import com.silvergobletgames.sylver.core.Game;
 import com.silvergobletgames.sylver.graphics.TextureLoader;
 import com.silvergobletgames.sylver.util.Log;
@@ -35,6 +36,8 @@ public class AudioRenderer {
     
     //Sound system
     private SoundSystem soundSystem; 
+    //number of sounds that have been loaded
+    private volatile int loadedSoundCount = 0;
     
     //=============
     // Constructor
@@ -45,6 +48,30 @@ public class AudioRenderer {
      */
     public AudioRenderer()
     {
+        this(false);
+    }
+    
+    /**
+     * Creates a new audio renderer instance using PaulsCode audio stuff. A headless audio renderer uses the
+     * silent base Library, which accepts every call but never opens an audio device or decodes any sound.
+     * @param headless True to create a silent audio renderer
+     */
+    public AudioRenderer(boolean headless)
+    {
+        if(headless)
+        {
+            try
+            {
+                soundSystem = new SoundSystem(Library.class);
+            }
+            catch(SoundSystemException sse)
+            {
+                //log error to console
+                Log.error("Sound System Initialization Error: " + sse.getMessage(),sse);
+            }
+            return;
+        }
+        
          try
         {            
             SoundSystemConfig.addLibrary(LibraryJOAL.class );
@@ -134,7 +161,10 @@ public class AudioRenderer {
                         String filename = parts[parts.length - 1].toLowerCase();
 
                         //load the texture sound
+                        long eventStart = EngineEvents.begin();
                         soundSystem.loadSound(this.getClass().getClassLoader().getResource(jarEntry.getName()),filename); 
+                        loadedSoundCount++;
+                        EngineEvents.commit(EngineEvents.EventType.SOUND_LOAD, eventStart, filename, jarEntry.getSize(), 0);
                                             
                     }
                 }
@@ -159,7 +189,10 @@ public class AudioRenderer {
                     if (fileName.endsWith(".wav") || fileName.endsWith(".ogg")) 
                         try
                         {
+                            long eventStart = EngineEvents.begin();
                             soundSystem.loadSound(file.toUri().toURL(), fileName);
+                            loadedSoundCount++;
+                            EngineEvents.commit(EngineEvents.EventType.SOUND_LOAD, eventStart, fileName, attr.size(), 0);
                         }
                         catch (MalformedURLException ex)
                         {
@@ -313,6 +346,15 @@ public class AudioRenderer {
         this.soundSystem.setMasterVolume(volume); 
     }
     
+    /**
+     * Gets the number of sounds that have been loaded
+     * @return loaded sound count
+     */
+    public int getLoadedSoundCount()
+    {
+        return this.loadedSoundCount;
+    }
+    
     /**
      * Cleans up any running threads or open dependencies.
      */
@@ -1,5 +1,8 @@
 package com.silvergobletgames.sylver.core;
 
+import com.silvergobletgames.sylver.util.Pool;
+import com.silvergobletgames.sylver.util.TweenEngine;
+
 /**
  * Abstract class that is the base for all the effects in the engine.
  * Defines the abstract onApply(), onRemove(), and update(), functions,
@@ -16,6 +19,23 @@ public abstract class Effect
     protected int timeElapsed = 0; 
     //is expired
     protected boolean expired = false;
+    //pool the effect goes back to once it is removed, null if it wasnt obtained from a pool
+    private Pool pool;
+    //track numbers for setTrack(), number effects use the value track and color effects the color tracks
+    protected static final int VALUE_TRACK = 0, RED_TRACK = 0, GREEN_TRACK = 1, BLUE_TRACK = 2, ALPHA_TRACK = 3;
+    //start and end value of each track, the number of tracks set, and the effect time they end at
+    private final float[] trackValues = new float[8];
+    private int trackCount = 0;
+    private int trackDuration;
+    //tween engine of the EffectList the effect is in, and the handle of each track in it, null if not in a list
+    private TweenEngine tweens;
+    private final int[] tracks = new int[4];
+    //engine time minus effect time that the tracks are armed for, NaN when they need arming
+    private double trackOffset = Double.NaN;
+    //effect time of the last advanceTracks()
+    private int trackTime;
+    //easing curve of the tracks
+    private TweenEngine.Easing easing = TweenEngine.Easing.LINEAR;
     
   
     
@@ -43,6 +63,112 @@ public abstract class Effect
      */
     public abstract Effect copy();
     
+    /**
+     * Returns the effect to the pool it was obtained from. Called by the owner of the effect after onRemove(), 
+     * does nothing for effects that werent obtained from a pool.
+     */
+    public final void release()
+    {
+        Pool returnPool = this.pool;
+        if(returnPool != null)
+        {
+            this.pool = null;
+            returnPool.free(this);
+        }
+    }
+    
+    /**
+     * Marks the effect as obtained from the given pool, so release() returns it there
+     * @param pool pool the effect came from
+     */
+    protected final void setPool(Pool pool)
+    {
+        this.pool = pool;
+    }
+    
+    /**
+     * Sets a tween track to run from start to end over the effects time 1 through duration, with the effects easing.
+     * Every track of an effect shares the duration of the last one set. Setting a track doesnt allocate.
+     * @param track track number, 0 to 3
+     * @param start value at time 1
+     * @param end value at time duration
+     * @param duration time the track ends at
+     */
+    protected final void setTrack(int track, float start, float end, int duration)
+    {
+        this.trackValues[track * 2] = start;
+        this.trackValues[track * 2 + 1] = end;
+        this.trackCount = Math.max(this.trackCount, track + 1);
+        this.trackDuration = duration;
+        this.trackOffset = Double.NaN;
+    }
+    
+    /**
+     * Moves the tracks to the given effect time, read the results with getTrackValue(). The EffectList the effect is 
+     * in samples the tracks of all its effects in one pass each tick, so this only re-arms the tracks when the effect
+     * time has jumped, such as when the effect starts, repeats or its tracks are set.
+     * @param time effect time
+     */
+    protected final void advanceTracks(int time)
+    {
+        this.trackTime = time;
+        if(this.tweens == null)
+            return;
+        
+        //keep the tracks lined up with the engine clock
+        double offset = this.tweens.getTime() - time;
+        if(offset != this.trackOffset)
+        {
+            for(int i = 0; i < this.trackCount; i++)
+                this.tracks[i] = this.tweens.setOrCreate(this.tracks[i], this.trackValues[i * 2], this.trackValues[i * 2 + 1], offset + 1, offset + this.trackDuration, this.easing);
+            this.trackOffset = offset;
+        }
+    }
+    
+    /**
+     * Gets the value of a track as of the last advanceTracks()
+     * @param track track number
+     * @return value of the track
+     */
+    protected final float getTrackValue(int track)
+    {
+        if(this.tweens != null)
+            return this.tweens.getValue(this.tracks[track]);
+        
+        //effects that arent in an EffectList sample on their own
+        return TweenEngine.ease(this.trackValues[track * 2], this.trackValues[track * 2 + 1], 1, this.trackDuration, this.easing, this.trackTime);
+    }
+    
+    /**
+     * Gives the effect tracks in the tween engine of the EffectList it was added to
+     * @param tweens the lists tween engine
+     */
+    final void attachTracks(TweenEngine tweens)
+    {
+        if(this.tweens == tweens)
+            return;
+        
+        this.detachTracks();
+        this.tweens = tweens;
+    }
+    
+    /**
+     * Releases the effects tracks when it is taken out of an EffectList
+     */
+    final void detachTracks()
+    {
+        if(this.tweens != null)
+        {
+            for(int i = 0; i < this.tracks.length; i++)
+            {
+                this.tweens.release(this.tracks[i]);
+                this.tracks[i] = 0;
+            }
+        }
+        this.tweens = null;
+        this.trackOffset = Double.NaN;
+    }
+    
     
     //======================
     // Accessor Methods
@@ -63,6 +189,21 @@ public abstract class Effect
         return this.duration;
     }
     
+    public TweenEngine.Easing getEasing()
+    {
+        return this.easing;
+    }
+    
+    /**
+     * Sets the easing curve the effect moves from its start value to its end value along. Defaults to linear.
+     * @param easing easing curve
+     */
+    public void setEasing(TweenEngine.Easing easing)
+    {
+        this.easing = easing;
+        this.trackOffset = Double.NaN;
+    }
+    
     
     
     
@@ -0,0 +1,237 @@
+package com.silvergobletgames.sylver.core;
+
+import com.silvergobletgames.sylver.util.TweenEngine;
+import java.util.Arrays;
+
+/**
+ * Flat, named list of the effects applied to one Image, Text or LightSource. Effects are kept in insertion order in
+ * plain arrays, so the update pass is an indexed loop, and a bitmask of the effect types that are applied makes type
+ * checks constant time. Targets hold a handful of effects at most, so lookups by name are a short scan.
+ *
+ * The tween tracks of the effects live in one TweenEngine per list, created with the first effect, which is advanced
+ * once per update so every track is sampled in a single pass before the effects apply their values.
+ * @author Mike
+ */
+public final class EffectList<E extends Effect>
+{
+    //the effects, their names and their type ordinals
+    private Effect[] effects = new Effect[4];
+    private String[] names = new String[4];
+    private int[] types = new int[4];
+    private int count = 0;
+    //bit n is set if an effect with type ordinal n is applied
+    private long typeMask = 0;
+    //tween tracks of the effects, and the clock they are advanced with, counted in updates
+    private TweenEngine tweens;
+    private int clock = 0;
+
+
+    //================
+    // Class Methods
+    //================
+
+    /**
+     * Adds an effect under the given name, replacing any effect already under that name
+     * @param name name of the effect
+     * @param effect the effect
+     * @param type ordinal of the effects type, for hasType()
+     */
+    public void put(String name, E effect, int type)
+    {
+        int index = this.indexOf(name);
+        if(index == -1)
+        {
+            if(this.count == this.effects.length)
+            {
+                this.effects = Arrays.copyOf(this.effects, this.count * 2);
+                this.names = Arrays.copyOf(this.names, this.count * 2);
+                this.types = Arrays.copyOf(this.types, this.count * 2);
+            }
+            index = this.count++;
+        }
+        else if(this.effects[index] != effect)
+            this.effects[index].detachTracks();
+
+        if(this.tweens == null)
+            this.tweens = new TweenEngine(8);
+        effect.attachTracks(this.tweens);
+        this.effects[index] = effect;
+        this.names[index] = name;
+        this.types[index] = type;
+        this.rebuildTypeMask();
+    }
+
+    /**
+     * Updates every effect, and removes the ones that expire, firing their onRemove() and releasing them
+     */
+    public void update()
+    {
+        //sample every track for this update
+        if(this.tweens != null)
+            this.tweens.advance(++this.clock);
+        
+        for(int i = 0; i < this.count; i++)
+        {
+            Effect effect = this.effects[i];
+            effect.update();
+
+            //if expired, remove it
+            if(effect.isExpired() && this.effects[i] == effect)
+            {
+                this.removeAt(i);
+                i--;
+
+                //fire effects on remove
+                effect.onRemove();
+                effect.release();
+            }
+        }
+    }
+
+    /**
+     * Gets the effect with the given name
+     * @param name name of the effect
+     * @return the effect, or null if there is none with that name
+     */
+    public E get(String name)
+    {
+        int index = this.indexOf(name);
+        return index != -1 ? (E)this.effects[index] : null;
+    }
+
+    /**
+     * Gets the effect at an index
+     * @param index index between 0 and size()
+     * @return the effect
+     */
+    public E get(int index)
+    {
+        return (E)this.effects[index];
+    }
+
+    /**
+     * Gets the name of the effect at an index
+     * @param index index between 0 and size()
+     * @return name of the effect
+     */
+    public String getName(int index)
+    {
+        return this.names[index];
+    }
+
+    /**
+     * Returns true if there is an effect with the given name
+     * @param name name to look for
+     * @return true if the name is used
+     */
+    public boolean containsName(String name)
+    {
+        return this.indexOf(name) != -1;
+    }
+
+    /**
+     * Returns true if an effect of the given type is applied
+     * @param type ordinal of the effect type
+     * @return true if an effect of that type is applied
+     */
+    public boolean hasType(int type)
+    {
+        return (this.typeMask & (1L << type)) != 0;
+    }
+
+    /**
+     * Gets the bitmask of the applied effect types, bit n is set if an effect with type ordinal n is applied
+     * @return type bitmask
+     */
+    public long getTypeMask()
+    {
+        return this.typeMask;
+    }
+
+    /**
+     * Gets the index of the effect with the given name
+     * @param name name of the effect
+     * @return index of the effect, or -1 if there is none with that name
+     */
+    public int indexOf(String name)
+    {
+        for(int i = 0; i < this.count; i++)
+        {
+            if(this.names[i].equals(name))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the index of an effect
+     * @param effect the effect
+     * @return index of the effect, or -1 if it isnt in the list
+     */
+    public int indexOf(Effect effect)
+    {
+        for(int i = 0; i < this.count; i++)
+        {
+            if(this.effects[i] == effect)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Removes the effect with the given name. Does not fire onRemove().
+     * @param name name of the effect
+     * @return the removed effect, or null if there was none with that name
+     */
+    public E remove(String name)
+    {
+        int index = this.indexOf(name);
+        return index != -1 ? this.removeAt(index) : null;
+    }
+
+    /**
+     * Removes the effect at an index, keeping the order of the rest. Does not fire onRemove().
+     * @param index index between 0 and size()
+     * @return the removed effect
+     */
+    public E removeAt(int index)
+    {
+        E effect = (E)this.effects[index];
+        effect.detachTracks();
+        this.count--;
+        System.arraycopy(this.effects, index + 1, this.effects, index, this.count - index);
+        System.arraycopy(this.names, index + 1, this.names, index, this.count - index);
+        System.arraycopy(this.types, index + 1, this.types, index, this.count - index);
+        this.effects[this.count] = null;
+        this.names[this.count] = null;
+        this.rebuildTypeMask();
+        return effect;
+    }
+
+    /**
+     * Removes every effect. Does not fire onRemove().
+     */
+    public void clear()
+    {
+        for(int i = 0; i < this.count; i++)
+            this.effects[i].detachTracks();
+        Arrays.fill(this.effects, 0, this.count, null);
+        Arrays.fill(this.names, 0, this.count, null);
+        this.count = 0;
+        this.typeMask = 0;
+    }
+
+    public int size()
+    {
+        return this.count;
+    }
+
+    private void rebuildTypeMask()
+    {
+        long mask = 0;
+        for(int i = 0; i < this.count; i++)
+            mask |= 1L << this.types[i];
+        this.typeMask = mask;
+    }
+
+}
@@ -0,0 +1,250 @@
+package com.silvergobletgames.sylver.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records typed engine events, such as frames, scene ticks, render passes and asset loads, along with a label and
+ * two numeric payload values. Events are kept in a fixed size ring buffer and are written into the same Chrome trace
+ * as the profiler scopes by Profiler.exportChromeTrace(), together with the garbage collections that happened
+ * while recording, so collection pauses and heap growth can be lined up against engine phases in one recording.
+ *
+ * Events are timed by taking a start time with begin() and passing it to commit(). When recording is disabled
+ * begin() returns 0 without reading the clock and commit() returns immediately.
+ * @author Mike
+ */
+public final class EngineEvents
+{
+    //number of events kept
+    private static final int CAPACITY = 16384;
+    private static final int MASK = CAPACITY - 1;
+
+    //if events are being recorded
+    private static volatile boolean enabled = false;
+
+    //ring buffers of the event fields
+    private static final EventType[] types = new EventType[CAPACITY];
+    private static final String[] labels = new String[CAPACITY];
+    private static final long[] startTimes = new long[CAPACITY];
+    private static final long[] durations = new long[CAPACITY];
+    private static final long[] threadIds = new long[CAPACITY];
+    private static final long[] values = new long[CAPACITY];
+    private static final long[] secondValues = new long[CAPACITY];
+    //total number of events ever recorded
+    private static final AtomicLong writeIndex = new AtomicLong();
+
+    //garbage collector counts and times as of the last sample
+    private static List<GarbageCollectorMXBean> garbageCollectors;
+    private static long[] lastCollectionCounts;
+    private static long[] lastCollectionTimes;
+
+    /**
+     * The types of event the engine records. Each type documents what its label and two values hold.
+     */
+    public static enum EventType
+    {
+        /** One pass of the game loop. value: updates run, secondValue: change in used heap bytes */
+        FRAME,
+        /** One scene update. label: scene class, value: scene object count */
+        SCENE_TICK,
+        /** One pass of the rendering pipeline. label: pass name, value: scene objects drawn */
+        RENDER_PASS,
+        /** A texture load. label: identifier, value: estimated texture bytes */
+        TEXTURE_LOAD,
+        /** A shader program load. label: program name, value: source lines */
+        SHADER_LOAD,
+        /** A sound load. label: file name, value: file bytes */
+        SOUND_LOAD,
+        /** A change of the active scene. label: scene class, value: scene object count */
+        SCENE_CHANGE,
+        /** Generation of render data changes. label: object ID, value: changed fields */
+        RENDER_DATA_DELTA,
+        /** Reconciliation of render data changes. label: object ID, value: changed fields */
+        RENDER_DATA_RECONCILE,
+        /** A world region read on the streaming thread. value: packed region coordinates, secondValue: scene objects */
+        REGION_LOAD,
+        /** Garbage collections seen since the last sample. label: collector, value: collections, secondValue: used heap bytes */
+        GARBAGE_COLLECTION;
+    }
+
+
+    //==================
+    // Constructor
+    //==================
+
+    private EngineEvents()
+    {
+
+    }
+
+
+    //==================
+    // Class Methods
+    //==================
+
+    /**
+     * Gets the start time for an event
+     * @return System.nanoTime(), or 0 if recording is disabled
+     */
+    public static long begin()
+    {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records an event that started at the given time and ends now
+     * @param type type of the event
+     * @param startTime start time returned by begin()
+     * @param label label of the event, may be null
+     * @param value first payload value
+     * @param secondValue second payload value
+     */
+    public static void commit(EventType type, long startTime, String label, long value, long secondValue)
+    {
+        if(!enabled || startTime == 0)
+            return;
+
+        record(type, startTime, System.nanoTime() - startTime, label, value, secondValue);
+    }
+
+    /**
+     * Records an event that has no duration
+     * @param type type of the event
+     * @param label label of the event, may be null
+     * @param value first payload value
+     * @param secondValue second payload value
+     */
+    public static void instant(EventType type, String label, long value, long secondValue)
+    {
+        if(!enabled)
+            return;
+
+        record(type, System.nanoTime(), 0, label, value, secondValue);
+    }
+
+    /**
+     * Enables or disables event recording
+     * @param value true to start recording
+     */
+    public static void setEnabled(boolean value)
+    {
+        if(value)
+            sampleGarbageCollection();
+        enabled = value;
+    }
+
+    /**
+     * Returns true if events are being recorded
+     * @return true if enabled
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Gets the number of events currently held
+     * @return held event count
+     */
+    public static int getEventCount()
+    {
+        return (int)Math.min(writeIndex.get(), CAPACITY);
+    }
+
+    /**
+     * Throws away all held events
+     */
+    public static void reset()
+    {
+        writeIndex.set(0);
+    }
+
+    /**
+     * Gets the number of bytes in use on the heap. Cheap enough to call once per frame.
+     * @return used heap bytes
+     */
+    public static long getUsedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Records a GARBAGE_COLLECTION event for each collector that has run since the last sample. The event covers
+     * the time the collector spent collecting, ending at the sample. Called by the game loop once a frame.
+     */
+    protected static synchronized void sampleGarbageCollection()
+    {
+        if(garbageCollectors == null)
+        {
+            garbageCollectors = ManagementFactory.getGarbageCollectorMXBeans();
+            lastCollectionCounts = new long[garbageCollectors.size()];
+            lastCollectionTimes = new long[garbageCollectors.size()];
+        }
+
+        long now = System.nanoTime();
+        for(int i = 0; i < garbageCollectors.size(); i++)
+        {
+            GarbageCollectorMXBean collector = garbageCollectors.get(i);
+            long count = collector.getCollectionCount();
+            long time = collector.getCollectionTime();
+
+            if(count > lastCollectionCounts[i] && enabled)
+            {
+                long duration = (time - lastCollectionTimes[i]) * 1_000_000;
+                record(EventType.GARBAGE_COLLECTION, now - duration, duration, collector.getName(), count - lastCollectionCounts[i], getUsedHeap());
+            }
+
+            lastCollectionCounts[i] = count;
+            lastCollectionTimes[i] = time;
+        }
+    }
+
+    /**
+     * Writes every held event as Chrome trace events. Called by Profiler.exportChromeTrace()
+     * @param writer Writer to write to
+     * @param epoch time that trace timestamps are measured from
+     * @param first true if no event has been written to the trace yet
+     * @return true if still no event has been written to the trace
+     * @throws IOException if the writer fails
+     */
+    protected static boolean writeTraceEvents(Writer writer, long epoch, boolean first) throws IOException
+    {
+        long end = writeIndex.get();
+        int count = (int)Math.min(end, CAPACITY);
+        for(long i = end - count; i < end; i++)
+        {
+            int slot = (int)(i & MASK);
+            EventType type = types[slot];
+            if(type == null)
+                continue;
+
+            if(!first)
+                writer.write(',');
+            first = false;
+
+            String name = labels[slot] != null ? type.name() + " " + labels[slot] : type.name();
+            writer.write("\n{\"name\":\"" + name.replace("\\", "\\\\").replace("\"", "\\\"") + "\",\"cat\":\"engine\",\"ph\":\"X\",\"pid\":1,\"tid\":" + threadIds[slot]
+                    + ",\"ts\":" + (startTimes[slot] - epoch) / 1000d + ",\"dur\":" + durations[slot] / 1000d
+                    + ",\"args\":{\"value\":" + values[slot] + ",\"secondValue\":" + secondValues[slot] + "}}");
+        }
+        return first;
+    }
+
+    private static void record(EventType type, long startTime, long duration, String label, long value, long secondValue)
+    {
+        int slot = (int)(writeIndex.getAndIncrement() & MASK);
+        types[slot] = type;
+        labels[slot] = label;
+        startTimes[slot] = startTime;
+        durations[slot] = duration;
+        threadIds[slot] = Thread.currentThread().getId();
+        values[slot] = value;
+        secondValues[slot] = secondValue;
+    }
+
+}
@@ -32,6 +32,8 @@ public class EngineSettings
     public boolean gaussianBlur = false;
     public boolean profileRendering = false;
     public boolean profileGameLoop = false;
+    public boolean pipelinedRendering = false;
+    public int frameRateCap = 60; //0 for uncapped
     public ParticleDensity particleDensity = ParticleDensity.HIGH;
     public Dimension screenResolution = new Dimension (0,0);
     public int logLevel = Log.LEVEL_INFO;
@@ -83,6 +85,8 @@ public class EngineSettings
             iniSaver.setProperty("screenResolutionHeight",Integer.toString(this.screenResolution.getHeight()));
             iniSaver.setProperty("profileRendering",Boolean.toString(this.profileRendering));
             iniSaver.setProperty("profileGameLoop",Boolean.toString(this.profileGameLoop));
+            iniSaver.setProperty("pipelinedRendering",Boolean.toString(this.pipelinedRendering));
+            iniSaver.setProperty("frameRateCap",Integer.toString(this.frameRateCap));
             iniSaver.setProperty("logLevel",Integer.toString(this.logLevel));
 
             //open output stream
@@ -122,6 +126,8 @@ public class EngineSettings
             boolean fullscreen = Boolean.parseBoolean(iniLoader.getProperty("fullScreen"));
             boolean profileRendering = Boolean.parseBoolean(iniLoader.getProperty("profileRendering"));
             boolean profileGameLoop = Boolean.parseBoolean(iniLoader.getProperty("profileGameLoop"));
+            boolean pipelinedRendering = Boolean.parseBoolean(iniLoader.getProperty("pipelinedRendering"));
+            int frameRateCap = Integer.parseInt(iniLoader.getProperty("frameRateCap", "60"));
             ParticleDensity density = ParticleDensity.valueOf(iniLoader.getProperty("particleDensity"));
             int xResolution = Integer.parseInt(iniLoader.getProperty("screenResolutionWidth"));
             int yResolution = Integer.parseInt(iniLoader.getProperty("screenResolutionHeight"));
@@ -139,6 +145,8 @@ public class EngineSettings
             settings.screenResolution = new Dimension(xResolution,yResolution);
             settings.profileRendering = profileRendering;
             settings.profileGameLoop = profileGameLoop;
+            settings.pipelinedRendering = pipelinedRendering;
+            settings.frameRateCap = frameRateCap;
             settings.logLevel = logLevel;
             
             //return
@@ -0,0 +1,124 @@
+package com.silvergobletgames.sylver.core;
+
+/**
+ * Decides how long the game loop waits at the end of each frame. Subclasses implement waitUntil() to wait
+ * for the frame deadline, and this class keeps the jitter statistics of how close to the deadline each
+ * frame actually started. A custom pacer can be set with GameConfiguration.setFramePacer().
+ * @author Mike
+ */
+public abstract class FramePacer
+{
+    //target length of a frame in nanoseconds, 0 for uncapped
+    private volatile long targetFramePeriod;
+
+    //jitter statistics, in nanoseconds
+    private volatile long averageJitter;
+    private volatile long maxJitter;
+    private volatile long pacedFrames;
+
+
+    //==================
+    // Constructor
+    //==================
+
+    /**
+     * Creates a frame pacer with the given frame rate cap
+     * @param targetFrameRate frames per second to cap at, 0 for uncapped
+     */
+    protected FramePacer(float targetFrameRate)
+    {
+        this.setTargetFrameRate(targetFrameRate);
+    }
+
+
+    //==================
+    // Class Methods
+    //==================
+
+    /**
+     * Waits until the next frame should begin. Called by the game loop once the frame's work is done.
+     * @param frameStart System.nanoTime() at which the current frame began
+     */
+    public final void waitForNextFrame(long frameStart)
+    {
+        long period = this.targetFramePeriod;
+        if(period <= 0)
+            return;
+
+        //if the frame ran long there is nothing to wait for
+        long deadline = frameStart + period;
+        if(System.nanoTime() >= deadline)
+            return;
+
+        this.waitUntil(deadline);
+
+        //record how far past the deadline we woke up
+        long jitter = Math.abs(System.nanoTime() - deadline);
+        this.averageJitter += (jitter - this.averageJitter) / 16;
+        if(jitter > this.maxJitter)
+            this.maxJitter = jitter;
+        this.pacedFrames++;
+    }
+
+    /**
+     * Waits until System.nanoTime() reaches the given deadline, returning as close to it as possible
+     * @param deadline System.nanoTime() value to wait for
+     */
+    protected abstract void waitUntil(long deadline);
+
+    /**
+     * Sets the frame rate cap
+     * @param targetFrameRate frames per second to cap at, 0 for uncapped
+     */
+    public void setTargetFrameRate(float targetFrameRate)
+    {
+        this.targetFramePeriod = targetFrameRate > 0 ? (long)(1_000_000_000d / targetFrameRate) : 0;
+    }
+
+    /**
+     * Gets the target length of a frame
+     * @return target frame period in nanoseconds, or 0 if uncapped
+     */
+    public long getTargetFramePeriod()
+    {
+        return this.targetFramePeriod;
+    }
+
+    /**
+     * Gets the moving average of how far from the deadline frames started
+     * @return average jitter in nanoseconds
+     */
+    public long getAverageJitter()
+    {
+        return this.averageJitter;
+    }
+
+    /**
+     * Gets the largest distance from the deadline a frame has started at since the last reset
+     * @return max jitter in nanoseconds
+     */
+    public long getMaxJitter()
+    {
+        return this.maxJitter;
+    }
+
+    /**
+     * Gets the number of frames that have been paced since the last reset
+     * @return paced frame count
+     */
+    public long getPacedFrames()
+    {
+        return this.pacedFrames;
+    }
+
+    /**
+     * Resets the jitter statistics
+     */
+    public void resetJitterStatistics()
+    {
+        this.averageJitter = 0;
+        this.maxJitter = 0;
+        this.pacedFrames = 0;
+    }
+
+}
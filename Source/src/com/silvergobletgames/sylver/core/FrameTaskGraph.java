@@ -0,0 +1,413 @@
+package com.silvergobletgames.sylver.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A graph of the work done each frame. Subsystems add tasks that name the resources they read and write, and run()
+ * executes the tasks across a ForkJoinPool, returning once all of them are done. A task waits for every task added
+ * before it that writes something it reads or writes, or reads something it writes, so the result is the same as
+ * running the tasks one after another in the order they were added, and tasks that share nothing run at the same
+ * time. Resources are just names, such as "sceneObjects" or "visible.MAIN".
+ *
+ * Main thread tasks always run on the thread that called run(), for work that touches state other threads mustnt,
+ * such as OpenGL or game callbacks. Worker tasks run on the pool, and must only touch the resources they declared.
+ *
+ * The graph is rebuilt when tasks are added or removed, running it again allocates nothing. A graph is run by one
+ * thread at a time.
+ * @author Mike
+ */
+public final class FrameTaskGraph
+{
+    //resource ids by name
+    private final HashMap<String, Integer> resourceIds = new HashMap<>();
+    //tasks, in the order they were added
+    private final ArrayList<Task> tasks = new ArrayList<>();
+    private int workerTaskCount = 0;
+    //true if the dependencies need rebuilding
+    private boolean dirty = false;
+
+    //the pool tasks are running on
+    private ForkJoinPool pool;
+    //number of unfinished dependencies of each task
+    private AtomicIntegerArray pendingDependencies = new AtomicIntegerArray(0);
+    //number of tasks still to finish
+    private final AtomicInteger remaining = new AtomicInteger();
+    //main thread tasks that are ready to run, in the order they became ready
+    private Task[] mainThreadQueue = new Task[0];
+    private int mainThreadQueueHead = 0;
+    private int mainThreadQueueTail = 0;
+    //the first exception thrown by a task this run
+    private volatile Throwable failure;
+    private volatile Task failedTask;
+    //guards the main thread queue, and is notified when it grows or the last task finishes
+    private final Object lock = new Object();
+
+
+    //================
+    // Class Methods
+    //================
+
+    /**
+     * Adds a task that runs on the worker pool
+     * @param name name of the task
+     * @param work the work
+     * @param reads names of the resources the task reads, or null
+     * @param writes names of the resources the task writes, or null
+     */
+    public void addTask(String name, Runnable work, String[] reads, String[] writes)
+    {
+        this.add(name, work, reads, writes, false);
+    }
+
+    /**
+     * Adds a task that runs on the thread that calls run()
+     * @param name name of the task
+     * @param work the work
+     * @param reads names of the resources the task reads, or null
+     * @param writes names of the resources the task writes, or null
+     */
+    public void addMainThreadTask(String name, Runnable work, String[] reads, String[] writes)
+    {
+        this.add(name, work, reads, writes, true);
+    }
+
+    /**
+     * Removes a task
+     * @param name name of the task
+     * @return true if there was a task with that name
+     */
+    public boolean removeTask(String name)
+    {
+        for(int i = 0; i < this.tasks.size(); i++)
+        {
+            Task task = this.tasks.get(i);
+            if(task.name.equals(name))
+            {
+                this.tasks.remove(i);
+                if(!task.mainThread)
+                    this.workerTaskCount--;
+                this.dirty = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs every task, spreading the worker tasks across the pool, and returns once they have all finished. If a
+     * task throws, the tasks that depend on it, directly or through other tasks, are skipped, the rest finish, and
+     * then the first exception is rethrown wrapped in a RuntimeException.
+     * @param pool pool to run worker tasks on, or null to run everything on this thread
+     */
+    public void run(ForkJoinPool pool)
+    {
+        //nothing to spread out, run in order on this thread
+        if(pool == null || this.workerTaskCount == 0 || this.tasks.size() == 1)
+        {
+            this.runSerially();
+            return;
+        }
+
+        if(this.dirty)
+            this.rebuild();
+
+        //reset the scheduling state
+        int count = this.tasks.size();
+        this.pool = pool;
+        this.failure = null;
+        this.failedTask = null;
+        this.mainThreadQueueHead = 0;
+        this.mainThreadQueueTail = 0;
+        this.remaining.set(count);
+        for(int i = 0; i < count; i++)
+        {
+            Task task = this.tasks.get(i);
+            this.pendingDependencies.set(i, task.dependencyCount);
+            task.dependencyFailed = false;
+            if(!task.mainThread)
+                task.reinitialize();
+        }
+
+        //start the tasks that dont depend on anything
+        for(int i = 0; i < count; i++)
+        {
+            Task task = this.tasks.get(i);
+            if(task.dependencyCount == 0)
+                this.schedule(task);
+        }
+
+        //run main thread tasks as they become ready, until everything is done
+        boolean interrupted = false;
+        while(true)
+        {
+            Task next = null;
+            synchronized(this.lock)
+            {
+                while(this.mainThreadQueueHead == this.mainThreadQueueTail && this.remaining.get() > 0)
+                {
+                    try
+                    {
+                        this.lock.wait();
+                    }
+                    catch(InterruptedException e)
+                    {
+                        interrupted = true;
+                    }
+                }
+
+                if(this.mainThreadQueueHead != this.mainThreadQueueTail)
+                    next = this.mainThreadQueue[this.mainThreadQueueHead++];
+            }
+
+            if(next == null)
+                break;
+            this.runTask(next);
+        }
+
+        //the workers count a task as finished just before the pool does, wait for the pool so the tasks can be
+        //reinitialized next run
+        for(int i = 0; i < count; i++)
+        {
+            Task task = this.tasks.get(i);
+            if(!task.mainThread)
+                task.quietlyJoin();
+        }
+
+        this.pool = null;
+        if(interrupted)
+            Thread.currentThread().interrupt();
+
+        if(this.failure != null)
+            throw new RuntimeException("Frame task " + this.failedTask.name + " failed", this.failure);
+    }
+
+    /**
+     * Runs every task on this thread, in the order they were added
+     */
+    public void runSerially()
+    {
+        for(int i = 0; i < this.tasks.size(); i++)
+        {
+            Task task = this.tasks.get(i);
+            long start = System.nanoTime();
+            task.work.run();
+            task.lastRunTime = System.nanoTime() - start;
+        }
+    }
+
+    public int getTaskCount()
+    {
+        return this.tasks.size();
+    }
+
+    public String getTaskName(int index)
+    {
+        return this.tasks.get(index).name;
+    }
+
+    /**
+     * Gets how long a task took the last time it ran
+     * @param index index of the task, in the order tasks were added
+     * @return run time in nanoseconds
+     */
+    public long getTaskTime(int index)
+    {
+        return this.tasks.get(index).lastRunTime;
+    }
+
+    private void add(String name, Runnable work, String[] reads, String[] writes, boolean mainThread)
+    {
+        for(Task task: this.tasks)
+        {
+            if(task.name.equals(name))
+                throw new RuntimeException("Frame task graph already has a task named " + name);
+        }
+
+        Task task = new Task(this, name, work, this.resourcesOf(reads), this.resourcesOf(writes), mainThread);
+        this.tasks.add(task);
+        if(!mainThread)
+            this.workerTaskCount++;
+        this.dirty = true;
+    }
+
+    private int[] resourcesOf(String[] names)
+    {
+        if(names == null)
+            return new int[0];
+
+        int[] ids = new int[names.length];
+        for(int i = 0; i < names.length; i++)
+        {
+            Integer id = this.resourceIds.get(names[i]);
+            if(id == null)
+            {
+                id = this.resourceIds.size();
+                this.resourceIds.put(names[i], id);
+            }
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Works out which tasks each task has to wait for
+     */
+    private void rebuild()
+    {
+        int count = this.tasks.size();
+        ArrayList<Integer> dependents = new ArrayList<>();
+        for(int i = 0; i < count; i++)
+            this.tasks.get(i).dependencyCount = 0;
+
+        for(int i = 0; i < count; i++)
+        {
+            Task earlier = this.tasks.get(i);
+            dependents.clear();
+            for(int j = i + 1; j < count; j++)
+            {
+                Task later = this.tasks.get(j);
+                if(overlaps(earlier.writes, later.reads) || overlaps(earlier.writes, later.writes) || overlaps(earlier.reads, later.writes))
+                {
+                    dependents.add(j);
+                    later.dependencyCount++;
+                }
+            }
+
+            earlier.dependents = new int[dependents.size()];
+            for(int k = 0; k < dependents.size(); k++)
+                earlier.dependents[k] = dependents.get(k);
+        }
+
+        this.pendingDependencies = new AtomicIntegerArray(count);
+        this.mainThreadQueue = new Task[count];
+        this.dirty = false;
+    }
+
+    private static boolean overlaps(int[] a, int[] b)
+    {
+        for(int i = 0; i < a.length; i++)
+        {
+            for(int j = 0; j < b.length; j++)
+            {
+                if(a[i] == b[j])
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hands a task whose dependencies are done to whoever runs it
+     */
+    private void schedule(Task task)
+    {
+        if(task.mainThread)
+        {
+            synchronized(this.lock)
+            {
+                this.mainThreadQueue[this.mainThreadQueueTail++] = task;
+                this.lock.notifyAll();
+            }
+        }
+        else if(ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == this.pool)
+            task.fork();
+        else
+            this.pool.execute(task);
+    }
+
+    /**
+     * Runs a task, unless a task it depends on failed or was skipped, then releases the tasks that depend on it
+     */
+    private void runTask(Task task)
+    {
+        boolean failed = task.dependencyFailed;
+        if(!failed)
+        {
+            long start = System.nanoTime();
+            try
+            {
+                task.work.run();
+            }
+            catch(Throwable t)
+            {
+                failed = true;
+                synchronized(this.lock)
+                {
+                    if(this.failure == null)
+                    {
+                        this.failedTask = task;
+                        this.failure = t;
+                    }
+                }
+            }
+            task.lastRunTime = System.nanoTime() - start;
+        }
+
+        for(int i = 0; i < task.dependents.length; i++)
+        {
+            int dependent = task.dependents[i];
+            //set before the release, which publishes it to whoever runs the dependent
+            if(failed)
+                this.tasks.get(dependent).dependencyFailed = true;
+            if(this.pendingDependencies.decrementAndGet(dependent) == 0)
+                this.schedule(this.tasks.get(dependent));
+        }
+
+        if(this.remaining.decrementAndGet() == 0)
+        {
+            synchronized(this.lock)
+            {
+                this.lock.notifyAll();
+            }
+        }
+    }
+
+
+    //================
+    // Inner Classes
+    //================
+
+    /**
+     * A task in the graph. Worker tasks are forked onto the pool as themselves, so running the graph doesnt
+     * allocate.
+     */
+    private static final class Task extends RecursiveAction
+    {
+        private final FrameTaskGraph graph;
+        private final String name;
+        private final Runnable work;
+        private final int[] reads;
+        private final int[] writes;
+        private final boolean mainThread;
+        //set when the graph is rebuilt
+        private int dependencyCount;
+        private int[] dependents = new int[0];
+        //true if a task this one depends on failed or was skipped this run
+        private boolean dependencyFailed;
+        //nanoseconds the task took the last time it ran
+        private volatile long lastRunTime;
+
+        private Task(FrameTaskGraph graph, String name, Runnable work, int[] reads, int[] writes, boolean mainThread)
+        {
+            this.graph = graph;
+            this.name = name;
+            this.work = work;
+            this.reads = reads;
+            this.writes = writes;
+            this.mainThread = mainThread;
+        }
+
+        @Override
+        protected void compute()
+        {
+            this.graph.runTask(this);
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.silvergobletgames.sylver.core;
+
+/**
+ * Holds the per stage timing breakdown of the most recent frame, in nanoseconds. Written by the game loop
+ * and the render thread, and safe to read from any thread.
+ * @author Mike
+ */
+public final class FrameTimings
+{
+    //time spent taking input snapshots
+    private volatile long inputTime;
+    //time spent in scene.update()
+    private volatile long updateTime;
+    //time spent in scene.handleInput()
+    private volatile long handleInputTime;
+    //time spent publishing the render snapshot
+    private volatile long snapshotTime;
+    //time spent rendering the scene
+    private volatile long renderTime;
+    //time the render thread spent waiting for a new frame
+    private volatile long renderWaitTime;
+    //total time of the game loop, excluding frame pacing
+    private volatile long frameTime;
+    //number of scene updates run this frame
+    private volatile int updateCount;
+
+
+    //==================
+    // Class Methods
+    //==================
+
+    /**
+     * Resets the update stage times at the start of a frame
+     */
+    protected void beginFrame()
+    {
+        this.inputTime = 0;
+        this.updateTime = 0;
+        this.handleInputTime = 0;
+        this.snapshotTime = 0;
+    }
+
+    protected void addInputTime(long nanos)
+    {
+        this.inputTime += nanos;
+    }
+
+    protected void addUpdateTime(long nanos)
+    {
+        this.updateTime += nanos;
+    }
+
+    protected void addHandleInputTime(long nanos)
+    {
+        this.handleInputTime += nanos;
+    }
+
+    protected void setSnapshotTime(long nanos)
+    {
+        this.snapshotTime = nanos;
+    }
+
+    protected void setRenderTime(long nanos)
+    {
+        this.renderTime = nanos;
+    }
+
+    protected void setRenderWaitTime(long nanos)
+    {
+        this.renderWaitTime = nanos;
+    }
+
+    protected void setUpdateCount(int count)
+    {
+        this.updateCount = count;
+    }
+
+    protected void setFrameTime(long nanos)
+    {
+        this.frameTime = nanos;
+    }
+
+    public long getInputTime()
+    {
+        return this.inputTime;
+    }
+
+    public long getUpdateTime()
+    {
+        return this.updateTime;
+    }
+
+    public long getHandleInputTime()
+    {
+        return this.handleInputTime;
+    }
+
+    public long getSnapshotTime()
+    {
+        return this.snapshotTime;
+    }
+
+    public long getRenderTime()
+    {
+        return this.renderTime;
+    }
+
+    public long getRenderWaitTime()
+    {
+        return this.renderWaitTime;
+    }
+
+    public int getUpdateCount()
+    {
+        return this.updateCount;
+    }
+
+    public long getFrameTime()
+    {
+        return this.frameTime;
+    }
+
+    /**
+     * Builds a one line human readable breakdown of the frame, in milliseconds
+     * @return breakdown string
+     */
+    @Override
+    public String toString()
+    {
+        return "Frame: " + (float)frameTime/1_000_000f + "ms"
+                + " [updates " + updateCount
+                + ", input " + (float)inputTime/1_000_000f
+                + ", update " + (float)updateTime/1_000_000f
+                + ", handleInput " + (float)handleInputTime/1_000_000f
+                + ", snapshot " + (float)snapshotTime/1_000_000f
+                + ", render " + (float)renderTime/1_000_000f
+                + ", renderWait " + (float)renderWaitTime/1_000_000f + "]";
+    }
+}
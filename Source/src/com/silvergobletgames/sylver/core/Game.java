@@ -2,14 +2,22 @@ package com.silvergobletgames.sylver.core;
 
 
 import com.silvergobletgames.sylver.audio.AudioRenderer;
+import com.silvergobletgames.sylver.core.Scene.Layer;
+import com.silvergobletgames.sylver.graphics.AbstractParticleEmitter;
+import com.silvergobletgames.sylver.graphics.Image;
+import com.silvergobletgames.sylver.graphics.LightSource;
 import com.silvergobletgames.sylver.graphics.OpenGLGameWindow;
+import com.silvergobletgames.sylver.graphics.Text;
+import com.silvergobletgames.sylver.util.EventBus;
 import com.silvergobletgames.sylver.util.Log;
+import com.silvergobletgames.sylver.util.Pool;
 import java.io.StringWriter;
 import java.io.PrintWriter;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -54,6 +62,8 @@ public final class Game
     private AudioRenderer audioRenderer;
     //input handler
     private InputHandler inputHandler;
+    //render thread, only used when pipelined rendering is enabled
+    private RenderThread renderThread;
 
     
     
@@ -64,8 +74,45 @@ public final class Game
     private long endOfLoopTime=0;
     private long lastFrameTime;
     //update accumulator variables
-    private final long timestep = 16_666_667; //60hz     
+    private long timestep = 16_666_667; //60hz by default, set from the GameConfiguration     
     private long accumulator = 0;  
+    //per stage timing breakdown of the last frame
+    private final FrameTimings frameTimings = new FrameTimings();
+    //paces the game loop between frames
+    private FramePacer framePacer;
+    //frames since the profiler report was last logged
+    private int framesSinceProfilerReport = 0;
+    
+    //profiler scopes
+    private static final ProfilerScope loopScope = Profiler.getScope("Game Loop");
+    private static final ProfilerScope inputScope = Profiler.getScope("Input Snapshot");
+    private static final ProfilerScope updateScope = Profiler.getScope("Scene Update");
+    private static final ProfilerScope handleInputScope = Profiler.getScope("Handle Input");
+    private static final ProfilerScope snapshotScope = Profiler.getScope("Render Snapshot");
+    //number of frames between profiler reports
+    private static final int PROFILER_REPORT_INTERVAL = 600;
+    
+    //event bus for batched event channels, flushed once per tick
+    private final EventBus eventBus = new EventBus();
+    
+    //engine metrics
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final MetricsRegistry.Counter frameCounter = metrics.counter("frames");
+    private final MetricsRegistry.Counter updateCounter = metrics.counter("updates");
+    private final MetricsRegistry.Histogram frameTimeHistogram = metrics.histogram("frameTime");
+    private final MetricsRegistry.Histogram updateTimeHistogram = metrics.histogram("updateTime");
+    private final MetricsRegistry.Histogram renderTimeHistogram = metrics.histogram("renderTime");
+    //background work, CPU and I/O pools
+    private final JobSystem jobSystem = new JobSystem(Runtime.getRuntime().availableProcessors(), IO_THREADS, metrics);
+    //max number of I/O pool threads
+    private static final int IO_THREADS = 8;
+    //how long shutdown waits for queued jobs such as saves, in milliseconds
+    private static final long JOB_SHUTDOWN_TIMEOUT = 5000;
+    //frames since the scene metrics were last sampled, and when that was
+    private int framesSinceMetricsSample = 0;
+    private long lastMetricsSampleTime = 0;
+    //number of frames between samples of the scene metrics
+    private static final int METRICS_SAMPLE_INTERVAL = 30;
 
     
         
@@ -110,24 +157,37 @@ public final class Game
         this.assetManager = new AssetManager();
         
         //create a new openGL window
-        try
+        if(this.gameConfiguration.isHeadless())
         {
-            this.graphicsWindow = new OpenGLGameWindow();
-            this.graphicsWindow.postInit();
+            Log.info("Running headless, no graphics window will be created");
             
-         
+            //the system textures are still needed for their metadata
+            this.loadHeadlessSystemTextures();
         }
-        catch(Exception e)
+        else
         {
-            //log error to console
-            Log.error( "Error Creating Graphics Window: " + e.getMessage(),e);
-            
-            //exit
-            this.uncaughtExceptionHandlingActions(e);
+            try
+            {
+                this.graphicsWindow = new OpenGLGameWindow();
+                this.graphicsWindow.postInit();
+
+
+            }
+            catch(Exception e)
+            {
+                //log error to console
+                Log.error( "Error Creating Graphics Window: " + e.getMessage(),e);
+
+                //exit
+                this.uncaughtExceptionHandlingActions(e);
+            }
         }
 
         //init sound
-        this.audioRenderer = new AudioRenderer(); 
+        this.audioRenderer = new AudioRenderer(this.gameConfiguration.isHeadless()); 
+        
+        //publish the engine metrics over JMX
+        this.metrics.publish();
                
     }
     
@@ -157,7 +217,17 @@ public final class Game
      * - Renders current scene
      * 
      *  Updates 60 times per second, renders 60 times per second, handles input at 60 times per second
-     *  The loop goes around every 16.666 milliseconds, or 16,666,667 nanoseconds   
+     *  The loop goes around every 16.666 milliseconds, or 16,666,667 nanoseconds, with the wait between
+     *  frames handled by the FramePacer
+     * 
+     *  The update and input rate can be changed with GameConfiguration.setTickRate(). At most
+     *  GameConfiguration.getMaxUpdatesPerFrame() updates are run per frame, any time owed beyond that is
+     *  handled according to the configured TimeDilationPolicy.
+     * 
+     *  If pipelined rendering is enabled in the EngineSettings, rendering is done on a separate render thread
+     *  that draws a snapshot of the previous frame while this loop updates the next one. The snapshot draws copies of
+     *  the networked scene objects, see RenderSnapshotBuffer. Frames that share other scene objects that arent 
+     *  concurrently drawable, see SceneObject.setConcurrentlyDrawable(), are drawn before the next update.
      */
     public void gameLoop()
     {
@@ -168,21 +238,25 @@ public final class Game
             if(this.gameConfiguration == null)
                 throw new RuntimeException("Game must be created before you can call gameLoop()");
             
-            //enable high resolution timing
-            //this is critical for the timing of the game loop
-            new Thread() {
-            { this.setDaemon(true); this.start(); }
-            public void run() {
-                    while(true) {
-                        try {
-                            Thread.sleep(Integer.MAX_VALUE);
-                        }
-                        catch(InterruptedException ex) {
-                        }
-                    }
+            //turn the profiler on if the settings ask for it
+            EngineSettings settings = this.gameConfiguration.getEngineSettings();
+            if(settings.profileGameLoop || settings.profileRendering)
+            {
+                Profiler.setEnabled(true);
+                EngineEvents.setEnabled(true);
             }
-        };
             
+            //set up frame pacing
+            this.framePacer = this.gameConfiguration.getFramePacer();
+            if(this.framePacer == null)
+                this.framePacer = this.createDefaultFramePacer();
+            
+            //start the render thread if we are pipelining update and render
+            if(this.gameConfiguration.getEngineSettings().pipelinedRendering && !this.isHeadless())
+            {
+                this.renderThread = new RenderThread(this.graphicsWindow, this.frameTimings);
+                this.renderThread.start();
+            }
 
             //infinite loop
             while (gameRunning)
@@ -193,6 +267,10 @@ public final class Game
 
                 //save the start of the loop time
                 startOfLoopTime = System.nanoTime();
+                this.frameTimings.beginFrame();
+                Profiler.begin(loopScope);
+                long frameEventStart = EngineEvents.begin();
+                long frameStartHeap = frameEventStart != 0 ? EngineEvents.getUsedHeap() : 0;
                 
                 //proccess scene actions
                 while(!this.sceneActionQueue.isEmpty())
@@ -211,46 +289,120 @@ public final class Game
                     //===========================
                     // Timing accumulator (60hz)
                     //===========================
+                    timestep = this.gameConfiguration.getTimestep();
+                    int maxUpdates = this.gameConfiguration.getMaxUpdatesPerFrame();
+                    int updates = 0;
                     accumulator += lastFrameTime;
-                    while(accumulator >= timestep)
+                    if(this.gameConfiguration.isUnthrottled())
+                        accumulator = timestep;
+                    while(accumulator >= timestep && updates < maxUpdates)
                     {               
 
                         //=====================================
                         //sets the input snapshot for the scene
                         //=====================================
+                        long stageStart = System.nanoTime();
+                        Profiler.begin(inputScope);
                         this.inputHandler.takeInputSnapshot();
+                        Profiler.end();
 
                         //==========================
                         //updates the scene (60 hz)
                         //==========================
-                        scene.update();                 
+                        long updateStart = System.nanoTime();
+                        this.frameTimings.addInputTime(updateStart - stageStart);
+                        Profiler.begin(updateScope);
+                        long tickEventStart = EngineEvents.begin();
+                        scene.beginMutationBuffering();
+                        try
+                        {
+                            scene.update();
+                        }
+                        finally
+                        {
+                            scene.applyBufferedMutations();
+                        }
+                        if(tickEventStart != 0)
+                            EngineEvents.commit(EngineEvents.EventType.SCENE_TICK, tickEventStart, currentScene.getSimpleName(), scene.getSceneObjectManager().size(), 0);
+                        Profiler.end();
 
 
                         //=====================================
                         //handles input for the scene ( 60 hz)
                         //=====================================            
+                        long handleInputStart = System.nanoTime();
+                        this.frameTimings.addUpdateTime(handleInputStart - updateStart);
+                        Profiler.begin(handleInputScope);
                         scene.handleInput();
+                        this.eventBus.flush();
+                        scene.tickCompleted();
+                        Profiler.end();
+                        this.frameTimings.addHandleInputTime(System.nanoTime() - handleInputStart);
 
 
                         //subtract from accumulator
                         accumulator -= timestep;  
+                        updates++;
 
                     }
+                    
+                    //if we are still behind apply the time dilation policy
+                    if(accumulator >= timestep)
+                    {
+                        switch(this.gameConfiguration.getTimeDilationPolicy())
+                        {
+                            case DISCARD: accumulator %= timestep; break;
+                            case CARRY: accumulator = Math.min(accumulator, timestep * maxUpdates); break;
+                        }
+                    }
+                    this.frameTimings.setUpdateCount(updates);
+                    
+                    //tell the scene how far we are between ticks
+                    scene.setInterpolationAlpha(Math.min((float)accumulator / (float)timestep, 1f));
 
 
                     //=================================
                     //tells the scene to render (60hz)  
                     //=================================
-                    graphicsWindow.renderScene(scene); 
+                    if(this.renderThread != null)
+                    {
+                        //publish a snapshot and let the render thread draw it while we move on
+                        long snapshotStart = System.nanoTime();
+                        Profiler.begin(snapshotScope);
+                        scene.publishRenderSnapshot();
+                        Profiler.end();
+                        this.frameTimings.setSnapshotTime(System.nanoTime() - snapshotStart);
+                        
+                        this.renderThread.submitFrame(scene);
+                        
+                        //frames sharing scene objects that cant be drawn while they update are drawn before the next tick
+                        if(!scene.isRenderSnapshotConcurrentlyDrawable())
+                            this.renderThread.waitForFrame();
+                    }
+                    else if(graphicsWindow != null)
+                    {
+                        long renderStart = System.nanoTime();
+                        graphicsWindow.renderScene(scene); 
+                        this.frameTimings.setRenderTime(System.nanoTime() - renderStart);
+                    }
                 }
 
                 //note the current time
                 endOfLoopTime = System.nanoTime();
+                this.frameTimings.setFrameTime(endOfLoopTime - startOfLoopTime);
+                Profiler.end();
+                this.recordFrameMetrics();
+                if(frameEventStart != 0)
+                {
+                    EngineEvents.commit(EngineEvents.EventType.FRAME, frameEventStart, null, this.frameTimings.getUpdateCount(), EngineEvents.getUsedHeap() - frameStartHeap);
+                    EngineEvents.sampleGarbageCollection();
+                }
                 
-                if(Game.getInstance().getConfiguration().getEngineSettings().profileGameLoop)
+                if(Game.getInstance().getConfiguration().getEngineSettings().profileGameLoop && ++this.framesSinceProfilerReport >= PROFILER_REPORT_INTERVAL)
                 {
-                    //log times
-                    System.err.println("Game Loop: " +(float)(endOfLoopTime - startOfLoopTime)/1_000_000f + "ms");
+                    //log the profiler statistics every so often, rather than every frame
+                    this.framesSinceProfilerReport = 0;
+                    Log.info(Profiler.getReport() + this.frameTimings.toString() + " Pacing jitter: " + (float)this.framePacer.getAverageJitter()/1_000_000f + "ms");
                 }
 
 
@@ -259,26 +411,9 @@ public final class Game
 //                System.err.flush();
                 
 
-                //sleep to set frame rate   
-                while(endOfLoopTime-startOfLoopTime <= 14_666_666)
-                {
-                    try
-                    { 
-                        Thread.sleep(0,250_000);
-                    } 
-                    catch(java.lang.InterruptedException e)
-                    {
-                        //log error to console
-                        Log.error( "Error Sleeping: " + e.getMessage(),e);
-                      
-                    }   
-                    endOfLoopTime = System.nanoTime();
-                }                       
-                while (endOfLoopTime - startOfLoopTime <= 16_666_667)
-                {              
-                    Thread.yield();
-                    endOfLoopTime = System.nanoTime();
-                }    
+                //wait to set frame rate   
+                this.framePacer.waitForNextFrame(startOfLoopTime);
+                endOfLoopTime = System.nanoTime();
 
             }
         }
@@ -286,9 +421,13 @@ public final class Game
         {
             this.uncaughtExceptionHandlingActions(e);        
         }
+        
+        //stop the render thread
+        if(this.renderThread != null)
+            this.renderThread.shutdown();
    
         //perform system shutdown
-        this.performSystemShutdown();
+        this.performSystemShutdown(0);
         
         
     }
@@ -316,8 +455,11 @@ public final class Game
                     scenes.get(currentScene).sceneExited();
 
                 //Enter the new scene
+                long eventStart = EngineEvents.begin();
                 currentScene = scene;
                 scenes.get(currentScene).sceneEntered(args);
+                if(eventStart != 0)
+                    EngineEvents.commit(EngineEvents.EventType.SCENE_CHANGE, eventStart, scene.getSimpleName(), scenes.get(currentScene).getSceneObjectManager().size(), 0);
 
                 //reset accumulator
                 accumulator = 0;
@@ -410,9 +552,9 @@ public final class Game
     
     
     /**
-     * Adds a runnable which can be managed and accessed from Game. This method will create a new Thread and start running
-     * the runnable when it is called
-     * @param key Name by which you can access the runnable, also the name of the Thrad it will run in
+     * Adds a runnable which can be managed and accessed from Game. The runnable is started as a JobSystem service
+     * on its own thread, and is interrupted when it is removed or the game shuts down.
+     * @param key Name by which you can access the runnable, also the name of the Thread it will run in
      * @param runnable Runnable to start running in a new thread
      */
     public void addRunnable(String key, Runnable runnable)
@@ -421,17 +563,7 @@ public final class Game
         this.runnableMap.put(key, runnable);
         
         //starts runnable
-        Thread thread = new Thread(runnable);
-        thread.setName(key);
-        thread.setPriority(8);
-        thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler(){        
-            @Override
-            public void uncaughtException(Thread t, Throwable e)
-            {
-                Game.getInstance().uncaughtExceptionHandlingActions(e);
-            }
-        });
-        thread.start();
+        this.jobSystem.startService(key, runnable);
     }
     
     /**
@@ -445,13 +577,14 @@ public final class Game
     }
     
     /**
-     * Removes runnable from Games management. WARNING: this method will not stop the thread your runnable is in. 
-     * Be sure to stop the thread before calling this method to avoid a memory leak.
+     * Removes runnable from Games management and stops it by interrupting its thread. The runnable should return
+     * when its thread is interrupted.
      * @param key Reference key for the runnable to stop
      */
     public void removeRunnable(String key)
     {
         this.runnableMap.remove(key);
+        this.jobSystem.stopService(key);
     }
     
     /**
@@ -487,6 +620,15 @@ public final class Game
         return this.graphicsWindow;
     }
     
+    /**
+     * Returns true if the game is running without a graphics window or audio device
+     * @return True if running headless
+     */
+    public boolean isHeadless()
+    {
+        return this.gameConfiguration != null && this.gameConfiguration.isHeadless();
+    }
+    
     /**
      * Accessor to the AudioRenderer. Not Thread safe.
      * @return the AudioRenderer 
@@ -514,6 +656,64 @@ public final class Game
         return this.gameConfiguration;
     }
     
+    /**
+     * Gets the work stealing pool used for parallel engine work such as parallel scene updates. This is the CPU
+     * pool of the job system, with one worker per available processor.
+     * @return the worker ForkJoinPool
+     */
+    public ForkJoinPool getWorkerPool()
+    {
+        return this.jobSystem.getCpuPool();
+    }
+    
+    /**
+     * Gets the job system that runs background work. Use it to run CPU work, blocking I/O and long running
+     * services instead of starting threads, so they are counted in the metrics and stopped at shutdown.
+     * @return the JobSystem
+     */
+    public JobSystem getJobSystem()
+    {
+        return this.jobSystem;
+    }
+    
+    /**
+     * Gets the frame pacer the game loop is using. Its jitter statistics show how accurately frames are paced.
+     * @return FramePacer of the game loop, or null if the game loop hasnt started
+     */
+    public FramePacer getFramePacer()
+    {
+        return this.framePacer;
+    }
+    
+    /**
+     * Gets the engine metrics registry. Frame, update and render times, scene object, particle and effect counts,
+     * and loaded asset counts are kept up to date by the game loop, and games can register their own metrics.
+     * @return MetricsRegistry of the game
+     */
+    public MetricsRegistry getMetrics()
+    {
+        return this.metrics;
+    }
+    
+    /**
+     * Gets the per stage timing breakdown of the most recent frame. Safe to read from any thread.
+     * @return FrameTimings of the game loop
+     */
+    public FrameTimings getFrameTimings()
+    {
+        return this.frameTimings;
+    }
+    
+    /**
+     * Gets the games event bus. It is flushed once per tick after the scene has handled input, so an EventChannel
+     * batched onto it delivers the events of a tick together at the end of that tick.
+     * @return EventBus of the game
+     */
+    public EventBus getEventBus()
+    {
+        return this.eventBus;
+    }
+    
     /**
      * Get a reference to the games InputHandler
      * @return The InputHandler registered for the Game
@@ -548,6 +748,18 @@ public final class Game
      */
     public void uncaughtExceptionHandlingActions(Throwable e)
     {
+        //if we are headless there is no window or dialog, just log and shut down
+        if(this.isHeadless())
+        {
+            Log.error("GAME CRASH: " + e.toString(), e);
+            try
+            {
+                this.performSystemShutdown(1);
+            }
+            catch(Exception ex){System.exit(1);}
+            return;
+        }
+        
         //get window position and size for centering error box
         int width = 0,height = 0;
         javax.media.nativewindow.util.Point windowLocation = new javax.media.nativewindow.util.Point();
@@ -591,15 +803,58 @@ public final class Game
         //shutdown
         try
         {
-           this.performSystemShutdown();
+           this.performSystemShutdown(1);
         }
         catch(Exception ex){System.exit(1);}
     }
     
+    /**
+     * Builds the frame pacer to use when the GameConfiguration doesnt provide one. Headless games are paced at the
+     * tick rate, vsynced games by the display, and everything else by the frame rate cap in the EngineSettings.
+     * @return FramePacer for the game loop
+     */
+    private FramePacer createDefaultFramePacer()
+    {
+        EngineSettings settings = this.gameConfiguration.getEngineSettings();
+        
+        if(this.gameConfiguration.isUnthrottled())
+            return new ParkingFramePacer(0);
+        if(this.isHeadless())
+            return new ParkingFramePacer(this.gameConfiguration.getTickRate());
+        
+        //vsync is only turned on in fullscreen
+        if(settings.vSync && settings.fullScreen)
+        {
+            float refreshRate = this.graphicsWindow.getMainMonitor().getCurrentMode().getRefreshRate();
+            if(refreshRate > 0 && (settings.frameRateCap <= 0 || settings.frameRateCap >= refreshRate))
+                return new VSyncFramePacer(refreshRate);
+        }
+        
+        return new ParkingFramePacer(settings.frameRateCap);
+    }
+    
+    /**
+     * Loads the metadata of the Sylver system textures when running headless. When not headless the
+     * OpenGLGameWindow loads them.
+     */
+    private void loadHeadlessSystemTextures()
+    {
+        try
+        {
+            this.assetManager.getTextureLoader().loadAllTexturesInDirectory(Game.class.getClassLoader().getResource("com/silvergobletgames/sylver/systemtextures").toURI());
+        }
+        catch(Exception e)
+        {
+            //log error to console
+            Log.error( "Error Loading System Texture: " + e.getMessage(), e);
+        }
+    }
+    
     /**
      * Performs a system shutdown. Including all SystemExitActions registered with Game
+     * @param status exit status of the process, nonzero when shutting down because of a crash
      */
-    private void performSystemShutdown()
+    private void performSystemShutdown(int status)
     {
         //perform system exit actions
         for(SystemExitAction action: this.systemExitActions)
@@ -607,11 +862,87 @@ public final class Game
             action.action();
         }
         
+        //finish any input recording
+        this.inputHandler.stopRecording();
+        
+        //stop the services and let queued jobs finish
+        this.jobSystem.shutdown(JOB_SHUTDOWN_TIMEOUT);
+        
         //cleanup audio     
         this.audioRenderer.cleanupAudioRenderer();
         
+        //remove the metrics from JMX
+        this.metrics.unpublish();
+        
         //system exit
-        System.exit(0);
+        System.exit(status);
+    }
+    
+    /**
+     * Records the timings of the last frame into the metrics registry. Every METRICS_SAMPLE_INTERVAL frames the
+     * frame rate and the counts of scene objects, particles, effects and loaded assets are sampled as well.
+     */
+    private void recordFrameMetrics()
+    {
+        this.frameCounter.increment();
+        this.updateCounter.add(this.frameTimings.getUpdateCount());
+        this.frameTimeHistogram.record(this.frameTimings.getFrameTime());
+        this.updateTimeHistogram.record(this.frameTimings.getUpdateTime());
+        this.renderTimeHistogram.record(this.frameTimings.getRenderTime());
+        
+        if(++this.framesSinceMetricsSample < METRICS_SAMPLE_INTERVAL)
+            return;
+        
+        //frame rate over the sample interval
+        long now = System.nanoTime();
+        if(this.lastMetricsSampleTime != 0)
+            this.metrics.gauge("fps").set(this.framesSinceMetricsSample * 1_000_000_000L / Math.max(1, now - this.lastMetricsSampleTime));
+        this.framesSinceMetricsSample = 0;
+        this.lastMetricsSampleTime = now;
+        
+        //loaded assets
+        this.metrics.gauge("texturesLoaded").set(this.assetManager.getTextureLoader().getTextureCount());
+        this.metrics.gauge("soundsLoaded").set(this.audioRenderer.getLoadedSoundCount());
+        
+        //job queue depths
+        this.jobSystem.sampleMetrics();
+        
+        //object pool statistics
+        for(Pool pool: Pool.getPools())
+        {
+            this.metrics.gauge("pool." + pool.getName() + ".hits").set(pool.getHits());
+            this.metrics.gauge("pool." + pool.getName() + ".misses").set(pool.getMisses());
+            this.metrics.gauge("pool." + pool.getName() + ".free").set(pool.getFreeCount());
+        }
+        
+        //scene object, particle and effect counts of the current scene
+        Scene scene = this.getCurrentScene();
+        if(scene == null)
+            return;
+        
+        int particles = 0;
+        int effects = 0;
+        for(Layer layer: Layer.values())
+        {
+            ArrayList<SceneObject> layerObjects = scene.getSceneObjectManager().get(layer);
+            this.metrics.gauge("objects." + layer.name()).set(layerObjects.size());
+            
+            for(int i = 0; i < layerObjects.size(); i++)
+            {
+                SceneObject sceneObject = layerObjects.get(i);
+                if(sceneObject instanceof AbstractParticleEmitter)
+                    particles += ((AbstractParticleEmitter)sceneObject).getParticleCount();
+                else if(sceneObject instanceof Image)
+                    effects += ((Image)sceneObject).getImageEffectCount();
+                else if(sceneObject instanceof Text)
+                    effects += ((Text)sceneObject).getTextEffectCount();
+                else if(sceneObject instanceof LightSource)
+                    effects += ((LightSource)sceneObject).getLightEffectCount();
+            }
+        }
+        this.metrics.gauge("objects.total").set(scene.getSceneObjectManager().size());
+        this.metrics.gauge("particlesLive").set(particles);
+        this.metrics.gauge("effectsActive").set(effects);
     }
     
     /**
@@ -14,6 +14,37 @@ public class GameConfiguration {
     private URI soundRootFolder;
     private EngineSettings engineSettings;
     
+    //simulation tick rate in hz
+    private int tickRate = 60;
+    //maximum number of scene updates the game loop will run in a single frame
+    private int maxUpdatesPerFrame = 5;
+    //what to do with accumulated time when the max updates per frame is exceeded
+    private TimeDilationPolicy timeDilationPolicy = TimeDilationPolicy.DISCARD;
+    //run without a graphics window or audio device
+    private boolean headless = false;
+    //frame pacer used by the game loop, null to pick one from the engine settings
+    private FramePacer framePacer;
+    //run one tick per frame as fast as possible, ignoring the wall clock
+    private boolean unthrottled = false;
+    
+    /**
+     * Policy for handling accumulated simulation time when the game loop falls more than
+     * maxUpdatesPerFrame ticks behind, for example after a hitch.
+     */
+    public static enum TimeDilationPolicy
+    {
+        /**
+         * Throw away the backlog. The simulation runs slower than real time during the hitch, but never
+         * runs more than maxUpdatesPerFrame ticks in a frame.
+         */
+        DISCARD,
+        /**
+         * Keep up to maxUpdatesPerFrame ticks of backlog and work it off over the following frames, so the
+         * simulation catches back up to real time once the hitch is over.
+         */
+        CARRY;
+    }
+    
     //===============
     // Constructor
     //===============
@@ -62,5 +93,138 @@ public class GameConfiguration {
     {
         return this.engineSettings;
     }
+    
+    /**
+     * 
+     * @return The simulation tick rate in hz
+     */
+    public int getTickRate()
+    {
+        return this.tickRate;
+    }
+    
+    /**
+     * Sets how many times per second the current scene is updated. Rendering still happens once per frame,
+     * use Scene.getInterpolationAlpha() to interpolate between ticks when the tick rate is lower than the frame rate.
+     * @param tickRate Ticks per second, must be greater than zero
+     */
+    public void setTickRate(int tickRate)
+    {
+        if(tickRate <= 0)
+            throw new RuntimeException("Tick rate must be greater than zero");
+        
+        this.tickRate = tickRate;
+    }
+    
+    /**
+     * 
+     * @return The length of one simulation tick in nanoseconds
+     */
+    public long getTimestep()
+    {
+        return 1_000_000_000L / this.tickRate;
+    }
+    
+    /**
+     * 
+     * @return The maximum number of scene updates run in a single frame
+     */
+    public int getMaxUpdatesPerFrame()
+    {
+        return this.maxUpdatesPerFrame;
+    }
+    
+    /**
+     * Sets the maximum number of scene updates the game loop will run in a single frame. When more ticks than this
+     * are owed the TimeDilationPolicy decides what happens to the rest.
+     * @param maxUpdatesPerFrame Max updates per frame, must be at least 1
+     */
+    public void setMaxUpdatesPerFrame(int maxUpdatesPerFrame)
+    {
+        if(maxUpdatesPerFrame < 1)
+            throw new RuntimeException("Max updates per frame must be at least 1");
+        
+        this.maxUpdatesPerFrame = maxUpdatesPerFrame;
+    }
+    
+    /**
+     * 
+     * @return True if the game will run without a graphics window or audio device
+     */
+    public boolean isHeadless()
+    {
+        return this.headless;
+    }
+    
+    /**
+     * Sets headless mode. A headless game creates no OpenGL window, context or audio device. Scenes are updated
+     * at the tick rate but never rendered, textures are loaded as metadata only (their sizes, with no upload) and
+     * sounds are played to a silent backend. Used for dedicated servers and for running on machines without a GPU.
+     * Must be set before Game.createGame() is called.
+     * @param headless True to run headless
+     */
+    public void setHeadless(boolean headless)
+    {
+        this.headless = headless;
+    }
+    
+    /**
+     * 
+     * @return The frame pacer set for the game loop, or null if the game will choose one
+     */
+    public FramePacer getFramePacer()
+    {
+        return this.framePacer;
+    }
+    
+    /**
+     * Sets the frame pacer the game loop uses to wait between frames. If none is set the game uses a
+     * VSyncFramePacer when vsync is on, and otherwise a ParkingFramePacer capped at EngineSettings.frameRateCap.
+     * Must be set before Game.gameLoop() is called.
+     * @param framePacer FramePacer to use
+     */
+    public void setFramePacer(FramePacer framePacer)
+    {
+        this.framePacer = framePacer;
+    }
+    
+    /**
+     * 
+     * @return True if the game loop runs one tick per frame as fast as it can
+     */
+    public boolean isUnthrottled()
+    {
+        return this.unthrottled;
+    }
+    
+    /**
+     * Sets unthrottled mode. An unthrottled game loop runs exactly one tick per frame and doesnt wait between
+     * frames, so the simulation runs as fast as the machine allows and every run of the same input takes the same
+     * ticks. Together with headless mode and an InputReplay this is used to benchmark scene updates and to
+     * reproduce recorded sessions. The frame pacer defaults to uncapped.
+     * @param unthrottled True to run unthrottled
+     */
+    public void setUnthrottled(boolean unthrottled)
+    {
+        this.unthrottled = unthrottled;
+    }
+    
+    /**
+     * 
+     * @return The policy used when max updates per frame is exceeded
+     */
+    public TimeDilationPolicy getTimeDilationPolicy()
+    {
+        return this.timeDilationPolicy;
+    }
+    
+    /**
+     * Sets the policy used when the game loop owes more than max updates per frame ticks
+     * @param policy TimeDilationPolicy to use
+     */
+    public void setTimeDilationPolicy(TimeDilationPolicy policy)
+    {
+        this.timeDilationPolicy = policy;
+    }
 
 }
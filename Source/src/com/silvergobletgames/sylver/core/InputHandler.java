@@ -7,38 +7,57 @@ import com.jogamp.newt.event.MouseListener;
 import com.silvergobletgames.sylver.graphics.Color;
 import com.silvergobletgames.sylver.graphics.Cursor;
 import com.silvergobletgames.sylver.graphics.Image;
-import java.awt.Point;
+import com.silvergobletgames.sylver.util.Log;
+import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * singleton class that handles input
+ * singleton class that handles input. Key events are staged in a lock free buffer by the event thread and applied
+ * when a snapshot is taken, so taking a snapshot doesnt allocate.
  * @author mike
  */
 public class InputHandler implements MouseListener,KeyListener 
 {
 
-    //input snapshot
-    private InputSnapshot inputSnapshot;
-    
-    //typed key list
-    private CopyOnWriteArrayList<Character> typedKeys = new CopyOnWriteArrayList<>();   
-    //pressed map
-    private ConcurrentHashMap<Short, Byte> pressedMap = new ConcurrentHashMap<>();
-    //released map
-    private ConcurrentHashMap<Short, Byte> releasedMap = new ConcurrentHashMap<>();
-    //screen mouse position
-    private Point screenMouseLocation = new Point(0,0); //TODO - protect this with a semaphore
+    //staging buffer capacity, a power of two
+    private static final int STAGING_CAPACITY = 1024;
+    //staged event types, held in the top byte of a staged event
+    private static final int KEY_PRESSED = 1;
+    private static final int KEY_RELEASED = 2;
+    private static final int KEY_TYPED = 3;
+    private static final int CLEAR = 4;
+
+    //the two snapshots, swapped each tick, and the one that was taken last
+    private final InputSnapshot[] snapshots = {new InputSnapshot(), new InputSnapshot()};
+    private int nextSnapshot = 0;
+    private volatile InputSnapshot inputSnapshot;
+
+    //key events staged by the event thread, consumed by takeInputSnapshot(). Slots hold 0 when empty.
+    private final AtomicIntegerArray stagedEvents = new AtomicIntegerArray(STAGING_CAPACITY);
+    private final AtomicLong stagingWriteIndex = new AtomicLong();
+    private volatile long stagingReadIndex = 0;
+
+    //key state, only touched by the thread taking snapshots
+    private final long[] pressedKeys = new long[InputSnapshot.KEY_COUNT / 64];
+    private final byte[] pressedModifiers = new byte[InputSnapshot.KEY_COUNT];
+    private final long[] releasedKeys = new long[InputSnapshot.KEY_COUNT / 64];
+    private final byte[] releasedModifiers = new byte[InputSnapshot.KEY_COUNT];
+    //screen mouse position, x in the high 32 bits and y in the low 32 bits so it is written in one go
+    private volatile long screenMouseLocation = 0;
     
     //mouse variables
-    private boolean mouseDown = false; 
-    private boolean mouseClicked = false;
-    private boolean mouseMoved= false;   
-    private int mouseWheelRotation = 0;
-    private int mouseButtonClicked;
-    private boolean mouseKilled;
+    private volatile boolean mouseDown = false; 
+    private volatile boolean mouseClicked = false;
+    private volatile boolean mouseMoved= false;   
+    private volatile int mouseWheelRotation = 0;
+    private volatile int mouseButtonClicked;
+    private volatile boolean mouseKilled;
+    
+    //recording of the snapshots we take, and replay that takes the place of live input
+    private InputRecorder recorder;
+    private InputReplay replay;
   
     //================
     // Constructor
@@ -56,22 +75,64 @@ public class InputHandler implements MouseListener,KeyListener
     //===========
     
     /**
-     * Takes an input snapshot, and clears all buffered input
+     * Takes an input snapshot, and clears all buffered input. Fills the snapshot that was taken the tick before
+     * last, so the snapshot from last tick stays valid while this one is taken.
      */
     protected void takeInputSnapshot()
     {
+        InputSnapshot snapshot = this.snapshots[this.nextSnapshot];
+        this.nextSnapshot ^= 1;
+        
+        //apply the staged key events
+        snapshot.clearTypedKeys();
+        long readIndex = this.stagingReadIndex;
+        while(true)
+        {
+            int slot = (int)readIndex & (STAGING_CAPACITY - 1);
+            int event = this.stagedEvents.get(slot);
+            if(event == 0)
+                break;
+            
+            this.stagedEvents.set(slot, 0);
+            readIndex++;
+            this.applyEvent(event, snapshot);
+        }
+        this.stagingReadIndex = readIndex;
+        
         //take input snapshot
-        this.inputSnapshot = new InputSnapshot(new ArrayList(this.typedKeys),new HashMap(this.releasedMap), new HashMap(this.pressedMap), mouseDown, mouseClicked, mouseMoved, mouseWheelRotation, mouseButtonClicked,this.mouseKilled, screenMouseLocation);
+        long mouseLocation = this.screenMouseLocation;
+        snapshot.setKeys(this.pressedKeys, this.pressedModifiers, this.releasedKeys, this.releasedModifiers);
+        snapshot.setMouse(mouseDown, mouseClicked, mouseMoved, mouseWheelRotation, mouseButtonClicked, this.mouseKilled, (int)(mouseLocation >> 32), (int)mouseLocation);
+        
+        //a replay takes the place of live input until it runs out
+        if(this.replay != null && !this.replay.next(snapshot))
+        {
+            Log.info("Input replay finished after " + this.replay.getTick() + " ticks");
+            this.replay = null;
+        }
+        
+        //record the snapshot
+        if(this.recorder != null)
+        {
+            try
+            {
+                this.recorder.record(snapshot);
+            }
+            catch(IOException e)
+            {
+                Log.error("Error writing input recording, recording stopped", e);
+                this.stopRecording();
+            }
+        }
+        
+        this.inputSnapshot = snapshot;
        
         //============
         //clear input
         //============
         
-        //clear typed keys
-        this.typedKeys.clear();
-        
         //clear released keys
-        releasedMap.clear();
+        Arrays.fill(this.releasedKeys, 0);
                
        //clear mouse bools
         mouseMoved= false;
@@ -82,7 +143,7 @@ public class InputHandler implements MouseListener,KeyListener
     }
     
     /**
-     * Returns the latest input snapshot.
+     * Returns the latest input snapshot. It is reused two snapshots later, copy() it to keep it longer.
      * @return Latest InputSnapshot
      */
     public InputSnapshot getInputSnapshot()
@@ -90,16 +151,134 @@ public class InputHandler implements MouseListener,KeyListener
         return this.inputSnapshot;
     }
     
+    /**
+     * Starts recording every snapshot taken to the given recorder, stopping any recording already running.
+     * Should be called from the game loop thread, for example from a scene.
+     * @param recorder InputRecorder to record to
+     */
+    public void startRecording(InputRecorder recorder)
+    {
+        this.stopRecording();
+        this.recorder = recorder;
+    }
+    
+    /**
+     * Stops recording and closes the recording, if one is running
+     */
+    public void stopRecording()
+    {
+        if(this.recorder == null)
+            return;
+        
+        try
+        {
+            this.recorder.close();
+        }
+        catch(IOException e)
+        {
+            Log.error("Error closing input recording", e);
+        }
+        this.recorder = null;
+    }
+    
+    public boolean isRecording()
+    {
+        return this.recorder != null;
+    }
+    
+    /**
+     * Replays a recording in place of live input, starting with the next snapshot. Live input is ignored until
+     * the replay finishes or is stopped. Should be called from the game loop thread.
+     * @param replay InputReplay to play back
+     */
+    public void startReplay(InputReplay replay)
+    {
+        this.replay = replay;
+    }
+    
+    /**
+     * Stops the replay, live input is used again from the next snapshot
+     */
+    public void stopReplay()
+    {
+        this.replay = null;
+    }
+    
+    public boolean isReplaying()
+    {
+        return this.replay != null;
+    }
+    
     public void clear()
     {
-        this.typedKeys.clear();
-        this.pressedMap.clear();
-        this.releasedMap.clear();
+        this.stageEvent(CLEAR << 24);
         this.mouseDown = false;
         this.mouseClicked = false;
         this.mouseMoved = false;
     }
     
+    /**
+     * Stages a key event for the next snapshot. Safe to call from any thread. If the staging buffer is full the
+     * event is dropped, which only happens if snapshots stop being taken.
+     * @param event the event, its type in the top byte
+     */
+    private void stageEvent(int event)
+    {
+        long index;
+        do
+        {
+            index = this.stagingWriteIndex.get();
+            if(index - this.stagingReadIndex >= STAGING_CAPACITY)
+                return;
+        }
+        while(!this.stagingWriteIndex.compareAndSet(index, index + 1));
+        
+        this.stagedEvents.set((int)index & (STAGING_CAPACITY - 1), event);
+    }
+    
+    private void applyEvent(int event, InputSnapshot snapshot)
+    {
+        short value = (short)event;
+        byte modifierMask = (byte)(event >>> 16);
+        switch(event >>> 24)
+        {
+            case KEY_PRESSED:
+                InputSnapshot.setKey(this.pressedKeys, this.pressedModifiers, value, modifierMask);
+                break;
+            case KEY_RELEASED:
+                InputSnapshot.clearKey(this.pressedKeys, value);
+                InputSnapshot.setKey(this.releasedKeys, this.releasedModifiers, value, modifierMask);
+                break;
+            case KEY_TYPED:
+                snapshot.addTypedKey((char)value);
+                break;
+            case CLEAR:
+                Arrays.fill(this.pressedKeys, 0);
+                Arrays.fill(this.releasedKeys, 0);
+                snapshot.clearTypedKeys();
+                break;
+        }
+    }
+    
+    //builds the modifier bitmask of a key event
+    private static int modifierMask(KeyEvent e)
+    {
+        int modifierMask = 0b0000_0000;           
+        if(e.isShiftDown())
+        {
+           modifierMask |= InputSnapshot.SHIFT_MODIFIER; 
+        }
+        if(e.isControlDown())
+        {
+            modifierMask |= InputSnapshot.CTRL_MODIFIER;
+        }
+        if(e.isAltDown())
+        {
+            modifierMask |= InputSnapshot.ALT_MODIFIER;
+        }
+        return modifierMask;
+    }
+    
 
     //===================
     //Key Event Handlers
@@ -110,29 +289,14 @@ public class InputHandler implements MouseListener,KeyListener
         //first press
         if(!e.isAutoRepeat()) 
         {
-            //build modifier bitmask
-            byte modifierMask = 0b0000_0000;           
-            if(e.isShiftDown())
-            {
-               modifierMask += 0b000_0001; 
-            }
-            if(e.isControlDown())
-            {
-                modifierMask += 0b000_0010;
-            }
-            if(e.isAltDown())
-            {
-                modifierMask += 0b000_0100;
-            }
-            
             //store key press
-            pressedMap.put(e.getKeySymbol(),modifierMask);	
+            this.stageEvent(KEY_PRESSED << 24 | modifierMask(e) << 16 | (e.getKeySymbol() & 0xFFFF));	
         }
         
         //key typed
         if( e.isPrintableKey() )  
         {           
-            typedKeys.add(e.getKeyChar());         
+            this.stageEvent(KEY_TYPED << 24 | e.getKeyChar());         
         }
     }
 
@@ -144,26 +308,8 @@ public class InputHandler implements MouseListener,KeyListener
         //first release
         if(!e.isAutoRepeat())
         {
-            //remove from pressed map
-            pressedMap.remove(e.getKeySymbol());
-           
-             //build modifier bitmask
-            byte modifierMask = 0b0000_0000;           
-            if(e.isShiftDown())
-            {
-               modifierMask += 0b000_0001; 
-            }
-            if(e.isControlDown())
-            {
-                modifierMask += 0b000_0010;
-            }
-            if(e.isAltDown())
-            {
-                modifierMask += 0b000_0100;
-            }
-            
-            //store key release
-            releasedMap.put(e.getKeySymbol(),modifierMask);
+            //remove from pressed keys and store key release
+            this.stageEvent(KEY_RELEASED << 24 | modifierMask(e) << 16 | (e.getKeySymbol() & 0xFFFF));
         }    
         
     }
@@ -220,14 +366,14 @@ public class InputHandler implements MouseListener,KeyListener
         this.mouseMoved = true; 
         
         //set the screenMouseLocation
-        this.setScreenMouseLocation( new Point(e.getX(),e.getY()));
+        this.setScreenMouseLocation(e.getX(),e.getY());
     }
 
    
     public void mouseDragged(MouseEvent e)
     {
          //set the screenMouseLocation
-          this.setScreenMouseLocation( new Point(e.getX(),e.getY()));
+          this.setScreenMouseLocation(e.getX(),e.getY());
     }
 
     
@@ -237,17 +383,17 @@ public class InputHandler implements MouseListener,KeyListener
     }
     
     //private helper method
-    private void setScreenMouseLocation(Point location)
+    private void setScreenMouseLocation(int locationX, int locationY)
     {
 
-        float x = location.x;       
-        float y = Game.getInstance().getGraphicsWindow().getHeight() - location.y;
+        float x = locationX;       
+        float y = Game.getInstance().getGraphicsWindow().getHeight() - locationY;
 
         //normalize to the aspect ratio       
         float xfinal = x/ Game.getInstance().getGraphicsWindow().getWidth() * Game.getInstance().getGraphicsWindow().getCurrentAspectRatio().x;
         float yfinal = y/ Game.getInstance().getGraphicsWindow().getHeight() * Game.getInstance().getGraphicsWindow().getCurrentAspectRatio().y;
 
-        this.screenMouseLocation = new Point((int)xfinal,(int)yfinal);
+        this.screenMouseLocation = (long)(int)xfinal << 32 | ((int)yfinal & 0xFFFFFFFFL);
         
     }
 }
@@ -0,0 +1,154 @@
+package com.silvergobletgames.sylver.core;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Records the InputSnapshots taken by the InputHandler to a compact binary stream, which an InputReplay can feed back
+ * into the InputHandler later. Ticks are counted from the start of the recording. A tick is only written if its
+ * snapshot differs from the last one written, so idle stretches cost nothing.
+ *
+ * The stream is a header (magic, version, tick rate) followed by records of a tick number, a length and an encoded
+ * snapshot, and ends with an end marker holding the number of recorded ticks.
+ * @author Mike
+ */
+public final class InputRecorder
+{
+    //stream header
+    static final int MAGIC = 0x53494E50;
+    static final short VERSION = 1;
+    //tick number that marks the end of the recording
+    static final int END_MARKER = -1;
+
+    //the stream we write to
+    private final DataOutputStream out;
+    //the encoded snapshot of this tick and of the last tick we wrote
+    private final EncodeBuffer encoded = new EncodeBuffer();
+    private final DataOutputStream encodedOut = new DataOutputStream(this.encoded);
+    private byte[] lastEncoded = new byte[0];
+    private int lastEncodedLength = -1;
+    //number of ticks recorded so far
+    private int tick = 0;
+    private boolean closed = false;
+
+
+    //================
+    // Constructor
+    //================
+
+    /**
+     * Starts a recording
+     * @param stream stream to write the recording to, closed when the recording is closed
+     * @param tickRate tick rate the recording was made at, for reference when it is replayed
+     * @throws IOException if the header cant be written
+     */
+    public InputRecorder(OutputStream stream, int tickRate) throws IOException
+    {
+        this.out = new DataOutputStream(new BufferedOutputStream(stream));
+        this.out.writeInt(MAGIC);
+        this.out.writeShort(VERSION);
+        this.out.writeInt(tickRate);
+    }
+
+
+    //================
+    // Class Methods
+    //================
+
+    /**
+     * Records the snapshot of the next tick
+     * @param snapshot the snapshot
+     * @throws IOException if the record cant be written
+     */
+    void record(InputSnapshot snapshot) throws IOException
+    {
+        if(this.closed)
+            throw new RuntimeException("InputRecorder is closed");
+
+        this.encoded.reset();
+        snapshot.write(this.encodedOut);
+
+        //only write the tick if something changed since the last one we wrote
+        if(!this.encoded.matches(this.lastEncoded, this.lastEncodedLength))
+        {
+            this.out.writeInt(this.tick);
+            this.out.writeShort(this.encoded.size());
+            this.encoded.writeTo(this.out);
+
+            if(this.lastEncoded.length < this.encoded.size())
+                this.lastEncoded = new byte[this.encoded.size() * 2];
+            this.encoded.copyTo(this.lastEncoded);
+            this.lastEncodedLength = this.encoded.size();
+        }
+
+        this.tick++;
+    }
+
+    /**
+     * Writes the end marker and closes the stream
+     * @throws IOException if the stream cant be written or closed
+     */
+    public void close() throws IOException
+    {
+        if(this.closed)
+            return;
+
+        this.closed = true;
+        try
+        {
+            this.out.writeInt(END_MARKER);
+            this.out.writeInt(this.tick);
+        }
+        finally
+        {
+            this.out.close();
+        }
+    }
+
+    /**
+     * Gets the number of ticks recorded so far
+     * @return recorded ticks
+     */
+    public int getTickCount()
+    {
+        return this.tick;
+    }
+
+
+    //================
+    // Inner Classes
+    //================
+
+    /**
+     * Byte array stream that can compare its contents without copying them out
+     */
+    private static final class EncodeBuffer extends ByteArrayOutputStream
+    {
+        public EncodeBuffer()
+        {
+            super(64);
+        }
+
+        public boolean matches(byte[] bytes, int length)
+        {
+            if(length != this.count)
+                return false;
+
+            for(int i = 0; i < length; i++)
+            {
+                if(bytes[i] != this.buf[i])
+                    return false;
+            }
+            return true;
+        }
+
+        public void copyTo(byte[] bytes)
+        {
+            System.arraycopy(this.buf, 0, bytes, 0, this.count);
+        }
+    }
+
+}
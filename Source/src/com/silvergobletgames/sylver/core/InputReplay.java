@@ -0,0 +1,172 @@
+package com.silvergobletgames.sylver.core;
+
+import com.silvergobletgames.sylver.util.Log;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Plays back a recording made by an InputRecorder. Given to InputHandler.startReplay(), it fills the snapshot of each
+ * tick from the recording instead of from the keyboard and mouse, one recorded tick per snapshot, so a replay runs at
+ * whatever rate the game loop ticks. With GameConfiguration.setUnthrottled() and a deterministic scene a replay
+ * reproduces a play session as fast as the machine can simulate it.
+ *
+ * A recording that was cut short, for example by a crash, replays up to where it was cut.
+ * @author Mike
+ */
+public final class InputReplay
+{
+    //the stream we read from
+    private final DataInputStream in;
+    //tick rate the recording was made at
+    private final int tickRate;
+    //input of the last record we read, held until the next record
+    private final InputSnapshot current = new InputSnapshot();
+    //tick of the next record, or END_MARKER once we have read the end
+    private int nextRecordTick;
+    //number of ticks in the recording, known once we reach the end marker
+    private int tickCount = -1;
+    //tick of the last record we read
+    private int lastRecordTick = -1;
+    //tick we are on
+    private int tick = 0;
+    private boolean finished = false;
+    //run when the replay finishes
+    private Runnable onFinished;
+
+
+    //================
+    // Constructor
+    //================
+
+    /**
+     * Opens a recording
+     * @param stream stream holding the recording, closed when the replay finishes
+     * @throws IOException if the stream doesnt hold a recording
+     */
+    public InputReplay(InputStream stream) throws IOException
+    {
+        this.in = new DataInputStream(new BufferedInputStream(stream));
+        if(this.in.readInt() != InputRecorder.MAGIC)
+            throw new IOException("Not an input recording");
+        short version = this.in.readShort();
+        if(version != InputRecorder.VERSION)
+            throw new IOException("Unsupported input recording version " + version);
+        this.tickRate = this.in.readInt();
+
+        this.readNextRecordTick();
+    }
+
+
+    //================
+    // Class Methods
+    //================
+
+    /**
+     * Fills the snapshot with the input of the next tick
+     * @param snapshot snapshot to fill
+     * @return false if the recording has no more ticks, in which case the snapshot is untouched
+     */
+    boolean next(InputSnapshot snapshot)
+    {
+        if(this.finished)
+            return false;
+
+        try
+        {
+            if(this.tickCount != -1 && this.tick >= this.tickCount)
+            {
+                this.finish();
+                return false;
+            }
+
+            if(this.nextRecordTick == this.tick)
+            {
+                this.in.readUnsignedShort();
+                this.current.read(this.in);
+                this.lastRecordTick = this.tick;
+                this.readNextRecordTick();
+            }
+        }
+        catch(IOException e)
+        {
+            Log.error("Input recording is cut short at tick " + this.tick, e);
+            this.finish();
+            return false;
+        }
+
+        snapshot.set(this.current);
+        this.tick++;
+        return true;
+    }
+
+    /**
+     * Sets something to run when the replay finishes, such as exiting a headless benchmark. It runs on the game
+     * loop thread during the snapshot after the last recorded tick.
+     * @param onFinished Runnable to run, or null
+     */
+    public void setOnFinished(Runnable onFinished)
+    {
+        this.onFinished = onFinished;
+    }
+
+    /**
+     * Gets the tick rate the recording was made at
+     * @return tick rate in hz
+     */
+    public int getTickRate()
+    {
+        return this.tickRate;
+    }
+
+    /**
+     * Gets the number of ticks replayed so far
+     * @return replayed ticks
+     */
+    public int getTick()
+    {
+        return this.tick;
+    }
+
+    public boolean isFinished()
+    {
+        return this.finished;
+    }
+
+    private void readNextRecordTick() throws IOException
+    {
+        try
+        {
+            this.nextRecordTick = this.in.readInt();
+        }
+        catch(EOFException e)
+        {
+            //no end marker, the recording was cut short. Replay what we have.
+            this.tickCount = this.lastRecordTick + 1;
+            this.nextRecordTick = InputRecorder.END_MARKER;
+            return;
+        }
+
+        if(this.nextRecordTick == InputRecorder.END_MARKER)
+            this.tickCount = this.in.readInt();
+    }
+
+    private void finish()
+    {
+        this.finished = true;
+        try
+        {
+            this.in.close();
+        }
+        catch(IOException e)
+        {
+            Log.error("Error closing input recording", e);
+        }
+
+        if(this.onFinished != null)
+            this.onFinished.run();
+    }
+
+}
@@ -1,42 +1,65 @@
 package com.silvergobletgames.sylver.core;
 
-import com.jogamp.newt.event.KeyEvent;
 import java.awt.Point;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 /**
+ * The input for one tick. Key state is held in bitsets indexed by key symbol, with the modifiers each key was
+ * pressed or released with in byte arrays beside them, and typed characters are held in a reusable char array.
  *
+ * The InputHandler keeps two snapshots and swaps between them each tick, so a snapshot is only valid until the
+ * tick after the one it was taken for. Use copy() to keep one longer.
  * @author Mike
  */
 public class InputSnapshot {
-    
-    //typed key list
-    private ArrayList<Character> typedKeys = new ArrayList<>();
-    //released set
-    private HashMap<Short,Byte> releasedMap = new HashMap<>();
-    //pressed set
-    private HashMap<Short,Byte> pressedMap = new HashMap<>();
+
+    //number of key symbols, key symbols are 16 bit
+    static final int KEY_COUNT = 1 << 16;
+    //modifier bits
+    static final byte SHIFT_MODIFIER = 0b0000_0001;
+    static final byte CTRL_MODIFIER = 0b0000_0010;
+    static final byte ALT_MODIFIER = 0b0000_0100;
+
+    //typed keys, in the order they were typed
+    private char[] typedKeys = new char[16];
+    private int typedKeyCount = 0;
+    //pressed keys, bit n is set if the key with symbol n is down, and the modifiers each key was pressed with
+    private final long[] pressedKeys = new long[KEY_COUNT / 64];
+    private final byte[] pressedModifiers = new byte[KEY_COUNT];
+    //released keys and the modifiers each key was released with
+    private final long[] releasedKeys = new long[KEY_COUNT / 64];
+    private final byte[] releasedModifiers = new byte[KEY_COUNT];
     //screen mouse position
-    private Point screenMouseLocation = new Point(0,0); 
-    
+    private final Point screenMouseLocation = new Point(0,0);
+
     //mouse variables
-    private boolean mouseDown = false; 
+    private boolean mouseDown = false;
     private boolean mouseClicked = false;
-    private boolean mouseMoved= false;   
+    private boolean mouseMoved= false;
     private boolean mouseWheelMoved = false;
     private int mouseWheelRotation = 0;
     private int mouseButtonClicked;
     private boolean mouseKilled;
-    
-    
+
+
     //==============
     // Constructor
     //==============
-    
+
+    /**
+     * Creates an empty snapshot, for the InputHandler to fill
+     */
+    InputSnapshot()
+    {
+
+    }
+
     public InputSnapshot(ArrayList<Character> typedKeys,
                          HashMap<Short,Byte> releasedMap,
                          HashMap<Short,Byte> pressedMap,
@@ -48,39 +71,231 @@ public class InputSnapshot {
                          boolean mouseKilled,
                          Point screenMouseLocation)
     {
-        this.typedKeys = new ArrayList(typedKeys);
-        this.releasedMap = releasedMap;
-        this.pressedMap = pressedMap;
+        for(Character c: typedKeys)
+            this.addTypedKey(c);
+        for(Map.Entry<Short,Byte> entry: releasedMap.entrySet())
+            setKey(this.releasedKeys, this.releasedModifiers, entry.getKey(), entry.getValue());
+        for(Map.Entry<Short,Byte> entry: pressedMap.entrySet())
+            setKey(this.pressedKeys, this.pressedModifiers, entry.getKey(), entry.getValue());
+
+        this.setMouse(mouseDown, mouseClicked, mouseMoved, mouseWheelRotation, mouseButtonClicked, mouseKilled, screenMouseLocation.x, screenMouseLocation.y);
+    }
+
+
+    //============================
+    // Snapshot Methods
+    //============================
+
+    /**
+     * Fills this snapshot with the given key state, replacing the previous key state. Only the modifiers of keys
+     * that are set are copied.
+     */
+    final void setKeys(long[] pressedKeys, byte[] pressedModifiers, long[] releasedKeys, byte[] releasedModifiers)
+    {
+        copyKeys(pressedKeys, pressedModifiers, this.pressedKeys, this.pressedModifiers);
+        copyKeys(releasedKeys, releasedModifiers, this.releasedKeys, this.releasedModifiers);
+    }
+
+    /**
+     * Removes the typed keys
+     */
+    final void clearTypedKeys()
+    {
+        this.typedKeyCount = 0;
+    }
+
+    /**
+     * Appends a typed key
+     */
+    final void addTypedKey(char key)
+    {
+        if(this.typedKeyCount == this.typedKeys.length)
+            this.typedKeys = Arrays.copyOf(this.typedKeys, this.typedKeyCount * 2);
+
+        this.typedKeys[this.typedKeyCount++] = key;
+    }
+
+    /**
+     * Sets the mouse state of this snapshot
+     */
+    final void setMouse(boolean mouseDown, boolean mouseClicked, boolean mouseMoved, int mouseWheelRotation, int mouseButtonClicked, boolean mouseKilled, int mouseX, int mouseY)
+    {
         this.mouseDown = mouseDown;
         this.mouseClicked = mouseClicked;
         this.mouseMoved = mouseMoved;
-        
-        if(mouseWheelRotation > 0)
-          this.mouseWheelMoved = true;
-        
+        this.mouseWheelMoved = mouseWheelRotation > 0;
         this.mouseWheelRotation = mouseWheelRotation;
         this.mouseButtonClicked = mouseButtonClicked;
-        this.screenMouseLocation = new Point(screenMouseLocation);
-        
+        this.mouseKilled = mouseKilled;
+        this.screenMouseLocation.setLocation(mouseX, mouseY);
+    }
+
+    /**
+     * Returns a copy of this snapshot that stays valid after the InputHandler reuses this one
+     * @return copy of the snapshot
+     */
+    public InputSnapshot copy()
+    {
+        InputSnapshot copy = new InputSnapshot();
+        copy.set(this);
+        return copy;
+    }
+
+    /**
+     * Makes this snapshot hold the same input as another
+     */
+    final void set(InputSnapshot other)
+    {
+        this.setKeys(other.pressedKeys, other.pressedModifiers, other.releasedKeys, other.releasedModifiers);
+        this.typedKeyCount = 0;
+        for(int i = 0; i < other.typedKeyCount; i++)
+            this.addTypedKey(other.typedKeys[i]);
+        this.setMouse(other.mouseDown, other.mouseClicked, other.mouseMoved, other.mouseWheelRotation, other.mouseButtonClicked, other.mouseKilled, other.screenMouseLocation.x, other.screenMouseLocation.y);
+    }
+
+    /**
+     * Writes this snapshot in the binary form used by InputRecorder. Only the keys that are set are written.
+     */
+    final void write(DataOutputStream out) throws IOException
+    {
+        out.writeByte((this.mouseDown ? 1 : 0) | (this.mouseClicked ? 2 : 0) | (this.mouseMoved ? 4 : 0) | (this.mouseKilled ? 8 : 0));
+        out.writeInt(this.screenMouseLocation.x);
+        out.writeInt(this.screenMouseLocation.y);
+        out.writeInt(this.mouseWheelRotation);
+        out.writeByte(this.mouseButtonClicked);
+        writeKeys(out, this.pressedKeys, this.pressedModifiers);
+        writeKeys(out, this.releasedKeys, this.releasedModifiers);
+        out.writeShort(this.typedKeyCount);
+        for(int i = 0; i < this.typedKeyCount; i++)
+            out.writeChar(this.typedKeys[i]);
+    }
+
+    /**
+     * Reads a snapshot written by write(), replacing everything this snapshot held
+     */
+    final void read(DataInputStream in) throws IOException
+    {
+        int mouseFlags = in.readByte();
+        int mouseX = in.readInt();
+        int mouseY = in.readInt();
+        int wheelRotation = in.readInt();
+        int buttonClicked = in.readByte();
+        this.setMouse((mouseFlags & 1) != 0, (mouseFlags & 2) != 0, (mouseFlags & 4) != 0, wheelRotation, buttonClicked, (mouseFlags & 8) != 0, mouseX, mouseY);
+        readKeys(in, this.pressedKeys, this.pressedModifiers);
+        readKeys(in, this.releasedKeys, this.releasedModifiers);
+        this.typedKeyCount = 0;
+        int typedCount = in.readUnsignedShort();
+        for(int i = 0; i < typedCount; i++)
+            this.addTypedKey(in.readChar());
+    }
+
+    private static void writeKeys(DataOutputStream out, long[] keys, byte[] modifiers) throws IOException
+    {
+        int count = 0;
+        for(long word: keys)
+            count += Long.bitCount(word);
+
+        out.writeShort(count);
+        for(int word = 0; word < keys.length; word++)
+        {
+            long bits = keys[word];
+            while(bits != 0)
+            {
+                int symbol = (word << 6) + Long.numberOfTrailingZeros(bits);
+                out.writeShort(symbol);
+                out.writeByte(modifiers[symbol]);
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    private static void readKeys(DataInputStream in, long[] keys, byte[] modifiers) throws IOException
+    {
+        Arrays.fill(keys, 0);
+        int count = in.readUnsignedShort();
+        for(int i = 0; i < count; i++)
+        {
+            short key = in.readShort();
+            setKey(keys, modifiers, key, in.readByte());
+        }
     }
-    
-    
+
+    static void setKey(long[] keys, byte[] modifiers, short key, byte modifierMask)
+    {
+        int symbol = key & 0xFFFF;
+        keys[symbol >>> 6] |= 1L << symbol;
+        modifiers[symbol] = modifierMask;
+    }
+
+    static void clearKey(long[] keys, short key)
+    {
+        int symbol = key & 0xFFFF;
+        keys[symbol >>> 6] &= ~(1L << symbol);
+    }
+
+    static boolean isKeySet(long[] keys, short key)
+    {
+        int symbol = key & 0xFFFF;
+        return (keys[symbol >>> 6] & (1L << symbol)) != 0;
+    }
+
+    private static void copyKeys(long[] fromKeys, byte[] fromModifiers, long[] toKeys, byte[] toModifiers)
+    {
+        for(int word = 0; word < fromKeys.length; word++)
+        {
+            long bits = fromKeys[word];
+            toKeys[word] = bits;
+            while(bits != 0)
+            {
+                int symbol = (word << 6) + Long.numberOfTrailingZeros(bits);
+                toModifiers[symbol] = fromModifiers[symbol];
+                bits &= bits - 1;
+            }
+        }
+    }
+
+
     //============================
     // Accessor and Query Methods
     //============================
-     
+
     /**
      * Returns a list of all visible characters that were typed in the last snapshot. This
-     * list is in the order that they were typed.
-     * @return 
+     * list is in the order that they were typed. Allocates a new list, getTypedCharacterCount()
+     * and getTypedCharacter() read the characters without allocating.
+     * @return
      */
     public ArrayList<Character> getTypedCharacters()
     {
-        ArrayList<Character> typedCharacters = new ArrayList(this.typedKeys);
-        
+        ArrayList<Character> typedCharacters = new ArrayList(this.typedKeyCount);
+        for(int i = 0; i < this.typedKeyCount; i++)
+            typedCharacters.add(this.typedKeys[i]);
+
         return typedCharacters;
     }
-    
+
+    /**
+     * Returns the number of visible characters that were typed in the last snapshot
+     * @return typed character count
+     */
+    public int getTypedCharacterCount()
+    {
+        return this.typedKeyCount;
+    }
+
+    /**
+     * Returns a character that was typed in the last snapshot, in the order they were typed
+     * @param index index between 0 and getTypedCharacterCount()
+     * @return the typed character
+     */
+    public char getTypedCharacter(int index)
+    {
+        if(index >= this.typedKeyCount)
+            throw new IndexOutOfBoundsException("Index " + index + ", typed character count " + this.typedKeyCount);
+
+        return this.typedKeys[index];
+    }
+
     /**
      * Queries input snapshot to see if given key is currently pressed down.
      * A key is pressed down from the snapshot that it is moved into its down position until
@@ -90,9 +305,9 @@ public class InputSnapshot {
      */
     public boolean isKeyPressed(short key)
     {
-       return pressedMap.containsKey(key);
+       return isKeySet(this.pressedKeys, key);
     }
-    
+
     /**
      * Queries input snapshot to see if given key is currently pressed down with the Shift modifier
      * @param key
@@ -100,16 +315,9 @@ public class InputSnapshot {
      */
     public boolean isKeyPressedShiftModifier(short key)
     {
-        if(pressedMap.containsKey(key))
-        {
-           if((pressedMap.get(key) & 0b0000_0001) != 0) //if the bitmask says we pressed shift
-               return true;
-        }    
-        
-        //else return false
-        return false;
-    }
-    
+        return isKeySet(this.pressedKeys, key) && (this.pressedModifiers[key & 0xFFFF] & SHIFT_MODIFIER) != 0;
+    }
+
     /**
      * Queries input snapshot to see if given key is currently pressed down with the ctrl modifier
      * @param key
@@ -117,16 +325,9 @@ public class InputSnapshot {
      */
     public boolean isKeyPressedCtrlModifier(short key)
     {
-        if(pressedMap.containsKey(key))
-        {
-           if((pressedMap.get(key) & 0b0000_0010) != 0) //if the bitmask says we pressed shift
-               return true;
-        }    
-        
-        //else return false
-        return false;
-    }
-    
+        return isKeySet(this.pressedKeys, key) && (this.pressedModifiers[key & 0xFFFF] & CTRL_MODIFIER) != 0;
+    }
+
     /**
      * Queries input snapshot to see if given key is currently pressed down with the alt modifier
      * @param key
@@ -134,28 +335,21 @@ public class InputSnapshot {
      */
     public boolean isKeyPressedAltModifier(short key)
     {
-        if(pressedMap.containsKey(key))
-        {
-           if((pressedMap.get(key) & 0b0000_0100) != 0) //if the bitmask says we pressed shift
-               return true;
-        }    
-        
-        //else return false
-        return false;
-    }
-    
-    
+        return isKeySet(this.pressedKeys, key) && (this.pressedModifiers[key & 0xFFFF] & ALT_MODIFIER) != 0;
+    }
+
+
     /**
-     * Queries input snapshot to see if given key was released. 
+     * Queries input snapshot to see if given key was released.
      * A release happens if the key was returned to its UP position during this snapshot
      * @param key KeyEvent int constant representing the key
      * @return True if key was released, false otherwise
      */
     public boolean isKeyReleased(short key)
     {
-       return releasedMap.containsKey(key);
+       return isKeySet(this.releasedKeys, key);
     }
-    
+
     /**
      * Queries input snapshot to see if given key is currently released with the Shift modifier
      * @param key
@@ -163,16 +357,9 @@ public class InputSnapshot {
      */
     public boolean isKeyReleasedShiftModifier(short key)
     {
-        if(releasedMap.containsKey(key))
-        {
-           if((releasedMap.get(key) & 0b0000_0001) != 0) //if the bitmask says we pressed shift
-               return true;
-        }    
-        
-        //else return false
-        return false;
-    }
-    
+        return isKeySet(this.releasedKeys, key) && (this.releasedModifiers[key & 0xFFFF] & SHIFT_MODIFIER) != 0;
+    }
+
     /**
      * Queries input snapshot to see if given key is currently released with the ctrl modifier
      * @param key
@@ -180,16 +367,9 @@ public class InputSnapshot {
      */
     public boolean isKeyReleasedCtrlModifier(short key)
     {
-        if(releasedMap.containsKey(key))
-        {
-           if((releasedMap.get(key) & 0b0000_0010) != 0) //if the bitmask says we pressed shift
-               return true;
-        }    
-        
-        //else return false
-        return false;
-    }
-    
+        return isKeySet(this.releasedKeys, key) && (this.releasedModifiers[key & 0xFFFF] & CTRL_MODIFIER) != 0;
+    }
+
     /**
      * Queries input snapshot to see if given key is currently released with the alt modifier
      * @param key
@@ -197,24 +377,10 @@ public class InputSnapshot {
      */
     public boolean isKeyReleasedAltModifier(short key)
     {
-        if(releasedMap.containsKey(key))
-        {
-           if((releasedMap.get(key) & 0b0000_0100) != 0) //if the bitmask says we pressed shift
-               return true;
-        }    
-        
-        //else return false
-        return false;
-    }
-    
-    
-    
-    
-    
-    
-      
-    
-    
+        return isKeySet(this.releasedKeys, key) && (this.releasedModifiers[key & 0xFFFF] & ALT_MODIFIER) != 0;
+    }
+
+
     /**
      * Queries the input snapshot to see if the mouse is currently down.
      * @return True if the mouse is currently pressed down, otherwise false
@@ -223,7 +389,7 @@ public class InputSnapshot {
     {
         return this.mouseDown;
     }
-    
+
     /**
      * Queries the input snapshot to see if the mouse was clicked.
      * @return True if the mouse was clicked, otherwise false
@@ -232,7 +398,7 @@ public class InputSnapshot {
     {
         return this.mouseClicked;
     }
-    
+
     /**
      * Queries the input snapshot to see if the mouse was moved
      * @return True if the mouse moved, false otherwise
@@ -241,7 +407,7 @@ public class InputSnapshot {
     {
         return this.mouseMoved;
     }
-    
+
     /**
      * Queries the input snapshot to see if the mouse wheel was moved
      * @return returns True if the mouse wheel was moved, false otherwise
@@ -250,62 +416,78 @@ public class InputSnapshot {
     {
         return this.mouseWheelMoved;
     }
-    
+
     /**
-     * 
+     *
      * @return The mouse screen location
      */
     public Point getScreenMouseLocation()
     {
         return this.screenMouseLocation;
-    }     
-    
+    }
+
     /**
-     * 
+     *
      * @return Returns which mouse button was clicked
      */
     public int buttonClicked()
     {
         return this.mouseButtonClicked;
     }
-    
+
     /**
-     * 
+     *
      * @return Returns how much the mouse wheel was rotated
      */
     public int getWheelRotation()
     {
         return this.mouseWheelRotation;
     }
-    
+
     public void killMouseClick()
     {
         mouseDown = false;
         mouseClicked = false;
         mouseKilled = true;
     }
-    
+
     public boolean isMouseKilledLastTick()
     {
         return mouseKilled;
     }
-    
+
     /**
-     * 
+     * Builds a map of the released keys to their modifiers. Allocates, prefer the isKeyReleased methods.
      * @return The entire key released map
      */
     public HashMap<Short, Byte> getReleasedMap()
     {
-        return this.releasedMap;
+        return toMap(this.releasedKeys, this.releasedModifiers);
     }
-    
+
     /**
-     * 
+     * Builds a map of the pressed keys to their modifiers. Allocates, prefer the isKeyPressed methods.
      * @return The entire key pressed map
      */
     public HashMap<Short, Byte> getPressedMap()
     {
-        return this.pressedMap;
+        return toMap(this.pressedKeys, this.pressedModifiers);
+    }
+
+    private static HashMap<Short, Byte> toMap(long[] keys, byte[] modifiers)
+    {
+        HashMap<Short, Byte> map = new HashMap<>();
+        for(int word = 0; word < keys.length; word++)
+        {
+            long bits = keys[word];
+            while(bits != 0)
+            {
+                int symbol = (word << 6) + Long.numberOfTrailingZeros(bits);
+                map.put((short)symbol, modifiers[symbol]);
+                bits &= bits - 1;
+            }
+        }
+        return map;
     }
 
 }
@@ -0,0 +1,330 @@
+package com.silvergobletgames.sylver.core;
+
+import com.silvergobletgames.sylver.util.Log;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the engine and game background work. It has two pools.
+ * <ul>
+ * <li>A work stealing CPU pool with one worker per processor, for frame tasks such as parallel scene updates.</li>
+ * <li>A bounded I/O pool for blocking work such as asset loading, saves and network calls. Its threads are created
+ * as needed and time out when idle, and once they are all busy further jobs queue up rather than adding threads.</li>
+ * </ul>
+ * Long running loops that never return, such as a server listening for connections, are started as services, each
+ * on its own thread so they cant starve the I/O pool.
+ *
+ * Every job, service included, is returned as a Job that can be cancelled. Each pool keeps a queue depth gauge and
+ * histograms of how long jobs waited to start and how long they ran, in the MetricsRegistry it was given.
+ * shutdown() stops all of it in order.
+ * @author Mike
+ */
+public final class JobSystem
+{
+    //the pools
+    private final ForkJoinPool cpuPool;
+    private final ThreadPoolExecutor ioPool;
+    //running services, by name
+    private final ConcurrentHashMap<String, Job> services = new ConcurrentHashMap<>();
+    private volatile boolean shutdown = false;
+
+    //metrics
+    private final MetricsRegistry.Gauge cpuQueueDepth;
+    private final MetricsRegistry.Histogram cpuLatency;
+    private final MetricsRegistry.Histogram cpuRunTime;
+    private final MetricsRegistry.Gauge ioQueueDepth;
+    private final MetricsRegistry.Histogram ioLatency;
+    private final MetricsRegistry.Histogram ioRunTime;
+    private final MetricsRegistry.Gauge serviceCount;
+
+
+    //================
+    // Constructor
+    //================
+
+    /**
+     * Creates a job system. Threads are only started once there is work for them.
+     * @param cpuThreads number of CPU pool workers
+     * @param ioThreads max number of I/O pool threads
+     * @param metrics registry to keep the pool metrics in
+     */
+    public JobSystem(int cpuThreads, int ioThreads, MetricsRegistry metrics)
+    {
+        this.cpuPool = new ForkJoinPool(Math.max(1, cpuThreads));
+        this.ioPool = new ThreadPoolExecutor(Math.max(1, ioThreads), Math.max(1, ioThreads), 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory(){
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "Sylver I/O " + this.count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.ioPool.allowCoreThreadTimeOut(true);
+
+        this.cpuQueueDepth = metrics.gauge("jobs.cpu.queueDepth");
+        this.cpuLatency = metrics.histogram("jobs.cpu.latency");
+        this.cpuRunTime = metrics.histogram("jobs.cpu.runTime");
+        this.ioQueueDepth = metrics.gauge("jobs.io.queueDepth");
+        this.ioLatency = metrics.histogram("jobs.io.latency");
+        this.ioRunTime = metrics.histogram("jobs.io.runTime");
+        this.serviceCount = metrics.gauge("jobs.services");
+    }
+
+
+    //================
+    // Class Methods
+    //================
+
+    /**
+     * Runs a job on the CPU pool. CPU jobs shouldnt block, use submitIo() for anything that waits.
+     * @param name name of the job, used when reporting its errors
+     * @param runnable work to do
+     * @return the Job
+     */
+    public Job submitCpu(String name, Runnable runnable)
+    {
+        Job job = new Job(name, runnable, this.cpuLatency, this.cpuRunTime, false);
+        this.checkRunning();
+        this.cpuPool.execute(job);
+        return job;
+    }
+
+    /**
+     * Runs a job on the I/O pool
+     * @param name name of the job, used when reporting its errors
+     * @param runnable work to do
+     * @return the Job
+     */
+    public Job submitIo(String name, Runnable runnable)
+    {
+        Job job = new Job(name, runnable, this.ioLatency, this.ioRunTime, false);
+        this.checkRunning();
+        this.ioPool.execute(job);
+        return job;
+    }
+
+    /**
+     * Starts a service on its own thread. A service that throws brings the game down through
+     * Game.uncaughtExceptionHandlingActions(), and one that is stopped is interrupted, so it should return when its
+     * thread is interrupted. Starting a service with the name of a running one stops the running one first.
+     * @param name name of the service and its thread
+     * @param runnable the service
+     * @return the Job
+     */
+    public Job startService(final String name, Runnable runnable)
+    {
+        this.checkRunning();
+        this.stopService(name);
+
+        final Job job = new Job(name, runnable, null, null, true)
+        {
+            @Override
+            protected void done()
+            {
+                services.remove(name, this);
+                serviceCount.set(services.size());
+                super.done();
+            }
+        };
+        this.services.put(name, job);
+        this.serviceCount.set(this.services.size());
+
+        Thread thread = new Thread(job, name);
+        thread.setDaemon(true);
+        thread.start();
+        return job;
+    }
+
+    /**
+     * Gets a running service
+     * @param name name of the service
+     * @return the services Job, or null if there is no service running with that name
+     */
+    public Job getService(String name)
+    {
+        return this.services.get(name);
+    }
+
+    /**
+     * Stops a service by interrupting its thread
+     * @param name name of the service, services that arent running are ignored
+     */
+    public void stopService(String name)
+    {
+        Job job = this.services.remove(name);
+        if(job != null)
+            job.cancel();
+        this.serviceCount.set(this.services.size());
+    }
+
+    /**
+     * Gets the CPU pool, for fork join tasks such as the parallel scene update
+     * @return the CPU ForkJoinPool
+     */
+    public ForkJoinPool getCpuPool()
+    {
+        return this.cpuPool;
+    }
+
+    /**
+     * Gets the number of jobs waiting for a CPU worker
+     * @return CPU queue depth
+     */
+    public long getCpuQueueDepth()
+    {
+        return this.cpuPool.getQueuedSubmissionCount() + this.cpuPool.getQueuedTaskCount();
+    }
+
+    /**
+     * Gets the number of jobs waiting for an I/O thread
+     * @return I/O queue depth
+     */
+    public int getIoQueueDepth()
+    {
+        return this.ioPool.getQueue().size();
+    }
+
+    /**
+     * Updates the queue depth gauges. Called by the game loop every so often.
+     */
+    void sampleMetrics()
+    {
+        this.cpuQueueDepth.set(this.getCpuQueueDepth());
+        this.ioQueueDepth.set(this.getIoQueueDepth());
+    }
+
+    /**
+     * Shuts the job system down. New jobs are refused, services are stopped, and jobs that are already queued are
+     * given until the timeout to finish, so pending saves get written. Whatever is still running after that is
+     * interrupted.
+     * @param timeoutMillis how long to wait for queued jobs, in milliseconds
+     */
+    public void shutdown(long timeoutMillis)
+    {
+        this.shutdown = true;
+
+        //stop the services
+        for(String name: this.services.keySet())
+            this.stopService(name);
+
+        //let the queued jobs finish
+        this.ioPool.shutdown();
+        this.cpuPool.shutdown();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try
+        {
+            if(!this.ioPool.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS))
+                Log.warn("I/O jobs still running at shutdown, " + this.getIoQueueDepth() + " queued jobs dropped");
+            this.cpuPool.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        this.ioPool.shutdownNow();
+        this.cpuPool.shutdownNow();
+    }
+
+    public boolean isShutdown()
+    {
+        return this.shutdown;
+    }
+
+    private void checkRunning()
+    {
+        if(this.shutdown)
+            throw new RuntimeException("JobSystem has been shut down");
+    }
+
+
+    //================
+    // Inner Classes
+    //================
+
+    /**
+     * A submitted job. Times how long it waited and ran, and reports any exception it throws.
+     */
+    public static class Job extends FutureTask<Object>
+    {
+        private final String name;
+        //when the job was submitted
+        private final long submitTime = System.nanoTime();
+        //where the wait and run times go, null for services
+        private final MetricsRegistry.Histogram latency;
+        private final MetricsRegistry.Histogram runTime;
+        //services take the game down if they throw
+        private final boolean fatal;
+
+        private Job(String name, Runnable runnable, MetricsRegistry.Histogram latency, MetricsRegistry.Histogram runTime, boolean fatal)
+        {
+            super(runnable, null);
+            this.name = name;
+            this.latency = latency;
+            this.runTime = runTime;
+            this.fatal = fatal;
+        }
+
+        @Override
+        public void run()
+        {
+            long start = System.nanoTime();
+            if(this.latency != null)
+                this.latency.record(start - this.submitTime);
+
+            super.run();
+
+            if(this.runTime != null)
+                this.runTime.record(System.nanoTime() - start);
+        }
+
+        @Override
+        protected void done()
+        {
+            if(this.isCancelled())
+                return;
+
+            try
+            {
+                this.get();
+            }
+            catch(ExecutionException e)
+            {
+                if(this.fatal)
+                    Game.getInstance().uncaughtExceptionHandlingActions(e.getCause());
+                else
+                    Log.error("Job " + this.name + " failed", e.getCause());
+            }
+            catch(InterruptedException | CancellationException e)
+            {
+                //the job is done, so neither can happen
+            }
+        }
+
+        /**
+         * Cancels the job. If it hasnt started it never will, and if it is running its thread is interrupted.
+         * @return false if the job had already finished
+         */
+        public boolean cancel()
+        {
+            return this.cancel(true);
+        }
+
+        public String getName()
+        {
+            return this.name;
+        }
+    }
+
+}
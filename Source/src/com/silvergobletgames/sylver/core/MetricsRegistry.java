@@ -0,0 +1,468 @@
+package com.silvergobletgames.sylver.core;
+
+import com.silvergobletgames.sylver.util.Log;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Registry of named engine metrics. There are three kinds of metric: Counters that only go up, Gauges that hold
+ * the last value set, and Histograms that keep recent samples for percentiles. Metrics are created on first use
+ * with counter(), gauge() and histogram(), and can be read in game with getMetrics(), or from outside the process
+ * through JMX once publish() has been called.
+ *
+ * Game owns a registry and fills in the engine metrics each frame, see Game.getMetrics(). Times are in nanoseconds.
+ * @author Mike
+ */
+public class MetricsRegistry implements DynamicMBean
+{
+    //default JMX name of the registry
+    public static final String DEFAULT_OBJECT_NAME = "com.silvergobletgames.sylver:type=EngineMetrics";
+
+    //all of the metrics, sorted by name
+    private final ConcurrentSkipListMap<String,Metric> metrics = new ConcurrentSkipListMap<>();
+    //name the registry is published under, null if not published
+    private ObjectName objectName;
+
+
+    //==================
+    // Constructor
+    //==================
+
+    public MetricsRegistry()
+    {
+
+    }
+
+
+    //==================
+    // Class Methods
+    //==================
+
+    /**
+     * Gets the counter with the given name, creating it if it doesnt exist
+     * @param name name of the counter
+     * @return the Counter
+     */
+    public Counter counter(String name)
+    {
+        return this.getOrCreate(name, Counter.class);
+    }
+
+    /**
+     * Gets the gauge with the given name, creating it if it doesnt exist
+     * @param name name of the gauge
+     * @return the Gauge
+     */
+    public Gauge gauge(String name)
+    {
+        return this.getOrCreate(name, Gauge.class);
+    }
+
+    /**
+     * Gets the histogram with the given name, creating it if it doesnt exist
+     * @param name name of the histogram
+     * @return the Histogram
+     */
+    public Histogram histogram(String name)
+    {
+        return this.getOrCreate(name, Histogram.class);
+    }
+
+    /**
+     * Gets a metric by name
+     * @param name name of the metric
+     * @return the Metric, or null if there is none with that name
+     */
+    public Metric get(String name)
+    {
+        return this.metrics.get(name);
+    }
+
+    /**
+     * Gets all of the metrics, sorted by name. This is the pull API for in game overlays.
+     * @return map of metric name to metric
+     */
+    public Map<String,Metric> getMetrics()
+    {
+        return new TreeMap<>(this.metrics);
+    }
+
+    /**
+     * Resets every counter and histogram
+     */
+    public void reset()
+    {
+        for(Metric metric: this.metrics.values())
+            metric.reset();
+    }
+
+    /**
+     * Publishes the registry with the platform MBean server under DEFAULT_OBJECT_NAME
+     */
+    public void publish()
+    {
+        this.publish(DEFAULT_OBJECT_NAME);
+    }
+
+    /**
+     * Publishes the registry with the platform MBean server
+     * @param name JMX object name to publish under
+     */
+    public synchronized void publish(String name)
+    {
+        if(this.objectName != null)
+            return;
+
+        try
+        {
+            ObjectName newName = new ObjectName(name);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if(!server.isRegistered(newName))
+                server.registerMBean(this, newName);
+            this.objectName = newName;
+        }
+        catch(Exception e)
+        {
+            //log error to console
+            Log.error( "Error Publishing Metrics MBean: " + e.getMessage(),e);
+        }
+    }
+
+    /**
+     * Removes the registry from the platform MBean server if it was published
+     */
+    public synchronized void unpublish()
+    {
+        if(this.objectName == null)
+            return;
+
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if(server.isRegistered(this.objectName))
+                server.unregisterMBean(this.objectName);
+        }
+        catch(Exception e)
+        {
+            //log error to console
+            Log.error( "Error Unpublishing Metrics MBean: " + e.getMessage(),e);
+        }
+        this.objectName = null;
+    }
+
+    private <T extends Metric> T getOrCreate(String name, Class<T> type)
+    {
+        Metric metric = this.metrics.get(name);
+        if(metric == null)
+        {
+            if(type == Counter.class)
+                metric = new Counter(name);
+            else if(type == Gauge.class)
+                metric = new Gauge(name);
+            else
+                metric = new Histogram(name);
+
+            Metric existing = this.metrics.putIfAbsent(name, metric);
+            if(existing != null)
+                metric = existing;
+        }
+
+        if(!type.isInstance(metric))
+            throw new RuntimeException("Metric " + name + " is already registered as a " + metric.getClass().getSimpleName());
+
+        return type.cast(metric);
+    }
+
+
+    //====================
+    // DynamicMBean Methods
+    //====================
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException
+    {
+        //histogram statistics are exposed as name.statistic
+        int split = attribute.lastIndexOf('.');
+        if(split != -1)
+        {
+            Metric metric = this.metrics.get(attribute.substring(0, split));
+            if(metric instanceof Histogram)
+            {
+                Histogram histogram = (Histogram)metric;
+                switch(attribute.substring(split + 1))
+                {
+                    case "count": return histogram.getCount();
+                    case "mean": return histogram.getMean();
+                    case "p50": return histogram.getPercentile(50);
+                    case "p95": return histogram.getPercentile(95);
+                    case "p99": return histogram.getPercentile(99);
+                    case "max": return histogram.getPercentile(100);
+                }
+            }
+        }
+
+        Metric metric = this.metrics.get(attribute);
+        if(metric instanceof Counter)
+            return ((Counter)metric).get();
+        if(metric instanceof Gauge)
+            return ((Gauge)metric).get();
+
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes)
+    {
+        AttributeList list = new AttributeList();
+        for(String attribute: attributes)
+        {
+            try
+            {
+                list.add(new Attribute(attribute, this.getAttribute(attribute)));
+            }
+            catch(AttributeNotFoundException e)
+            {
+                //leave missing attributes out of the list
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException
+    {
+        throw new AttributeNotFoundException("Engine metrics are read only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes)
+    {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException
+    {
+        if(actionName.equals("reset"))
+        {
+            this.reset();
+            return null;
+        }
+
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo()
+    {
+        ArrayList<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for(Metric metric: this.metrics.values())
+        {
+            if(metric instanceof Histogram)
+            {
+                attributes.add(new MBeanAttributeInfo(metric.getName() + ".count", "long", "Samples recorded", true, false, false));
+                for(String statistic: new String[]{"mean","p50","p95","p99","max"})
+                    attributes.add(new MBeanAttributeInfo(metric.getName() + "." + statistic, "long", statistic + " of the recent samples", true, false, false));
+            }
+            else
+                attributes.add(new MBeanAttributeInfo(metric.getName(), "long", metric.getClass().getSimpleName(), true, false, false));
+        }
+
+        MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Resets every counter and histogram", new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+        return new MBeanInfo(this.getClass().getName(), "Sylver engine metrics", attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, new MBeanOperationInfo[]{reset}, null);
+    }
+
+
+    //====================
+    // Metric Classes
+    //====================
+
+    /**
+     * Base class of all metrics
+     */
+    public static abstract class Metric
+    {
+        //name of the metric
+        private final String name;
+
+        protected Metric(String name)
+        {
+            this.name = name;
+        }
+
+        public String getName()
+        {
+            return this.name;
+        }
+
+        protected abstract void reset();
+    }
+
+    /**
+     * A count that only goes up, such as the number of frames run
+     */
+    public static final class Counter extends Metric
+    {
+        private final AtomicLong count = new AtomicLong();
+
+        protected Counter(String name)
+        {
+            super(name);
+        }
+
+        public void increment()
+        {
+            this.count.incrementAndGet();
+        }
+
+        public void add(long amount)
+        {
+            this.count.addAndGet(amount);
+        }
+
+        public long get()
+        {
+            return this.count.get();
+        }
+
+        @Override
+        protected void reset()
+        {
+            this.count.set(0);
+        }
+
+        @Override
+        public String toString()
+        {
+            return Long.toString(this.get());
+        }
+    }
+
+    /**
+     * A value that is sampled and set, such as the number of objects in a layer
+     */
+    public static final class Gauge extends Metric
+    {
+        private volatile long value;
+
+        protected Gauge(String name)
+        {
+            super(name);
+        }
+
+        public void set(long value)
+        {
+            this.value = value;
+        }
+
+        public long get()
+        {
+            return this.value;
+        }
+
+        @Override
+        protected void reset()
+        {
+            //gauges hold the last sampled value, so there is nothing to reset
+        }
+
+        @Override
+        public String toString()
+        {
+            return Long.toString(this.value);
+        }
+    }
+
+    /**
+     * Keeps the most recent samples of a value, such as frame time, in a ring buffer so percentiles can be read
+     */
+    public static final class Histogram extends Metric
+    {
+        //number of samples kept
+        private static final int CAPACITY = 1024;
+
+        private final long[] samples = new long[CAPACITY];
+        //total number of samples ever recorded
+        private final AtomicLong writeIndex = new AtomicLong();
+
+        protected Histogram(String name)
+        {
+            super(name);
+        }
+
+        /**
+         * Records a sample. Safe to call from any thread.
+         * @param value value of the sample
+         */
+        public void record(long value)
+        {
+            this.samples[(int)(this.writeIndex.getAndIncrement() & (CAPACITY - 1))] = value;
+        }
+
+        /**
+         * Gets the total number of samples ever recorded
+         * @return sample count
+         */
+        public long getCount()
+        {
+            return this.writeIndex.get();
+        }
+
+        /**
+         * Gets the mean of the recent samples
+         * @return mean, or 0 if there are no samples
+         */
+        public long getMean()
+        {
+            int count = (int)Math.min(this.writeIndex.get(), CAPACITY);
+            if(count == 0)
+                return 0;
+
+            long total = 0;
+            for(int i = 0; i < count; i++)
+                total += this.samples[i];
+            return total / count;
+        }
+
+        /**
+         * Gets a percentile of the recent samples
+         * @param percentile percentile between 0 and 100
+         * @return the value at that percentile, or 0 if there are no samples
+         */
+        public long getPercentile(double percentile)
+        {
+            long[] sorted = Arrays.copyOf(this.samples, (int)Math.min(this.writeIndex.get(), CAPACITY));
+            Arrays.sort(sorted);
+            return ProfilerScope.percentileOf(sorted, percentile);
+        }
+
+        @Override
+        protected void reset()
+        {
+            this.writeIndex.set(0);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "mean " + this.getMean() + " p50 " + this.getPercentile(50) + " p95 " + this.getPercentile(95) + " p99 " + this.getPercentile(99) + " max " + this.getPercentile(100);
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.silvergobletgames.sylver.core;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Frame pacer that parks the game loop thread until shortly before the frame deadline, then spins for the
+ * remainder. The spin margin is calibrated from how far past the requested time parkNanos actually wakes up,
+ * so on a system with a fine grained timer almost all of the wait is spent parked.
+ * @author Mike
+ */
+public class ParkingFramePacer extends FramePacer
+{
+    //bounds of the spin margin, in nanoseconds
+    private static final long MIN_SPIN_MARGIN = 50_000;
+    private static final long MAX_SPIN_MARGIN = 4_000_000;
+
+    //time before the deadline at which we stop parking and start spinning
+    private volatile long spinMargin = 1_000_000;
+    //moving average of how late parkNanos wakes up
+    private long averageOversleep = 500_000;
+
+    //whether the timer resolution thread has been started
+    private static boolean timerResolutionThreadStarted = false;
+
+
+    //==================
+    // Constructor
+    //==================
+
+    /**
+     * Creates a parking frame pacer with the given frame rate cap
+     * @param targetFrameRate frames per second to cap at, 0 for uncapped
+     */
+    public ParkingFramePacer(float targetFrameRate)
+    {
+        super(targetFrameRate);
+
+        //windows only gives us a fine grained timer while some thread is in a long sleep
+        if(System.getProperty("os.name", "").startsWith("Windows"))
+            startTimerResolutionThread();
+    }
+
+
+    //==================
+    // Class Methods
+    //==================
+
+    @Override
+    protected void waitUntil(long deadline)
+    {
+        //park while we are further out than the spin margin
+        long remaining = deadline - System.nanoTime();
+        while(remaining > this.spinMargin)
+        {
+            long parkTime = remaining - this.spinMargin;
+            long parkStart = System.nanoTime();
+            LockSupport.parkNanos(parkTime);
+            long parkEnd = System.nanoTime();
+
+            //calibrate the spin margin from how late we woke up
+            long oversleep = Math.max(0, (parkEnd - parkStart) - parkTime);
+            this.averageOversleep += (oversleep - this.averageOversleep) / 8;
+            this.spinMargin = Math.min(MAX_SPIN_MARGIN, Math.max(MIN_SPIN_MARGIN, this.averageOversleep * 2));
+
+            remaining = deadline - parkEnd;
+        }
+
+        //spin out the rest
+        while(System.nanoTime() < deadline)
+            Thread.yield();
+    }
+
+    /**
+     * Gets the current spin margin
+     * @return the time before the deadline at which the pacer stops parking, in nanoseconds
+     */
+    public long getSpinMargin()
+    {
+        return this.spinMargin;
+    }
+
+    /**
+     * Starts a daemon thread that sleeps forever, which makes windows raise its timer resolution for the
+     * life of the process.
+     */
+    private static synchronized void startTimerResolutionThread()
+    {
+        if(timerResolutionThreadStarted)
+            return;
+
+        Thread thread = new Thread("Sylver Timer Resolution") {
+            @Override
+            public void run()
+            {
+                while(true)
+                {
+                    try
+                    {
+                        Thread.sleep(Long.MAX_VALUE);
+                    }
+                    catch(InterruptedException ex)
+                    {
+                    }
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+        timerResolutionThreadStarted = true;
+    }
+
+}
@@ -0,0 +1,277 @@
+package com.silvergobletgames.sylver.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hierarchical frame profiler. Code is timed by wrapping it in begin(scope) and end() calls, which nest, and each
+ * timing is recorded into the scopes ring buffer. Scope statistics can be read with getScopes(), or exported with
+ * exportCSV() and exportChromeTrace(). When the profiler is disabled begin() and end() return immediately.
+ *
+ * The engine times the game loop, scene updates per layer and each pass of the rendering pipeline. It is enabled
+ * by the profileGameLoop and profileRendering engine settings, or with setEnabled().
+ * @author Mike
+ */
+public final class Profiler
+{
+    //number of samples each scope keeps
+    private static final int SCOPE_CAPACITY = 1024;
+    //max nesting depth
+    private static final int MAX_DEPTH = 64;
+
+    //if the profiler is recording
+    private static volatile boolean enabled = false;
+    //all of the scopes, by name
+    private static final ConcurrentHashMap<String,ProfilerScope> scopes = new ConcurrentHashMap<>();
+    //stack of open scopes for each thread
+    private static final ThreadLocal<ScopeStack> scopeStacks = new ThreadLocal<ScopeStack>(){
+        @Override
+        protected ScopeStack initialValue()
+        {
+            return new ScopeStack();
+        }
+    };
+    //time that trace timestamps are measured from
+    private static final long epoch = System.nanoTime();
+
+
+    //==================
+    // Constructor
+    //==================
+
+    private Profiler()
+    {
+
+    }
+
+
+    //==================
+    // Class Methods
+    //==================
+
+    /**
+     * Gets the scope with the given name, creating it if it doesnt exist. Look scopes up once and keep
+     * the reference rather than calling this every frame.
+     * @param name name of the scope
+     * @return ProfilerScope with that name
+     */
+    public static ProfilerScope getScope(String name)
+    {
+        ProfilerScope scope = scopes.get(name);
+        if(scope == null)
+        {
+            scope = new ProfilerScope(name, SCOPE_CAPACITY);
+            ProfilerScope existing = scopes.putIfAbsent(name, scope);
+            if(existing != null)
+                scope = existing;
+        }
+        return scope;
+    }
+
+    /**
+     * Starts timing a scope on the calling thread. Must be paired with a call to end() on the same thread.
+     * @param scope scope to time
+     */
+    public static void begin(ProfilerScope scope)
+    {
+        if(!enabled)
+            return;
+
+        ScopeStack stack = scopeStacks.get();
+        if(stack.depth == MAX_DEPTH)
+        {
+            stack.overflow++;
+            return;
+        }
+
+        if(stack.depth > 0)
+            scope.offerParent(stack.scopes[stack.depth - 1]);
+
+        stack.scopes[stack.depth] = scope;
+        stack.startTimes[stack.depth] = System.nanoTime();
+        stack.depth++;
+    }
+
+    /**
+     * Stops timing the innermost open scope on the calling thread and records the sample
+     */
+    public static void end()
+    {
+        if(!enabled)
+            return;
+
+        long now = System.nanoTime();
+        ScopeStack stack = scopeStacks.get();
+        if(stack.overflow > 0)
+        {
+            stack.overflow--;
+            return;
+        }
+        if(stack.depth == 0)
+            return;
+
+        stack.depth--;
+        ProfilerScope scope = stack.scopes[stack.depth];
+        stack.scopes[stack.depth] = null;
+        scope.record(stack.startTimes[stack.depth], now - stack.startTimes[stack.depth]);
+    }
+
+    /**
+     * Enables or disables the profiler
+     * @param value true to start recording
+     */
+    public static void setEnabled(boolean value)
+    {
+        enabled = value;
+    }
+
+    /**
+     * Returns true if the profiler is recording
+     * @return true if enabled
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Gets all of the scopes, sorted by path so children follow their parents
+     * @return list of scopes
+     */
+    public static ArrayList<ProfilerScope> getScopes()
+    {
+        ArrayList<ProfilerScope> list = new ArrayList<>(scopes.values());
+        Collections.sort(list, new Comparator<ProfilerScope>(){
+            @Override
+            public int compare(ProfilerScope a, ProfilerScope b)
+            {
+                return a.getPath().compareTo(b.getPath());
+            }
+        });
+        return list;
+    }
+
+    /**
+     * Throws away the samples of every scope
+     */
+    public static void reset()
+    {
+        for(ProfilerScope scope: scopes.values())
+            scope.reset();
+    }
+
+    /**
+     * Builds a human readable table of every scope with samples, with times in milliseconds
+     * @return the report
+     */
+    public static String getReport()
+    {
+        StringBuilder builder = new StringBuilder("Profiler Report (ms): scope | samples | mean | p50 | p95 | p99 | max\n");
+        for(ProfilerScope scope: getScopes())
+        {
+            long[] sorted = scope.getSortedDurations();
+            if(sorted.length == 0)
+                continue;
+
+            builder.append(scope.getPath()).append(" | ").append(sorted.length)
+                   .append(" | ").append(toMillis(scope.getMean()))
+                   .append(" | ").append(toMillis(ProfilerScope.percentileOf(sorted, 50)))
+                   .append(" | ").append(toMillis(ProfilerScope.percentileOf(sorted, 95)))
+                   .append(" | ").append(toMillis(ProfilerScope.percentileOf(sorted, 99)))
+                   .append(" | ").append(toMillis(ProfilerScope.percentileOf(sorted, 100))).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the statistics of every scope as CSV, with one row per scope and times in milliseconds
+     * @param writer Writer to write to
+     * @throws IOException if the writer fails
+     */
+    public static void exportCSV(Writer writer) throws IOException
+    {
+        writer.write("scope,parent,samples,mean_ms,p50_ms,p95_ms,p99_ms,max_ms\n");
+        for(ProfilerScope scope: getScopes())
+        {
+            long[] sorted = scope.getSortedDurations();
+            ProfilerScope parent = scope.getParent();
+
+            writer.write(csvEscape(scope.getPath()) + "," + csvEscape(parent != null ? parent.getPath() : "") + "," + sorted.length
+                    + "," + toMillis(scope.getMean())
+                    + "," + toMillis(ProfilerScope.percentileOf(sorted, 50))
+                    + "," + toMillis(ProfilerScope.percentileOf(sorted, 95))
+                    + "," + toMillis(ProfilerScope.percentileOf(sorted, 99))
+                    + "," + toMillis(ProfilerScope.percentileOf(sorted, 100)) + "\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes every held sample in the Chrome trace event format, which can be opened in chrome://tracing. Any
+     * recorded EngineEvents are written into the same trace.
+     * @param writer Writer to write to
+     * @throws IOException if the writer fails
+     */
+    public static void exportChromeTrace(Writer writer) throws IOException
+    {
+        writer.write("{\"traceEvents\":[");
+        boolean first = true;
+        for(ProfilerScope scope: getScopes())
+        {
+            int count = scope.getSampleCount();
+            long[] starts = new long[count];
+            long[] durations = new long[count];
+            long[] threads = new long[count];
+            count = scope.copySamples(starts, durations, threads);
+
+            String name = jsonEscape(scope.getName());
+            for(int i = 0; i < count; i++)
+            {
+                if(!first)
+                    writer.write(',');
+                first = false;
+
+                writer.write("\n{\"name\":\"" + name + "\",\"ph\":\"X\",\"pid\":1,\"tid\":" + threads[i]
+                        + ",\"ts\":" + (starts[i] - epoch) / 1000d + ",\"dur\":" + durations[i] / 1000d + "}");
+            }
+        }
+        EngineEvents.writeTraceEvents(writer, epoch, first);
+        writer.write("\n],\"displayTimeUnit\":\"ms\"}");
+        writer.flush();
+    }
+
+    private static float toMillis(long nanos)
+    {
+        return (float)nanos / 1_000_000f;
+    }
+
+    private static String csvEscape(String value)
+    {
+        if(value.indexOf(',') == -1 && value.indexOf('"') == -1)
+            return value;
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String jsonEscape(String value)
+    {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+
+    /**
+     * Stack of the scopes that are open on a thread
+     */
+    private static final class ScopeStack
+    {
+        private final ProfilerScope[] scopes = new ProfilerScope[MAX_DEPTH];
+        private final long[] startTimes = new long[MAX_DEPTH];
+        private int depth = 0;
+        //begin calls that were past the max depth, and have no matching entry on the stack
+        private int overflow = 0;
+    }
+
+}
@@ -0,0 +1,217 @@
+package com.silvergobletgames.sylver.core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A named profiler scope. Each time the scope is timed a sample is written into a fixed size ring buffer, so a scope
+ * always holds its most recent samples and never allocates while recording. Scopes are created and looked up
+ * through Profiler.getScope().
+ * @author Mike
+ */
+public final class ProfilerScope
+{
+    //name of the scope
+    private final String name;
+    //the scope this one was first seen nested inside of, null for a root scope
+    private volatile ProfilerScope parent;
+
+    //ring buffers of sample start times, durations and the thread that recorded them
+    private final long[] startTimes;
+    private final long[] durations;
+    private final long[] threadIds;
+    private final int mask;
+    //total number of samples ever recorded, the next slot to write is writeIndex & mask
+    private final AtomicLong writeIndex = new AtomicLong();
+
+
+    //==================
+    // Constructor
+    //==================
+
+    /**
+     * Creates a new scope
+     * @param name name of the scope
+     * @param capacity number of samples to keep, rounded up to a power of two
+     */
+    protected ProfilerScope(String name, int capacity)
+    {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+
+        this.name = name;
+        this.startTimes = new long[size];
+        this.durations = new long[size];
+        this.threadIds = new long[size];
+        this.mask = size - 1;
+    }
+
+
+    //==================
+    // Class Methods
+    //==================
+
+    /**
+     * Records a sample for this scope. Safe to call from any thread.
+     * @param startTime System.nanoTime() the sample started at
+     * @param duration duration of the sample in nanoseconds
+     */
+    public void record(long startTime, long duration)
+    {
+        int slot = (int)(this.writeIndex.getAndIncrement() & this.mask);
+        this.startTimes[slot] = startTime;
+        this.durations[slot] = duration;
+        this.threadIds[slot] = Thread.currentThread().getId();
+    }
+
+    /**
+     * Sets the parent of this scope if it doesnt have one yet
+     * @param parent scope this one is nested in
+     */
+    protected void offerParent(ProfilerScope parent)
+    {
+        if(this.parent == null && parent != this)
+            this.parent = parent;
+    }
+
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Gets the scope this one was first seen nested inside of
+     * @return parent scope, or null for a root scope
+     */
+    public ProfilerScope getParent()
+    {
+        return this.parent;
+    }
+
+    /**
+     * Gets the full path of this scope through its parents, eg. "Game Loop/Scene Update/Update MAIN"
+     * @return path of the scope
+     */
+    public String getPath()
+    {
+        ProfilerScope p = this.parent;
+        return p == null ? this.name : p.getPath() + "/" + this.name;
+    }
+
+    /**
+     * Gets the total number of samples ever recorded, including ones that have been overwritten
+     * @return total sample count
+     */
+    public long getTotalSampleCount()
+    {
+        return this.writeIndex.get();
+    }
+
+    /**
+     * Gets the number of samples currently held in the ring buffer
+     * @return held sample count
+     */
+    public int getSampleCount()
+    {
+        return (int)Math.min(this.writeIndex.get(), this.durations.length);
+    }
+
+    /**
+     * Copies the held sample durations, sorted from shortest to longest
+     * @return sorted durations in nanoseconds
+     */
+    public long[] getSortedDurations()
+    {
+        long[] sorted = Arrays.copyOf(this.durations, this.getSampleCount());
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Gets a percentile of the held sample durations
+     * @param percentile percentile to get, between 0 and 100
+     * @return duration at that percentile in nanoseconds, or 0 if there are no samples
+     */
+    public long getPercentile(double percentile)
+    {
+        return percentileOf(this.getSortedDurations(), percentile);
+    }
+
+    public long getP50()
+    {
+        return this.getPercentile(50);
+    }
+
+    public long getP95()
+    {
+        return this.getPercentile(95);
+    }
+
+    public long getP99()
+    {
+        return this.getPercentile(99);
+    }
+
+    public long getMax()
+    {
+        return this.getPercentile(100);
+    }
+
+    /**
+     * Gets the mean of the held sample durations
+     * @return mean duration in nanoseconds, or 0 if there are no samples
+     */
+    public long getMean()
+    {
+        int count = this.getSampleCount();
+        if(count == 0)
+            return 0;
+
+        long total = 0;
+        for(int i = 0; i < count; i++)
+            total += this.durations[i];
+        return total / count;
+    }
+
+    /**
+     * Gets the percentile of an already sorted array of durations
+     * @param sorted sorted durations
+     * @param percentile percentile between 0 and 100
+     * @return duration at the percentile, 0 if the array is empty
+     */
+    protected static long percentileOf(long[] sorted, double percentile)
+    {
+        if(sorted.length == 0)
+            return 0;
+
+        int index = (int)Math.ceil(percentile / 100d * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Copies the held samples into the given arrays, oldest first. Each array must hold getSampleCount() entries.
+     * @return number of samples copied
+     */
+    protected int copySamples(long[] starts, long[] durs, long[] threads)
+    {
+        long end = this.writeIndex.get();
+        int count = (int)Math.min(Math.min(end, this.durations.length), starts.length);
+        long begin = end - count;
+        for(int i = 0; i < count; i++)
+        {
+            int slot = (int)((begin + i) & this.mask);
+            starts[i] = this.startTimes[slot];
+            durs[i] = this.durations[slot];
+            threads[i] = this.threadIds[slot];
+        }
+        return count;
+    }
+
+    /**
+     * Throws away all held samples
+     */
+    public void reset()
+    {
+        this.writeIndex.set(0);
+    }
+
+}
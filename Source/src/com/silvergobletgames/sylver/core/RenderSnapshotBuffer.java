@@ -0,0 +1,254 @@
+package com.silvergobletgames.sylver.core;
+
+import com.silvergobletgames.sylver.core.Scene.Layer;
+import com.silvergobletgames.sylver.graphics.Viewport;
+import com.silvergobletgames.sylver.netcode.NetworkedSceneObject;
+import com.silvergobletgames.sylver.netcode.SceneObjectDeserializer;
+import com.silvergobletgames.sylver.netcode.SceneObjectRenderData;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * Double buffer of render snapshots used when pipelined rendering is enabled. The update thread publishes
+ * a copy of the scene's layer and group mappings and of its viewport at the end of each frame, and the render 
+ * thread draws the most recently published copy while the update thread moves on to the next frame.
+ * 
+ * Each buffer keeps a render copy of every NetworkedSceneObject whose class can rebuild it with 
+ * buildFromRenderData(), and the snapshot holds the copies rather than the live objects. Publishing writes the
+ * objects render data into the buffer with NetworkedSceneObject.writeSnapshot(), which doesnt allocate for the 
+ * engine classes, along with any draw state the render data doesnt carry, see NetworkedSceneObject.copyDrawState().
+ * The render thread decodes the render data into the copies before it draws, so the update thread only pays for
+ * the encoding and the next tick can change the live objects freely.
+ * 
+ * Other SceneObjects are shared with the update thread. Each snapshot remembers if those are all concurrently 
+ * drawable, see SceneObject.setConcurrentlyDrawable(), and the game loop waits for snapshots that arent to be 
+ * drawn before it updates again.
+ * @author Mike
+ */
+public final class RenderSnapshotBuffer
+{
+    private static final Layer[] LAYERS = Layer.values();
+    
+    //the two snapshot buffers
+    private final SceneObjectManager[] buffers = new SceneObjectManager[]{new SceneObjectManager(), new SceneObjectManager()};
+    //render data of the copied scene objects in each buffer, encoded when it is published
+    private final SceneSnapshotRing[] renderData = new SceneSnapshotRing[]{new SceneSnapshotRing(1, 64 * 1024), new SceneSnapshotRing(1, 64 * 1024)};
+    //render copies of each buffer keyed by the live scene object they copy, and a spare map for the next publish
+    private final IdentityHashMap<SceneObject, SceneObject>[] renderCopies = new IdentityHashMap[]{new IdentityHashMap<>(), new IdentityHashMap<>()};
+    private IdentityHashMap<SceneObject, SceneObject> spareRenderCopies = new IdentityHashMap<>();
+    //render copy that each encoded render data entry of a buffer goes to, null for shared objects
+    private final ArrayList<SceneObject>[] restoreTargets = new ArrayList[]{new ArrayList<>(), new ArrayList<>()};
+    //classes that can be drawn from a render copy
+    private final HashMap<Class, Boolean> copyableClasses = new HashMap<>();
+    //reusable list of decoded render data, only used by the render thread
+    private final ArrayList<SceneObjectRenderData> decodedRenderData = new ArrayList<>();
+
+    //index of the most recently published buffer, -1 if nothing has been published
+    private int publishedIndex = -1;
+    //index of the buffer the render thread is drawing, -1 if it isnt drawing
+    private int readingIndex = -1;
+    //interpolation alpha published with each buffer
+    private final float[] interpolationAlphas = new float[2];
+    //viewport published with each buffer
+    private final Viewport[] viewports = new Viewport[]{new Viewport(), new Viewport()};
+    //true if the buffer can be drawn while the next tick updates
+    private final boolean[] concurrentlyDrawable = new boolean[2];
+
+
+    //==================
+    // Class Methods
+    //==================
+
+    /**
+     * Copies the mappings of the given manager into the back buffer, swaps in the render copies and encodes their 
+     * render data, then makes it the published snapshot. Blocks only if the render thread is still drawing from the 
+     * back buffer.
+     * @param source SceneObjectManager to snapshot
+     * @param viewport Viewport to snapshot
+     * @param effectsConcurrentlyDrawable false if the scene effects cant be drawn while the next tick updates
+     * @param interpolationAlpha interpolation alpha to render this snapshot with
+     * @throws InterruptedException if interrupted while waiting for the render thread
+     */
+    public synchronized void publish(SceneObjectManager source, Viewport viewport, boolean effectsConcurrentlyDrawable, float interpolationAlpha) throws InterruptedException
+    {
+        int backIndex = this.publishedIndex == 0 ? 1 : 0;
+
+        //wait for the render thread to let go of the back buffer
+        while(this.readingIndex == backIndex)
+            this.wait();
+
+        //fill the back buffer while holding the lock so acquire() cant grab it mid-copy
+        SceneObjectManager snapshot = this.buffers[backIndex];
+        source.copyInto(snapshot);
+        
+        //encode the render data of the networked scene objects, in the order the snapshot lists them
+        this.renderData[backIndex].capture(snapshot, null, 0);
+        
+        //make or reuse a render copy of each networked scene object, dropping the copies of ones that have left
+        IdentityHashMap<SceneObject, SceneObject> copies = this.renderCopies[backIndex];
+        IdentityHashMap<SceneObject, SceneObject> nextCopies = this.spareRenderCopies;
+        ArrayList<SceneObject> targets = this.restoreTargets[backIndex];
+        targets.clear();
+        boolean sharedConcurrentlyDrawable = effectsConcurrentlyDrawable;
+        for(Layer layer: LAYERS)
+        {
+            ArrayList<SceneObject> layerList = snapshot.get(layer);
+            for(int i = 0; i < layerList.size(); i++)
+            {
+                SceneObject sceneObject = layerList.get(i);
+                SceneObject copy = copies.get(sceneObject);
+                if(copy == null)
+                    copy = this.createRenderCopy(sceneObject);
+                
+                if(copy != null)
+                {
+                    sceneObject.copyGroupsTo(copy);
+                    ((NetworkedSceneObject)sceneObject).copyDrawState((NetworkedSceneObject)copy);
+                    nextCopies.put(sceneObject, copy);
+                }
+                else if(!sceneObject.isConcurrentlyDrawable())
+                    sharedConcurrentlyDrawable = false;
+                
+                if(sceneObject instanceof NetworkedSceneObject)
+                    targets.add(copy);
+            }
+        }
+        copies.clear();
+        this.renderCopies[backIndex] = nextCopies;
+        this.spareRenderCopies = copies;
+        snapshot.useRenderCopies(nextCopies);
+        
+        this.concurrentlyDrawable[backIndex] = sharedConcurrentlyDrawable;
+        this.viewports[backIndex].set(viewport);
+        this.interpolationAlphas[backIndex] = interpolationAlpha;
+        this.publishedIndex = backIndex;
+    }
+
+    /**
+     * Marks the most recently published snapshot as in use by the render thread and returns it.
+     * Must be paired with a call to release().
+     * @return the published snapshot, or null if nothing has been published yet
+     */
+    public synchronized SceneObjectManager acquire()
+    {
+        if(this.publishedIndex == -1)
+            return null;
+
+        this.readingIndex = this.publishedIndex;
+        return this.buffers[this.readingIndex];
+    }
+
+    /**
+     * Decodes the render data published with the acquired snapshot into its render copies. Called by the render 
+     * thread after acquire() and before drawing. The lock isnt held while decoding, so the update thread can publish 
+     * into the other buffer meanwhile, and publish() waits for this buffer to be released before reusing it.
+     */
+    public void restoreAcquiredRenderCopies()
+    {
+        int index;
+        synchronized(this)
+        {
+            index = this.readingIndex;
+        }
+        if(index == -1)
+            return;
+        
+        ArrayList<SceneObject> targets = this.restoreTargets[index];
+        this.renderData[index].readRenderData(0, this.decodedRenderData);
+        for(int i = 0; i < targets.size(); i++)
+        {
+            if(targets.get(i) != null)
+                ((NetworkedSceneObject)targets.get(i)).restoreRenderData(this.decodedRenderData.get(i));
+        }
+        this.decodedRenderData.clear();
+    }
+
+    /**
+     * Gets the interpolation alpha that the acquired snapshot was published with
+     * @return interpolation alpha, or 0 if no snapshot is acquired
+     */
+    public synchronized float getAcquiredInterpolationAlpha()
+    {
+        if(this.readingIndex == -1)
+            return 0;
+
+        return this.interpolationAlphas[this.readingIndex];
+    }
+
+    /**
+     * Gets the viewport that the acquired snapshot was published with
+     * @return viewport of the acquired snapshot, or null if no snapshot is acquired
+     */
+    public synchronized Viewport getAcquiredViewport()
+    {
+        if(this.readingIndex == -1)
+            return null;
+
+        return this.viewports[this.readingIndex];
+    }
+
+    /**
+     * Checks if the most recently published snapshot can be drawn while the next tick updates
+     * @return true if every scene object the published snapshot shares with the update thread is concurrently 
+     * drawable
+     */
+    public synchronized boolean isPublishedConcurrentlyDrawable()
+    {
+        return this.publishedIndex != -1 && this.concurrentlyDrawable[this.publishedIndex];
+    }
+
+    /**
+     * Releases the snapshot acquired by the render thread
+     */
+    public synchronized void release()
+    {
+        this.readingIndex = -1;
+        this.notifyAll();
+    }
+
+    /**
+     * Checks if the render thread currently holds a snapshot
+     * @return true if a snapshot is acquired
+     */
+    public synchronized boolean isAcquired()
+    {
+        return this.readingIndex != -1;
+    }
+    
+    /**
+     * Builds a render copy of a scene object from its render data. Only NetworkedSceneObjects whose class has a
+     * buildFromRenderData() that rebuilds that exact class can be copied, anything else is drawn from the live 
+     * object. Whether a class can be copied is worked out once and remembered.
+     * @return the copy, or null if the scene object cant be copied
+     */
+    private SceneObject createRenderCopy(SceneObject sceneObject)
+    {
+        if(!(sceneObject instanceof NetworkedSceneObject))
+            return null;
+        
+        Class sceneObjectClass = sceneObject.getClass();
+        Boolean copyable = this.copyableClasses.get(sceneObjectClass);
+        if(copyable == null)
+        {
+            try
+            {
+                sceneObjectClass.getMethod("buildFromRenderData", SceneObjectRenderData.class);
+            }
+            catch(NoSuchMethodException e)
+            {
+                this.copyableClasses.put(sceneObjectClass, false);
+                return null;
+            }
+        }
+        else if(!copyable)
+            return null;
+        
+        //subclasses can inherit a buildFromRenderData() that builds their parent class, which would draw differently
+        SceneObject copy = SceneObjectDeserializer.buildSceneObjectFromRenderData(((NetworkedSceneObject)sceneObject).dumpRenderData());
+        copyable = copy.getClass() == sceneObjectClass;
+        this.copyableClasses.put(sceneObjectClass, copyable);
+        return copyable ? copy : null;
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.silvergobletgames.sylver.core;
+
+import com.silvergobletgames.sylver.graphics.OpenGLGameWindow;
+
+/**
+ * Thread that renders scenes when pipelined rendering is enabled. The game loop submits the current scene
+ * once per frame after publishing its render snapshot, then carries on updating the next frame while this
+ * thread draws the snapshot. Snapshots sharing SceneObjects that arent concurrently drawable with the update thread
+ * are waited for with waitForFrame() before the next update.
+ * @author Mike
+ */
+final class RenderThread extends Thread
+{
+    //window to render to
+    private final OpenGLGameWindow graphicsWindow;
+    //timings to report to
+    private final FrameTimings frameTimings;
+
+    //scene waiting to be rendered
+    private Scene pendingScene;
+    //running flag
+    private boolean running = true;
+    //frames submitted, and frames that have been drawn or replaced by a later frame
+    private long submittedFrames = 0;
+    private long finishedFrames = 0;
+
+
+    //==================
+    // Constructor
+    //==================
+
+    protected RenderThread(OpenGLGameWindow graphicsWindow, FrameTimings frameTimings)
+    {
+        this.graphicsWindow = graphicsWindow;
+        this.frameTimings = frameTimings;
+
+        this.setName("Sylver Render Thread");
+        this.setDaemon(true);
+        this.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler(){
+            @Override
+            public void uncaughtException(Thread t, Throwable e)
+            {
+                Game.getInstance().uncaughtExceptionHandlingActions(e);
+            }
+        });
+    }
+
+
+    //==================
+    // Class Methods
+    //==================
+
+    /**
+     * Hands a scene to the render thread. If the previous frame hasnt started rendering yet it is replaced.
+     * @param scene Scene to render
+     */
+    protected synchronized void submitFrame(Scene scene)
+    {
+        this.pendingScene = scene;
+        this.submittedFrames++;
+        this.notifyAll();
+    }
+
+    /**
+     * Waits until every submitted frame has been drawn, or the render thread has stopped
+     * @throws InterruptedException if interrupted while waiting
+     */
+    protected synchronized void waitForFrame() throws InterruptedException
+    {
+        while(this.running && this.finishedFrames < this.submittedFrames)
+            this.wait();
+    }
+
+    /**
+     * Tells the render thread to stop, and waits for the frame in progress to finish
+     */
+    protected void shutdown()
+    {
+        synchronized(this)
+        {
+            this.running = false;
+            this.notifyAll();
+        }
+
+        try
+        {
+            this.join(1000);
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            this.renderFrames();
+        }
+        finally
+        {
+            //let anything waiting for a frame know that none are coming
+            synchronized(this)
+            {
+                this.running = false;
+                this.notifyAll();
+            }
+        }
+    }
+
+    private void renderFrames()
+    {
+        while(true)
+        {
+            //wait for a frame
+            Scene scene;
+            long frame;
+            long waitStart = System.nanoTime();
+            synchronized(this)
+            {
+                while(this.running && this.pendingScene == null)
+                {
+                    try
+                    {
+                        this.wait();
+                    }
+                    catch(InterruptedException e)
+                    {
+                        return;
+                    }
+                }
+
+                if(!this.running)
+                    return;
+
+                scene = this.pendingScene;
+                frame = this.submittedFrames;
+                this.pendingScene = null;
+            }
+            long renderStart = System.nanoTime();
+            this.frameTimings.setRenderWaitTime(renderStart - waitStart);
+
+            //render the scene from its snapshot
+            scene.beginSnapshotRender();
+            try
+            {
+                this.graphicsWindow.renderScene(scene);
+            }
+            finally
+            {
+                scene.endSnapshotRender();
+            }
+            this.frameTimings.setRenderTime(System.nanoTime() - renderStart);
+
+            synchronized(this)
+            {
+                this.finishedFrames = frame;
+                this.notifyAll();
+            }
+        }
+    }
+}
@@ -2,10 +2,18 @@ package com.silvergobletgames.sylver.core;
 
 import com.silvergobletgames.sylver.audio.AudioRenderer;
 import com.silvergobletgames.sylver.audio.Sound;
+import com.silvergobletgames.sylver.core.SceneObject.CoreGroups;
 import com.silvergobletgames.sylver.graphics.RenderingPipelineGL2;
 import com.silvergobletgames.sylver.graphics.RenderingPipelineGL3;
 import com.silvergobletgames.sylver.graphics.Viewport;
+import com.silvergobletgames.sylver.util.RestorableRandom;
+import com.silvergobletgames.sylver.util.TweenEngine;
+import java.awt.Point;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import javax.media.opengl.GL2;
 import javax.media.opengl.GL3bc;
 
@@ -26,6 +34,72 @@ public abstract class Scene
     //scene viewport
     private Viewport viewport = new Viewport();   
     
+    //render snapshots used when pipelined rendering is enabled
+    private final RenderSnapshotBuffer renderSnapshotBuffer = new RenderSnapshotBuffer();
+    //snapshot the render thread is currently drawing, null when rendering from the live manager
+    private volatile SceneObjectManager activeRenderSnapshot;
+    //viewport of the snapshot the render thread is currently drawing
+    private volatile Viewport activeRenderViewport;
+    //fraction of a tick left in the game loop accumulator when this frame was rendered
+    private volatile float interpolationAlpha;
+    
+    //if thread confined scene objects are updated in parallel
+    private boolean parallelUpdate = false;
+    //thread that started buffering the tick, the only thread that gives buffered adds their IDs right away
+    private volatile Thread bufferingThread;
+    //true while a tick is running, adds, removes and layer moves are buffered until the end of the tick
+    private volatile boolean bufferingMutations = false;
+    //adds, removes and layer moves made during the tick, in the order they were made
+    private final ConcurrentLinkedQueue<SceneMutation> bufferedMutations = new ConcurrentLinkedQueue<>();
+    //true while the buffered mutations are being applied, the layers are compacted once at the end
+    private boolean applyingMutations = false;
+    //reusable lists for splitting scene objects between the parallel and serial update
+    private SceneObject[] parallelUpdateObjects = new SceneObject[16];
+    private int parallelUpdateCount = 0;
+    private final ArrayList<SceneObject> serialUpdateObjects = new ArrayList<>();
+    //reusable array of the emitters the particle emitters task updates this tick, and how many there are
+    private SceneObject[] emitterUpdateObjects = new SceneObject[16];
+    private int emitterUpdateCount = 0;
+    //reusable fork join tasks for the parallel update and the particle emitters task
+    private final SceneObjectUpdateTask parallelUpdateTask = new SceneObjectUpdateTask();
+    private final SceneObjectUpdateTask emitterUpdateTask = new SceneObjectUpdateTask();
+    
+    //random number generator for the simulation, seeded in deterministic mode
+    private final RestorableRandom random = new RestorableRandom();
+    //true if the scene is in deterministic mode
+    private boolean deterministic = false;
+    //ticks completed since the scene was created or deterministic mode was enabled
+    private long tick = 0;
+    //state hashes of the most recent ticks, indexed by tick modulo the history length
+    private final long[] stateHashes = new long[STATE_HASH_HISTORY];
+    private final StateHasher stateHasher = new StateHasher();
+    //number of ticks of state hashes kept
+    private static final int STATE_HASH_HISTORY = 256;
+    //interpolation tracks of the NetworkedSceneObjects in the scene, sampled together once per frame
+    private final TweenEngine interpolationTweens = new TweenEngine(64);
+    //snapshots of the most recent ticks, null unless snapshots are enabled
+    private SceneSnapshotRing snapshotRing;
+    //tasks run by update()
+    private final FrameTaskGraph updateGraph = this.createUpdateGraph();
+    //update graph resources written by the scene effects and scene object updates
+    public static final String SCENE_EFFECTS = "sceneEffects";
+    public static final String SCENE_OBJECTS = "sceneObjects";
+    //update graph resource written by the particle emitters task, which only exists while parallel update is on
+    public static final String PARTICLES = "particles";
+    //name of the particle emitters task
+    private static final String EMITTER_TASK = "Particle Emitters";
+    
+    //profiler scopes
+    private static final ProfilerScope effectsUpdateScope = Profiler.getScope("Scene Effects Update");
+    private static final ProfilerScope parallelUpdateScope = Profiler.getScope("Parallel Update");
+    private static final ProfilerScope serialUpdateScope = Profiler.getScope("Serial Update");
+    private static final ProfilerScope[] layerUpdateScopes = new ProfilerScope[Layer.values().length];
+    static
+    {
+        for(Layer layer: Layer.values())
+            layerUpdateScopes[layer.ordinal()] = Profiler.getScope("Update " + layer.name());
+    }
+    
     //parallax layerse enum
     public static enum Layer
     {
@@ -95,48 +169,295 @@ public abstract class Scene
     //====================
     
     /**
-     * A barebones scene update method that updates everything in the scene.
+     * A barebones scene update method that runs the scenes update graph. By default the graph updates the scene
+     * effects and then every SceneObject in the scene, and games can add their own tasks to it with
+     * getUpdateGraph(). Adds, removes and layer moves made while updating are buffered and applied together at the
+     * end of the tick, so the layer lists are iterated directly.
      */
     public void update()
     {
-        //update scene effects manager
-        this.sceneEffectsManager.update();
+        boolean startedBuffering = this.beginMutationBuffering();
+        try
+        {
+            //the graph runs on this thread alone in deterministic mode
+            if(this.deterministic)
+                this.updateGraph.runSerially();
+            else
+            {
+                //hand the emitters to the particle emitters task before anything starts updating
+                if(this.parallelUpdate)
+                    this.collectEmitters();
+                
+                this.updateGraph.run(Game.getInstance().getWorkerPool());
+            }
+        }
+        finally
+        {
+            this.releaseEmitters();
+            
+            if(startedBuffering)
+                this.applyBufferedMutations();
+        }
+    }
+    
+    /**
+     * Gets the graph of tasks run by update(). It starts with two main thread tasks, one updating the scene effects
+     * and writing SCENE_EFFECTS, then one updating the SceneObjects and writing SCENE_OBJECTS. While parallel update
+     * is on it also has a worker task updating the particle emitters and writing PARTICLES. Tasks added by the
+     * game run on the worker pool alongside them unless they declare a resource they share.
+     * @return the update FrameTaskGraph
+     */
+    public final FrameTaskGraph getUpdateGraph()
+    {
+        return this.updateGraph;
+    }
+    
+    /**
+     * Builds the update graph with the scene effects and scene object update tasks
+     */
+    private FrameTaskGraph createUpdateGraph()
+    {
+        FrameTaskGraph graph = new FrameTaskGraph();
+        graph.addMainThreadTask("Scene Effects", new Runnable(){
+            public void run()
+            {
+                Profiler.begin(effectsUpdateScope);
+                sceneEffectsManager.update();
+                Profiler.end();
+            }
+        }, null, new String[]{SCENE_EFFECTS});
+        graph.addMainThreadTask("Scene Objects", new Runnable(){
+            public void run()
+            {
+                updateSceneObjects();
+            }
+        }, new String[]{SCENE_EFFECTS}, new String[]{SCENE_OBJECTS});
+        return graph;
+    }
+    
+    /**
+     * Hands the thread confined particle emitters to the particle emitters task, marking them so the scene object
+     * update skips them
+     */
+    private void collectEmitters()
+    {
+        SceneObject[] emitters = this.getSceneObjectManager().getGroupArray(CoreGroups.EMITTER);
+        if(this.emitterUpdateObjects.length < emitters.length)
+            this.emitterUpdateObjects = new SceneObject[Math.max(emitters.length, this.emitterUpdateObjects.length * 2)];
+        
+        for(int i = 0; i < emitters.length; i++)
+        {
+            SceneObject emitter = emitters[i];
+            if(emitter.isThreadConfined())
+            {
+                emitter.updatedByEmitterTask = true;
+                this.emitterUpdateObjects[this.emitterUpdateCount++] = emitter;
+            }
+        }
+    }
+    
+    /**
+     * Updates the emitters collected for this tick, run by the particle emitters task on the worker pool
+     */
+    private void updateEmitters()
+    {
+        if(this.emitterUpdateCount == 0)
+            return;
         
+        SceneObjectUpdateTask task = this.emitterUpdateTask;
+        task.prepare(this.emitterUpdateObjects, this.emitterUpdateCount);
+        if(ForkJoinTask.inForkJoinPool())
+            task.invoke();
+        else
+            Game.getInstance().getWorkerPool().invoke(task);
+    }
+    
+    /**
+     * Gives the emitters collected for this tick back to the scene object update
+     */
+    private void releaseEmitters()
+    {
+        for(int i = 0; i < this.emitterUpdateCount; i++)
+        {
+            this.emitterUpdateObjects[i].updatedByEmitterTask = false;
+            this.emitterUpdateObjects[i] = null;
+        }
+        this.emitterUpdateCount = 0;
+    }
+    
+    /**
+     * Updates every SceneObject in layer order, or in parallel if parallel update is on
+     */
+    private void updateSceneObjects()
+    {
+        //parallel update, skipped in deterministic mode
+        if(this.parallelUpdate && !this.deterministic)
+        {
+            this.updateSceneObjectsInParallel();
+            return;
+        }
+
         //update everything in the scene     
-        ArrayList<SceneObject> parallaxLayerObjects;
         for (Layer layer: Layer.values())
         {
-            parallaxLayerObjects = new ArrayList(this.getSceneObjectManager().get(layer));
-            for (SceneObject sceneObject:  parallaxLayerObjects)
+            Profiler.begin(layerUpdateScopes[layer.ordinal()]);
+            ArrayList<SceneObject> layerObjects = this.getSceneObjectManager().get(layer);
+            for (int i = 0; i < layerObjects.size(); i++)
             {
-                //update the SceneObject
-                sceneObject.update();
+                //update the SceneObject, skipping any slot emptied by a remove that bypassed the scene
+                SceneObject sceneObject = layerObjects.get(i);
+                if(sceneObject != null && !sceneObject.updatedByEmitterTask)
+                    sceneObject.update();
             }
+            Profiler.end();
         }
     }
 
+    /**
+     * Updates every SceneObject in the scene, with the thread confined ones updated in parallel on the games
+     * worker pool, after which the remaining SceneObjects are updated in layer order on this thread. Adds and 
+     * removes made by either are buffered until the end of the tick.
+     */
+    protected final void updateSceneObjectsInParallel()
+    {
+        //split the scene objects between the parallel and serial updates
+        for (Layer layer: Layer.values())
+        {
+            ArrayList<SceneObject> layerObjects = this.getSceneObjectManager().get(layer);
+            for (int i = 0; i < layerObjects.size(); i++)
+            {
+                SceneObject sceneObject = layerObjects.get(i);
+                if(sceneObject == null || sceneObject.updatedByEmitterTask)
+                    continue;
+                if(sceneObject.isThreadConfined())
+                {
+                    if(this.parallelUpdateCount == this.parallelUpdateObjects.length)
+                        this.parallelUpdateObjects = Arrays.copyOf(this.parallelUpdateObjects, this.parallelUpdateCount * 2);
+                    this.parallelUpdateObjects[this.parallelUpdateCount++] = sceneObject;
+                }
+                else
+                    this.serialUpdateObjects.add(sceneObject);
+            }
+        }
+        
+        boolean startedBuffering = this.beginMutationBuffering();
+        
+        try
+        {
+            //update the thread confined objects in parallel
+            if(this.parallelUpdateCount > 0)
+            {
+                Profiler.begin(parallelUpdateScope);
+                try
+                {
+                    this.parallelUpdateTask.prepare(this.parallelUpdateObjects, this.parallelUpdateCount);
+                    Game.getInstance().getWorkerPool().invoke(this.parallelUpdateTask);
+                }
+                finally
+                {
+                    Profiler.end();
+                }
+            }
+
+            //update everything else on this thread
+            Profiler.begin(serialUpdateScope);
+            for (int i = 0; i < this.serialUpdateObjects.size(); i++)
+            {
+                this.serialUpdateObjects.get(i).update();
+            }
+            Profiler.end();
+        }
+        finally
+        {
+            //dont hold on to scene objects that get removed
+            Arrays.fill(this.parallelUpdateObjects, 0, this.parallelUpdateCount, null);
+            this.parallelUpdateCount = 0;
+            this.serialUpdateObjects.clear();
+            
+            if(startedBuffering)
+                this.applyBufferedMutations();
+        }
+    }
+    
+    /**
+     * Starts buffering adds, removes and layer moves until applyBufferedMutations() is called. The game loop
+     * buffers for the whole of each update() call.
+     * @return true if buffering was started, false if it was already on
+     */
+    final boolean beginMutationBuffering()
+    {
+        if(this.bufferingMutations)
+            return false;
+        
+        this.bufferingThread = Thread.currentThread();
+        this.bufferingMutations = true;
+        return true;
+    }
+    
+    /**
+     * Stops buffering and applies every buffered add, remove and layer move in the order they were made, then closes
+     * the gaps the removes left in the layers. Nothing else touches the scene here, so it is the point the layers are
+     * compacted at.
+     */
+    final void applyBufferedMutations()
+    {
+        this.bufferingMutations = false;
+        this.bufferingThread = null;
+        
+        this.applyingMutations = true;
+        try
+        {
+            SceneMutation mutation;
+            while((mutation = this.bufferedMutations.poll()) != null)
+            {
+                switch(mutation.type)
+                {
+                    case ADD: this.add(mutation.sceneObject, mutation.layer); break;
+                    case REMOVE: this.remove(mutation.sceneObject); break;
+                    case MOVE: this.moveToLayer(mutation.sceneObject, mutation.layer); break;
+                }
+            }
+        }
+        finally
+        {
+            this.applyingMutations = false;
+        }
+        
+        this.sceneObjectManager.compactLayers();
+    }
+    
+    /**
+     * Returns true if adds, removes and layer moves are currently being buffered until the end of the tick
+     * @return true while buffering
+     */
+    public final boolean isBufferingMutations()
+    {
+        return this.bufferingMutations;
+    }
+    
     /**
      * Renders everything in the scene using either the GL2 or GL3 renderer, based on the GlCapabilities
      * @param gl 
      */
     public void render(GL2 gl)
     {
-        //set viewport size
-        getViewport().setDimensions(Game.getInstance().getGraphicsWindow().getCurrentAspectRatio().x, Game.getInstance().getGraphicsWindow().getCurrentAspectRatio().y);
+        //set viewport size, snapshot viewports are sized when they are published
+        if(this.activeRenderSnapshot == null)
+            getViewport().setDimensions(Game.getInstance().getGraphicsWindow().getCurrentAspectRatio().x, Game.getInstance().getGraphicsWindow().getCurrentAspectRatio().y);
                   
         if(gl.isGL3bc())
         {
             //=================
             // GL3bc rendering
             //=================         
-            RenderingPipelineGL3.render((GL3bc)gl, getViewport(), getSceneObjectManager(), getSceneEffectsManager());
+            RenderingPipelineGL3.render((GL3bc)gl, getRenderViewport(), getRenderSceneObjectManager(), getSceneEffectsManager());
         }      
         else
         {
             //===============
             // GL2 rendering
             //===============
-            RenderingPipelineGL2.render(gl, getViewport(), getSceneObjectManager(), getSceneEffectsManager()); 
+            RenderingPipelineGL2.render(gl, getRenderViewport(), getRenderSceneObjectManager(), getSceneEffectsManager()); 
         }
           
     }
@@ -152,6 +473,211 @@ public abstract class Scene
     // Scene Basic Functionality
     //===========================
     
+    /**
+     * Enables or disables parallel update. When enabled the default update() updates SceneObjects that are
+     * thread confined in parallel on the games worker pool, see SceneObject.setThreadConfined(). Thread confined
+     * particle emitters are updated by their own worker task in the update graph, at the same time as the other
+     * SceneObjects, so tasks that need the particles of this tick should read PARTICLES. Ignored in deterministic 
+     * mode, where everything is updated on the game thread.
+     * @param parallelUpdate true to update thread confined SceneObjects in parallel
+     */
+    public final void setParallelUpdate(boolean parallelUpdate)
+    {
+        if(this.parallelUpdate == parallelUpdate)
+            return;
+        
+        this.parallelUpdate = parallelUpdate;
+        if(parallelUpdate)
+        {
+            this.updateGraph.addTask(EMITTER_TASK, new Runnable(){
+                public void run()
+                {
+                    updateEmitters();
+                }
+            }, new String[]{SCENE_EFFECTS}, new String[]{PARTICLES});
+        }
+        else
+            this.updateGraph.removeTask(EMITTER_TASK);
+    }
+    
+    /**
+     * Returns true if parallel update is enabled for this scene
+     * @return true if parallel update is enabled
+     */
+    public final boolean isParallelUpdate()
+    {
+        return this.parallelUpdate;
+    }
+    
+    /**
+     * Puts the scene in deterministic mode, for lockstep simulation. The scenes random number generator is seeded,
+     * the tick count restarts at 0, the default update() runs serially even if parallel update is enabled, and a
+     * hash of the simulation state is taken at the end of every tick. Generated IDs are made from the seed rather 
+     * than a random prefix. Two peers that enable deterministic mode with the same seed on the same scene state and 
+     * apply the same inputs each tick produce the same hashes, so comparing hashes detects a desync.
+     * 
+     * Game code must draw randomness from getRandom() or SceneObject.getRandom() rather than Math.random() for this
+     * to hold.
+     * @param seed seed for the random number generator
+     */
+    public final void enableDeterministicMode(long seed)
+    {
+        this.random.setSeed(seed);
+        this.sceneObjectManager.setGeneratedIDPrefix(SceneObjectManager.idPrefix(seed));
+        this.tick = 0;
+        Arrays.fill(this.stateHashes, 0);
+        this.deterministic = true;
+    }
+    
+    /**
+     * Takes the scene out of deterministic mode
+     */
+    public final void disableDeterministicMode()
+    {
+        this.deterministic = false;
+    }
+    
+    /**
+     * Returns true if the scene is in deterministic mode
+     * @return true if deterministic
+     */
+    public final boolean isDeterministic()
+    {
+        return this.deterministic;
+    }
+    
+    /**
+     * Gets the random number generator the simulation should use. It is seeded in deterministic mode, and its state
+     * is kept in snapshots so rollbackTo() restores it.
+     * @return the scenes random number generator
+     */
+    public final RestorableRandom getRandom()
+    {
+        return this.random;
+    }
+    
+    /**
+     * Gets the tween engine holding the interpolation tracks of every NetworkedSceneObject in the scene. The first
+     * object interpolated at a new time advances all of the tracks at once, the rest read their values. It belongs
+     * to the game thread, like the rest of the scene.
+     * @return the scenes interpolation TweenEngine
+     */
+    public final TweenEngine getInterpolationTweens()
+    {
+        return this.interpolationTweens;
+    }
+    
+    /**
+     * Gets the number of ticks completed since the scene was created or deterministic mode was enabled
+     * @return tick count
+     */
+    public final long getTick()
+    {
+        return this.tick;
+    }
+    
+    /**
+     * Gets the state hash taken at the end of a tick in deterministic mode. Only the most recent ticks are kept.
+     * @param tick tick number, between getTick() - 256 and getTick() - 1
+     * @return the state hash of that tick
+     */
+    public final long getStateHash(long tick)
+    {
+        if(tick < 0 || tick >= this.tick || tick < this.tick - STATE_HASH_HISTORY)
+            throw new RuntimeException("No state hash kept for tick " + tick + ", the scene is at tick " + this.tick);
+        
+        return this.stateHashes[(int)(tick % STATE_HASH_HISTORY)];
+    }
+    
+    /**
+     * Hashes the current simulation state of the scene
+     * @return the state hash
+     */
+    public final long computeStateHash()
+    {
+        this.stateHasher.reset();
+        this.hashState(this.stateHasher);
+        return this.stateHasher.getHash();
+    }
+    
+    /**
+     * Mixes the simulation state of the scene into a hash. The default version mixes every SceneObject in layer
+     * order, scenes with simulation state of their own should override this and call super.
+     * @param hasher hasher to mix the state into
+     */
+    protected void hashState(StateHasher hasher)
+    {
+        for(Layer layer: Layer.values())
+        {
+            ArrayList<SceneObject> layerObjects = this.sceneObjectManager.get(layer);
+            hasher.mix(layer.ordinal());
+            for(int i = 0; i < layerObjects.size(); i++)
+            {
+                SceneObject sceneObject = layerObjects.get(i);
+                if(sceneObject != null)
+                    sceneObject.hashState(hasher);
+            }
+        }
+    }
+    
+    /**
+     * Starts capturing a snapshot of every NetworkedSceneObject at the end of each tick, keeping the given number
+     * of the most recent ticks. Snapshots can be restored with rollbackTo() or read through getSnapshotRing().
+     * @param ticks number of ticks of snapshots to keep
+     * @param initialSnapshotSize bytes to allocate for each snapshot up front
+     */
+    public final void enableSnapshots(int ticks, int initialSnapshotSize)
+    {
+        this.snapshotRing = new SceneSnapshotRing(ticks, initialSnapshotSize);
+    }
+    
+    /**
+     * Stops capturing snapshots and drops the ones kept
+     */
+    public final void disableSnapshots()
+    {
+        this.snapshotRing = null;
+    }
+    
+    /**
+     * Gets the ring of snapshots, for replaying ticks without rolling back
+     * @return the snapshot ring, or null if snapshots arent enabled
+     */
+    public final SceneSnapshotRing getSnapshotRing()
+    {
+        return this.snapshotRing;
+    }
+    
+    /**
+     * Rolls the scene back to the state it was in at the end of a tick, random number generator included. Snapshots
+     * of later ticks are dropped and the tick count continues from the restored tick, so the ticks after it can be
+     * simulated again. Must not be called during a tick.
+     * @param tick tick to roll back to, must still be in the snapshot ring
+     */
+    public final void rollbackTo(long tick)
+    {
+        if(this.snapshotRing == null)
+            throw new RuntimeException("Snapshots must be enabled to roll back");
+        
+        this.snapshotRing.restore(this, tick);
+        this.snapshotRing.discardAfter(tick);
+        this.tick = tick + 1;
+    }
+    
+    /**
+     * Called by the game loop at the end of each tick, after update() and handleInput(). Takes the state hash of
+     * the tick in deterministic mode and captures its snapshot if snapshots are enabled.
+     */
+    final void tickCompleted()
+    {
+        if(this.deterministic)
+            this.stateHashes[(int)(this.tick % STATE_HASH_HISTORY)] = this.computeStateHash();
+        if(this.snapshotRing != null)
+            this.snapshotRing.capture(this, this.tick);
+        
+        this.tick++;
+    }
+    
     /**
      * Returns the scene object manager for the scene
      * @return The scene object manager
@@ -161,6 +687,97 @@ public abstract class Scene
         return this.sceneObjectManager;
     }
     
+    /**
+     * Returns the scene object manager that rendering should draw from. When pipelined rendering is enabled
+     * this is the render snapshot currently being drawn, which only supports layer, group and area queries.
+     * Otherwise it is the live scene object manager.
+     * @return The scene object manager to render from
+     */
+    public final SceneObjectManager getRenderSceneObjectManager()
+    {
+        SceneObjectManager snapshot = this.activeRenderSnapshot;
+        return snapshot != null ? snapshot : this.sceneObjectManager;
+    }
+    
+    /**
+     * Returns the viewport that rendering should draw with. When pipelined rendering is enabled this is the copy of
+     * the viewport published with the render snapshot being drawn, otherwise it is the live viewport.
+     * @return The viewport to render with
+     */
+    public final Viewport getRenderViewport()
+    {
+        Viewport snapshot = this.activeRenderViewport;
+        return snapshot != null ? snapshot : this.viewport;
+    }
+    
+    /**
+     * Returns how far between the last tick and the next one this frame is being rendered, as a fraction of
+     * a tick in the range [0,1]. SceneObjects can use this in render() to interpolate between ticks when
+     * the tick rate is lower than the frame rate.
+     * @return The interpolation alpha for the frame being rendered
+     */
+    public final float getInterpolationAlpha()
+    {
+        if(this.activeRenderSnapshot != null)
+            return this.renderSnapshotBuffer.getAcquiredInterpolationAlpha();
+        
+        return this.interpolationAlpha;
+    }
+    
+    /**
+     * Sets the interpolation alpha for the next render. Called by the game loop after updating.
+     * @param alpha Fraction of a tick left in the accumulator
+     */
+    final void setInterpolationAlpha(float alpha)
+    {
+        this.interpolationAlpha = alpha;
+    }
+    
+    /**
+     * Publishes a snapshot of the scenes layer and group mappings and of the draw state of its networked scene 
+     * objects for the render thread. Called by the game loop at the end of each frame when pipelined rendering is 
+     * enabled.
+     * @throws InterruptedException if interrupted while waiting for the render thread
+     */
+    final void publishRenderSnapshot() throws InterruptedException
+    {
+        //size the viewport here, the render thread only sees the copy
+        Point aspectRatio = Game.getInstance().getGraphicsWindow().getCurrentAspectRatio();
+        this.viewport.setDimensions(aspectRatio.x, aspectRatio.y);
+        
+        this.renderSnapshotBuffer.publish(this.sceneObjectManager, this.viewport, !this.sceneEffectsManager.isFading(), this.interpolationAlpha);
+    }
+    
+    /**
+     * Checks if the most recently published render snapshot can be drawn while the next tick updates
+     * @return true if the game loop can update while the snapshot is drawn
+     */
+    final boolean isRenderSnapshotConcurrentlyDrawable()
+    {
+        return this.renderSnapshotBuffer.isPublishedConcurrentlyDrawable();
+    }
+    
+    /**
+     * Called by the render thread before rendering, makes the latest published snapshot the one to render from and
+     * brings its render copies up to date
+     */
+    final void beginSnapshotRender()
+    {
+        this.activeRenderSnapshot = this.renderSnapshotBuffer.acquire();
+        this.activeRenderViewport = this.renderSnapshotBuffer.getAcquiredViewport();
+        this.renderSnapshotBuffer.restoreAcquiredRenderCopies();
+    }
+    
+    /**
+     * Called by the render thread after rendering, releases the snapshot that was drawn
+     */
+    final void endSnapshotRender()
+    {
+        this.activeRenderSnapshot = null;
+        this.activeRenderViewport = null;
+        this.renderSnapshotBuffer.release();
+    }
+    
     /**
      * Returns the viewport of the scene
      * @return The viewport
@@ -190,12 +807,24 @@ public abstract class Scene
        
     /**
      * Adds a scene object to the scene. When a scene object gets added to the scene
-     * it is assigned an ID if it didnt have one, and is registered with the SceneObjectManager
+     * it is assigned an ID if it didnt have one, and is registered with the SceneObjectManager.
+     * Adds made during update() are applied at the end of the tick, though the ID is assigned right away.
      * @param item SceneObject to add
      * @param layer Layer to add it to
      */
     public void add(SceneObject item, Layer layer)
     {
+        //if we are in the middle of a tick, apply it at the end of the tick
+        if(this.bufferingMutations)
+        {
+            //IDs cant be generated safely from the worker threads, those get one when the add is applied
+            if(Thread.currentThread() == this.bufferingThread && (item.getID() == null || item.getID().equals("")))
+                item.setID(this.sceneObjectManager.generateUniqueID()); 
+            
+            this.bufferedMutations.add(new SceneMutation(SceneMutation.Type.ADD, item, layer));
+            return;
+        }
+        
         //set the scene objects owning scene
         item.setOwningScene(this);
         
@@ -203,8 +832,13 @@ public abstract class Scene
         if(item.getID() == null || item.getID().equals(""))
            item.setID(this.sceneObjectManager.generateUniqueID()); 
 
-        //add the item to the scene object manager
-        this.sceneObjectManager.add(item,layer);
+        //add the item to the scene object manager, scene objects with a duplicate ID are rejected
+        if(!this.sceneObjectManager.add(item,layer))
+            return;
+        
+        //re-adding a scene object moves it, which leaves a gap in its old layer
+        if(!this.applyingMutations && this.sceneObjectManager.hasEmptySlots())
+            this.sceneObjectManager.compactLayers();
         
         //notify the SceneObject that it was added
         item.addedToScene(); 
@@ -220,13 +854,22 @@ public abstract class Scene
     }
       
     /**
-     * Removes a scene obejct from the scene
+     * Removes a scene obejct from the scene. Removes made during update() are applied at the end of the tick.
      * @param item SceneObject to remove
      */
     public void remove(SceneObject item)
     {
-        //remove the item from the scene object manager
+        //if we are in the middle of a tick, apply it at the end of the tick
+        if(this.bufferingMutations)
+        {
+            this.bufferedMutations.add(new SceneMutation(SceneMutation.Type.REMOVE, item, null));
+            return;
+        }
+        
+        //remove the item from the scene object manager, closing its slot right away outside of a tick
         this.sceneObjectManager.remove(item);
+        if(!this.applyingMutations)
+            this.sceneObjectManager.compactLayers();
         
         //notify the SceneObject that it was removed
         item.removedFromScene();
@@ -234,6 +877,26 @@ public abstract class Scene
         //set objects owning scene to null
         item.setOwningScene(null);
     }
+    
+    /**
+     * Moves a scene object that is in the scene to a different layer, keeping its ID and groups. 
+     * Moves made during update() are applied at the end of the tick.
+     * @param item SceneObject to move
+     * @param layer Layer to move it to
+     */
+    public void moveToLayer(SceneObject item, Layer layer)
+    {
+        //if we are in the middle of a tick, apply it at the end of the tick
+        if(this.bufferingMutations)
+        {
+            this.bufferedMutations.add(new SceneMutation(SceneMutation.Type.MOVE, item, layer));
+            return;
+        }
+        
+        this.sceneObjectManager.moveToLayer(item, layer);
+        if(!this.applyingMutations)
+            this.sceneObjectManager.compactLayers();
+    }
              
     /**
      * This method gets called when a scene is switched into. Can be used for initialization
@@ -252,4 +915,97 @@ public abstract class Scene
         
     }
     
+    
+    /**
+     * An add, remove or layer move that was made during a tick
+     */
+    private static final class SceneMutation
+    {
+        private static enum Type
+        {
+            ADD, REMOVE, MOVE;
+        }
+        
+        //the kind of mutation
+        private final Type type;
+        //the scene object being mutated
+        private final SceneObject sceneObject;
+        //layer to add or move to, null for a remove
+        private final Layer layer;
+        
+        private SceneMutation(Type type, SceneObject sceneObject, Layer layer)
+        {
+            this.type = type;
+            this.sceneObject = sceneObject;
+            this.layer = layer;
+        }
+    }
+    
+    /**
+     * Fork join task that updates a range of scene objects, splitting it into chunks that are forked onto the pool.
+     * The task and its chunks are reused every tick, so updating doesnt allocate once they have grown to fit.
+     */
+    private static final class SceneObjectUpdateTask extends RecursiveAction
+    {
+        //number of scene objects a chunk updates
+        private static final int THRESHOLD = 128;
+        
+        private SceneObject[] sceneObjects;
+        private int start;
+        private int end;
+        //tasks the chunks after the first are forked as
+        private SceneObjectUpdateTask[] chunks = new SceneObjectUpdateTask[0];
+        
+        /**
+         * Readies the task to update the first count scene objects of an array
+         */
+        private void prepare(SceneObject[] sceneObjects, int count)
+        {
+            this.prepare(sceneObjects, 0, count);
+        }
+        
+        private void prepare(SceneObject[] sceneObjects, int start, int end)
+        {
+            this.reinitialize();
+            this.sceneObjects = sceneObjects;
+            this.start = start;
+            this.end = end;
+        }
+        
+        @Override
+        protected void compute()
+        {
+            int chunkCount = (this.end - this.start + THRESHOLD - 1) / THRESHOLD;
+            if(chunkCount > this.chunks.length)
+            {
+                int oldLength = this.chunks.length;
+                this.chunks = Arrays.copyOf(this.chunks, chunkCount);
+                for(int i = oldLength; i < chunkCount; i++)
+                    this.chunks[i] = new SceneObjectUpdateTask();
+            }
+            
+            //fork every chunk but the first, which is updated on this thread
+            for(int i = chunkCount - 1; i >= 1; i--)
+            {
+                this.chunks[i].prepare(this.sceneObjects, this.start + i * THRESHOLD, Math.min(this.end, this.start + (i + 1) * THRESHOLD));
+                this.chunks[i].fork();
+            }
+            
+            try
+            {
+                for(int i = this.start; i < Math.min(this.end, this.start + THRESHOLD); i++)
+                    this.sceneObjects[i].update();
+            }
+            finally
+            {
+                //wait for every chunk before anything is rethrown, so none are still running when they are reused
+                for(int i = 1; i < chunkCount; i++)
+                    this.chunks[i].quietlyJoin();
+            }
+            
+            for(int i = 1; i < chunkCount; i++)
+                this.chunks[i].join();
+        }
+    }
+    
 }
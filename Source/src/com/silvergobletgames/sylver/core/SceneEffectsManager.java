@@ -2,7 +2,7 @@ package com.silvergobletgames.sylver.core;
 
 import com.silvergobletgames.sylver.graphics.Color;
 import com.silvergobletgames.sylver.graphics.Image;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import javax.media.opengl.GL2;
 import javax.media.opengl.GL3bc;
 
@@ -15,7 +15,9 @@ public class SceneEffectsManager
 {
     
     //effect execution map
-    private HashMap<String,PostEffectExecutor> effectMap = new HashMap();
+    private LinkedHashMap<String,PostEffectExecutor> effectMap = new LinkedHashMap();
+    //true while a fade is in the effect map, read by render() so it doesnt touch the map
+    private volatile boolean fading = false;
        
     //scene lighting variables
     public Color sceneAmbientLight; 
@@ -53,6 +55,7 @@ public class SceneEffectsManager
                     executor.execute();
                 
                 this.effectMap.remove("fadeToBlack");                              
+                this.fading = this.effectMap.containsKey("fadeFromBlack");
             }
         }
         
@@ -68,13 +71,24 @@ public class SceneEffectsManager
                     executor.execute();
                 
                 this.effectMap.remove("fadeFromBlack");
+                this.fading = this.effectMap.containsKey("fadeToBlack");
             }
         }
     }
     
+    /**
+     * Returns true while a fade is running. The fade image changes every update, so frames with a fade arent
+     * drawn concurrently with the next tick when pipelined rendering is enabled.
+     * @return true while fading
+     */
+    public boolean isFading()
+    {
+        return this.fading;
+    }
+    
     public void render(GL2 gl)
     {
-        if(this.effectMap.containsKey("fadeToBlack") || this.effectMap.containsKey("fadeFromBlack"))        
+        if(this.fading)        
            blackImage.draw(gl);
     }
         
@@ -86,12 +100,14 @@ public class SceneEffectsManager
     {
         blackImage.setColor(new Color(1,1,1,0));
         this.effectMap.put("fadeToBlack", executor);
+        this.fading = true;
     }
     
     public void fadeFromBlack(PostEffectExecutor executor)
     {
         blackImage.setColor(new Color(1,1,1,1));
         this.effectMap.put("fadeFromBlack",executor);
+        this.fading = true;
     }
     
      
@@ -1,8 +1,11 @@
 package com.silvergobletgames.sylver.core;
 
+import com.silvergobletgames.sylver.core.Scene.Layer;
 import com.silvergobletgames.sylver.graphics.*;
+import com.silvergobletgames.sylver.util.SylverRandom;
 import com.silvergobletgames.sylver.util.SylverVector2f;
 import java.util.LinkedHashSet;
+import java.util.Random;
 import javax.media.opengl.GL2;
 
 /**
@@ -20,6 +23,21 @@ public abstract class SceneObject
     protected Scene owningScene;
     //the groups that the SceneObject belongs to
     private LinkedHashSet<Enum> myGroups = new LinkedHashSet();   
+    //if the SceneObject can be updated in parallel with other thread confined SceneObjects
+    private boolean threadConfined = false;
+    //if the SceneObject can be drawn by the render thread while it is being updated
+    private boolean concurrentlyDrawable = false;
+    //where this SceneObject is stored in its SceneObjectManager, kept up to date by the manager
+    SceneObjectManager managerOwner;
+    Layer managerLayer;
+    int managerSlot = -1;
+    //the handle this SceneObject was given by its SceneObjectManager, 0 if it has none
+    int handle;
+    //where this SceneObject is stored in its layers spatial grid, kept up to date by the grid
+    long gridCell;
+    int gridSlot = -1;
+    //true while this SceneObject is updated by its scenes particle emitters task instead of with the others
+    boolean updatedByEmitterTask;
     
     
     //an open ended label interface for the extensible enum pattern
@@ -76,6 +94,19 @@ public abstract class SceneObject
     	
     }
     
+    /**
+     * Mixes the simulation state of this SceneObject into a hash, for desync detection in deterministic scenes.
+     * The base version mixes the ID and position, subclasses with more simulation state should override this
+     * and call super.
+     * @param hasher hasher to mix the state into
+     */
+    public void hashState(StateHasher hasher)
+    {
+        hasher.mix(this.ID);
+        hasher.mix(this.position.x);
+        hasher.mix(this.position.y);
+    }
+    
     
         
     //======================
@@ -99,6 +130,31 @@ public abstract class SceneObject
     public void setPosition(float x, float y)
     {
         this.position.set(x, y);
+        this.boundsChanged();
+    }
+    
+    /**
+     * Gets the random number generator SceneObjects should use in their simulation. This is the owning scenes
+     * generator, which is seeded in deterministic scenes, or the shared SylverRandom generator if the SceneObject
+     * isnt in a scene.
+     * @return random number generator
+     */
+    protected final Random getRandom()
+    {
+        Scene scene = this.owningScene;
+        return scene != null ? scene.getRandom() : SylverRandom.random;
+    }
+    
+    /**
+     * Tells the SceneObjectManager that the position or size of this SceneObject has changed, so that the spatial
+     * index of its layer stays up to date. setPosition() calls this, subclasses that change their position or
+     * size some other way should call it as well.
+     */
+    protected final void boundsChanged()
+    {
+        SceneObjectManager manager = this.managerOwner;
+        if(manager != null)
+            manager.sceneObjectMoved(this);
     }
     
     /**
@@ -119,6 +175,61 @@ public abstract class SceneObject
          ID = id;
     }
     
+    /**
+     * Returns the handle of this SceneObject. Handles are given out by the SceneObjectManager when the SceneObject
+     * is added, and can be looked up with SceneObjectManager.get(int) much faster than an ID. A handle stops being
+     * valid once the SceneObject is removed, even if its slot is reused by another SceneObject.
+     * @return handle of the SceneObject, or 0 if it is not in a scene
+     */
+    public final int getHandle()
+    {
+        return this.handle;
+    }
+    
+    /**
+     * Returns true if this SceneObject has declared that its update() is thread confined
+     * @return true if this SceneObject can be updated in parallel
+     */
+    public final boolean isThreadConfined()
+    {
+        return this.threadConfined;
+    }
+    
+    /**
+     * Declares whether this SceneObjects update() is thread confined. A thread confined update only changes the state 
+     * of this SceneObject, and does not change the groups of any SceneObject. When the owning scene has parallel update
+     * enabled, thread confined SceneObjects are updated across several threads. Adding and removing SceneObjects from 
+     * the scene during a parallel update is allowed, those calls are buffered until the end of the tick.
+     * @param threadConfined true if this SceneObject can be updated in parallel
+     */
+    public final void setThreadConfined(boolean threadConfined)
+    {
+        this.threadConfined = threadConfined;
+    }
+    
+    /**
+     * Returns true if this SceneObject has declared that it can be drawn while it is being updated
+     * @return true if the render thread can draw this SceneObject during the next tick
+     */
+    public boolean isConcurrentlyDrawable()
+    {
+        return this.concurrentlyDrawable;
+    }
+    
+    /**
+     * Declares whether this SceneObject can be drawn while it is being updated. A concurrently drawable SceneObjects 
+     * draw() must cope with update() running on another thread at the same time, so it mustnt iterate collections 
+     * that update() changes. When pipelined rendering is enabled, NetworkedSceneObjects that can be rebuilt from 
+     * their render data are drawn from copies and dont need this, see RenderSnapshotBuffer. The render thread only 
+     * draws a frame during the next tick if every other SceneObject in the frame is concurrently drawable, otherwise 
+     * the game loop waits for the frame to be drawn before it updates again.
+     * @param concurrentlyDrawable true if this SceneObject can be drawn while it is being updated
+     */
+    public final void setConcurrentlyDrawable(boolean concurrentlyDrawable)
+    {
+        this.concurrentlyDrawable = concurrentlyDrawable;
+    }
+    
     /**
      * Gets the Scene that this SceneObject belongs to
      * @return the Scene that this SceneObject belongs to
@@ -188,5 +299,18 @@ public abstract class SceneObject
         return myGroups.contains(group);
     }
     
+    /**
+     * Puts a render copy of this SceneObject in the same groups as this one, without telling any manager
+     * @param copy render copy, which isnt in a scene
+     */
+    final void copyGroupsTo(SceneObject copy)
+    {
+        if(!copy.myGroups.equals(this.myGroups))
+        {
+            copy.myGroups.clear();
+            copy.myGroups.addAll(this.myGroups);
+        }
+    }
+    
 
 }
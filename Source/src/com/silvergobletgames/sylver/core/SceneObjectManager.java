@@ -1,25 +1,94 @@
 package com.silvergobletgames.sylver.core;
 
 import com.silvergobletgames.sylver.core.Scene.Layer;
+import com.silvergobletgames.sylver.graphics.Viewport;
 import com.silvergobletgames.sylver.util.HashBag;
+import com.silvergobletgames.sylver.util.Log;
+import com.silvergobletgames.sylver.util.SylverVector2f;
 import java.util.*;
 
 /**
  * This class keeps mappings of all the scene objects in the current scene. It maps
- * scene objects according to their ID, layer and groups
+ * scene objects according to their ID, layer and groups. Each scene object remembers its layer and its
+ * index in that layers list, so adding, removing and finding the layer of a scene object are constant time.
+ * 
+ * By default a removed scene object leaves an empty (null) slot in its layer, and compactLayers() later closes the
+ * gaps in one pass, which keeps draw order. The Scene compacts at the end of every tick and after removes made
+ * outside one, so scene code never sees the empty slots, and get(Layer) has no side effects so it is safe to call
+ * from worker threads. Layers where draw order doesnt matter, such as a layer full of particles, can use
+ * setSwapRemove() to fill the slot with the last scene object in the layer instead.
+ * 
+ * Every scene object in the manager is also given an integer handle, made of a slot in the handle table and the
+ * generation of that slot. Slots are reused after a remove with their generation bumped, so looking up a handle 
+ * is an array access and a handle kept after its scene object was removed is detected instead of returning the
+ * wrong scene object.
  * @author Mike
  */
 public class SceneObjectManager 
 {
     
     //Contains all of the SceneObjects in a Scene, mapped by a String ID.
-    private HashMap<String, SceneObject> sceneObjects = new HashMap();   
+    private LinkedHashMap<String, SceneObject> sceneObjects = new LinkedHashMap();   
+    //scene objects by handle slot, and the current generation of each slot. Slot 0 is never used so 0 is never a handle
+    private SceneObject[] handleTable = new SceneObject[64];
+    private int[] handleGenerations = new int[64];
+    //stack of handle slots freed by removes, and the next slot that has never been used
+    private int[] freeHandleSlots = new int[64];
+    private int freeHandleCount = 0;
+    private int nextHandleSlot = 1;
+    //random 3 digit prefix and counter generated IDs are made from, the prefix keeps IDs from different managers apart
+    private String generatedIDPrefix = idPrefix(new Random().nextLong());
+    private int nextGeneratedID = 0;
     
     //contains all of the layer mappings for the scene objects
     private TreeMap<Layer, ArrayList<SceneObject>> sceneObjectsLayerMap = new TreeMap();
+    //number of empty slots left by removes in each layer, waiting to be compacted
+    private final int[] emptySlots = new int[Layer.values().length];
+    //layers that fill removed slots with their last scene object
+    private final EnumSet<Layer> swapRemoveLayers = EnumSet.noneOf(Layer.class);
+    //optional spatial index of each layer, null for layers without one
+    private final SpatialGrid[] spatialGrids = new SpatialGrid[Layer.values().length];
+    //optional structure of arrays copy of the positions of each layer, null for layers without one
+    private final TransformStore[] transformStores = new TransformStore[Layer.values().length];
+    //layer of each scene object in a render snapshot, filled by copyInto() since the scene objects remember their
+    //place in the live manager, null for managers that arent snapshots
+    private IdentityHashMap<SceneObject, Layer> snapshotLayers;
+    //reusable list of spatial query candidates, one per thread so layers can be culled in parallel
+    private final ThreadLocal<ArrayList<SceneObject>> queryCandidates = new ThreadLocal<ArrayList<SceneObject>>(){
+        @Override
+        protected ArrayList<SceneObject> initialValue()
+        {
+            return new ArrayList<>();
+        }
+    };
+    //cached arrays of the members of each group, rebuilt when the group changes
+    private final HashMap<Enum, GroupCache> groupCaches = new HashMap<>();
+    
+    //bits of a handle that hold its slot, the rest hold the generation
+    private static final int HANDLE_SLOT_BITS = 20;
+    private static final int HANDLE_SLOT_MASK = (1 << HANDLE_SLOT_BITS) - 1;
+    private static final int HANDLE_GENERATION_MASK = (1 << (31 - HANDLE_SLOT_BITS)) - 1;
+    //array returned for groups that have no members
+    private static final SceneObject[] EMPTY_GROUP = new SceneObject[0];
+    //orders scene objects in the same layer by their slot
+    private static final Comparator<SceneObject> LAYER_ORDER = new Comparator<SceneObject>(){
+        @Override
+        public int compare(SceneObject a, SceneObject b)
+        {
+            return Integer.compare(a.managerSlot, b.managerSlot);
+        }
+    };
+    
+    /**
+     * Visitor for iterating over the members of a group without allocating, see forEach()
+     */
+    public static interface GroupVisitor
+    {
+        public void visit(SceneObject sceneObject);
+    }
     
     //Contains all of the group mappings for the scene objects
-    private HashMap<Enum, LinkedHashSet<SceneObject>> sceneObjectGroupMap = new HashMap();
+    private LinkedHashMap<Enum, LinkedHashSet<SceneObject>> sceneObjectGroupMap = new LinkedHashMap();
     
 
     //=====================
@@ -52,21 +121,35 @@ public class SceneObjectManager
     //===================== 
 
     /**
-     * Adds a SceneObject to the manager
+     * Adds a SceneObject to the manager. A SceneObject with the same ID as a different SceneObject already in the 
+     * manager is rejected and logged.
      * @param sceneObject SceneObject to map
      * @param layer Layer that this scene object is in
+     * @return true if the SceneObject was added
      */
-    public void add(SceneObject sceneObject, Layer layer) 
+    public boolean add(SceneObject sceneObject, Layer layer) 
     {
         
         //validate parameters
         if( sceneObject == null || layer == null)
         {
-            return;
+            return false;
+        }
+        
+        //dont let a duplicate ID replace the scene object that has it
+        SceneObject existing = sceneObjects.get(sceneObject.getID());
+        if(existing != null && existing != sceneObject)
+        {
+            Log.error("SceneObjectManager already has a " + existing.getClass().getSimpleName() + " with ID " + sceneObject.getID() + ", " + sceneObject.getClass().getSimpleName() + " not added");
+            return false;
         }
         
         //adds it to the master list
         sceneObjects.put(sceneObject.getID(), sceneObject);
+        
+        //give it a handle, unless its already in the manager
+        if(sceneObject.managerOwner != this)
+            this.allocateHandle(sceneObject);
                
         //add the scene object to its groups
         for(Enum group: sceneObject.getGroups()) 
@@ -76,13 +159,18 @@ public class SceneObjectManager
                 sceneObjectGroupMap.put(group, new LinkedHashSet<SceneObject>());
                 
             //add the sceneobject
-            sceneObjectGroupMap.get(group).add(sceneObject);
+            if(sceneObjectGroupMap.get(group).add(sceneObject))
+                this.groupChanged(group);
         }
         
+        //if its already in the manager, take it out of its old layer first
+        if(sceneObject.managerOwner == this)
+            this.removeFromLayer(sceneObject);
+        
         //add to layer mapping
-        this.sceneObjectsLayerMap.get(layer).add(sceneObject);
+        this.addToLayer(sceneObject, layer);
           
-        
+        return true;
     }
 
     /**
@@ -93,6 +181,10 @@ public class SceneObjectManager
     {
         //remove from the master list
         sceneObjects.remove(sceneObject.getID());
+        
+        //free its handle
+        if(sceneObject.managerOwner == this)
+            this.releaseHandle(sceneObject);
 
         //remove from its groupings
         LinkedHashSet<Enum> eGroups = sceneObject.getGroups();
@@ -100,25 +192,37 @@ public class SceneObjectManager
         while (iter.hasNext())
         {
             
-            LinkedHashSet<SceneObject> group =sceneObjectGroupMap.get(iter.next());
-            if(group != null)
+            Enum groupKey = iter.next();
+            LinkedHashSet<SceneObject> group =sceneObjectGroupMap.get(groupKey);
+            if(group != null && group.remove(sceneObject))
             {
-                group.remove(sceneObject);
+                this.groupChanged(groupKey);
             }
             
         }
         
         //remove from layer mapping
-        ArrayList<SceneObject> layerList;
-        for (Layer layer: Layer.values())
+        this.removeFromLayer(sceneObject);
+        
+  
+    }
+
+    /**
+     * Moves a SceneObject that is in the manager to a different layer. Its ID and group mappings are unchanged.
+     * @param sceneObject SceneObject to move
+     * @param layer Layer to move it to
+     */
+    public void moveToLayer(SceneObject sceneObject, Layer layer)
+    {
+        //validate parameters
+        if( sceneObject == null || layer == null)
         {
-            layerList = sceneObjectsLayerMap.get(layer);
-            if (layerList.remove(sceneObject)) {
-                continue;
-            }
+            return;
         }
         
-  
+        //remove from its current layer, and add to the new one
+        if(this.removeFromLayer(sceneObject))
+            this.addToLayer(sceneObject, layer);
     }
 
     /**
@@ -134,6 +238,32 @@ public class SceneObjectManager
         return sceneObjects.get(ID);
     }
     
+    /**
+     * Gets a SceneObject by its handle. Returns NULL if the handle is not valid, including when the SceneObject
+     * it belonged to has been removed.
+     * @param handle handle of the scene object to retrieve
+     * @return SceneObject, or NULL if the handle is not valid.
+     */
+    public SceneObject get(int handle)
+    {
+        int slot = handle & HANDLE_SLOT_MASK;
+        if(handle <= 0 || slot >= this.nextHandleSlot || this.handleGenerations[slot] != handle >>> HANDLE_SLOT_BITS)
+            return null;
+        
+        SceneObject sceneObject = this.handleTable[slot];
+        return sceneObject != null && sceneObject.handle == handle ? sceneObject : null;
+    }
+    
+    /**
+     * Returns true if the handle belongs to a SceneObject that is still in the manager
+     * @param handle handle to check
+     * @return true if the handle is valid
+     */
+    public boolean isValid(int handle)
+    {
+        return this.get(handle) != null;
+    }
+    
     /**
      * Returns an arrayList of all the SceneObjects in a group
      * @param grp Enum to get a list of scene objects from
@@ -141,30 +271,91 @@ public class SceneObjectManager
      */
     public ArrayList<SceneObject> get(Enum grp) 
     {
-        //if the group isnt empty
-        if (!sceneObjectGroupMap.isEmpty()) 
+        //copy the cached group array into a list the caller can change
+        return new ArrayList<>(Arrays.asList(this.getGroupArray(grp)));
+    }
+    
+    /**
+     * Gets the members of a group as a cached array, in the order they joined the group. The array is only rebuilt
+     * when the groups membership changes, so asking for it every frame doesnt allocate. The returned array
+     * must not be modified.
+     * @param grp group to get
+     * @return array of the SceneObjects in the group
+     */
+    public SceneObject[] getGroupArray(Enum grp)
+    {
+        GroupCache cache = this.groupCaches.get(grp);
+        if(cache == null)
         {
-            //turn the group into a list
-            LinkedHashSet<SceneObject> entitySet = sceneObjectGroupMap.get(grp);
-            ArrayList<SceneObject> list = new ArrayList<>();
-            
+            if(!this.sceneObjectGroupMap.containsKey(grp))
+                return EMPTY_GROUP;
             
-            //build list with group
-            if(entitySet != null)
+            cache = new GroupCache();
+            this.groupCaches.put(grp, cache);
+        }
+        
+        //rebuild the array if the group has changed
+        if(cache.members == null)
+        {
+            LinkedHashSet<SceneObject> group = this.sceneObjectGroupMap.get(grp);
+            cache.members = group == null || group.isEmpty() ? EMPTY_GROUP : group.toArray(new SceneObject[group.size()]);
+        }
+        
+        return cache.members;
+    }
+    
+    /**
+     * Gets the version of a group, which changes every time a SceneObject joins or leaves it. Callers that build
+     * their own structures from a group can keep the version and only rebuild when it changes.
+     * @param grp group to check
+     * @return version of the group
+     */
+    public int getGroupVersion(Enum grp)
+    {
+        GroupCache cache = this.groupCaches.get(grp);
+        return cache != null ? cache.version : 0;
+    }
+    
+    /**
+     * Calls the visitor with every member of a group, without allocating. SceneObjects that join or leave the group
+     * during the visit dont change which members are visited.
+     * @param grp group to visit
+     * @param visitor visitor to call
+     */
+    public void forEach(Enum grp, GroupVisitor visitor)
+    {
+        SceneObject[] members = this.getGroupArray(grp);
+        for(int i = 0; i < members.length; i++)
+            visitor.visit(members[i]);
+    }
+    
+    /**
+     * Gets a read only view of a group, with its members cast to the given type. The view is live, it always shows
+     * the current members of the group, so it can be kept and read every frame without allocating.
+     * @param grp group to view
+     * @param type type that every member of the group has
+     * @return read only List of the groups members
+     */
+    public <T> List<T> getGroupView(final Enum grp, final Class<T> type)
+    {
+        return new AbstractList<T>(){
+            @Override
+            public T get(int index)
             {
-                for(SceneObject object: entitySet)
-                    list.add( object);
+                return type.cast(getGroupArray(grp)[index]);
             }
-            
-            //Return the list
-            return list;
-        }
-        //Else return an empty array
-        return new ArrayList();
+
+            @Override
+            public int size()
+            {
+                return getGroupArray(grp).length;
+            }
+        };
     }
     
     /**
-     * Gets an arrayList of sceneObjects corresponding to a particular layer
+     * Gets an arrayList of sceneObjects corresponding to a particular layer. The list holds null in the slots of
+     * scene objects removed since the last compactLayers().
      * @param layer to pick the scene objects from
      * @return ArrayList of scene objects
      */
@@ -172,6 +363,263 @@ public class SceneObjectManager
     {
         return this.sceneObjectsLayerMap.get(layer);
     }
+    
+    /**
+     * Closes the empty slots left in layers by removes, keeping draw order. Must be called from one thread while
+     * nothing else is reading the manager, the Scene does it at the end of each tick.
+     */
+    public void compactLayers()
+    {
+        for(Layer layer: Layer.values())
+        {
+            if(this.emptySlots[layer.ordinal()] > 0)
+                this.compact(layer);
+        }
+    }
+    
+    /**
+     * Returns true if any layer has empty slots waiting for compactLayers()
+     * @return true if a compaction is pending
+     */
+    public boolean hasEmptySlots()
+    {
+        for(int i = 0; i < this.emptySlots.length; i++)
+        {
+            if(this.emptySlots[i] > 0)
+                return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Sets whether a layer fills the slot of a removed scene object with the last scene object in the layer. This 
+     * makes removes cheaper, but changes the order the layer is drawn in, so it should only be used for layers
+     * where draw order doesnt matter.
+     * @param layer Layer to set
+     * @param swapRemove true to swap remove, false to keep draw order
+     */
+    public void setSwapRemove(Layer layer, boolean swapRemove)
+    {
+        if(swapRemove)
+        {
+            this.compact(layer);
+            this.swapRemoveLayers.add(layer);
+        }
+        else
+            this.swapRemoveLayers.remove(layer);
+    }
+    
+    /**
+     * Gives a layer a transform store, a culling cache holding a packed array copy of the position and culling radius 
+     * of each scene object in the layer. The scene objects still own their transforms. Area queries on a layer with a store and no spatial index run down the packed arrays rather than
+     * visiting every scene object, which suits big layers of sprites that mostly move. The store follows scene 
+     * objects as they move through SceneObject.boundsChanged().
+     * @param layer Layer to store
+     */
+    public void enableTransformStore(Layer layer)
+    {
+        this.compact(layer);
+        ArrayList<SceneObject> layerList = this.get(layer);
+        TransformStore store = new TransformStore(layerList.size());
+        for(int i = 0; i < layerList.size(); i++)
+            store.set(i, layerList.get(i));
+        
+        this.transformStores[layer.ordinal()] = store;
+    }
+    
+    /**
+     * Removes the transform store from a layer
+     * @param layer Layer to stop storing
+     */
+    public void disableTransformStore(Layer layer)
+    {
+        this.transformStores[layer.ordinal()] = null;
+    }
+    
+    /**
+     * Returns true if the layer has a transform store
+     * @param layer Layer to check
+     * @return true if the layer has a store
+     */
+    public boolean hasTransformStore(Layer layer)
+    {
+        return this.transformStores[layer.ordinal()] != null;
+    }
+    
+    /**
+     * Gives a layer a spatial index, so area and radius queries on it only look at nearby scene objects. The index
+     * follows scene objects as they move through SceneObject.boundsChanged(), which setPosition() calls. Cells 
+     * should be around the size of the larger scene objects in the layer; anything bigger than a cell is checked 
+     * by every query.
+     * @param layer Layer to index
+     * @param cellSize width and height of a grid cell
+     */
+    public void enableSpatialIndex(Layer layer, float cellSize)
+    {
+        this.compact(layer);
+        SpatialGrid grid = new SpatialGrid(cellSize);
+        for(SceneObject sceneObject: this.get(layer))
+            grid.insert(sceneObject);
+        
+        //take the scene objects out of the old grid
+        this.disableSpatialIndex(layer);
+        this.spatialGrids[layer.ordinal()] = grid;
+    }
+    
+    /**
+     * Removes the spatial index from a layer
+     * @param layer Layer to stop indexing
+     */
+    public void disableSpatialIndex(Layer layer)
+    {
+        SpatialGrid grid = this.spatialGrids[layer.ordinal()];
+        if(grid == null)
+            return;
+        
+        this.spatialGrids[layer.ordinal()] = null;
+        for(SceneObject sceneObject: this.get(layer))
+        {
+            if(sceneObject != null)
+                grid.remove(sceneObject);
+        }
+    }
+    
+    /**
+     * Returns true if the layer has a spatial index
+     * @param layer Layer to check
+     * @return true if the layer is indexed
+     */
+    public boolean hasSpatialIndex(Layer layer)
+    {
+        return this.spatialGrids[layer.ordinal()] != null;
+    }
+    
+    /**
+     * Finds the scene objects in a layer whose culling radius around their position overlaps the given area. Uses the 
+     * layers spatial index if it has one, otherwise every scene object in the layer is tested. Scene objects of types
+     * without a culling radius are always found, so culling leaves them to Viewport.isSceneObjectVisible(). Results 
+     * are added in layer order.
+     * @param layer Layer to search
+     * @param minX minimum x of the area
+     * @param minY minimum y of the area
+     * @param maxX maximum x of the area
+     * @param maxY maximum y of the area
+     * @param results list to add the found scene objects to
+     */
+    public void queryArea(Layer layer, float minX, float minY, float maxX, float maxY, List<SceneObject> results)
+    {
+        //layers with a store and no grid can test the packed arrays directly
+        TransformStore store = this.transformStores[layer.ordinal()];
+        if(store != null && this.spatialGrids[layer.ordinal()] == null)
+        {
+            store.gatherOverlapping(this.get(layer), minX, minY, maxX, maxY, results);
+            return;
+        }
+        
+        ArrayList<SceneObject> candidates = this.gatherCandidates(layer, minX, minY, maxX, maxY);
+        for(int i = 0; i < candidates.size(); i++)
+        {
+            SceneObject sceneObject = candidates.get(i);
+            if(sceneObject == null)
+                continue;
+            float radius = Viewport.getCullingRadius(sceneObject);
+            SylverVector2f position = sceneObject.getPosition();
+            if(radius < 0 || position.x + radius >= minX && position.x - radius <= maxX && position.y + radius >= minY && position.y - radius <= maxY)
+                results.add(sceneObject);
+        }
+        candidates.clear();
+    }
+    
+    /**
+     * Finds the scene objects in a layer whose position is within the given distance of a point. Uses the layers 
+     * spatial index if it has one, then its transform store, otherwise every scene object in the layer is tested. 
+     * Results are added in layer order.
+     * @param layer Layer to search
+     * @param x x of the point
+     * @param y y of the point
+     * @param radius distance from the point
+     * @param results list to add the found scene objects to
+     */
+    public void queryRadius(Layer layer, float x, float y, float radius, List<SceneObject> results)
+    {
+        //layers with a store and no grid can test the packed arrays directly
+        TransformStore store = this.transformStores[layer.ordinal()];
+        if(store != null && this.spatialGrids[layer.ordinal()] == null)
+        {
+            store.gatherWithin(this.get(layer), x, y, radius, results);
+            return;
+        }
+        
+        ArrayList<SceneObject> candidates = this.gatherCandidates(layer, x - radius, y - radius, x + radius, y + radius);
+        float radiusSquared = radius * radius;
+        for(int i = 0; i < candidates.size(); i++)
+        {
+            SceneObject sceneObject = candidates.get(i);
+            if(sceneObject == null)
+                continue;
+            float dx = sceneObject.getPosition().x - x;
+            float dy = sceneObject.getPosition().y - y;
+            if(dx * dx + dy * dy < radiusSquared)
+                results.add(sceneObject);
+        }
+        candidates.clear();
+    }
+    
+    /**
+     * Called by SceneObject.boundsChanged() when a scene object in this manager moves or changes size
+     */
+    void sceneObjectMoved(SceneObject sceneObject)
+    {
+        Layer layer = sceneObject.managerLayer;
+        SpatialGrid grid = layer != null ? this.spatialGrids[layer.ordinal()] : null;
+        if(grid != null)
+            grid.update(sceneObject);
+        
+        TransformStore store = layer != null ? this.transformStores[layer.ordinal()] : null;
+        if(store != null)
+            store.set(sceneObject.managerSlot, sceneObject);
+    }
+    
+    /**
+     * Gathers the scene objects in a layer that might be in an area, in layer order, into the reusable candidate list
+     */
+    private ArrayList<SceneObject> gatherCandidates(Layer layer, float minX, float minY, float maxX, float maxY)
+    {
+        ArrayList<SceneObject> layerList = this.get(layer);
+        SpatialGrid grid = this.spatialGrids[layer.ordinal()];
+        ArrayList<SceneObject> candidates = this.queryCandidates.get();
+        candidates.clear();
+        
+        if(grid == null)
+        {
+            candidates.addAll(layerList);
+            return candidates;
+        }
+        
+        //gather from the grid and put the candidates back into draw order
+        grid.gatherCandidates(minX, minY, maxX, maxY, candidates);
+        Collections.sort(candidates, LAYER_ORDER);
+        return candidates;
+    }
+    
+    /**
+     * Returns true if the layer fills removed slots with its last scene object
+     * @param layer Layer to check
+     * @return true if the layer swap removes
+     */
+    public boolean isSwapRemove(Layer layer)
+    {
+        return this.swapRemoveLayers.contains(layer);
+    }
+
+    /**
+     * Gets the number of scene objects in the manager
+     * @return scene object count
+     */
+    public int size()
+    {
+        return this.sceneObjects.size();
+    }
 
     /**
      * Returns the layer of the given scene object.
@@ -180,6 +628,12 @@ public class SceneObjectManager
      */
     public Layer getLayerOfSceneObject(SceneObject object)
     {
+        if(object.managerOwner == this)
+            return object.managerLayer;
+        if(this.snapshotLayers != null)
+            return this.snapshotLayers.get(object);
+        
+        //scene objects only remember their place in one manager, so search the layers of any other
         for(Layer layer: Layer.values())
         {
             ArrayList<SceneObject> list =this.sceneObjectsLayerMap.get(layer);
@@ -203,7 +657,8 @@ public class SceneObjectManager
         if(sceneObjectGroupMap.get(grp) == null)
             sceneObjectGroupMap.put(grp, new LinkedHashSet<SceneObject>());
         
-        sceneObjectGroupMap.get(grp).add(e);
+        if(sceneObjectGroupMap.get(grp).add(e))
+            this.groupChanged(grp);
     }
 
     /**
@@ -213,26 +668,359 @@ public class SceneObjectManager
     {
         LinkedHashSet s = sceneObjectGroupMap.get(grp);
         
-        if(s != null)
-          s.remove(e);
+        if(s != null && s.remove(e))
+          this.groupChanged(grp);
+    }
+    
+    /**
+     * Copies the layer and group mappings of this manager into the given manager, replacing whatever it held before.
+     * The SceneObjects themselves are shared, not copied. This is used to build render snapshots, so the
+     * target manager only supports layer, group and area queries. Layers with a transform store or a spatial index
+     * get a transform store in the target holding the positions at the time of the copy, so area and radius queries 
+     * on the snapshot run down packed arrays. The spatial grid itself isnt copied, its cells are tracked by the 
+     * SceneObjects. The target records the layer of each SceneObject, so getLayerOfSceneObject() on the snapshot is
+     * a lookup rather than a search.
+     * @param target SceneObjectManager to copy the mappings into
+     */
+    protected void copyInto(SceneObjectManager target)
+    {
+        //snapshots are taken between ticks, so this is a safe point to close any gaps left by removes that bypassed
+        //the scene
+        this.compactLayers();
+        
+        //copy layer mappings, reusing the targets lists
+        if(target.snapshotLayers == null)
+            target.snapshotLayers = new IdentityHashMap<>();
+        target.snapshotLayers.clear();
+        for(Layer layer: Layer.values())
+        {
+            ArrayList<SceneObject> layerList = this.get(layer);
+            ArrayList<SceneObject> targetList = target.sceneObjectsLayerMap.get(layer);
+            targetList.clear();
+            targetList.addAll(layerList);
+            
+            for(int i = 0; i < layerList.size(); i++)
+                target.snapshotLayers.put(layerList.get(i), layer);
+            
+            //copy the positions of indexed layers so the snapshot can be culled without a full scan
+            int index = layer.ordinal();
+            TransformStore store = this.transformStores[index];
+            if(store == null && this.spatialGrids[index] == null)
+            {
+                target.transformStores[index] = null;
+                continue;
+            }
+            
+            if(target.transformStores[index] == null)
+                target.transformStores[index] = new TransformStore(layerList.size());
+            if(store != null)
+                target.transformStores[index].copyFrom(store, layerList.size());
+            else
+            {
+                for(int i = 0; i < layerList.size(); i++)
+                    target.transformStores[index].set(i, layerList.get(i));
+            }
+        }
+
+        //clear any groups the target has that we dont
+        for(Map.Entry<Enum,LinkedHashSet<SceneObject>> entry: target.sceneObjectGroupMap.entrySet())
+        {
+            if(!this.sceneObjectGroupMap.containsKey(entry.getKey()) && !entry.getValue().isEmpty())
+            {
+                entry.getValue().clear();
+                target.groupChanged(entry.getKey());
+            }
+        }
+
+        //copy group mappings
+        for(Map.Entry<Enum,LinkedHashSet<SceneObject>> entry: this.sceneObjectGroupMap.entrySet())
+        {
+            LinkedHashSet<SceneObject> targetSet = target.sceneObjectGroupMap.get(entry.getKey());
+            if(targetSet == null)
+            {
+                targetSet = new LinkedHashSet<>();
+                target.sceneObjectGroupMap.put(entry.getKey(), targetSet);
+            }
+
+            //only recopy groups that have changed since the last copy
+            GroupCache cache = this.groupCaches.get(entry.getKey());
+            GroupCache targetCache = target.groupCaches.get(entry.getKey());
+            if(cache != null && targetCache != null && targetCache.copiedVersion == cache.version && targetSet.size() == entry.getValue().size())
+                continue;
+
+            targetSet.clear();
+            targetSet.addAll(entry.getValue());
+            target.groupChanged(entry.getKey());
+            if(cache != null)
+                target.groupCaches.get(entry.getKey()).copiedVersion = cache.version;
+        }
     }
     
     /**
-     * Generates an id that is garunteed to have no duplicates in the scene.
+     * Swaps scene objects in this render snapshot for the copies the render thread draws, in the layer lists, the 
+     * group arrays and the layer lookup. Group arrays are only rebuilt when a group changes, so copies swapped in 
+     * by an earlier call stay in them. Only used on snapshots filled by copyInto().
+     * @param copies render copies, keyed by the scene object they copy
+     */
+    void useRenderCopies(IdentityHashMap<SceneObject, SceneObject> copies)
+    {
+        for(Layer layer: Layer.values())
+        {
+            ArrayList<SceneObject> layerList = this.sceneObjectsLayerMap.get(layer);
+            for(int i = 0; i < layerList.size(); i++)
+            {
+                SceneObject copy = copies.get(layerList.get(i));
+                if(copy != null)
+                {
+                    layerList.set(i, copy);
+                    this.snapshotLayers.put(copy, layer);
+                }
+            }
+        }
+        
+        for(Enum grp: this.sceneObjectGroupMap.keySet())
+        {
+            SceneObject[] members = this.getGroupArray(grp);
+            for(int i = 0; i < members.length; i++)
+            {
+                SceneObject copy = copies.get(members[i]);
+                if(copy != null)
+                    members[i] = copy;
+            }
+        }
+    }
+
+    /**
+     * Marks a groups cached array as out of date, and bumps its version
+     */
+    private void groupChanged(Enum grp)
+    {
+        GroupCache cache = this.groupCaches.get(grp);
+        if(cache == null)
+        {
+            cache = new GroupCache();
+            this.groupCaches.put(grp, cache);
+        }
+        
+        cache.members = null;
+        cache.version++;
+    }
+    
+    /**
+     * Appends a scene object to the end of a layer, remembering where it was put
+     */
+    private void addToLayer(SceneObject sceneObject, Layer layer)
+    {
+        ArrayList<SceneObject> layerList = this.sceneObjectsLayerMap.get(layer);
+        sceneObject.managerOwner = this;
+        sceneObject.managerLayer = layer;
+        sceneObject.managerSlot = layerList.size();
+        layerList.add(sceneObject);
+        
+        if(this.spatialGrids[layer.ordinal()] != null)
+            this.spatialGrids[layer.ordinal()].insert(sceneObject);
+        if(this.transformStores[layer.ordinal()] != null)
+            this.transformStores[layer.ordinal()].set(sceneObject.managerSlot, sceneObject);
+    }
+    
+    /**
+     * Takes a scene object out of its layer
+     * @return true if it was in a layer
+     */
+    private boolean removeFromLayer(SceneObject sceneObject)
+    {
+        //scene objects that dont remember being in this manager have to be searched for
+        if(sceneObject.managerOwner != this)
+        {
+            for (Layer layer: Layer.values())
+            {
+                int index = this.sceneObjectsLayerMap.get(layer).indexOf(sceneObject);
+                if(index != -1)
+                {
+                    //empty the slot rather than shifting the slots of everything after it
+                    this.sceneObjectsLayerMap.get(layer).set(index, null);
+                    this.emptySlots[layer.ordinal()]++;
+                    if(this.transformStores[layer.ordinal()] != null)
+                        this.transformStores[layer.ordinal()].clear(index);
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        Layer layer = sceneObject.managerLayer;
+        ArrayList<SceneObject> layerList = this.sceneObjectsLayerMap.get(layer);
+        
+        if(this.spatialGrids[layer.ordinal()] != null)
+            this.spatialGrids[layer.ordinal()].remove(sceneObject);
+        
+        //swapping needs a layer with no empty slots
+        if(this.swapRemoveLayers.contains(layer) && this.emptySlots[layer.ordinal()] > 0)
+            this.compact(layer);
+        int slot = sceneObject.managerSlot;
+        
+        if(slot == layerList.size() - 1)
+        {
+            //the last scene object can just be dropped
+            layerList.remove(slot);
+        }
+        else if(this.swapRemoveLayers.contains(layer))
+        {
+            //move the last scene object into the slot
+            SceneObject last = layerList.remove(layerList.size() - 1);
+            layerList.set(slot, last);
+            last.managerSlot = slot;
+            if(this.transformStores[layer.ordinal()] != null)
+                this.transformStores[layer.ordinal()].move(layerList.size(), slot);
+        }
+        else
+        {
+            //leave an empty slot for the next compaction
+            layerList.set(slot, null);
+            this.emptySlots[layer.ordinal()]++;
+            if(this.transformStores[layer.ordinal()] != null)
+                this.transformStores[layer.ordinal()].clear(slot);
+        }
+        
+        sceneObject.managerOwner = null;
+        sceneObject.managerLayer = null;
+        sceneObject.managerSlot = -1;
+        return true;
+    }
+    
+    /**
+     * Removes the empty slots from a layer, keeping the order of the scene objects that are left
+     */
+    private void compact(Layer layer)
+    {
+        ArrayList<SceneObject> layerList = this.sceneObjectsLayerMap.get(layer);
+        TransformStore store = this.transformStores[layer.ordinal()];
+        
+        int write = 0;
+        for(int read = 0; read < layerList.size(); read++)
+        {
+            SceneObject sceneObject = layerList.get(read);
+            if(sceneObject == null)
+                continue;
+            
+            if(write != read)
+            {
+                layerList.set(write, sceneObject);
+                if(store != null)
+                    store.move(read, write);
+            }
+            if(sceneObject.managerOwner == this)
+                sceneObject.managerSlot = write;
+            write++;
+        }
+        
+        layerList.subList(write, layerList.size()).clear();
+        this.emptySlots[layer.ordinal()] = 0;
+    }
+    
+    /**
+     * Generates an id that is garunteed to have no duplicates in the scene. Generated ids are "$", a random 3 digit 
+     * prefix chosen by each manager and a base 36 counter, so IDs from a server, another client or a saved level are 
+     * unlikely to collide with the ones this manager makes. The first 46,656 IDs are no longer than 7 characters.
      * @return 
      */
     public String generateUniqueID()
     {
         //Generates an id
         String ID;
-        ID = "$" + UUID.randomUUID().toString().substring(0, 7);
+        ID = "$" + generatedIDPrefix + Integer.toString(nextGeneratedID++, 36);
         
         //checks to make sure its unique
         while(sceneObjects.containsKey(ID))
-            ID = "$" + UUID.randomUUID().toString().substring(0, 7);
+            ID = "$" + generatedIDPrefix + Integer.toString(nextGeneratedID++, 36);
         
         return ID;
     }
     
+    /**
+     * Sets the prefix of generated IDs and restarts their counter. Deterministic scenes use a prefix made from 
+     * their seed, so every peer generates the same IDs.
+     * @param prefix prefix of generated IDs
+     */
+    void setGeneratedIDPrefix(String prefix)
+    {
+        this.generatedIDPrefix = prefix;
+        this.nextGeneratedID = 0;
+    }
+    
+    /**
+     * Makes a prefix of 3 base 36 digits for generated IDs. The prefix has a fixed length so the counter after it 
+     * needs no separator.
+     * @param value any number, such as a random number or a scene seed
+     * @return the prefix
+     */
+    static String idPrefix(long value)
+    {
+        int digits = (int)((value & Long.MAX_VALUE) % (36 * 36 * 36));
+        char[] prefix = new char[3];
+        for(int i = prefix.length - 1; i >= 0; i--)
+        {
+            prefix[i] = Character.forDigit(digits % 36, 36);
+            digits /= 36;
+        }
+        return new String(prefix);
+    }
+    
+    /**
+     * Gives a scene object a handle, reusing a freed slot if there is one
+     */
+    private void allocateHandle(SceneObject sceneObject)
+    {
+        int slot;
+        if(this.freeHandleCount > 0)
+            slot = this.freeHandleSlots[--this.freeHandleCount];
+        else
+        {
+            if(this.nextHandleSlot > HANDLE_SLOT_MASK)
+                throw new RuntimeException("SceneObjectManager ran out of handles");
+            
+            slot = this.nextHandleSlot++;
+            if(slot == this.handleTable.length)
+            {
+                this.handleTable = Arrays.copyOf(this.handleTable, slot * 2);
+                this.handleGenerations = Arrays.copyOf(this.handleGenerations, slot * 2);
+            }
+        }
+        
+        this.handleTable[slot] = sceneObject;
+        sceneObject.handle = (this.handleGenerations[slot] << HANDLE_SLOT_BITS) | slot;
+    }
+    
+    /**
+     * Frees a scene objects handle slot, bumping its generation so the old handle stops being valid
+     */
+    private void releaseHandle(SceneObject sceneObject)
+    {
+        int slot = sceneObject.handle & HANDLE_SLOT_MASK;
+        if(sceneObject.handle <= 0 || this.handleTable[slot] != sceneObject)
+            return;
+        
+        this.handleTable[slot] = null;
+        this.handleGenerations[slot] = (this.handleGenerations[slot] + 1) & HANDLE_GENERATION_MASK;
+        if(this.freeHandleCount == this.freeHandleSlots.length)
+            this.freeHandleSlots = Arrays.copyOf(this.freeHandleSlots, this.freeHandleCount * 2);
+        this.freeHandleSlots[this.freeHandleCount++] = slot;
+        sceneObject.handle = 0;
+    }
+    
    
+    
+    /**
+     * Cached array of a groups members
+     */
+    private static final class GroupCache
+    {
+        //the members of the group, null when they need to be rebuilt
+        private SceneObject[] members;
+        //incremented every time the group changes
+        private int version;
+        //version of the source group this snapshots group was last copied from
+        private int copiedVersion = -1;
+    }
+
 }
@@ -0,0 +1,668 @@
+package com.silvergobletgames.sylver.core;
+
+import com.silvergobletgames.sylver.core.Scene.Layer;
+import com.silvergobletgames.sylver.core.SceneObject.SceneObjectClassMask;
+import com.silvergobletgames.sylver.graphics.Color;
+import com.silvergobletgames.sylver.netcode.NetworkedSceneObject;
+import com.silvergobletgames.sylver.netcode.RenderData;
+import com.silvergobletgames.sylver.netcode.SceneObjectDeserializer;
+import com.silvergobletgames.sylver.netcode.SceneObjectRenderData;
+import com.silvergobletgames.sylver.util.Log;
+import com.silvergobletgames.sylver.util.RestorableRandom;
+import com.silvergobletgames.sylver.util.SerializableEntry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Ring buffer of per-tick snapshots of the NetworkedSceneObjects in a scene, for rollback, rewind and instant replay.
+ * A snapshot is the dumpRenderData() of every NetworkedSceneObject, in layer order, written in a compact binary
+ * encoding into a byte array that is allocated once per slot and reused as the ring wraps. Objects write themselves
+ * through NetworkedSceneObject.writeSnapshot(), which the engine classes override to write their fields straight
+ * into the snapshot, so capturing them doesnt build render data lists or box values. The state of the scenes random
+ * number generator is kept with each snapshot and put back on restore, so a rolled back tick draws the same numbers.
+ * Restoring a snapshot reconciles the SceneObjects still in the scene against their snapshot data, rebuilds the ones
+ * that were removed and removes the ones that were added since.
+ *
+ * Render data values are encoded by type. Numbers, booleans, strings, colors, enums, classes, lists, entries and
+ * nested render data have compact encodings, anything else falls back to Java serialization. Classes and enums are
+ * written as indexes into a class table that the ring keeps for its lifetime.
+ * @author Mike
+ */
+public final class SceneSnapshotRing
+{
+    //value type tags
+    private static final byte NULL = 0, FLOAT = 1, INT = 2, BOOLEAN = 3, STRING = 4, LONG = 5, DOUBLE = 6, SHORT = 7,
+                              BYTE = 8, COLOR = 9, ENUM = 10, CLASS = 11, LIST = 12, ENTRY = 13, RENDER_DATA = 14,
+                              SCENE_OBJECT_RENDER_DATA = 15, SERIALIZED = 16;
+    private static final Layer[] LAYERS = Layer.values();
+
+    //snapshot bytes, tick and length of each slot
+    private final byte[][] slots;
+    private final long[] ticks;
+    private final int[] lengths;
+    //classes referenced by the encoded snapshots
+    private final ArrayList<Class> classTable = new ArrayList<>();
+    private final IdentityHashMap<Class, Integer> classIndexes = new IdentityHashMap<>();
+
+    //the buffer being written or read, and the position in it
+    private byte[] buffer;
+    private int position;
+    //what NetworkedSceneObjects write their snapshots through
+    private final SnapshotWriter writer = new SnapshotWriter();
+    //reusable collections for restore()
+    private final HashSet<String> restoredIDs = new HashSet<>();
+    private final ArrayList<SceneObject> staleSceneObjects = new ArrayList<>();
+
+
+    //================
+    // Constructor
+    //================
+
+    /**
+     * Creates a snapshot ring
+     * @param capacity number of ticks of snapshots to keep
+     * @param initialSlotSize bytes to allocate for each snapshot up front, slots grow if a snapshot doesnt fit
+     */
+    public SceneSnapshotRing(int capacity, int initialSlotSize)
+    {
+        if(capacity < 1)
+            throw new RuntimeException("Snapshot ring capacity must be at least 1");
+
+        this.slots = new byte[capacity][];
+        this.ticks = new long[capacity];
+        this.lengths = new int[capacity];
+        for(int i = 0; i < capacity; i++)
+            this.slots[i] = new byte[Math.max(64, initialSlotSize)];
+        Arrays.fill(this.ticks, -1);
+    }
+
+
+    //================
+    // Class Methods
+    //================
+
+    /**
+     * Captures a snapshot of every NetworkedSceneObject in the scene, replacing the oldest snapshot in the ring
+     * @param scene scene to capture
+     * @param tick tick the snapshot is of, must not be negative
+     */
+    public void capture(Scene scene, long tick)
+    {
+        this.capture(scene.getSceneObjectManager(), scene.getRandom(), tick);
+    }
+
+    /**
+     * Captures a snapshot of every NetworkedSceneObject in a scene object manager, and the state of a random
+     * number generator if one is given
+     */
+    void capture(SceneObjectManager manager, RestorableRandom random, long tick)
+    {
+        int slot = (int)(tick % this.slots.length);
+        this.buffer = this.slots[slot];
+        this.position = 0;
+
+        //reserve room for the object count
+        this.writeInt(0);
+        int count = 0;
+
+        //random number generator state
+        this.writeByte(random != null ? (byte)1 : (byte)0);
+        if(random != null)
+        {
+            synchronized(random)
+            {
+                this.writeLong(random.getState());
+                this.writeByte(random.hasNextGaussian() ? (byte)1 : (byte)0);
+                this.writeLong(Double.doubleToRawLongBits(random.getNextGaussian()));
+            }
+        }
+
+        for(Layer layer: LAYERS)
+        {
+            ArrayList<SceneObject> layerObjects = manager.get(layer);
+            for(int i = 0; i < layerObjects.size(); i++)
+            {
+                SceneObject sceneObject = layerObjects.get(i);
+                if(!(sceneObject instanceof NetworkedSceneObject))
+                    continue;
+
+                this.writeByte((byte)layer.ordinal());
+                ((NetworkedSceneObject)sceneObject).writeSnapshot(this.writer);
+                count++;
+            }
+        }
+
+        int length = this.position;
+        this.position = 0;
+        this.writeInt(count);
+
+        this.slots[slot] = this.buffer;
+        this.ticks[slot] = tick;
+        this.lengths[slot] = length;
+        this.buffer = null;
+    }
+
+    /**
+     * Restores the scene to a snapshot. Must not be called during a tick.
+     * @param scene scene to restore
+     * @param tick tick to restore, see contains()
+     */
+    public void restore(Scene scene, long tick)
+    {
+        if(!this.contains(tick))
+            throw new RuntimeException("No snapshot kept for tick " + tick);
+        if(scene.isBufferingMutations())
+            throw new RuntimeException("Snapshots cannot be restored during a tick");
+
+        int slot = (int)(tick % this.slots.length);
+        this.buffer = this.slots[slot];
+        this.position = 0;
+        SceneObjectManager manager = scene.getSceneObjectManager();
+
+        try
+        {
+            //put the random number generator back
+            int count = this.readInt();
+            if(this.readByte() != 0)
+            {
+                long state = this.readLong();
+                boolean hasNextGaussian = this.readByte() != 0;
+                scene.getRandom().restoreState(state, hasNextGaussian, Double.longBitsToDouble(this.readLong()));
+            }
+
+            //reconcile or rebuild every SceneObject in the snapshot
+            for(int i = 0; i < count; i++)
+            {
+                Layer layer = LAYERS[this.readByte()];
+                SceneObjectRenderData renderData = (SceneObjectRenderData)this.readValue();
+                this.restoredIDs.add(renderData.getID());
+
+                SceneObject existing = manager.get(renderData.getID());
+                if(existing instanceof NetworkedSceneObject && renderData.getSceneObjectClass().getRepresentativeClass().isInstance(existing))
+                {
+                    ((NetworkedSceneObject)existing).restoreRenderData(renderData);
+                    if(manager.getLayerOfSceneObject(existing) != layer)
+                        scene.moveToLayer(existing, layer);
+                }
+                else
+                {
+                    if(existing != null)
+                        scene.remove(existing);
+                    scene.add(SceneObjectDeserializer.buildSceneObjectFromRenderData(renderData), layer);
+                }
+            }
+
+            //remove the NetworkedSceneObjects that were added after the snapshot
+            for(Layer layer: LAYERS)
+            {
+                ArrayList<SceneObject> layerObjects = manager.get(layer);
+                for(int i = 0; i < layerObjects.size(); i++)
+                {
+                    SceneObject sceneObject = layerObjects.get(i);
+                    if(sceneObject instanceof NetworkedSceneObject && !this.restoredIDs.contains(sceneObject.getID()))
+                        this.staleSceneObjects.add(sceneObject);
+                }
+            }
+            for(int i = 0; i < this.staleSceneObjects.size(); i++)
+                scene.remove(this.staleSceneObjects.get(i));
+        }
+        finally
+        {
+            this.buffer = null;
+            this.restoredIDs.clear();
+            this.staleSceneObjects.clear();
+        }
+    }
+
+    /**
+     * Decodes the render data of every NetworkedSceneObject in a snapshot into a list, in the order they were
+     * captured, without touching any scene. Used to bring render copies up to date.
+     */
+    void readRenderData(long tick, List<SceneObjectRenderData> results)
+    {
+        if(!this.contains(tick))
+            throw new RuntimeException("No snapshot kept for tick " + tick);
+
+        this.buffer = this.slots[(int)(tick % this.slots.length)];
+        this.position = 0;
+        try
+        {
+            //skip the random number generator state
+            int count = this.readInt();
+            if(this.readByte() != 0)
+            {
+                this.readLong();
+                this.readByte();
+                this.readLong();
+            }
+
+            for(int i = 0; i < count; i++)
+            {
+                this.readByte();
+                results.add((SceneObjectRenderData)this.readValue());
+            }
+        }
+        finally
+        {
+            this.buffer = null;
+        }
+    }
+
+    /**
+     * Returns true if the ring holds a snapshot of the given tick
+     * @param tick tick to check
+     * @return true if the snapshot is kept
+     */
+    public boolean contains(long tick)
+    {
+        return tick >= 0 && this.ticks[(int)(tick % this.slots.length)] == tick;
+    }
+
+    /**
+     * Drops every snapshot taken after the given tick, for rolling back to it
+     * @param tick last tick to keep
+     */
+    public void discardAfter(long tick)
+    {
+        for(int i = 0; i < this.ticks.length; i++)
+        {
+            if(this.ticks[i] > tick)
+                this.ticks[i] = -1;
+        }
+    }
+
+    /**
+     * Drops every snapshot
+     */
+    public void clear()
+    {
+        Arrays.fill(this.ticks, -1);
+    }
+
+    /**
+     * Gets the size of a snapshot in bytes
+     * @param tick tick of the snapshot
+     * @return size in bytes, or 0 if the snapshot isnt kept
+     */
+    public int getSnapshotSize(long tick)
+    {
+        return this.contains(tick) ? this.lengths[(int)(tick % this.slots.length)] : 0;
+    }
+
+    public int getCapacity()
+    {
+        return this.slots.length;
+    }
+
+
+    //================
+    // Encoding
+    //================
+
+    private void writeValue(Object value)
+    {
+        if(value == null)
+            this.writeByte(NULL);
+        else if(value instanceof Float)
+        {
+            this.writeByte(FLOAT);
+            this.writeInt(Float.floatToRawIntBits((Float)value));
+        }
+        else if(value instanceof Integer)
+        {
+            this.writeByte(INT);
+            this.writeInt((Integer)value);
+        }
+        else if(value instanceof Boolean)
+        {
+            this.writeByte(BOOLEAN);
+            this.writeByte((Boolean)value ? (byte)1 : (byte)0);
+        }
+        else if(value instanceof String)
+        {
+            this.writeByte(STRING);
+            this.writeString((String)value);
+        }
+        else if(value instanceof Long)
+        {
+            this.writeByte(LONG);
+            this.writeLong((Long)value);
+        }
+        else if(value instanceof Double)
+        {
+            this.writeByte(DOUBLE);
+            this.writeLong(Double.doubleToRawLongBits((Double)value));
+        }
+        else if(value instanceof Short)
+        {
+            this.writeByte(SHORT);
+            this.writeInt((Short)value);
+        }
+        else if(value instanceof Byte)
+        {
+            this.writeByte(BYTE);
+            this.writeByte((Byte)value);
+        }
+        else if(value.getClass() == Color.class)
+        {
+            Color color = (Color)value;
+            this.writeByte(COLOR);
+            this.writeInt(Float.floatToRawIntBits(color.r));
+            this.writeInt(Float.floatToRawIntBits(color.g));
+            this.writeInt(Float.floatToRawIntBits(color.b));
+            this.writeInt(Float.floatToRawIntBits(color.a));
+        }
+        else if(value instanceof Enum)
+        {
+            this.writeByte(ENUM);
+            this.writeInt(this.classIndex(((Enum)value).getDeclaringClass()));
+            this.writeInt(((Enum)value).ordinal());
+        }
+        else if(value instanceof Class)
+        {
+            this.writeByte(CLASS);
+            this.writeInt(this.classIndex((Class)value));
+        }
+        else if(value.getClass() == ArrayList.class)
+        {
+            ArrayList list = (ArrayList)value;
+            this.writeByte(LIST);
+            this.writeInt(list.size());
+            for(int i = 0; i < list.size(); i++)
+                this.writeValue(list.get(i));
+        }
+        else if(value.getClass() == SerializableEntry.class)
+        {
+            SerializableEntry entry = (SerializableEntry)value;
+            this.writeByte(ENTRY);
+            this.writeValue(entry.getKey());
+            this.writeValue(entry.getValue());
+        }
+        else if(value.getClass() == SceneObjectRenderData.class)
+        {
+            SceneObjectRenderData renderData = (SceneObjectRenderData)value;
+            this.writeByte(SCENE_OBJECT_RENDER_DATA);
+            this.writeValue(renderData.getSceneObjectClass());
+            this.writeString(renderData.getID());
+            this.writeValue(renderData.data);
+        }
+        else if(value.getClass() == RenderData.class)
+        {
+            this.writeByte(RENDER_DATA);
+            this.writeValue(((RenderData)value).data);
+        }
+        else
+        {
+            //fall back to java serialization
+            try
+            {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try(ObjectOutputStream out = new ObjectOutputStream(bytes))
+                {
+                    out.writeObject(value);
+                }
+                this.writeByte(SERIALIZED);
+                this.writeInt(bytes.size());
+                this.ensureCapacity(bytes.size());
+                System.arraycopy(bytes.toByteArray(), 0, this.buffer, this.position, bytes.size());
+                this.position += bytes.size();
+            }
+            catch(IOException e)
+            {
+                throw new RuntimeException("Render data value " + value.getClass().getName() + " could not be snapshotted", e);
+            }
+        }
+    }
+
+    private Object readValue()
+    {
+        byte type = this.readByte();
+        switch(type)
+        {
+            case NULL: return null;
+            case FLOAT: return Float.intBitsToFloat(this.readInt());
+            case INT: return this.readInt();
+            case BOOLEAN: return this.readByte() != 0;
+            case STRING: return this.readString();
+            case LONG: return this.readLong();
+            case DOUBLE: return Double.longBitsToDouble(this.readLong());
+            case SHORT: return (short)this.readInt();
+            case BYTE: return this.readByte();
+            case COLOR:
+            {
+                float r = Float.intBitsToFloat(this.readInt());
+                float g = Float.intBitsToFloat(this.readInt());
+                float b = Float.intBitsToFloat(this.readInt());
+                float a = Float.intBitsToFloat(this.readInt());
+                return new Color(r, g, b, a);
+            }
+            case ENUM:
+            {
+                Class enumClass = this.classTable.get(this.readInt());
+                return enumClass.getEnumConstants()[this.readInt()];
+            }
+            case CLASS: return this.classTable.get(this.readInt());
+            case LIST:
+            {
+                int size = this.readInt();
+                ArrayList list = new ArrayList(size);
+                for(int i = 0; i < size; i++)
+                    list.add(this.readValue());
+                return list;
+            }
+            case ENTRY:
+            {
+                Object key = this.readValue();
+                return new SerializableEntry(key, this.readValue());
+            }
+            case SCENE_OBJECT_RENDER_DATA:
+            {
+                SceneObjectClassMask mask = (SceneObjectClassMask)this.readValue();
+                SceneObjectRenderData renderData = new SceneObjectRenderData(mask, this.readString());
+                renderData.data = (ArrayList)this.readValue();
+                return renderData;
+            }
+            case RENDER_DATA:
+            {
+                RenderData renderData = new RenderData();
+                renderData.data = (ArrayList)this.readValue();
+                return renderData;
+            }
+            case SERIALIZED:
+            {
+                int length = this.readInt();
+                try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(this.buffer, this.position, length)))
+                {
+                    this.position += length;
+                    return in.readObject();
+                }
+                catch(IOException | ClassNotFoundException e)
+                {
+                    Log.error("Could not read a serialized render data value from a snapshot", e);
+                    return null;
+                }
+            }
+            default: throw new RuntimeException("Corrupt snapshot, unknown value type " + type);
+        }
+    }
+
+    private int classIndex(Class cls)
+    {
+        Integer index = this.classIndexes.get(cls);
+        if(index == null)
+        {
+            index = this.classTable.size();
+            this.classTable.add(cls);
+            this.classIndexes.put(cls, index);
+        }
+        return index;
+    }
+
+    private void writeString(String value)
+    {
+        int length = value.length();
+        this.writeInt(length);
+        this.ensureCapacity(length * 2);
+        byte[] bytes = this.buffer;
+        int p = this.position;
+        for(int i = 0; i < length; i++)
+        {
+            char c = value.charAt(i);
+            bytes[p++] = (byte)(c >>> 8);
+            bytes[p++] = (byte)c;
+        }
+        this.position = p;
+    }
+
+    private String readString()
+    {
+        int length = this.readInt();
+        char[] chars = new char[length];
+        byte[] bytes = this.buffer;
+        int p = this.position;
+        for(int i = 0; i < length; i++)
+        {
+            chars[i] = (char)(((bytes[p] & 0xFF) << 8) | (bytes[p + 1] & 0xFF));
+            p += 2;
+        }
+        this.position = p;
+        return new String(chars);
+    }
+
+    private void writeByte(byte value)
+    {
+        this.ensureCapacity(1);
+        this.buffer[this.position++] = value;
+    }
+
+    private void writeInt(int value)
+    {
+        this.ensureCapacity(4);
+        byte[] bytes = this.buffer;
+        int p = this.position;
+        bytes[p] = (byte)(value >>> 24);
+        bytes[p + 1] = (byte)(value >>> 16);
+        bytes[p + 2] = (byte)(value >>> 8);
+        bytes[p + 3] = (byte)value;
+        this.position = p + 4;
+    }
+
+    private void writeLong(long value)
+    {
+        this.writeInt((int)(value >>> 32));
+        this.writeInt((int)value);
+    }
+
+    private byte readByte()
+    {
+        return this.buffer[this.position++];
+    }
+
+    private int readInt()
+    {
+        byte[] bytes = this.buffer;
+        int p = this.position;
+        this.position = p + 4;
+        return ((bytes[p] & 0xFF) << 24) | ((bytes[p + 1] & 0xFF) << 16) | ((bytes[p + 2] & 0xFF) << 8) | (bytes[p + 3] & 0xFF);
+    }
+
+    private long readLong()
+    {
+        long high = this.readInt();
+        return (high << 32) | (this.readInt() & 0xFFFFFFFFL);
+    }
+
+    private void ensureCapacity(int bytes)
+    {
+        if(this.position + bytes > this.buffer.length)
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.position + bytes));
+    }
+
+
+    //================
+    // Inner Classes
+    //================
+
+    /**
+     * Writes render data into the snapshot being captured, in the same encoding as the dumpRenderData() it stands
+     * in for. An object writes beginRenderData() with its field count, then each field in dumpRenderData() order,
+     * using the typed methods for primitives so they arent boxed. Lists and entries are written the same way, a
+     * begin call followed by their contents.
+     */
+    public final class SnapshotWriter
+    {
+        private SnapshotWriter()
+        {
+
+        }
+
+        /**
+         * Starts the render data of a SceneObject
+         * @param sceneObjectClass class mask of the SceneObject, as in its SceneObjectRenderData
+         * @param id ID of the SceneObject
+         * @param fieldCount number of values that follow
+         */
+        public void beginRenderData(SceneObjectClassMask sceneObjectClass, String id, int fieldCount)
+        {
+            SceneSnapshotRing.this.writeByte(SCENE_OBJECT_RENDER_DATA);
+            SceneSnapshotRing.this.writeValue(sceneObjectClass);
+            SceneSnapshotRing.this.writeString(id);
+            this.beginList(fieldCount);
+        }
+
+        /**
+         * Starts an ArrayList
+         * @param size number of values that follow
+         */
+        public void beginList(int size)
+        {
+            SceneSnapshotRing.this.writeByte(LIST);
+            SceneSnapshotRing.this.writeInt(size);
+        }
+
+        /**
+         * Starts a SerializableEntry, followed by its key and then its value
+         */
+        public void beginEntry()
+        {
+            SceneSnapshotRing.this.writeByte(ENTRY);
+        }
+
+        public void writeFloat(float value)
+        {
+            SceneSnapshotRing.this.writeByte(FLOAT);
+            SceneSnapshotRing.this.writeInt(Float.floatToRawIntBits(value));
+        }
+
+        public void writeInt(int value)
+        {
+            SceneSnapshotRing.this.writeByte(INT);
+            SceneSnapshotRing.this.writeInt(value);
+        }
+
+        public void writeBoolean(boolean value)
+        {
+            SceneSnapshotRing.this.writeByte(BOOLEAN);
+            SceneSnapshotRing.this.writeByte(value ? (byte)1 : (byte)0);
+        }
+
+        /**
+         * Writes any value a render data list can hold. Strings, colors, enums and classes are written without
+         * allocating.
+         * @param value value to write
+         */
+        public void writeValue(Object value)
+        {
+            SceneSnapshotRing.this.writeValue(value);
+        }
+    }
+
+}
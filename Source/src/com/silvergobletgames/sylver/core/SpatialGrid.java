@@ -0,0 +1,178 @@
+package com.silvergobletgames.sylver.core;
+
+import com.silvergobletgames.sylver.graphics.Viewport;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Loose uniform grid of the SceneObjects in a layer. Each SceneObject is stored in the one cell that contains its
+ * position, and queries look one cell further out than asked for, so any SceneObject whose culling radius is no
+ * bigger than a cell is found. SceneObjects bigger than a cell, or of a type without a culling radius, are kept in
+ * a separate list that every query checks.
+ *
+ * The grid is kept up to date by the SceneObjectManager, and SceneObjects tell it when they move with
+ * SceneObject.boundsChanged(). Methods are synchronized since SceneObjects can move during a parallel update.
+ * @author Mike
+ */
+final class SpatialGrid
+{
+    //cell value of SceneObjects that are in the oversized list
+    private static final long OVERSIZED = Long.MIN_VALUE;
+
+    //width and height of a cell
+    private final float cellSize;
+    //the cells, keyed by their packed x and y
+    private final HashMap<Long, ArrayList<SceneObject>> cells = new HashMap<>();
+    //SceneObjects that are too big for a cell
+    private final ArrayList<SceneObject> oversized = new ArrayList<>();
+
+
+    //================
+    // Constructor
+    //================
+
+    protected SpatialGrid(float cellSize)
+    {
+        if(cellSize <= 0)
+            throw new RuntimeException("Spatial grid cell size must be positive");
+
+        this.cellSize = cellSize;
+    }
+
+
+    //================
+    // Class Methods
+    //================
+
+    /**
+     * Adds a SceneObject to the grid
+     */
+    protected synchronized void insert(SceneObject sceneObject)
+    {
+        long cell = this.cellOf(sceneObject);
+        ArrayList<SceneObject> list = this.listOf(cell, true);
+
+        sceneObject.gridCell = cell;
+        sceneObject.gridSlot = list.size();
+        list.add(sceneObject);
+    }
+
+    /**
+     * Removes a SceneObject from the grid
+     */
+    protected synchronized void remove(SceneObject sceneObject)
+    {
+        if(sceneObject.gridSlot == -1)
+            return;
+
+        //fill the slot with the last SceneObject in the cell
+        ArrayList<SceneObject> list = this.listOf(sceneObject.gridCell, false);
+        SceneObject last = list.remove(list.size() - 1);
+        if(last != sceneObject)
+        {
+            list.set(sceneObject.gridSlot, last);
+            last.gridSlot = sceneObject.gridSlot;
+        }
+
+        //drop empty cells
+        if(list.isEmpty() && sceneObject.gridCell != OVERSIZED)
+            this.cells.remove(sceneObject.gridCell);
+
+        sceneObject.gridSlot = -1;
+    }
+
+    /**
+     * Moves a SceneObject to the cell it now belongs in, if it changed cells
+     */
+    protected synchronized void update(SceneObject sceneObject)
+    {
+        if(sceneObject.gridSlot == -1 || this.cellOf(sceneObject) == sceneObject.gridCell)
+            return;
+
+        this.remove(sceneObject);
+        this.insert(sceneObject);
+    }
+
+    /**
+     * Adds every SceneObject that could be within the given area to the list. Callers test the candidates exactly.
+     * @param minX minimum x of the area
+     * @param minY minimum y of the area
+     * @param maxX maximum x of the area
+     * @param maxY maximum y of the area
+     * @param candidates list to add the candidates to
+     */
+    protected synchronized void gatherCandidates(float minX, float minY, float maxX, float maxY, ArrayList<SceneObject> candidates)
+    {
+        candidates.addAll(this.oversized);
+
+        //look one cell further out, for SceneObjects that reach in from a neighbouring cell
+        long minCellX = (long)Math.floor(minX / this.cellSize) - 1;
+        long minCellY = (long)Math.floor(minY / this.cellSize) - 1;
+        long maxCellX = (long)Math.floor(maxX / this.cellSize) + 1;
+        long maxCellY = (long)Math.floor(maxY / this.cellSize) + 1;
+
+        //if the area covers more cells than are occupied, just check the occupied ones
+        if((maxCellX - minCellX + 1) * (maxCellY - minCellY + 1) > this.cells.size())
+        {
+            for(ArrayList<SceneObject> list: this.cells.values())
+            {
+                if(list.isEmpty())
+                    continue;
+
+                long cell = list.get(0).gridCell;
+                long cellX = cell >> 32;
+                long cellY = (int)cell;
+                if(cellX >= minCellX && cellX <= maxCellX && cellY >= minCellY && cellY <= maxCellY)
+                    candidates.addAll(list);
+            }
+            return;
+        }
+
+        for(long cellX = minCellX; cellX <= maxCellX; cellX++)
+        {
+            for(long cellY = minCellY; cellY <= maxCellY; cellY++)
+            {
+                ArrayList<SceneObject> list = this.cells.get(pack(cellX, cellY));
+                if(list != null)
+                    candidates.addAll(list);
+            }
+        }
+    }
+
+    public float getCellSize()
+    {
+        return this.cellSize;
+    }
+
+    /**
+     * Gets the cell a SceneObject belongs in, or OVERSIZED
+     */
+    private long cellOf(SceneObject sceneObject)
+    {
+        float radius = Viewport.getCullingRadius(sceneObject);
+        if(radius < 0 || radius > this.cellSize)
+            return OVERSIZED;
+
+        return pack((long)Math.floor(sceneObject.getPosition().x / this.cellSize), (long)Math.floor(sceneObject.getPosition().y / this.cellSize));
+    }
+
+    private ArrayList<SceneObject> listOf(long cell, boolean create)
+    {
+        if(cell == OVERSIZED)
+            return this.oversized;
+
+        ArrayList<SceneObject> list = this.cells.get(cell);
+        if(list == null && create)
+        {
+            list = new ArrayList<>();
+            this.cells.put(cell, list);
+        }
+        return list;
+    }
+
+    private static long pack(long cellX, long cellY)
+    {
+        return (cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+}
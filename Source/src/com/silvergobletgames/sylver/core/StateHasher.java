@@ -0,0 +1,87 @@
+package com.silvergobletgames.sylver.core;
+
+/**
+ * Incremental 64 bit hash of simulation state. Values are mixed in one at a time, so hashing a scene walks its
+ * SceneObjects once without building anything. Two simulations that mixed the same values in the same order end up
+ * with the same hash, which is what lockstep peers compare to detect a desync.
+ *
+ * Floats are mixed by their bits, so -0 and 0 hash differently, as do different NaNs.
+ * @author Mike
+ */
+public final class StateHasher
+{
+    //mixing constants
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+    private static final long MULTIPLIER_1 = 0xBF58476D1CE4E5B9L;
+    private static final long MULTIPLIER_2 = 0x94D049BB133111EBL;
+
+    //the running hash
+    private long hash = SEED;
+
+
+    //================
+    // Class Methods
+    //================
+
+    /**
+     * Starts a new hash
+     */
+    public void reset()
+    {
+        this.hash = SEED;
+    }
+
+    public void mix(long value)
+    {
+        long h = this.hash ^ (value * MULTIPLIER_1);
+        h = Long.rotateLeft(h, 31) * MULTIPLIER_2;
+        this.hash = h ^ (h >>> 29);
+    }
+
+    public void mix(int value)
+    {
+        this.mix((long)value);
+    }
+
+    public void mix(float value)
+    {
+        this.mix((long)Float.floatToRawIntBits(value));
+    }
+
+    public void mix(double value)
+    {
+        this.mix(Double.doubleToRawLongBits(value));
+    }
+
+    public void mix(boolean value)
+    {
+        this.mix(value ? 1L : 0L);
+    }
+
+    /**
+     * Mixes in a string, null mixes differently from the empty string
+     * @param value string to mix
+     */
+    public void mix(String value)
+    {
+        if(value == null)
+        {
+            this.mix(-1L);
+            return;
+        }
+
+        this.mix((long)value.length());
+        for(int i = 0; i < value.length(); i++)
+            this.mix((long)value.charAt(i));
+    }
+
+    /**
+     * Gets the hash of everything mixed in since the last reset()
+     * @return the hash
+     */
+    public long getHash()
+    {
+        return this.hash;
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.silvergobletgames.sylver.core;
+
+import com.silvergobletgames.sylver.graphics.Viewport;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Culling cache of a layer: a structure of arrays copy of the positions and culling radii of its SceneObjects. Entry
+ * i holds the SceneObject in slot i of the layers list, so area and radius queries can run down packed float arrays
+ * instead of following a pointer to every SceneObject and its position vector.
+ *
+ * The store is only a copy, the SceneObjects still own their position, angle and the rest of their transform. It is
+ * kept in step with the layer by the SceneObjectManager, and SceneObjects update their entry through
+ * SceneObject.boundsChanged(), which setPosition() calls. That includes the positions written by
+ * NetworkedSceneObject.interpolate(), so interpolated objects are culled where they are drawn. Entries of empty
+ * slots hold NaN, which fails every comparison. SceneObject types without a culling radius are stored with a radius
+ * of -1 and overlap every area, as they do in a SpatialGrid.
+ * @author Mike
+ */
+final class TransformStore
+{
+    //x and y of each slot
+    private float[] x;
+    private float[] y;
+    //culling radius of each slot, -1 for SceneObject types without one
+    private float[] radius;
+
+
+    //================
+    // Constructor
+    //================
+
+    protected TransformStore(int capacity)
+    {
+        capacity = Math.max(16, capacity);
+        this.x = new float[capacity];
+        this.y = new float[capacity];
+        this.radius = new float[capacity];
+    }
+
+
+    //================
+    // Class Methods
+    //================
+
+    /**
+     * Copies a SceneObjects position and culling radius into a slot, growing the arrays if needed
+     */
+    protected void set(int slot, SceneObject sceneObject)
+    {
+        if(slot >= this.x.length)
+        {
+            int capacity = Math.max(slot + 1, this.x.length * 2);
+            this.x = Arrays.copyOf(this.x, capacity);
+            this.y = Arrays.copyOf(this.y, capacity);
+            this.radius = Arrays.copyOf(this.radius, capacity);
+        }
+
+        this.x[slot] = sceneObject.getPosition().x;
+        this.y[slot] = sceneObject.getPosition().y;
+        this.radius[slot] = Viewport.getCullingRadius(sceneObject);
+    }
+
+    /**
+     * Copies the first entries of another store into this one, growing the arrays if needed
+     */
+    protected void copyFrom(TransformStore source, int count)
+    {
+        if(count > this.x.length)
+        {
+            int capacity = Math.max(count, this.x.length * 2);
+            this.x = new float[capacity];
+            this.y = new float[capacity];
+            this.radius = new float[capacity];
+        }
+
+        count = Math.min(count, source.x.length);
+        System.arraycopy(source.x, 0, this.x, 0, count);
+        System.arraycopy(source.y, 0, this.y, 0, count);
+        System.arraycopy(source.radius, 0, this.radius, 0, count);
+    }
+
+    /**
+     * Marks a slot as empty
+     */
+    protected void clear(int slot)
+    {
+        if(slot < this.x.length)
+        {
+            this.x[slot] = Float.NaN;
+            this.y[slot] = Float.NaN;
+            this.radius[slot] = Float.NaN;
+        }
+    }
+
+    /**
+     * Moves the entry of one slot into another, for when the layer moves a SceneObject
+     */
+    protected void move(int from, int to)
+    {
+        this.x[to] = this.x[from];
+        this.y[to] = this.y[from];
+        this.radius[to] = this.radius[from];
+    }
+
+    /**
+     * Adds every SceneObject of the layer whose culling radius around its position overlaps the area to the list,
+     * in layer order. SceneObjects without a culling radius are always added.
+     * @param layerList the layers list, which this store mirrors
+     * @param minX minimum x of the area
+     * @param minY minimum y of the area
+     * @param maxX maximum x of the area
+     * @param maxY maximum y of the area
+     * @param results list to add the found SceneObjects to
+     */
+    protected void gatherOverlapping(ArrayList<SceneObject> layerList, float minX, float minY, float maxX, float maxY, List<SceneObject> results)
+    {
+        float[] xs = this.x, ys = this.y, radii = this.radius;
+        int count = Math.min(layerList.size(), xs.length);
+        for(int i = 0; i < count; i++)
+        {
+            float r = radii[i];
+            if(r < 0 || xs[i] + r >= minX && xs[i] - r <= maxX && ys[i] + r >= minY && ys[i] - r <= maxY)
+                results.add(layerList.get(i));
+        }
+    }
+
+    /**
+     * Adds every SceneObject of the layer whose position is within the given distance of a point to the list, in
+     * layer order
+     * @param layerList the layers list, which this store mirrors
+     * @param px x of the point
+     * @param py y of the point
+     * @param distance distance from the point
+     * @param results list to add the found SceneObjects to
+     */
+    protected void gatherWithin(ArrayList<SceneObject> layerList, float px, float py, float distance, List<SceneObject> results)
+    {
+        float[] xs = this.x, ys = this.y;
+        float distanceSquared = distance * distance;
+        int count = Math.min(layerList.size(), xs.length);
+        for(int i = 0; i < count; i++)
+        {
+            float dx = xs[i] - px;
+            float dy = ys[i] - py;
+            if(dx * dx + dy * dy < distanceSquared)
+                results.add(layerList.get(i));
+        }
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.silvergobletgames.sylver.core;
+
+/**
+ * Frame pacer for when vsync is on. The buffer swap already blocks until the display refreshes, so frames that
+ * swapped normally come back right at the refresh deadline and are not held any further. This pacer only parks
+ * when a frame finishes well ahead of the refresh, such as when the driver ignores the swap interval, so the loop
+ * never runs faster than the display.
+ * @author Mike
+ */
+public class VSyncFramePacer extends ParkingFramePacer
+{
+
+    //==================
+    // Constructor
+    //==================
+
+    /**
+     * Creates a vsync frame pacer for a display with the given refresh rate
+     * @param refreshRate refresh rate of the display in hz
+     */
+    public VSyncFramePacer(float refreshRate)
+    {
+        //pace slightly faster than the refresh so we never hold up a frame the swap has already paced
+        super(refreshRate * 1.05f);
+    }
+
+}
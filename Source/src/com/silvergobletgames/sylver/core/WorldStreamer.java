@@ -0,0 +1,574 @@
+package com.silvergobletgames.sylver.core;
+
+import com.silvergobletgames.sylver.core.Scene.Layer;
+import com.silvergobletgames.sylver.graphics.Viewport;
+import com.silvergobletgames.sylver.netcode.SavableSceneObject;
+import com.silvergobletgames.sylver.netcode.SceneObjectDeserializer;
+import com.silvergobletgames.sylver.netcode.SceneObjectSaveData;
+import com.silvergobletgames.sylver.util.Log;
+import com.silvergobletgames.sylver.util.SylverVector2f;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the SavableSceneObjects of a large world in and out of a Scene by region. The world is divided into square
+ * regions, and each region that isnt loaded is kept as a compressed blob of SceneObjectSaveData, either in memory or
+ * in a file in the storage directory. Each tick update() is given the viewport, regions near the viewport are read
+ * and deserialized on the streaming thread and then added to the scene on the calling thread, and regions that have
+ * fallen out of range are saved, removed from the scene, and written back out on the streaming thread.
+ *
+ * Scene objects are put into the world with add(), which places them in the region containing their position. When
+ * a region is unloaded its scene objects are regrouped by where they are at the time, so scene objects that wander
+ * into another region are saved with it. Only SavableSceneObjects are streamed, anything else added to the scene is
+ * left alone. Regions are measured in the coordinates of the layer each scene object is in.
+ * @author Mike
+ */
+public class WorldStreamer
+{
+    //the scene being streamed into
+    private final Scene scene;
+    //width and height of a region
+    private final float regionSize;
+    //regions within this many regions of the viewport are loaded
+    private final int loadRadius;
+    //loaded regions further than this many regions from the viewport are unloaded
+    private final int unloadRadius;
+    //directory region blobs are written to, null to keep them in memory
+    private final File storageDirectory;
+
+    //blobs of the regions kept in memory
+    private final ConcurrentHashMap<Long, byte[]> regionBlobs = new ConcurrentHashMap<>();
+    //scene objects of each loaded region
+    private final HashMap<Long, ArrayList<SceneObject>> loadedRegions = new HashMap<>();
+    //layer each streamed scene object was added to
+    private final HashMap<SceneObject, Layer> streamedLayers = new HashMap<>();
+    //regions that are being read on the streaming thread
+    private final HashMap<Long, Boolean> loadingRegions = new HashMap<>();
+    //loaded regions whose blob couldnt be read, they are appended to rather than replaced when unloaded
+    private final HashSet<Long> unreadRegions = new HashSet<>();
+    //scene objects added to regions while they were loading, added to the scene along with the region
+    private final HashMap<Long, LoadedRegion> pendingAdds = new HashMap<>();
+    //regions the streaming thread has finished reading, waiting to be added to the scene
+    private final ConcurrentLinkedQueue<LoadedRegion> completedLoads = new ConcurrentLinkedQueue<>();
+    //thread regions are read and written on, in the order they were asked for
+    private final ExecutorService streamingThread;
+
+
+    //================
+    // Constructor
+    //================
+
+    /**
+     * Creates a world streamer that keeps unloaded regions in memory
+     * @param scene scene to stream into
+     * @param regionSize width and height of a region
+     * @param loadRadius regions within this many regions of the viewport are loaded
+     */
+    public WorldStreamer(Scene scene, float regionSize, int loadRadius)
+    {
+        this(scene, regionSize, loadRadius, null);
+    }
+
+    /**
+     * Creates a world streamer
+     * @param scene scene to stream into
+     * @param regionSize width and height of a region
+     * @param loadRadius regions within this many regions of the viewport are loaded, regions one further out than
+     * this stay loaded so a viewport sitting on a region border doesnt load and unload every tick
+     * @param storageDirectory directory to write unloaded regions to, or null to keep them in memory
+     */
+    public WorldStreamer(Scene scene, float regionSize, int loadRadius, File storageDirectory)
+    {
+        if(regionSize <= 0 || loadRadius < 0)
+            throw new RuntimeException("World streamer needs a positive region size and a load radius of at least 0");
+
+        this.scene = scene;
+        this.regionSize = regionSize;
+        this.loadRadius = loadRadius;
+        this.unloadRadius = loadRadius + 1;
+        this.storageDirectory = storageDirectory;
+        if(storageDirectory != null)
+            storageDirectory.mkdirs();
+
+        this.streamingThread = Executors.newSingleThreadExecutor(new ThreadFactory(){
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "Sylver World Streamer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+
+    //================
+    // Class Methods
+    //================
+
+    /**
+     * Puts a scene object into the world. If its region is loaded it is added to the scene, otherwise it is saved
+     * into its region and added when the region loads.
+     * @param sceneObject SavableSceneObject to add
+     * @param layer layer to add it to
+     */
+    public void add(SceneObject sceneObject, Layer layer)
+    {
+        if(!(sceneObject instanceof SavableSceneObject))
+            throw new RuntimeException("Only SavableSceneObjects can be streamed");
+
+        long region = this.regionOf(sceneObject.getPosition());
+        ArrayList<SceneObject> loaded = this.loadedRegions.get(region);
+        if(loaded != null)
+        {
+            loaded.add(sceneObject);
+            this.streamedLayers.put(sceneObject, layer);
+            this.scene.add(sceneObject, layer);
+            return;
+        }
+        
+        //if the region is being read, add it along with the region
+        if(this.loadingRegions.containsKey(region))
+        {
+            this.addPending(region, sceneObject, layer, false);
+            return;
+        }
+
+        //append it to the regions blob
+        RegionData data = new RegionData();
+        data.layers.add(layer.name());
+        data.saved.add(((SavableSceneObject)sceneObject).dumpFullData());
+        this.append(region, data);
+    }
+
+    /**
+     * Loads the regions near the viewport and unloads the regions that have fallen out of range. Regions that
+     * finished loading since the last call are added to the scene. Call once a tick from the scene's update().
+     * @param viewport viewport to stream around
+     */
+    public void update(Viewport viewport)
+    {
+        SylverVector2f center = viewport.getCenterCoordinates();
+        long centerX = (long)Math.floor(center.x / this.regionSize);
+        long centerY = (long)Math.floor(center.y / this.regionSize);
+
+        //add the regions that finished loading, ones that went out of range while loading are unloaded again below
+        LoadedRegion loadedRegion;
+        while((loadedRegion = this.completedLoads.poll()) != null)
+        {
+            this.loadingRegions.remove(loadedRegion.key);
+            this.commit(loadedRegion);
+            
+            LoadedRegion pending = this.pendingAdds.remove(loadedRegion.key);
+            if(pending != null)
+                this.commit(pending);
+        }
+
+        //unload regions that are out of range
+        ArrayList<Long> outOfRange = new ArrayList<>();
+        for(Long key: this.loadedRegions.keySet())
+        {
+            if(distance(key, centerX, centerY) > this.unloadRadius)
+                outOfRange.add(key);
+        }
+        for(Long key: outOfRange)
+            this.unload(key);
+
+        //start loading regions that came into range
+        for(long x = centerX - this.loadRadius; x <= centerX + this.loadRadius; x++)
+        {
+            for(long y = centerY - this.loadRadius; y <= centerY + this.loadRadius; y++)
+            {
+                long key = pack(x, y);
+                if(!this.loadedRegions.containsKey(key) && !this.loadingRegions.containsKey(key))
+                    this.load(key);
+            }
+        }
+    }
+
+    /**
+     * Unloads every loaded region and stops the streaming thread once it has written them out
+     */
+    public void shutdown()
+    {
+        for(Long key: new ArrayList<>(this.loadedRegions.keySet()))
+            this.unload(key);
+
+        //scene objects waiting on regions that never finished loading are appended to those regions
+        for(LoadedRegion pending: this.pendingAdds.values())
+        {
+            RegionData data = new RegionData();
+            for(int i = 0; i < pending.sceneObjects.size(); i++)
+            {
+                SceneObject sceneObject = pending.sceneObjects.get(i);
+                if(pending.inScene.get(i))
+                {
+                    if(sceneObject.getOwningScene() != this.scene)
+                        continue;
+                    this.scene.remove(sceneObject);
+                }
+                this.streamedLayers.remove(sceneObject);
+                data.layers.add(pending.layers.get(i).name());
+                data.saved.add(((SavableSceneObject)sceneObject).dumpFullData());
+            }
+            this.append(pending.key, data);
+        }
+        this.pendingAdds.clear();
+
+        this.streamingThread.shutdown();
+    }
+
+    /**
+     * Gets the number of regions that are loaded into the scene
+     * @return loaded region count
+     */
+    public int getLoadedRegionCount()
+    {
+        return this.loadedRegions.size();
+    }
+
+    /**
+     * Gets the number of regions being read on the streaming thread
+     * @return loading region count
+     */
+    public int getLoadingRegionCount()
+    {
+        return this.loadingRegions.size();
+    }
+
+    /**
+     * Starts reading a region on the streaming thread
+     */
+    private void load(final long key)
+    {
+        this.loadingRegions.put(key, Boolean.TRUE);
+        this.streamingThread.execute(new Runnable(){
+            @Override
+            public void run()
+            {
+                long eventStart = EngineEvents.begin();
+                ArrayList<String> layers = new ArrayList<>();
+                ArrayList<SceneObjectSaveData> saved = new ArrayList<>();
+                LoadedRegion region = new LoadedRegion(key);
+                if(!readRegion(key, layers, saved))
+                {
+                    //load the region empty rather than partly, and leave its blob for the unload to append to
+                    region.readFailed = true;
+                    layers.clear();
+                    saved.clear();
+                }
+
+                //build the scene objects here so the game thread only has to add them
+                for(int i = 0; i < saved.size(); i++)
+                {
+                    try
+                    {
+                        SceneObject sceneObject = SceneObjectDeserializer.buildSceneObjectFromSaveData(saved.get(i));
+                        Layer layer = Layer.valueOf(layers.get(i));
+                        region.sceneObjects.add(sceneObject);
+                        region.layers.add(layer);
+                        region.inScene.add(false);
+                    }
+                    catch(Exception e)
+                    {
+                        //log error to console
+                        Log.error( "Error Streaming In Scene Object: " + e.getMessage(),e);
+                    }
+                }
+                completedLoads.add(region);
+                EngineEvents.commit(EngineEvents.EventType.REGION_LOAD, eventStart, null, key, saved.size());
+            }
+        });
+    }
+
+    /**
+     * Adds a region that finished loading to the scene
+     */
+    private void commit(LoadedRegion region)
+    {
+        ArrayList<SceneObject> loaded = this.loadedRegions.get(region.key);
+        if(loaded == null)
+        {
+            loaded = new ArrayList<>(region.sceneObjects.size());
+            this.loadedRegions.put(region.key, loaded);
+        }
+        if(region.readFailed)
+            this.unreadRegions.add(region.key);
+        
+        for(int i = 0; i < region.sceneObjects.size(); i++)
+        {
+            SceneObject sceneObject = region.sceneObjects.get(i);
+            if(region.inScene.get(i))
+            {
+                //scene objects that walked in while the region loaded are already in the scene, unless the game 
+                //removed them since
+                if(sceneObject.getOwningScene() != this.scene)
+                {
+                    this.streamedLayers.remove(sceneObject);
+                    continue;
+                }
+                loaded.add(sceneObject);
+                continue;
+            }
+            
+            loaded.add(sceneObject);
+            this.streamedLayers.put(sceneObject, region.layers.get(i));
+            this.scene.add(sceneObject, region.layers.get(i));
+        }
+    }
+    
+    /**
+     * Holds a scene object for a region that is being read, it joins the region when the region is committed
+     * @param inScene true if the scene object is already in the scene
+     */
+    private void addPending(long region, SceneObject sceneObject, Layer layer, boolean inScene)
+    {
+        LoadedRegion pending = this.pendingAdds.get(region);
+        if(pending == null)
+        {
+            pending = new LoadedRegion(region);
+            this.pendingAdds.put(region, pending);
+        }
+        pending.sceneObjects.add(sceneObject);
+        pending.layers.add(layer);
+        pending.inScene.add(inScene);
+    }
+
+    /**
+     * Saves the scene objects of a region, removes them from the scene and writes them out on the streaming thread.
+     * Scene objects that have moved into another loaded region are handed to that region instead, and ones that have
+     * moved into a region that is being read stay in the scene and join that region when it is committed. Writing 
+     * them out instead would lose them, the regions read is queued ahead of the write.
+     */
+    private void unload(long key)
+    {
+        ArrayList<SceneObject> sceneObjects = this.loadedRegions.remove(key);
+        boolean readFailed = this.unreadRegions.remove(key);
+        HashMap<Long, RegionData> evicted = new HashMap<>();
+        for(SceneObject sceneObject: sceneObjects)
+        {
+            Layer layer = this.streamedLayers.get(sceneObject);
+
+            //scene objects the game has removed are forgotten
+            if(sceneObject.getOwningScene() != this.scene)
+            {
+                this.streamedLayers.remove(sceneObject);
+                continue;
+            }
+
+            //scene objects that moved into another loaded region stay loaded
+            long region = this.regionOf(sceneObject.getPosition());
+            if(region != key && this.loadedRegions.containsKey(region))
+            {
+                this.loadedRegions.get(region).add(sceneObject);
+                continue;
+            }
+            if(region != key && this.loadingRegions.containsKey(region))
+            {
+                this.addPending(region, sceneObject, layer, true);
+                continue;
+            }
+
+            RegionData data = evicted.get(region);
+            if(data == null)
+            {
+                data = new RegionData();
+                evicted.put(region, data);
+            }
+            data.layers.add(layer.name());
+            data.saved.add(((SavableSceneObject)sceneObject).dumpFullData());
+
+            this.streamedLayers.remove(sceneObject);
+            this.scene.remove(sceneObject);
+        }
+
+        //the region itself is written even if it is empty, so scene objects that left it arent loaded again
+        if(!evicted.containsKey(key))
+            evicted.put(key, new RegionData());
+
+        for(Map.Entry<Long, RegionData> entry: evicted.entrySet())
+        {
+            //a region that was loaded empty because its blob couldnt be read is appended to, so the blob isnt lost
+            if(entry.getKey() == key && !readFailed)
+                this.replace(entry.getKey(), entry.getValue());
+            else
+                this.append(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Overwrites a regions blob on the streaming thread
+     */
+    private void replace(final long key, final RegionData data)
+    {
+        this.streamingThread.execute(new Runnable(){
+            @Override
+            public void run()
+            {
+                writeRegion(key, data.layers, data.saved);
+            }
+        });
+    }
+    
+    /**
+     * Adds scene objects to a regions blob on the streaming thread. If the blob cant be read the write is dropped, as
+     * writing would replace the blob with only the new scene objects.
+     */
+    private void append(final long key, final RegionData data)
+    {
+        this.streamingThread.execute(new Runnable(){
+            @Override
+            public void run()
+            {
+                ArrayList<String> layers = new ArrayList<>();
+                ArrayList<SceneObjectSaveData> saved = new ArrayList<>();
+                if(!readRegion(key, layers, saved))
+                {
+                    Log.error("World region " + key + " couldnt be read, " + data.saved.size() + " scene objects were dropped rather than overwrite it");
+                    return;
+                }
+                layers.addAll(data.layers);
+                saved.addAll(data.saved);
+                writeRegion(key, layers, saved);
+            }
+        });
+    }
+
+    /**
+     * Reads a regions blob into the given lists. Only called on the streaming thread.
+     * @return false if the blob couldnt be read, the lists may then hold part of it and it mustnt be overwritten
+     */
+    private boolean readRegion(long key, ArrayList<String> layers, ArrayList<SceneObjectSaveData> saved)
+    {
+        try
+        {
+            InputStream stream;
+            if(this.storageDirectory != null)
+            {
+                File file = this.regionFile(key);
+                if(!file.exists())
+                    return true;
+                stream = new FileInputStream(file);
+            }
+            else
+            {
+                byte[] blob = this.regionBlobs.get(key);
+                if(blob == null)
+                    return true;
+                stream = new ByteArrayInputStream(blob);
+            }
+
+            try(ObjectInputStream input = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(stream))))
+            {
+                int count = input.readInt();
+                for(int i = 0; i < count; i++)
+                {
+                    layers.add(input.readUTF());
+                    saved.add((SceneObjectSaveData)input.readObject());
+                }
+            }
+            return true;
+        }
+        catch(IOException | ClassNotFoundException e)
+        {
+            //log error to console
+            Log.error( "Error Reading World Region: " + e.getMessage(),e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes a regions blob. Only called on the streaming thread.
+     */
+    private void writeRegion(long key, ArrayList<String> layers, ArrayList<SceneObjectSaveData> saved)
+    {
+        try
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try(ObjectOutputStream output = new ObjectOutputStream(new GZIPOutputStream(bytes)))
+            {
+                output.writeInt(saved.size());
+                for(int i = 0; i < saved.size(); i++)
+                {
+                    output.writeUTF(layers.get(i));
+                    output.writeObject(saved.get(i));
+                }
+            }
+
+            if(this.storageDirectory != null)
+            {
+                try(FileOutputStream file = new FileOutputStream(this.regionFile(key)))
+                {
+                    bytes.writeTo(file);
+                }
+            }
+            else
+                this.regionBlobs.put(key, bytes.toByteArray());
+        }
+        catch(IOException e)
+        {
+            //log error to console
+            Log.error( "Error Writing World Region: " + e.getMessage(),e);
+        }
+    }
+
+    private File regionFile(long key)
+    {
+        return new File(this.storageDirectory, "region_" + (key >> 32) + "_" + (int)key + ".bin");
+    }
+
+    private long regionOf(SylverVector2f position)
+    {
+        return pack((long)Math.floor(position.x / this.regionSize), (long)Math.floor(position.y / this.regionSize));
+    }
+
+    private static long distance(long key, long x, long y)
+    {
+        return Math.max(Math.abs((key >> 32) - x), Math.abs((long)(int)key - y));
+    }
+
+    private static long pack(long x, long y)
+    {
+        return (x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+
+    /**
+     * A region read by the streaming thread, waiting to be added to the scene
+     */
+    private static final class LoadedRegion
+    {
+        private final long key;
+        private final ArrayList<SceneObject> sceneObjects = new ArrayList<>();
+        private final ArrayList<Layer> layers = new ArrayList<>();
+        //true for scene objects that are already in the scene
+        private final ArrayList<Boolean> inScene = new ArrayList<>();
+        //true if the regions blob couldnt be read
+        private boolean readFailed = false;
+
+        private LoadedRegion(long key)
+        {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Save data of the scene objects being written into a region
+     */
+    private static final class RegionData
+    {
+        private final ArrayList<String> layers = new ArrayList<>();
+        private final ArrayList<SceneObjectSaveData> saved = new ArrayList<>();
+    }
+
+}
@@ -10,6 +10,7 @@ import com.silvergobletgames.sylver.netcode.SceneObjectRenderData;
 import com.silvergobletgames.sylver.netcode.SceneObjectRenderDataChanges;
 import com.silvergobletgames.sylver.netcode.SceneObjectSaveData;
 import com.silvergobletgames.sylver.util.LinearInterpolator;
+import com.silvergobletgames.sylver.util.Pool;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
@@ -22,6 +23,9 @@ import java.util.logging.Logger;
 //TODO redo how this class works
 public abstract class AbstractParticleEmitter extends NetworkedSceneObject implements SavableSceneObject
 {
+    //interpolation tracks of the emitters position
+    protected static final int X_TRACK = 0, Y_TRACK = 1;
+    
     //angle of the emitter in degrees
     private float angle;  
     //total duration
@@ -41,6 +45,17 @@ public abstract class AbstractParticleEmitter extends NetworkedSceneObject imple
     //My list of particles
     protected LinkedHashSet<Particle> particles = new LinkedHashSet();
     private static int INDIVIDUAL_MAX_PARTICLES = 1000; //todo make configurable
+    //pool of particles shared by every emitter, see obtainParticle()
+    private static final Pool<Particle> PARTICLE_POOL = new Pool<Particle>("particles", 8192){
+        @Override
+        protected Particle create()
+        {
+            Particle particle = new Particle(new SylverVector2f(), new SylverVector2f(), new SylverVector2f(), new Color(Color.white), 0, 0, 1);
+            particle.originalEmitterPosition = new SylverVector2f();
+            particle.pooled = true;
+            return particle;
+        }
+    };
    
 
     
@@ -59,6 +74,9 @@ public abstract class AbstractParticleEmitter extends NetworkedSceneObject imple
         this.particlesPerFrame = 1f;
         this.angle = 90;
         
+        //emitters only touch their own particles, so they can be updated in parallel
+        this.setThreadConfined(true);
+        
     }
   
     
@@ -83,7 +101,10 @@ public abstract class AbstractParticleEmitter extends NetworkedSceneObject imple
                 if ( particles.size() < INDIVIDUAL_MAX_PARTICLES)
                 {
                     Particle newParticle = buildParticle();
-                    newParticle.originalEmitterPosition = new SylverVector2f(this.getPosition());
+                    if(newParticle.originalEmitterPosition == null)
+                        newParticle.originalEmitterPosition = new SylverVector2f(this.getPosition());
+                    else
+                        newParticle.originalEmitterPosition.set(this.getPosition());
                     particles.add(newParticle);
                     //Add to current particles, and decrement the accumulator
                     accumulator--;
@@ -108,7 +129,11 @@ public abstract class AbstractParticleEmitter extends NetworkedSceneObject imple
             p = (Particle)it.next();
             
             if (p.TTL <= 0)
-                it.remove();         
+            {
+                it.remove();   
+                if(p.pooled)
+                    PARTICLE_POOL.free(p);
+            }
             else
                 p.update();
         }
@@ -122,7 +147,56 @@ public abstract class AbstractParticleEmitter extends NetworkedSceneObject imple
     
     public void removedFromScene()
     {
+        //give the particles back to the pool
+        for(Particle p: this.particles)
+        {
+            if(p.pooled)
+                PARTICLE_POOL.free(p);
+        }
+        this.particles.clear();
+    }
+    
+    /**
+     * Emitters are never concurrently drawable, update() adds and frees the particles that draw() iterates. With
+     * pipelined rendering the render thread draws a copy of the emitter instead, see copyDrawState().
+     * @return false
+     */
+    @Override
+    public final boolean isConcurrentlyDrawable()
+    {
+        return false;
+    }
+    
+    /**
+     * Copies the particles into a render copy of this emitter, since they arent in the render data. The copy keeps
+     * its particles between snapshots and they are overwritten in place, so copying doesnt allocate once the copy 
+     * has as many particles as the emitter.
+     * @param renderCopy render copy of this emitter
+     */
+    @Override
+    public void copyDrawState(NetworkedSceneObject renderCopy)
+    {
+        AbstractParticleEmitter copy = (AbstractParticleEmitter)renderCopy;
+        copy.useRelativeParticles = this.useRelativeParticles;
         
+        //overwrite the copies particles, then add or free the difference
+        Iterator<Particle> copyParticles = copy.particles.iterator();
+        Iterator<Particle> sourceParticles = this.particles.iterator();
+        while(copyParticles.hasNext() && sourceParticles.hasNext())
+            copyParticles.next().copy(sourceParticles.next());
+        while(copyParticles.hasNext())
+        {
+            Particle p = copyParticles.next();
+            copyParticles.remove();
+            if(p.pooled)
+                PARTICLE_POOL.free(p);
+        }
+        while(sourceParticles.hasNext())
+        {
+            Particle p = PARTICLE_POOL.obtain();
+            p.copy(sourceParticles.next());
+            copy.particles.add(p);
+        }
     }
     
     
@@ -155,6 +229,15 @@ public abstract class AbstractParticleEmitter extends NetworkedSceneObject imple
         this.particlesPerFrame = ppf;
     }
     
+    /**
+     * Gets the number of live particles this emitter has
+     * @return live particle count
+     */
+    public int getParticleCount()
+    {
+        return this.particles.size();
+    }
+    
     /**
      * 
      * @return The total duration of the emitter
@@ -245,6 +328,32 @@ public abstract class AbstractParticleEmitter extends NetworkedSceneObject imple
     }
     
     public abstract AbstractParticleEmitter copyEmitter();
+    
+    /**
+     * Gets a particle from the particle pool for buildParticle() to return. The arguments are copied into the
+     * particle, so they can be reused between calls. Pooled particles go back to the pool when they die.
+     * @param pos Initial position of the particle relative to the world
+     * @param velocity Initial velocity of the particle
+     * @param acceleration Initial acceleration of the particle
+     * @param color color of the particle
+     * @param scale scale of the particle
+     * @param growth growth of the particle
+     * @param ttl time until dissipation in game ticks
+     * @return the particle
+     */
+    protected final Particle obtainParticle(SylverVector2f pos, SylverVector2f velocity, SylverVector2f acceleration, Color color, float scale, float growth, int ttl)
+    {
+        Particle particle = PARTICLE_POOL.obtain();
+        particle.position.set(pos);
+        particle.velocity.set(velocity);
+        particle.acceleration.set(acceleration);
+        particle.color.r = color.r;
+        particle.color.g = color.g;
+        particle.color.b = color.b;
+        particle.color.a = color.a;
+        particle.init(scale, growth, ttl);
+        return particle;
+    }
   
     
     //====================
@@ -298,6 +407,9 @@ public abstract class AbstractParticleEmitter extends NetworkedSceneObject imple
         protected int TTL;
 
         protected SylverVector2f originalEmitterPosition;
+        
+        //if the particle belongs to the particle pool
+        private boolean pooled;
 
         /**
          * A particle emitted by the particle emitter
@@ -318,11 +430,38 @@ public abstract class AbstractParticleEmitter extends NetworkedSceneObject imple
             this.acceleration = acceleration;
             this.growth = growth;
             this.color = color;
+            this.init(scale, growth, ttl);
+            
+        }
+        
+        private void init(float scale, float growth, int ttl)
+        {
+            this.growth = growth;
             this.scale = scale;
             TTL = ttl;
             this.fadeStart = TTL/4;
             this.fade = color.a/((float)TTL/4);
-            
+        }
+
+        /**
+         * Copies the state of another particle into this one
+         */
+        private void copy(Particle other)
+        {
+            this.position.set(other.position);
+            this.velocity.set(other.velocity);
+            this.acceleration.set(other.acceleration);
+            this.scale = other.scale;
+            this.growth = other.growth;
+            this.fadeStart = other.fadeStart;
+            this.fade = other.fade;
+            this.color.r = other.color.r;
+            this.color.g = other.color.g;
+            this.color.b = other.color.b;
+            this.color.a = other.color.a;
+            this.TTL = other.TTL;
+            if(other.originalEmitterPosition != null)
+                this.originalEmitterPosition.set(other.originalEmitterPosition);
         }
 
         /**
@@ -1,7 +1,9 @@
 
 package com.silvergobletgames.sylver.graphics;
 
+import com.silvergobletgames.sylver.util.SylverRandom;
 import java.io.Serializable;
+import java.util.Random;
 import javax.media.opengl.GL2;
 import javax.media.opengl.GL3bc;
 
@@ -129,9 +131,19 @@ public class Color implements Serializable
      * @return 
      */
     public static Color random(float min) {
-        float r = min + (float) Math.random() * (1f - min);
-        float g = min + (float) Math.random() * (1f - min);
-        float b = min + (float) Math.random() * (1f - min);
+        return random(SylverRandom.random, min);
+    }
+
+    /**
+     * Returns a random color drawn from the given generator, use the scenes generator for deterministic scenes.
+     * @param random generator to draw from
+     * @param min Minimum value of rgb
+     * @return 
+     */
+    public static Color random(Random random, float min) {
+        float r = min + random.nextFloat() * (1f - min);
+        float g = min + random.nextFloat() * (1f - min);
+        float b = min + random.nextFloat() * (1f - min);
         return new Color(r, g, b, 1.0f);
     }
 
@@ -139,7 +151,14 @@ public class Color implements Serializable
      * Returns a random grayscale
      */
     public static Color randomGray(float min) {
-        float rgb = min + (float) Math.random() * (1f - min);
+        return randomGray(SylverRandom.random, min);
+    }
+
+    /**
+     * Returns a random grayscale drawn from the given generator
+     */
+    public static Color randomGray(Random random, float min) {
+        float rgb = min + random.nextFloat() * (1f - min);
         return new Color(rgb, rgb, rgb, 1);
     }
 
@@ -4,6 +4,7 @@ package com.silvergobletgames.sylver.graphics;
 import com.jogamp.opengl.util.texture.Texture;
 import com.silvergobletgames.sylver.core.Game;
 import com.silvergobletgames.sylver.core.SceneObject;
+import com.silvergobletgames.sylver.core.SceneSnapshotRing;
 import com.silvergobletgames.sylver.netcode.NetworkedSceneObject;
 import com.silvergobletgames.sylver.netcode.SavableSceneObject;
 import com.silvergobletgames.sylver.netcode.SceneObjectRenderData;
@@ -86,6 +87,7 @@ public class DarkSource extends NetworkedSceneObject implements SavableSceneObje
     {
         this.width = x;
         this.height = y;
+        this.boundsChanged();
     }
     
     public Texture getTexture()
@@ -123,6 +125,19 @@ public class DarkSource extends NetworkedSceneObject implements SavableSceneObje
         return renderData;
     }
     
+    @Override
+    public void writeSnapshot(SceneSnapshotRing.SnapshotWriter writer)
+    {
+        //same values as dumpRenderData(), written without building the list
+        writer.beginRenderData(CoreClasses.DARKSOURCE, this.ID, 6);
+        writer.writeFloat(this.getPosition().x);
+        writer.writeFloat(this.getPosition().y);
+        writer.writeValue(this.ref);
+        writer.writeFloat(this.width);
+        writer.writeFloat(this.height);
+        writer.writeFloat(this.intensity);
+    }
+    
     public static DarkSource buildFromRenderData(SceneObjectRenderData renderData)
     {
         
@@ -1,5 +1,6 @@
 package com.silvergobletgames.sylver.graphics;
 
+import com.silvergobletgames.sylver.core.EffectList;
 import com.jogamp.common.nio.Buffers;
 import com.jogamp.opengl.util.glsl.ShaderProgram;
 import com.jogamp.opengl.util.texture.Texture;
@@ -7,13 +8,15 @@ import com.jogamp.opengl.util.texture.TextureCoords;
 import com.silvergobletgames.sylver.core.Game;
 import com.silvergobletgames.sylver.core.SceneObject;
 import com.silvergobletgames.sylver.core.SceneObjectManager;
+import com.silvergobletgames.sylver.core.SceneSnapshotRing;
+import com.silvergobletgames.sylver.core.StateHasher;
 import com.silvergobletgames.sylver.graphics.AnimationPack.CoreAnimations;
 import com.silvergobletgames.sylver.graphics.AnimationPack.DefaultAnimationPack;
 import com.silvergobletgames.sylver.graphics.AnimationPack.ImageAnimation;
 import com.silvergobletgames.sylver.graphics.ImageEffect.ImageEffectType;
 import com.silvergobletgames.sylver.netcode.*;
-import com.silvergobletgames.sylver.util.LinearInterpolator;
 import com.silvergobletgames.sylver.util.Log;
+import com.silvergobletgames.sylver.util.EventChannel;
 import com.silvergobletgames.sylver.util.SerializableEntry;
 import java.awt.Point;
 import java.nio.ByteBuffer;
@@ -22,7 +25,6 @@ import java.nio.IntBuffer;
 import java.util.*;
 import javax.media.opengl.GL2;
 import javax.media.opengl.GL3bc;
-import javax.swing.event.EventListenerList;
 import com.silvergobletgames.sylver.util.SylverVector2f;
 import java.util.Map.Entry;
 import java.util.logging.ConsoleHandler;
@@ -33,6 +35,9 @@ import java.util.logging.Logger;
 public class Image extends NetworkedSceneObject implements SavableSceneObject, Anchorable
 {
   
+    //interpolation tracks
+    private static final int X_TRACK = 0, Y_TRACK = 1, ANGLE_TRACK = 2;
+    
     //the OpenGL texture reference 
     private Texture texture;
     //name of the resource path to the current texture 
@@ -79,11 +84,18 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
     //true if the image should be flipped vertically 
     private boolean flippedVertical = false;
     //the map of ImageEffects
-    private HashMap<String,ImageEffect> imageEffects = new HashMap<>();
+    private EffectList<ImageEffect> imageEffects = new EffectList<>();
     //the map of overlays
-    protected HashMap<String, Overlay> imageOverlays = new HashMap<>();
-    //the list of things that are listening to this Image 
-    private EventListenerList listenerList = new EventListenerList();
+    protected LinkedHashMap<String, Overlay> imageOverlays = new LinkedHashMap<>();
+    //delivers finished animating events to animation listeners
+    private static final EventChannel.Dispatcher<AnimationListener, ImageAnimation> ANIMATION_DISPATCHER = new EventChannel.Dispatcher<AnimationListener, ImageAnimation>(){
+        public void dispatch(AnimationListener listener, Object source, ImageAnimation animation)
+        {
+            listener.finishedAnimating((Image)source, animation);
+        }
+    };
+    //the things that are listening to this Image, created when the first listener is added
+    private EventChannel<AnimationListener, ImageAnimation> animationChannel;
     //will this image cull alpha
     private boolean alphaCulling = true;
     
@@ -165,26 +177,7 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
     public void update()
     {                            
         //update ImageEffects and remove them if expired   
-        for (Iterator<Entry<String,ImageEffect>> it = this.imageEffects.entrySet().iterator(); it.hasNext();) 
-        {
-            //get image effect from iterator
-            Entry<String,ImageEffect> entry = it.next();
-            ImageEffect effect = entry.getValue();
-            
-            //update the effect
-            effect.update();  
-            
-            //if expired, remove it
-            if(effect.isExpired())
-            {   
-                //remove
-                it.remove();
-                
-                //fire effects on remove
-                effect.onRemove(); 
-                                
-            }
-        }
+        this.imageEffects.update();
         
         //remove expired overlays       
         for(Iterator<Entry<String,Overlay>> it = this.imageOverlays.entrySet().iterator(); it.hasNext();)
@@ -435,6 +428,7 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
     public void setPosition(float x, float y) 
     {
         this.position.set(x,y);
+        this.boundsChanged();
         
         //set overlay positions
         Set<String> overlayKeys = this.imageOverlays.keySet();
@@ -458,6 +452,19 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
         
     }
     
+    public void hashState(StateHasher hasher)
+    {
+        super.hashState(hasher);
+        hasher.mix(this.angle);
+        hasher.mix(this.width);
+        hasher.mix(this.height);
+        hasher.mix(this.scale);
+        hasher.mix(this.brightness);
+        hasher.mix(this.alphaBrightness);
+        hasher.mix(this.index);
+        hasher.mix(this.frameCounter);
+    }
+    
     
     
     //===================
@@ -491,7 +498,7 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
         if(this.hasImageEffectType(effect.renderEffectType) == false)
         {
             //add the effect
-            this.imageEffects.put(name,effect);
+            this.imageEffects.put(name,effect,effect.renderEffectType.ordinal());
 
             //set the render effects owning image
             effect.setOwningImage(this);
@@ -511,17 +518,9 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
     public void removeImageEffect(ImageEffect effect)
     {
         //remove the effect
-        for(String key:this.imageEffects.keySet())
-        {
-           ImageEffect keyEffect = this.imageEffects.get(key);
-           
-           if(keyEffect == effect)
-           {
-               this.removeImageEffect(key);
-               return;
-           }
-               
-        }
+        int index = this.imageEffects.indexOf(effect);
+        if(index != -1)
+            this.removeImageEffect(this.imageEffects.getName(index));
     }
     
     /**
@@ -535,7 +534,10 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
         
         //tell the effect that it was removed
         if(effect != null)
+        {
             effect.onRemove();   
+            effect.release();
+        }
       
     }
     
@@ -545,8 +547,11 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
     public void removeAllImageEffects() 
     {
         //call onRemove() for all the effects
-        for (ImageEffect effect: imageEffects.values())         
-            effect.onRemove();
+        for (int i = 0; i < imageEffects.size(); i++)         
+        {
+            imageEffects.get(i).onRemove();
+            imageEffects.get(i).release();
+        }
         
         //clear the list
         imageEffects.clear();
@@ -555,28 +560,29 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
     
     public boolean hasImageEffect(String name)
     {
-        return this.imageEffects.containsKey(name);
+        return this.imageEffects.containsName(name);
     }
     
     public boolean hasImageEffectType(ImageEffectType type)
     {
-        for(ImageEffect effect: this.imageEffects.values())
+        //only one effect of each of these types can be applied, the other types can be stacked
+        switch(type)
         {
-            switch(type)
-            {
-                case WIDTH: if(effect.renderEffectType.equals(ImageEffectType.WIDTH)){return true;} break;
-                case HEIGHT: if(effect.renderEffectType.equals(ImageEffectType.HEIGHT)){return true;} break;
-                case XTRANSLATE: if(effect.renderEffectType.equals(ImageEffectType.XTRANSLATE)){return true;} break;
-                case YTRANSLATE: if(effect.renderEffectType.equals(ImageEffectType.YTRANSLATE)){return true;} break;
-                case ROTATION: if(effect.renderEffectType.equals(ImageEffectType.ROTATION)){return true;} break;
-                case SCALE: if(effect.renderEffectType.equals(ImageEffectType.SCALE)){return true;} break;
-                case COLOR: if(effect.renderEffectType.equals(ImageEffectType.COLOR)){return true;} break;
-                case BRIGHTNESS: if(effect.renderEffectType.equals(ImageEffectType.BRIGHTNESS)){return true;} break;
-            }
+            case WIDTH: case HEIGHT: case XTRANSLATE: case YTRANSLATE: case ROTATION: case SCALE: case COLOR: case BRIGHTNESS:
+                return this.imageEffects.hasType(type.ordinal());
         }
         return false;
     }
     
+    /**
+     * Gets the number of image effects currently applied to this image
+     * @return image effect count
+     */
+    public int getImageEffectCount()
+    {
+        return this.imageEffects.size();
+    }
+    
     
     /**
      * Adds an image overlay to this image with an explicit key.
@@ -659,21 +665,8 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
      */
     private void fireFinishedAnimatingEvent() 
     {
-        
-        Object[] listeners = listenerList.getListenerList();
-        ImageAnimation e = null;
-
-        for (int i = listeners.length - 2; i >= 0; i -= 2) 
-        {
-            if (listeners[i] == AnimationListener.class) 
-            {
-                if (e == null) 
-                {
-                    e = currentAnimation;
-                }
-                ((AnimationListener) listeners[i + 1]).finishedAnimating(this,e);
-            }
-        }
+        if(this.animationChannel != null)
+            this.animationChannel.fire(this, currentAnimation);
     }
 
     
@@ -714,6 +707,7 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
         //sets width and height
         width = texture.getImageWidth();
         height = texture.getImageHeight();
+        this.boundsChanged();
     }
     
      /**
@@ -846,6 +840,7 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
     public void setScale(float s)
     {
         this.scale = s;
+        this.boundsChanged();
     }
 
     /**
@@ -931,6 +926,7 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
     {
         width = x;
         height = y;
+        this.boundsChanged();
     }
     
     public SylverVector2f getDimensions()
@@ -988,8 +984,8 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
         imageCopy.flippedVertical = this.flippedVertical;
         
         //adds a copy of the renderEffects to the new image
-        for (String key: this.imageEffects.keySet())       
-            imageCopy.addImageEffect(key, this.imageEffects.get(key).copy());
+        for (int i = 0; i < this.imageEffects.size(); i++)       
+            imageCopy.addImageEffect(this.imageEffects.getName(i), this.imageEffects.get(i).copy());
         
         //adds a copy of the overlays to the new image
         for(String overlayKey: this.imageOverlays.keySet())
@@ -1042,17 +1038,29 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
 
     public void addAnimationListener(AnimationListener l) 
     {
-        listenerList.add(AnimationListener.class, l);
+        this.getAnimationChannel().addListener(l);
     }
 
     public void removeAnimationListener(AnimationListener l) 
     {
-        listenerList.remove(AnimationListener.class, l);
+        if(this.animationChannel != null)
+            this.animationChannel.removeListener(l);
     }
 
     public AnimationListener[] getAnimationListeners() 
     {
-        return listenerList.getListeners(AnimationListener.class);
+        return this.getAnimationChannel().getListeners();
+    }
+    
+    /**
+     * Gets the channel finished animating events are fired on, for example to batch it onto an EventBus
+     * @return the animation channel
+     */
+    public EventChannel<AnimationListener, ImageAnimation> getAnimationChannel()
+    {
+        if(this.animationChannel == null)
+            this.animationChannel = new EventChannel<>(AnimationListener.class, ANIMATION_DISPATCHER);
+        return this.animationChannel;
     }
      
     
@@ -1093,8 +1101,8 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
          
          //render data for all the effects
          ArrayList<SerializableEntry> renderEffectData = new ArrayList();
-         for(String key: this.imageEffects.keySet()){
-             renderEffectData.add(new SerializableEntry(key,this.imageEffects.get(key).dumpRenderData()));
+         for(int i = 0; i < this.imageEffects.size(); i++){
+             renderEffectData.add(new SerializableEntry(this.imageEffects.getName(i),this.imageEffects.get(i).dumpRenderData()));
          }
          renderData.data.add(20,renderEffectData);
                 
@@ -1102,6 +1110,48 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
         
      }
      
+     @Override
+     public void writeSnapshot(SceneSnapshotRing.SnapshotWriter writer)
+     {
+         //same values as dumpRenderData(), written without building the lists
+         writer.beginRenderData(CoreClasses.IMAGE, this.ID, 21);
+         writer.writeValue(this.textureRef);
+         writer.writeFloat(this.width);
+         writer.writeFloat(this.height);
+         writer.writeFloat(this.getPosition().x);
+         writer.writeFloat(this.getPosition().y);
+         writer.writeFloat(this.angle);
+         writer.writeFloat(this.scale);
+         writer.writeValue(this.animationPack != null ? this.animationPack.getClass() : null);
+         writer.writeValue(this.color);
+         writer.writeBoolean(this.isFlippedHorizontal());
+         writer.writeBoolean(this.isFlippedVertical());
+         writer.writeValue(this.vertexRef);
+         writer.writeValue(this.fragRef);
+         writer.writeFloat(this.alphaBrightness);
+         writer.writeValue(this.currentAnimation);
+         writer.writeFloat(this.brightness);
+         writer.writeValue(this.anchor);
+         writer.writeFloat(this.rotationPoint.x);
+         writer.writeFloat(this.rotationPoint.y);
+         
+         writer.beginList(this.imageOverlays.size());
+         for(Map.Entry<String, Overlay> overlay: this.imageOverlays.entrySet())
+         {
+             writer.beginEntry();
+             writer.writeValue(overlay.getKey());
+             writer.writeValue(overlay.getValue().dumpRenderData());
+         }
+         
+         writer.beginList(this.imageEffects.size());
+         for(int i = 0; i < this.imageEffects.size(); i++)
+         {
+             writer.beginEntry();
+             writer.writeValue(this.imageEffects.getName(i));
+             writer.writeValue(this.imageEffects.get(i).dumpRenderData());
+         }
+     }
+     
      public static Image buildFromRenderData(SceneObjectRenderData renderData)
      {
                
@@ -1349,35 +1399,10 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
         }
                          
 
-        //x position interpolator
-        if(changeData.get(3) != null)
-        {
-            float startPosition=  interpolators.containsKey("xPosition")? (float)interpolators.get("xPosition").getB() : this.getPosition().x;          
-            LinearInterpolator lerp1= new LinearInterpolator(startPosition,(float)changeData.get(3),lastTime,futureTime);
-            this.interpolators.put("xPosition",lerp1);
-        }
-        else
-            this.interpolators.remove("xPosition");
-
-        //y position interpolator
-        if(changeData.get(4) != null)
-        {
-            float startPosition=  interpolators.containsKey("yPosition")? (float)interpolators.get("yPosition").getB() : this.getPosition().y;
-            LinearInterpolator lerp2= new LinearInterpolator(startPosition,(float)changeData.get(4),lastTime,futureTime);
-            this.interpolators.put("yPosition",lerp2);
-        }
-        else
-            this.interpolators.remove("yPosition");
-
-        //angle interpolator
-        if(changeData.get(5) != null)
-        {
-            float startPosition=  interpolators.containsKey("angle")? (float)interpolators.get("angle").getB() : this.getAngle();
-            LinearInterpolator lerp3= new LinearInterpolator(startPosition,(float)changeData.get(5),lastTime,futureTime);
-            this.interpolators.put("angle", lerp3);
-        }
-        else
-            this.interpolators.remove("angle");
+        //position and angle interpolation
+        this.interpolateTrack(X_TRACK, changeData.get(3), this.getPosition().x, lastTime, futureTime);
+        this.interpolateTrack(Y_TRACK, changeData.get(4), this.getPosition().y, lastTime, futureTime);
+        this.interpolateTrack(ANGLE_TRACK, changeData.get(5), this.getAngle(), lastTime, futureTime);
          
 
         //reconcile data
@@ -1476,24 +1501,24 @@ public class Image extends NetworkedSceneObject implements SavableSceneObject, A
      
      public void interpolate(long currentTime)
      {
-        if(!this.interpolators.isEmpty())
+        if(this.isInterpolating())
         {
             //interpolate x and y positions
             float x = this.getPosition().x;
             float y = this.getPosition().y;
 
-            if(this.interpolators.containsKey("xPosition"))             
-                x = (float)this.interpolators.get("xPosition").interp(currentTime);
+            if(this.isInterpolatingTrack(X_TRACK))             
+                x = this.interpolatedValue(X_TRACK, currentTime);
             
-            if(this.interpolators.containsKey("yPosition"))
-               y = (float)this.interpolators.get("yPosition").interp(currentTime);   
+            if(this.isInterpolatingTrack(Y_TRACK))
+               y = this.interpolatedValue(Y_TRACK, currentTime);   
 
             this.setPosition(x, y);
 
             //interpolate angle
-            if(this.interpolators.containsKey("angle"))
+            if(this.isInterpolatingTrack(ANGLE_TRACK))
             {
-                float newangle = (float)this.interpolators.get("angle").interp(currentTime);  
+                float newangle = this.interpolatedValue(ANGLE_TRACK, currentTime);  
                 this.setAngle(newangle);
             }
         }
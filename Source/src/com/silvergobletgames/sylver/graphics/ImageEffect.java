@@ -2,9 +2,9 @@ package com.silvergobletgames.sylver.graphics;
 
 import com.silvergobletgames.sylver.core.Effect;
 import com.silvergobletgames.sylver.netcode.RenderData;
-import com.silvergobletgames.sylver.util.LinearInterpolator;
+import com.silvergobletgames.sylver.util.Pool;
+import com.silvergobletgames.sylver.util.TweenEngine;
 import java.security.InvalidParameterException;
-import java.util.HashMap;
 import com.silvergobletgames.sylver.util.SylverVector2f;
 
 /**
@@ -17,6 +17,28 @@ public class ImageEffect extends Effect
     protected Image owningImage;
     //the type of render effect that this is
     protected ImageEffectType renderEffectType;
+    //pool of image effects for obtain(), see Effect.release()
+    private static final Pool<ImageEffect> POOL = new Pool<ImageEffect>("imageEffects", 1024){
+        @Override
+        protected ImageEffect create()
+        {
+            return new ImageEffect();
+        }
+        
+        @Override
+        protected void reset(ImageEffect effect)
+        {
+            effect.owningImage = null;
+            effect.start = null;
+            effect.end = null;
+            effect.repeat = false;
+            effect.delay = 0;
+            effect.name = null;
+            effect.timeElapsed = 0;
+            effect.expired = false;
+            effect.setEasing(TweenEngine.Easing.LINEAR);
+        }
+    };
     //start value
     private Object start;
     //end value
@@ -25,8 +47,6 @@ public class ImageEffect extends Effect
     protected boolean repeat;
     //start delay
     protected int delay;
-    //interpolators
-    protected HashMap<String,LinearInterpolator> interpolators = new HashMap<>(); 
     
     //render effect type enum
     public static enum ImageEffectType{
@@ -63,29 +83,51 @@ public class ImageEffect extends Effect
         }
         catch(ClassCastException e){ throw new InvalidParameterException("Input array is of the wrong type");}
         
+        this.init(type, duration, start, end);
+    }
+    
+    /**
+     * Gets an ImageEffect from the effect pool. Pooled effects go back to the pool when the image removes them,
+     * so they must not be kept or reused after that.
+     * @param type type of the effect
+     * @param duration duration of the effect
+     * @param start start value
+     * @param end end value
+     * @return the ImageEffect
+     */
+    public static ImageEffect obtain(ImageEffectType type, int duration, Object start, Object end)
+    {
+        //test to see if input is the correct type
+        try
+        {
+            type.type.cast(start);
+            type.type.cast(end);
+        }
+        catch(ClassCastException e){ throw new InvalidParameterException("Input array is of the wrong type");}
+        
+        ImageEffect effect = POOL.obtain();
+        effect.init(type, duration, start, end);
+        effect.setPool(POOL);
+        return effect;
+    }
+    
+    private void init(ImageEffectType type, int duration, Object start, Object end)
+    {
         this.renderEffectType = type;         
         this.duration = duration; 
         this.start = start;
         this.end = end;
         
         
-        //set up the interpolators
+        //set up the tween tracks
         if(type != ImageEffectType.COLOR)
-        {
-           LinearInterpolator interpolator = new LinearInterpolator(((Number)start).floatValue(), ((Number)end).floatValue(), 1, duration);
-           interpolators.put("interpolator", interpolator);
-        }
+            this.setTrack(VALUE_TRACK, ((Number)start).floatValue(), ((Number)end).floatValue(), duration);
         else
         {
-            
-            LinearInterpolator r = new LinearInterpolator(((Color)start).r, ((Color)end).r, 1, duration);
-            LinearInterpolator g = new LinearInterpolator(((Color)start).g, ((Color)end).g, 1, duration);
-            LinearInterpolator b = new LinearInterpolator(((Color)start).b, ((Color)end).b, 1, duration);
-            LinearInterpolator a = new LinearInterpolator(((Color)start).a, ((Color)end).a, 1, duration);
-            interpolators.put("r", r);
-            interpolators.put("g", g);
-            interpolators.put("b", b);
-            interpolators.put("a", a);
+            this.setTrack(RED_TRACK, ((Color)start).r, ((Color)end).r, duration);
+            this.setTrack(GREEN_TRACK, ((Color)start).g, ((Color)end).g, duration);
+            this.setTrack(BLUE_TRACK, ((Color)start).b, ((Color)end).b, duration);
+            this.setTrack(ALPHA_TRACK, ((Color)start).a, ((Color)end).a, duration);
         }
     }
 
@@ -140,33 +182,36 @@ public class ImageEffect extends Effect
         ImageEffect returnCopy = new ImageEffect(this.renderEffectType,duration,this.start,this.end);
         returnCopy.repeat = this.repeat;
         returnCopy.delay = this.delay;
+        returnCopy.setEasing(this.getEasing());
         
         return returnCopy;
     }
     
     private void adjustImage()
     {
+        this.advanceTracks(timeElapsed);
+        
         //switch through the different types of effects doing the correct adjustments     
         switch(renderEffectType)
         {
             case BRIGHTNESS: 
             {   
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningImage.setBrightness(adjustmentValue);
                 break;
             }
             case ALPHABRIGHTNESS: 
             {   
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningImage.setAlphaBrightness(adjustmentValue);
                 break;
             }
             case COLOR:
             {
-                float r = (float)interpolators.get("r").interp(timeElapsed);
-                float g = (float)interpolators.get("g").interp(timeElapsed);
-                float b = (float)interpolators.get("b").interp(timeElapsed);
-                float a = (float)interpolators.get("a").interp(timeElapsed);          
+                float r = this.getTrackValue(RED_TRACK);
+                float g = this.getTrackValue(GREEN_TRACK);
+                float b = this.getTrackValue(BLUE_TRACK);
+                float a = this.getTrackValue(ALPHA_TRACK);          
                 owningImage.setColor(new Color(r,g,b,a));              
                 break;
             } 
@@ -176,25 +221,25 @@ public class ImageEffect extends Effect
             }
             case ROTATION: 
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningImage.setAngle(adjustmentValue);
                 break;
             }
             case XTRANSLATE: 
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningImage.setPosition(adjustmentValue,owningImage.getPosition().y);
                  break;
             }
             case YTRANSLATE:
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningImage.setPosition(owningImage.getPosition().x,adjustmentValue);
                 break;
             } 
             case XOVERLAYTRANSLATE:
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 if(!owningImage.imageOverlays.values().isEmpty())
                 {
                     Overlay lay = (Overlay)owningImage.getOverlay("interact");
@@ -204,7 +249,7 @@ public class ImageEffect extends Effect
             }
             case YOVERLAYTRANSLATE:
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 if(!owningImage.imageOverlays.values().isEmpty())
                 {
                     Overlay lay = (Overlay)owningImage.getOverlay("interact");
@@ -214,19 +259,19 @@ public class ImageEffect extends Effect
             }
             case SCALE: 
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningImage.setScale(adjustmentValue);
                 break;
             } 
             case WIDTH:
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningImage.setDimensions(adjustmentValue,owningImage.getDimensions().y);
                 break;
             }
             case HEIGHT:
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningImage.setDimensions(owningImage.getDimensions().x,adjustmentValue);
                 break;
             }
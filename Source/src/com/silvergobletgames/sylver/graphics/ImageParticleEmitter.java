@@ -7,7 +7,6 @@ import com.silvergobletgames.sylver.graphics.ConcreteParticleEmitters.SparkEmitt
 import com.silvergobletgames.sylver.netcode.SceneObjectRenderData;
 import com.silvergobletgames.sylver.netcode.SceneObjectRenderDataChanges;
 import com.silvergobletgames.sylver.netcode.SceneObjectSaveData;
-import com.silvergobletgames.sylver.util.LinearInterpolator;
 import com.silvergobletgames.sylver.util.Log;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
@@ -310,27 +309,11 @@ public abstract class ImageParticleEmitter extends AbstractParticleEmitter
               
         //if its a fresh packet, build the interpolators for position
         //clear old interpolators
-        this.interpolators.clear();
+        this.clearInterpolation();
 
-        //x position interpolator
-        if(changeData.get(0) != null)
-        {
-            float startPosition=  interpolators.containsKey("xPosition")? (float)interpolators.get("xPosition").getB() : this.getPosition().x;          
-            LinearInterpolator lerp1= new LinearInterpolator(startPosition,(float)changeData.get(0),lastTime,futureTime);
-            this.interpolators.put("xPosition",lerp1);
-        }
-        else
-            this.interpolators.remove("xPosition");
-
-        //y position interpolator
-        if(changeData.get(1) != null)
-        {
-            float startPosition=  interpolators.containsKey("yPosition")? (float)interpolators.get("yPosition").getB() : this.getPosition().y;
-            LinearInterpolator lerp2= new LinearInterpolator(startPosition,(float)changeData.get(1),lastTime,futureTime);
-            this.interpolators.put("yPosition",lerp2);
-        }
-        else
-            this.interpolators.remove("yPosition");
+        //position interpolation
+        this.interpolateTrack(X_TRACK, changeData.get(0), this.getPosition().x, lastTime, futureTime);
+        this.interpolateTrack(Y_TRACK, changeData.get(1), this.getPosition().y, lastTime, futureTime);
         
             
         if(changeData.get(2) != null && (Boolean)changeData.get(2))
@@ -354,16 +337,16 @@ public abstract class ImageParticleEmitter extends AbstractParticleEmitter
     
     public void interpolate(long currentTime)
     {
-        if(!this.interpolators.isEmpty())
+        if(this.isInterpolating())
         {
             //interpolate x and y positions
             float x = this.getPosition().x;
             float y = this.getPosition().y;
-            if(this.interpolators.containsKey("xPosition"))// && currentTime <= this.interpolators.get("xPosition").getb())
-                x = (float)this.interpolators.get("xPosition").interp(currentTime);
+            if(this.isInterpolatingTrack(X_TRACK))
+                x = this.interpolatedValue(X_TRACK, currentTime);
 
-            if(this.interpolators.containsKey("yPosition"))// && currentTime <= this.interpolators.get("yPosition").getb())
-                y = (float)this.interpolators.get("yPosition").interp(currentTime);
+            if(this.isInterpolatingTrack(Y_TRACK))
+                y = this.interpolatedValue(Y_TRACK, currentTime);
 
             this.setPosition(x,y);
         }
@@ -2,9 +2,9 @@ package com.silvergobletgames.sylver.graphics;
 
 import com.silvergobletgames.sylver.core.Effect;
 import com.silvergobletgames.sylver.netcode.RenderData;
-import com.silvergobletgames.sylver.util.LinearInterpolator;
+import com.silvergobletgames.sylver.util.Pool;
+import com.silvergobletgames.sylver.util.TweenEngine;
 import java.security.InvalidParameterException;
-import java.util.HashMap;
 import com.silvergobletgames.sylver.util.SylverVector2f;
 
 /**
@@ -17,6 +17,28 @@ public class LightEffect extends Effect
     protected LightSource owningLight;
     //the type of render effect that this is
     protected LightEffect.LightEffectType lightEffectType;
+    //pool of light effects for obtain(), see Effect.release()
+    private static final Pool<LightEffect> POOL = new Pool<LightEffect>("lightEffects", 256){
+        @Override
+        protected LightEffect create()
+        {
+            return new LightEffect();
+        }
+        
+        @Override
+        protected void reset(LightEffect effect)
+        {
+            effect.owningLight = null;
+            effect.start = null;
+            effect.end = null;
+            effect.repeat = false;
+            effect.delay = 0;
+            effect.name = null;
+            effect.timeElapsed = 0;
+            effect.expired = false;
+            effect.setEasing(TweenEngine.Easing.LINEAR);
+        }
+    };
     //start value
     private Object start;
     //end value
@@ -25,8 +47,6 @@ public class LightEffect extends Effect
     protected boolean repeat;
     //delay
     protected int delay;
-    //interpolators
-    protected HashMap<String,LinearInterpolator> interpolators = new HashMap<>(); 
     
     //render effect type enum
     public static enum LightEffectType{
@@ -60,25 +80,49 @@ public class LightEffect extends Effect
         }
         catch(ClassCastException e){ throw new InvalidParameterException("Input array is of the wrong type");}
         
+        this.init(type, duration, start, end);
+    }
+    
+    /**
+     * Gets a LightEffect from the effect pool. Pooled effects go back to the pool when the light removes them,
+     * so they must not be kept or reused after that.
+     * @param type type of the effect
+     * @param duration duration of the effect
+     * @param start start value
+     * @param end end value
+     * @return the LightEffect
+     */
+    public static LightEffect obtain(LightEffect.LightEffectType type, int duration, Object start, Object end)
+    {
+        //test to see if input is the correct type
+        try
+        {
+            type.type.cast(start);
+            type.type.cast(end);
+        }
+        catch(ClassCastException e){ throw new InvalidParameterException("Input array is of the wrong type");}
+        
+        LightEffect effect = POOL.obtain();
+        effect.init(type, duration, start, end);
+        effect.setPool(POOL);
+        return effect;
+    }
+    
+    private void init(LightEffect.LightEffectType type, int duration, Object start, Object end)
+    {
         this.lightEffectType = type;         
         this.duration = duration; 
         this.start = start;
         this.end = end;
         
-        //set up the interpolators
+        //set up the tween tracks
         if(type != LightEffect.LightEffectType.COLOR)
-        {
-           LinearInterpolator interpolator = new LinearInterpolator(((Number)start).floatValue(), ((Number)end).floatValue(), 1, duration);
-           interpolators.put("interpolator", interpolator);
-        }
+            this.setTrack(VALUE_TRACK, ((Number)start).floatValue(), ((Number)end).floatValue(), duration);
         else
         {
-            LinearInterpolator r = new LinearInterpolator(((Color)start).r, ((Color)end).r, 1, duration);
-            LinearInterpolator g = new LinearInterpolator(((Color)start).g, ((Color)end).g, 1, duration);
-            LinearInterpolator b = new LinearInterpolator(((Color)start).b, ((Color)end).b, 1, duration);
-            interpolators.put("r", r);
-            interpolators.put("g", g);
-            interpolators.put("b", b);
+            this.setTrack(RED_TRACK, ((Color)start).r, ((Color)end).r, duration);
+            this.setTrack(GREEN_TRACK, ((Color)start).g, ((Color)end).g, duration);
+            this.setTrack(BLUE_TRACK, ((Color)start).b, ((Color)end).b, duration);
         }
     }
 
@@ -128,25 +172,29 @@ public class LightEffect extends Effect
 
     public LightEffect copy()
     {
-        return new LightEffect(this.lightEffectType,duration,this.start,this.end);
+        LightEffect returnCopy = new LightEffect(this.lightEffectType,duration,this.start,this.end);
+        returnCopy.setEasing(this.getEasing());
+        return returnCopy;
     }
     
     private void adjustLight()
     {
+        this.advanceTracks(timeElapsed);
+        
         //switch through the different types of effects doing the correct adjustments     
         switch(lightEffectType)
         {
             case SIZE: 
             {   
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningLight.setSize(adjustmentValue);
                 break;
             }
             case COLOR:
             {
-                float r = (float)interpolators.get("r").interp(timeElapsed);
-                float g = (float)interpolators.get("g").interp(timeElapsed);
-                float b = (float)interpolators.get("b").interp(timeElapsed);      
+                float r = this.getTrackValue(RED_TRACK);
+                float g = this.getTrackValue(GREEN_TRACK);
+                float b = this.getTrackValue(BLUE_TRACK);      
                 owningLight.setColor(new Color(r,g,b));              
                 break;
             } 
@@ -156,19 +204,19 @@ public class LightEffect extends Effect
             }
             case INTENSITY: 
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningLight.setIntensity(adjustmentValue);
                 break;
             }
             case RADIUS: 
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningLight.setConicalRadius(adjustmentValue);
                 break;
             }
             case DIRECTION:
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningLight.setDirection(adjustmentValue);
                 break;
             }
@@ -1,10 +1,12 @@
 package com.silvergobletgames.sylver.graphics;
 
+import com.silvergobletgames.sylver.core.EffectList;
 import com.silvergobletgames.sylver.core.SceneObject;
 import com.silvergobletgames.sylver.core.SceneObjectManager;
+import com.silvergobletgames.sylver.core.SceneSnapshotRing;
+import com.silvergobletgames.sylver.core.StateHasher;
 import com.silvergobletgames.sylver.graphics.LightEffect.LightEffectType;
 import com.silvergobletgames.sylver.netcode.*;
-import com.silvergobletgames.sylver.util.LinearInterpolator;
 import com.silvergobletgames.sylver.util.SerializableEntry;
 import java.awt.Point;
 import java.util.ArrayList;
@@ -19,6 +21,9 @@ import java.util.Map;
 public class LightSource extends NetworkedSceneObject implements SavableSceneObject
 {
     
+    //interpolation tracks
+    private static final int X_TRACK = 0, Y_TRACK = 1, DIRECTION_TRACK = 2;
+    
     private float size;
     protected float conicalRadius; //stored as radians
     protected float direction; //stored as radians 
@@ -27,7 +32,7 @@ public class LightSource extends NetworkedSceneObject implements SavableSceneObj
     private boolean on = true;
     
     // The list of LightEffects
-    private HashMap<String,LightEffect> lightEffects = new HashMap();
+    private EffectList<LightEffect> lightEffects = new EffectList<>();
 
     
     //=====================
@@ -59,27 +64,8 @@ public class LightSource extends NetworkedSceneObject implements SavableSceneObj
       
     public void update()
     {
-        //update ImageEffects and remove them if expired   
-        for (Iterator<Map.Entry<String,LightEffect>> it = this.lightEffects.entrySet().iterator(); it.hasNext();) 
-        {
-            //get image effect from iterator
-            Map.Entry<String,LightEffect> entry = it.next();
-            LightEffect effect = entry.getValue();
-            
-            //update the effect
-            effect.update();  
-            
-            //if expired, remove it
-            if(effect.isExpired())
-            {   
-                //remove effect
-                it.remove();
-                
-                //fire effects on remove
-                effect.onRemove(); 
-                                
-            }
-        }
+        //update LightEffects and remove them if expired   
+        this.lightEffects.update();
     }
     
     public void draw(GL2 gl)
@@ -97,6 +83,15 @@ public class LightSource extends NetworkedSceneObject implements SavableSceneObj
         
     }
     
+    public void hashState(StateHasher hasher)
+    {
+        super.hashState(hasher);
+        hasher.mix(this.size);
+        hasher.mix(this.direction);
+        hasher.mix(this.intensity);
+        hasher.mix(this.on);
+    }
+    
     
     ///=====================
     // Class Methods
@@ -166,7 +161,7 @@ public class LightSource extends NetworkedSceneObject implements SavableSceneObj
         if(this.hasLightEffectType(effect.lightEffectType) == false)
         {
             //add the effect
-            this.lightEffects.put(name,effect);
+            this.lightEffects.put(name,effect,effect.lightEffectType.ordinal());
 
             //set the render effects owning image
             effect.setOwningLight(this);
@@ -186,17 +181,9 @@ public class LightSource extends NetworkedSceneObject implements SavableSceneObj
     public void removeLightEffect(LightEffect effect)
     {
         //remove the effect
-        for(String key:this.lightEffects.keySet())
-        {
-           LightEffect keyEffect = this.lightEffects.get(key);
-           
-           if(keyEffect == effect)
-           {
-               this.removeLightEffect(key);
-               return;
-           }
-               
-        }
+        int index = this.lightEffects.indexOf(effect);
+        if(index != -1)
+            this.removeLightEffect(this.lightEffects.getName(index));
     }
     
     /**
@@ -210,7 +197,10 @@ public class LightSource extends NetworkedSceneObject implements SavableSceneObj
         
         //tell the effect that it was removed
         if(effect != null)
+        {
             effect.onRemove();   
+            effect.release();
+        }
       
     }
     
@@ -220,8 +210,11 @@ public class LightSource extends NetworkedSceneObject implements SavableSceneObj
     public void removeAllLightEffects() 
     {
         //call onRemove() for all the effects
-        for (LightEffect effect: lightEffects.values())         
-            effect.onRemove();
+        for (int i = 0; i < lightEffects.size(); i++)         
+        {
+            lightEffects.get(i).onRemove();
+            lightEffects.get(i).release();
+        }
         
         //clear the list
         lightEffects.clear();
@@ -230,20 +223,24 @@ public class LightSource extends NetworkedSceneObject implements SavableSceneObj
     
     public boolean hasLightEffectType(LightEffectType type)
     {
-        for(LightEffect effect: this.lightEffects.values())
+        //only one effect of each of these types can be applied, duration effects can be stacked
+        switch(type)
         {
-            switch(type)
-            {
-                case SIZE: if(effect.lightEffectType.equals(LightEffectType.SIZE)){return true;} break;
-                case COLOR: if(effect.lightEffectType.equals(LightEffectType.COLOR)){return true;} break;
-                case DIRECTION: if(effect.lightEffectType.equals(LightEffectType.DIRECTION)){return true;} break;
-                case INTENSITY: if(effect.lightEffectType.equals(LightEffectType.INTENSITY)){return true;} break;
-                case RADIUS: if(effect.lightEffectType.equals(LightEffectType.RADIUS)){return true;} break;
-             }
+            case SIZE: case COLOR: case DIRECTION: case INTENSITY: case RADIUS:
+                return this.lightEffects.hasType(type.ordinal());
         }
         return false;
     }
     
+    /**
+     * Gets the number of light effects currently applied to this light
+     * @return light effect count
+     */
+    public int getLightEffectCount()
+    {
+        return this.lightEffects.size();
+    }
+    
     
     
     //=============
@@ -266,6 +263,7 @@ public class LightSource extends NetworkedSceneObject implements SavableSceneObj
     public void setSize(float s)
     {
         this.size = s;
+        this.boundsChanged();
     }
     
     /**
@@ -361,14 +359,39 @@ public class LightSource extends NetworkedSceneObject implements SavableSceneObj
         renderData.data.add(9,on);
         //render data for all the effects
          ArrayList<SerializableEntry> renderEffectData = new ArrayList();
-         for(String key: this.lightEffects.keySet()){
-             renderEffectData.add(new SerializableEntry(key,this.lightEffects.get(key).dumpRenderData()));
+         for(int i = 0; i < this.lightEffects.size(); i++){
+             renderEffectData.add(new SerializableEntry(this.lightEffects.getName(i),this.lightEffects.get(i).dumpRenderData()));
          }
          renderData.data.add(10,renderEffectData);
          
         return renderData;
     }
     
+    @Override
+    public void writeSnapshot(SceneSnapshotRing.SnapshotWriter writer)
+    {
+        //same values as dumpRenderData(), written without building the lists
+        writer.beginRenderData(CoreClasses.LIGHTSOURCE, this.ID, 11);
+        writer.writeFloat(this.getPosition().x);
+        writer.writeFloat(this.getPosition().y);
+        writer.writeFloat(this.size);
+        writer.writeFloat(this.conicalRadius);
+        writer.writeFloat(this.direction);
+        writer.writeFloat(this.intensity);
+        writer.writeFloat(this.color.r);
+        writer.writeFloat(this.color.g);
+        writer.writeFloat(this.color.b);
+        writer.writeBoolean(this.on);
+        
+        writer.beginList(this.lightEffects.size());
+        for(int i = 0; i < this.lightEffects.size(); i++)
+        {
+            writer.beginEntry();
+            writer.writeValue(this.lightEffects.getName(i));
+            writer.writeValue(this.lightEffects.get(i).dumpRenderData());
+        }
+    }
+    
     public static LightSource buildFromRenderData(SceneObjectRenderData renderData)
     {
         SylverVector2f position = new SylverVector2f((float)renderData.data.get(0),(float)renderData.data.get(1));
@@ -513,35 +536,10 @@ public class LightSource extends NetworkedSceneObject implements SavableSceneObj
         }
 
 
-        //x position interpolator
-        if(changeData.get(0) != null)
-        {
-            float startPosition=  interpolators.containsKey("xPosition")? (float)interpolators.get("xPosition").getB() : this.getPosition().x;          
-            LinearInterpolator lerp1= new LinearInterpolator(startPosition,(float)changeData.get(0),lastTime,futureTime);
-            this.interpolators.put("xPosition",lerp1);
-        }
-        else
-            this.interpolators.remove("xPosition");
-
-        //y position interpolator
-        if(changeData.get(1) != null)
-        {
-            float startPosition=  interpolators.containsKey("yPosition")? (float)interpolators.get("yPosition").getB() : this.getPosition().y;
-            LinearInterpolator lerp2= new LinearInterpolator(startPosition,(float)changeData.get(1),lastTime,futureTime);
-            this.interpolators.put("yPosition",lerp2);
-        }
-        else
-            this.interpolators.remove("yPosition");
-        
-        //direction interpolator
-        if(changeData.get(4) != null)
-        {
-           float startPosition=  interpolators.containsKey("direction")? (float)interpolators.get("direction").getB() : this.getDirection();
-            LinearInterpolator lerp3= new LinearInterpolator(startPosition,(float)changeData.get(4),lastTime,futureTime);
-            this.interpolators.put("direction", lerp3);
-        }
-        else
-            this.interpolators.remove("direction"); 
+        //position and direction interpolation
+        this.interpolateTrack(X_TRACK, changeData.get(0), this.getPosition().x, lastTime, futureTime);
+        this.interpolateTrack(Y_TRACK, changeData.get(1), this.getPosition().y, lastTime, futureTime);
+        this.interpolateTrack(DIRECTION_TRACK, changeData.get(4), this.getDirection(), lastTime, futureTime);
 
             
         //reconcile variables
@@ -600,22 +598,22 @@ public class LightSource extends NetworkedSceneObject implements SavableSceneObj
     
     public void interpolate(long currentTime)
     {
-        if(!this.interpolators.isEmpty())
+        if(this.isInterpolating())
         {
             //interpolate x and y positions
             float x = this.getPosition().x;
             float y = this.getPosition().y;
 
-            if(this.interpolators.containsKey("xPosition") && currentTime <= this.interpolators.get("xPosition").getb())
-            x = (float)this.interpolators.get("xPosition").interp(currentTime);
+            if(this.isTrackMoving(X_TRACK, currentTime))
+            x = this.interpolatedValue(X_TRACK, currentTime);
 
-            if(this.interpolators.containsKey("yPosition") && currentTime <= this.interpolators.get("yPosition").getb())
-            y = (float)this.interpolators.get("yPosition").interp(currentTime);
+            if(this.isTrackMoving(Y_TRACK, currentTime))
+            y = this.interpolatedValue(Y_TRACK, currentTime);
 
             this.setPosition(x, y);
             
-            if(this.interpolators.containsKey("direction") && currentTime <= this.interpolators.get("direction").getb() )
-                this.direction = (float)this.interpolators.get("direction").interp(currentTime);
+            if(this.isTrackMoving(DIRECTION_TRACK, currentTime))
+                this.direction = this.interpolatedValue(DIRECTION_TRACK, currentTime);
         }
     }
     
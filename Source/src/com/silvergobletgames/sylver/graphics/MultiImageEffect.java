@@ -1,7 +1,6 @@
 package com.silvergobletgames.sylver.graphics;
 
 import com.silvergobletgames.sylver.netcode.RenderData;
-import com.silvergobletgames.sylver.util.LinearInterpolator;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -52,7 +51,7 @@ public class MultiImageEffect extends ImageEffect
         for(Integer number: durations)
             this.duration += number;
         
-        //build interpolators
+        //build tween tracks
         this.buildInterpolators(0);
         
     }
@@ -99,7 +98,7 @@ public class MultiImageEffect extends ImageEffect
 
 
 
-            //if the current index is going to change, rebuild the interpolators
+            //if the current index is going to change, rebuild the tween tracks
             if(currentTimeElapsed > this.durations.get(currentIndex))
             {
                 currentIndex++;
@@ -120,7 +119,9 @@ public class MultiImageEffect extends ImageEffect
         for(int i = 0;i < durations.size() ; i++)
             array[i] = durations.get(i);
         
-        return new MultiImageEffect(this.renderEffectType,points.toArray(),array); 
+        MultiImageEffect returnCopy = new MultiImageEffect(this.renderEffectType,points.toArray(),array);
+        returnCopy.setEasing(this.getEasing());
+        return returnCopy;
     }
     
     
@@ -130,72 +131,67 @@ public class MultiImageEffect extends ImageEffect
     
     private void buildInterpolators(int index)
     {
-        //set up the interpolators
+        //set up the tween tracks
         if(this.renderEffectType != ImageEffectType.COLOR)
-        {
-           LinearInterpolator interpolator = new LinearInterpolator(((Number)this.points.get(index)).floatValue(), ((Number)this.points.get(index + 1)).floatValue(), 1, this.durations.get(index));
-           interpolators.put("interpolator", interpolator);
-        }
+            this.setTrack(VALUE_TRACK, ((Number)this.points.get(index)).floatValue(), ((Number)this.points.get(index + 1)).floatValue(), this.durations.get(index));
         else
         {
-            LinearInterpolator r = new LinearInterpolator(((Color)this.points.get(index)).r, ((Color)this.points.get(index+1)).r, 1, this.durations.get(index));
-            LinearInterpolator g = new LinearInterpolator(((Color)this.points.get(index)).g, ((Color)this.points.get(index+1)).g, 1, this.durations.get(index));
-            LinearInterpolator b = new LinearInterpolator(((Color)this.points.get(index)).b, ((Color)this.points.get(index+1)).b, 1, this.durations.get(index));
-            LinearInterpolator a = new LinearInterpolator(((Color)this.points.get(index)).a, ((Color)this.points.get(index+1)).a, 1, this.durations.get(index));
-            interpolators.put("r", r);
-            interpolators.put("g", g);
-            interpolators.put("b", b);
-            interpolators.put("a", a);
+            this.setTrack(RED_TRACK, ((Color)this.points.get(index)).r, ((Color)this.points.get(index + 1)).r, this.durations.get(index));
+            this.setTrack(GREEN_TRACK, ((Color)this.points.get(index)).g, ((Color)this.points.get(index + 1)).g, this.durations.get(index));
+            this.setTrack(BLUE_TRACK, ((Color)this.points.get(index)).b, ((Color)this.points.get(index + 1)).b, this.durations.get(index));
+            this.setTrack(ALPHA_TRACK, ((Color)this.points.get(index)).a, ((Color)this.points.get(index + 1)).a, this.durations.get(index));
         }
     }
     
     private void adjustImage()
     {
+        this.advanceTracks(currentTimeElapsed);
+        
         //switch through the different types of effects doing the correct adjustments     
         switch(renderEffectType)
         {
             case BRIGHTNESS: 
             {   
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningImage.setBrightness(adjustmentValue);
                 break;
             }
             case ALPHABRIGHTNESS: 
             {   
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningImage.setAlphaBrightness(adjustmentValue);
                 break;
             }
             case COLOR:
             {
-                float r = (float)interpolators.get("r").interp(currentTimeElapsed);
-                float g = (float)interpolators.get("g").interp(currentTimeElapsed);
-                float b = (float)interpolators.get("b").interp(currentTimeElapsed);
-                float a = (float)interpolators.get("a").interp(currentTimeElapsed);     
+                float r = this.getTrackValue(RED_TRACK);
+                float g = this.getTrackValue(GREEN_TRACK);
+                float b = this.getTrackValue(BLUE_TRACK);
+                float a = this.getTrackValue(ALPHA_TRACK);     
                 owningImage.setColor(new Color(r,g,b,a));              
                 break;
             } 
             case ROTATION: 
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningImage.setAngle(adjustmentValue);
                 break;
             }
             case XTRANSLATE: 
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningImage.setPosition(adjustmentValue,owningImage.getPosition().y);
                  break;
             }
             case YTRANSLATE:
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningImage.setPosition(owningImage.getPosition().x,adjustmentValue);
                 break;
             } 
             case XOVERLAYTRANSLATE:
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 if(!owningImage.imageOverlays.values().isEmpty())
                 {
                     Overlay lay = (Overlay)owningImage.getOverlay("interact");
@@ -206,7 +202,7 @@ public class MultiImageEffect extends ImageEffect
             }
             case YOVERLAYTRANSLATE:
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 if(!owningImage.imageOverlays.values().isEmpty())
                 {
                     Overlay lay = (Overlay)owningImage.getOverlay("interact");
@@ -217,19 +213,19 @@ public class MultiImageEffect extends ImageEffect
             }
             case SCALE: 
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningImage.setScale(adjustmentValue);
                 break;
             } 
             case WIDTH:
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningImage.setDimensions(adjustmentValue,owningImage.getDimensions().y);
                 break;
             }
             case HEIGHT:
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningImage.setDimensions(owningImage.getDimensions().x,adjustmentValue);
                 break;
             }
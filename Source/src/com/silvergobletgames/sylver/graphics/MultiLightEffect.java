@@ -1,11 +1,9 @@
 package com.silvergobletgames.sylver.graphics;
 
 import com.silvergobletgames.sylver.netcode.RenderData;
-import com.silvergobletgames.sylver.util.LinearInterpolator;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 
 
 public class MultiLightEffect extends LightEffect 
@@ -53,7 +51,7 @@ public class MultiLightEffect extends LightEffect
         for(Integer number: durations)
             this.duration += number;
         
-        //build interpolators
+        //build tween tracks
         this.buildInterpolators(0);
         
     }
@@ -100,7 +98,7 @@ public class MultiLightEffect extends LightEffect
 
 
 
-            //if the current index is going to change, rebuild the interpolators
+            //if the current index is going to change, rebuild the tween tracks
             if(currentTimeElapsed > this.durations.get(currentIndex))
             {
                 currentIndex++;
@@ -122,7 +120,9 @@ public class MultiLightEffect extends LightEffect
         for(int i = 0;i < durations.size() ; i++)
             array[i] = durations.get(i);
         
-        return new MultiLightEffect(this.lightEffectType,points.toArray(),array); 
+        MultiLightEffect returnCopy = new MultiLightEffect(this.lightEffectType,points.toArray(),array);
+        returnCopy.setEasing(this.getEasing());
+        return returnCopy;
     }
     
     
@@ -132,38 +132,34 @@ public class MultiLightEffect extends LightEffect
     
     private void buildInterpolators(int index)
     {
-        //set up the interpolators
+        //set up the tween tracks
         if(this.lightEffectType != LightEffectType.COLOR)
-        {
-           LinearInterpolator interpolator = new LinearInterpolator(((Number)this.points.get(index)).floatValue(), ((Number)this.points.get(index + 1)).floatValue(), 1, this.durations.get(index));
-           interpolators.put("interpolator", interpolator);
-        }
+            this.setTrack(VALUE_TRACK, ((Number)this.points.get(index)).floatValue(), ((Number)this.points.get(index + 1)).floatValue(), this.durations.get(index));
         else
         {
-            LinearInterpolator r = new LinearInterpolator(((Color)this.points.get(index)).r, ((Color)this.points.get(index+1)).r, 1, this.durations.get(index));
-            LinearInterpolator g = new LinearInterpolator(((Color)this.points.get(index)).g, ((Color)this.points.get(index+1)).g, 1, this.durations.get(index));
-            LinearInterpolator b = new LinearInterpolator(((Color)this.points.get(index)).b, ((Color)this.points.get(index+1)).b, 1, this.durations.get(index));
-            interpolators.put("r", r);
-            interpolators.put("g", g);
-            interpolators.put("b", b);
+            this.setTrack(RED_TRACK, ((Color)this.points.get(index)).r, ((Color)this.points.get(index + 1)).r, this.durations.get(index));
+            this.setTrack(GREEN_TRACK, ((Color)this.points.get(index)).g, ((Color)this.points.get(index + 1)).g, this.durations.get(index));
+            this.setTrack(BLUE_TRACK, ((Color)this.points.get(index)).b, ((Color)this.points.get(index + 1)).b, this.durations.get(index));
         }
     }
     
     private void adjustLight()
     {
+        this.advanceTracks(currentTimeElapsed);
+        
         switch(lightEffectType)
         {
             case SIZE: 
             {   
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningLight.setSize(adjustmentValue);
                 break;
             }
             case COLOR:
             {
-                float r = (float)interpolators.get("r").interp(currentTimeElapsed);
-                float g = (float)interpolators.get("g").interp(currentTimeElapsed);
-                float b = (float)interpolators.get("b").interp(currentTimeElapsed);      
+                float r = this.getTrackValue(RED_TRACK);
+                float g = this.getTrackValue(GREEN_TRACK);
+                float b = this.getTrackValue(BLUE_TRACK);      
                 owningLight.setColor(new Color(r,g,b));              
                 break;
             } 
@@ -173,19 +169,19 @@ public class MultiLightEffect extends LightEffect
             }
             case INTENSITY: 
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningLight.setIntensity(adjustmentValue);
                 break;
             }
             case RADIUS: 
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningLight.setConicalRadius(adjustmentValue);
                 break;
             }
                 case DIRECTION:
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningLight.setDirection(adjustmentValue);
                 break;
             }
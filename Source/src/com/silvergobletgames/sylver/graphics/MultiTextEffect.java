@@ -2,7 +2,6 @@
 package com.silvergobletgames.sylver.graphics;
 
 import com.silvergobletgames.sylver.netcode.RenderData;
-import com.silvergobletgames.sylver.util.LinearInterpolator;
 import com.silvergobletgames.sylver.util.SylverVector2f;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
@@ -55,7 +54,7 @@ public class MultiTextEffect extends TextEffect {
         for(Integer number: durations)
             this.duration += number;
         
-        //build interpolators
+        //build tween tracks
         this.buildInterpolators(0);
         
     }
@@ -102,7 +101,7 @@ public class MultiTextEffect extends TextEffect {
 
 
 
-            //if the current index is going to change, rebuild the interpolators
+            //if the current index is going to change, rebuild the tween tracks
             if(currentTimeElapsed > this.durations.get(currentIndex))
             {
                 currentIndex++;
@@ -124,39 +123,36 @@ public class MultiTextEffect extends TextEffect {
         for(int i = 0;i < durations.size() ; i++)
             array[i] = durations.get(i);
         
-        return new MultiTextEffect(this.textEffectType,points.toArray(),array); 
+        MultiTextEffect returnCopy = new MultiTextEffect(this.textEffectType,points.toArray(),array);
+        returnCopy.setEasing(this.getEasing());
+        return returnCopy;
     }
     
     private void buildInterpolators(int index)
     {
-        //set up the interpolators
+        //set up the tween tracks
         if(this.textEffectType != TextEffectType.COLOR)
-        {
-           LinearInterpolator interpolator = new LinearInterpolator(((Number)this.points.get(index)).floatValue(), ((Number)this.points.get(index + 1)).floatValue(), 1, this.durations.get(index));
-           interpolators.put("interpolator", interpolator);
-        }
+            this.setTrack(VALUE_TRACK, ((Number)this.points.get(index)).floatValue(), ((Number)this.points.get(index + 1)).floatValue(), this.durations.get(index));
         else
         {
-            LinearInterpolator r = new LinearInterpolator(((Color)this.points.get(index)).r, ((Color)this.points.get(index+1)).r, 1, this.durations.get(index));
-            LinearInterpolator g = new LinearInterpolator(((Color)this.points.get(index)).g, ((Color)this.points.get(index+1)).g, 1, this.durations.get(index));
-            LinearInterpolator b = new LinearInterpolator(((Color)this.points.get(index)).b, ((Color)this.points.get(index+1)).b, 1, this.durations.get(index));
-            LinearInterpolator a = new LinearInterpolator(((Color)this.points.get(index)).a, ((Color)this.points.get(index+1)).a, 1, this.durations.get(index));
-            interpolators.put("r", r);
-            interpolators.put("g", g);
-            interpolators.put("b", b);
-            interpolators.put("a", a);
+            this.setTrack(RED_TRACK, ((Color)this.points.get(index)).r, ((Color)this.points.get(index + 1)).r, this.durations.get(index));
+            this.setTrack(GREEN_TRACK, ((Color)this.points.get(index)).g, ((Color)this.points.get(index + 1)).g, this.durations.get(index));
+            this.setTrack(BLUE_TRACK, ((Color)this.points.get(index)).b, ((Color)this.points.get(index + 1)).b, this.durations.get(index));
+            this.setTrack(ALPHA_TRACK, ((Color)this.points.get(index)).a, ((Color)this.points.get(index + 1)).a, this.durations.get(index));
         }
     }
     
     private void adjustText()
     {
+        this.advanceTracks(currentTimeElapsed);
+        
         //switch through the different types of effects doing the correct adjustments     
         switch(textEffectType)
         {
             case SCALE: 
             {   
                 SylverVector2f beforeCenter = new SylverVector2f(owningText.getPosition().x + owningText.getWidth()/2,owningText.getPosition().y + owningText.getHeight()/2);
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningText.setScale(adjustmentValue);
          
                 
@@ -165,10 +161,10 @@ public class MultiTextEffect extends TextEffect {
             }
             case COLOR:
             {
-                float r = (float)interpolators.get("r").interp(currentTimeElapsed);
-                float g = (float)interpolators.get("g").interp(currentTimeElapsed);
-                float b = (float)interpolators.get("b").interp(currentTimeElapsed);      
-                float a = (float)interpolators.get("a").interp(currentTimeElapsed); 
+                float r = this.getTrackValue(RED_TRACK);
+                float g = this.getTrackValue(GREEN_TRACK);
+                float b = this.getTrackValue(BLUE_TRACK);      
+                float a = this.getTrackValue(ALPHA_TRACK); 
                 owningText.setColor(new Color(r,g,b,a));                  
                 break;
             } 
@@ -178,19 +174,19 @@ public class MultiTextEffect extends TextEffect {
             }
             case ANGLE: 
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningText.setRotation(adjustmentValue);
                 break;
             }
             case XTRANSLATE: 
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningText.setPosition(adjustmentValue,owningText.getPosition().y);
                  break;
             }
             case YTRANSLATE: 
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(currentTimeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningText.setPosition(owningText.getPosition().x,adjustmentValue);
                 break;
             }
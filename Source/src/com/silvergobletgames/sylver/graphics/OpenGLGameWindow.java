@@ -54,6 +54,9 @@ public class OpenGLGameWindow implements GLEventListener
     private Scene sceneToRender;   
     //Last render time
     private static long lastRenderTime;
+    //profiler scopes
+    private static final ProfilerScope renderScope = Profiler.getScope("Render");
+    private static final ProfilerScope swapScope = Profiler.getScope("Swap Buffers");
     
     //map containing text renderers
     private HashMap<TextType,TextRenderer> textRenderers = new HashMap<>();
@@ -346,6 +349,7 @@ public class OpenGLGameWindow implements GLEventListener
     {
         
         long start = System.nanoTime();    
+        Profiler.begin(renderScope);
 
         //gets the appropriate graphics context from the glWindow
         GL2 gl;
@@ -387,19 +391,16 @@ public class OpenGLGameWindow implements GLEventListener
 
         //Save the last render time before we call swap
         OpenGLGameWindow.lastRenderTime = System.nanoTime() - start; 
-        boolean profileRendering = Game.getInstance().getConfiguration().getEngineSettings().profileRendering;
-        if( profileRendering== true)
-        {
-            //log times
-            System.err.println( "Total Render Time: " +lastRenderTime);
-        }
+        Profiler.begin(swapScope);
 
        //flushes pending openGL commands from the context, !!needs to be here!!
        gl.glFlush();
 
        //swaps the back buffer !!needs to be here!!
        glWindow.swapBuffers();
-                                                                  
+       
+       Profiler.end();
+       Profiler.end();
     }
 
     //openGL reshape callback
@@ -827,7 +828,7 @@ public class OpenGLGameWindow implements GLEventListener
         Graphics2D java2d = ( Graphics2D)( bufferedImage.createGraphics());
               
         //DEFAULT
-        Font font = new Font("CALIBRI", Font.BOLD, 26);
+        Font font = getCoreFont(CoreTextType.DEFAULT);
         TextRenderer def = new TextRenderer(font, true, true, new SylverRenderDelegate());
         def.setUseVertexArrays(false);
         FontMetrics fm = java2d.getFontMetrics(font);
@@ -835,7 +836,7 @@ public class OpenGLGameWindow implements GLEventListener
         textRenderers.put(CoreTextType.DEFAULT, def);
  
         //MENU
-        font = new Font("CALIBRI", Font.BOLD, 85);
+        font = getCoreFont(CoreTextType.MENU);
         TextRenderer menu = new TextRenderer(font, true, true,new SylverRenderDelegate(false,0));
         menu.setUseVertexArrays(false);
         fm = java2d.getFontMetrics(font);
@@ -843,7 +844,7 @@ public class OpenGLGameWindow implements GLEventListener
         textRenderers.put(CoreTextType.MENU, menu);
         
         //CODE
-        font = new Font("COURIER NEW", Font.PLAIN, 12);
+        font = getCoreFont(CoreTextType.CODE);
         TextRenderer code = new TextRenderer(font);
         code.setUseVertexArrays(false);
         fm = java2d.getFontMetrics(font);
@@ -852,6 +853,21 @@ public class OpenGLGameWindow implements GLEventListener
         
     }
     
+    /**
+     * Gets the font used by one of the core text types
+     * @param type core text type
+     * @return Font for that text type
+     */
+    protected static Font getCoreFont(CoreTextType type)
+    {
+        switch(type)
+        {
+            case MENU: return new Font("CALIBRI", Font.BOLD, 85);
+            case CODE: return new Font("COURIER NEW", Font.PLAIN, 12);
+            default: return new Font("CALIBRI", Font.BOLD, 26);
+        }
+    }
+    
     /**
      * Initializes the FBOs used for lighting and rendering
      * @param gl 
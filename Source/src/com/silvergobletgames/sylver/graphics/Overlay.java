@@ -141,7 +141,7 @@ public class Overlay
          ArrayList changeList = new ArrayList();
          
          Image dummyImage = new Image("blank.png");
-         SceneObjectRenderDataChanges imageChanges = dummyImage.generateRenderDataChanges((SceneObjectRenderData)oldData.data.get(0), (SceneObjectRenderData)newData.data.get(0));
+         SceneObjectRenderDataChanges imageChanges = dummyImage.diffRenderData((SceneObjectRenderData)oldData.data.get(0), (SceneObjectRenderData)newData.data.get(0));
          
          if(imageChanges != null)
          {
@@ -194,7 +194,7 @@ public class Overlay
          
          if(changeData.get(0) != null)
          {
-             image.reconcileRenderDataChanges(lastTime, futureTime, (SceneObjectRenderDataChanges)changeData.get(0));
+             image.applyRenderDataChanges(lastTime, futureTime, (SceneObjectRenderDataChanges)changeData.get(0));
          }
          
          if(changeData.get(1) != null)
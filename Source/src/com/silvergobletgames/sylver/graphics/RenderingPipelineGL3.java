@@ -36,10 +36,45 @@ public class RenderingPipelineGL3
      public static long lightingTime; //1
      public static long bloomTime; //2
      
+    //profiler scopes
+    private static final ProfilerScope pipelineScope = Profiler.getScope("Render Pipeline");
+    private static final ProfilerScope layersScope = Profiler.getScope("Draw Layers");
+    private static final ProfilerScope cullingScope = Profiler.getScope("Culling");
+    private static final ProfilerScope blurScope = Profiler.getScope("Blur");
+    private static final ProfilerScope lightingScope = Profiler.getScope("Lighting");
+    private static final ProfilerScope bloomScope = Profiler.getScope("Bloom");
+    private static final ProfilerScope toneMappingScope = Profiler.getScope("Tone Mapping");
+    private static final ProfilerScope hudScope = Profiler.getScope("HUD Layers");
+    private static final ProfilerScope effectsScope = Profiler.getScope("Scene Effects Render");
+    //scopes that the gpu timer queries are recorded into
+    private static final ProfilerScope gpuBlurScope = Profiler.getScope("GPU Blur");
+    private static final ProfilerScope gpuLightingScope = Profiler.getScope("GPU Lighting");
+    private static final ProfilerScope gpuBloomScope = Profiler.getScope("GPU Bloom");
+     
     //position and coord buffers
     private static ByteBuffer texCoordBuffer = Buffers.newDirectByteBuffer(8); 
     private static FloatBuffer positionBuffer = Buffers.newDirectFloatBuffer(8);
     private static FloatBuffer lightPositionBuffer = Buffers.newDirectFloatBuffer(80);
+    
+    //lists reused by the lighting pass each frame
+    private static final ArrayList<LightSource> visibleLightSources = new ArrayList<>();
+    private static final ArrayList<DarkSource> visibleDarkSources = new ArrayList<>();
+    private static final ArrayList<ShadowCaster> castersInRange = new ArrayList<>();
+    private static final ArrayList<SceneObject> unindexedShadowCasters = new ArrayList<>();
+    private static final ArrayList<SceneObject> nearbySceneObjects = new ArrayList<>();
+    
+    //layers drawn between the background and the HUD, in draw order
+    private static final Layer[] WORLD_LAYERS = {Layer.PARALLAX5, Layer.PARALLAX4,Layer.PARALLAX3,Layer.PARALLAX2,Layer.PARALLAX1,Layer.ATTACHED_BG,Layer.MAIN,Layer.ATTACHED_FG,Layer.FOREGROUND1,Layer.FOREGROUND2};
+    //visible scene objects of each world layer, filled by the culling tasks
+    private static final ArrayList<SceneObject>[] visibleLayerObjects = new ArrayList[Layer.values().length];
+    //visible area of each world layer, filled by the culling tasks
+    private static final float[][] visibleLayerBounds = new float[Layer.values().length][4];
+    //what the culling tasks are working on this frame
+    private static Viewport frameViewport;
+    private static SceneObjectManager frameSceneObjectManager;
+    private static ArrayList<Layer> frameExcludedLayers;
+    //culls each world layer and gathers the lighting sources on the worker pool, joined before drawing
+    private static final FrameTaskGraph cullingGraph = createCullingGraph();
         
         
     
@@ -54,6 +89,8 @@ public class RenderingPipelineGL3
      */
     public static void render(GL3bc gl,Viewport viewport,SceneObjectManager sceneObjectManager, SceneEffectsManager sceneEffectsManager, Layer... excluded)
     {         
+        Profiler.begin(pipelineScope);
+        
         //=========================
         //handle profiling queries
         //=========================
@@ -72,10 +109,11 @@ public class RenderingPipelineGL3
                 gl.glGetQueryObjectui64v(query.get(2), GL3bc.GL_QUERY_RESULT, time);
                 bloomTime = time.get(0);
                 
-                //log times
-                System.err.println( "Blur Time: " + blurTime/1_000_000f + "ms");
-                System.err.println( "Lighting Time: " + lightingTime/1_000_000 + "ms");
-                System.err.println( "Bloom Time: " + bloomTime/1_000_000 + "ms");
+                //record the gpu times with the profiler
+                long now = System.nanoTime();
+                gpuBlurScope.record(now, blurTime);
+                gpuLightingScope.record(now, lightingTime);
+                gpuBloomScope.record(now, bloomTime);
             }
             //allocate queries
             if(query == null)
@@ -118,6 +156,18 @@ public class RenderingPipelineGL3
         //Draw layers Background through FOREGROUND2
         //===========================================
 
+        //cull the layers and gather the lighting sources across the worker pool before drawing anything
+        Profiler.begin(cullingScope);
+        frameViewport = viewport;
+        frameSceneObjectManager = sceneObjectManager;
+        frameExcludedLayers = excludedLayers;
+        cullingGraph.run(Game.getInstance().getWorkerPool());
+        Profiler.end();
+
+        Profiler.begin(layersScope);
+        long passEventStart = EngineEvents.begin();
+        int drawnSceneObjects = 0;
+        
         //render background layer
         gl.glMatrixMode(GL3bc.GL_MODELVIEW);
         gl.glLoadIdentity();
@@ -125,22 +175,18 @@ public class RenderingPipelineGL3
         ArrayList<SceneObject> bg = sceneObjectManager.get(Layer.BACKGROUND);
         for (int i = 0; i < bg.size(); i++) 
             bg.get(i).draw(gl);
+        drawnSceneObjects += bg.size();
         
 
         //render layers PARRALAX5 through FOREGROUND2
-        for (Layer layer: new Layer[]{Layer.PARALLAX5, Layer.PARALLAX4,Layer.PARALLAX3,Layer.PARALLAX2,Layer.PARALLAX1,Layer.ATTACHED_BG,Layer.MAIN,Layer.ATTACHED_FG,Layer.FOREGROUND1,Layer.FOREGROUND2}) 
+        for (Layer layer: WORLD_LAYERS) 
         {   
             //skip any excluded layers
             if(excludedLayers.contains(layer))
                 continue;           
             
-            //build list of visible scene objects
-            ArrayList<SceneObject> visibleSceneObjects = new ArrayList<>();
-            for(SceneObject sceneObjectToTest: sceneObjectManager.get(layer))
-            {
-                if(viewport.isSceneObjectVisible(sceneObjectToTest, layer))               
-                    visibleSceneObjects.add(sceneObjectToTest);              
-            }
+            //visible scene objects, found by the culling tasks
+            ArrayList<SceneObject> visibleSceneObjects = visibleLayerObjects[layer.ordinal()];
             //if we have blur enabled draw to layer buffer texture
             if(Game.getInstance().getConfiguration().getEngineSettings().gaussianBlur && layer.blurFactor != 0 && !visibleSceneObjects.isEmpty())
             {
@@ -159,6 +205,7 @@ public class RenderingPipelineGL3
             {
                 sceneObjectToRender.draw(gl);  
             }
+            drawnSceneObjects += visibleSceneObjects.size();
 
             if(profileRendering == true)
             {
@@ -168,7 +215,11 @@ public class RenderingPipelineGL3
           
             //apply the layer blur
             if(Game.getInstance().getConfiguration().getEngineSettings().gaussianBlur && layer.blurFactor != 0 && !visibleSceneObjects.isEmpty())           
+            {
+                Profiler.begin(blurScope);
                 RenderingPipelineGL3.applyGaussianBlur(gl, viewport,layer.blurFactor,Game.getInstance().getGraphicsWindow().getFboTextureArray()[0][0]);
+                Profiler.end();
+            }
             
             if(profileRendering == true)
             {
@@ -177,6 +228,9 @@ public class RenderingPipelineGL3
             }
         
         }
+        
+        Profiler.end();
+        EngineEvents.commit(EngineEvents.EventType.RENDER_PASS, passEventStart, "Layers", drawnSceneObjects, 0);
       
 
         //=================
@@ -190,7 +244,13 @@ public class RenderingPipelineGL3
         }
         
         if(Game.getInstance().getConfiguration().getEngineSettings().lighting)
+        {
+            Profiler.begin(lightingScope);
+            passEventStart = EngineEvents.begin();
             renderLighting(gl,sceneObjectManager,viewport,sceneEffectsManager);
+            EngineEvents.commit(EngineEvents.EventType.RENDER_PASS, passEventStart, "Lighting", 0, 0);
+            Profiler.end();
+        }
         
          //end performance query
         if(profileRendering == true)
@@ -210,7 +270,13 @@ public class RenderingPipelineGL3
         }
         
         if (Game.getInstance().getConfiguration().getEngineSettings().bloom)        
+        {
+            Profiler.begin(bloomScope);
+            passEventStart = EngineEvents.begin();
             renderBloom(gl,sceneObjectManager,viewport,sceneEffectsManager);
+            EngineEvents.commit(EngineEvents.EventType.RENDER_PASS, passEventStart, "Bloom", 0, 0);
+            Profiler.end();
+        }
         
         //end performance query
         if(profileRendering == true)
@@ -228,6 +294,8 @@ public class RenderingPipelineGL3
         // Unbind our fbo so we are drawing to the default framebuffer
         gl.glBindFramebuffer(GL3bc.GL_FRAMEBUFFER, 0); 
               
+        Profiler.begin(toneMappingScope);
+        
         //if we did bloom, turn on the tonemapping shader
         if(Game.getInstance().getConfiguration().getEngineSettings().bloom)    
         {
@@ -269,11 +337,16 @@ public class RenderingPipelineGL3
         gl.glBindTexture(GL3bc.GL_TEXTURE_2D, 0);
         gl.glDisable(GL3bc.GL_TEXTURE_2D);
         gl.glUseProgram(0);
+        
+        Profiler.end();
 
 
         //=====================
         //Draw World HUD Layer
         //=====================
+        Profiler.begin(hudScope);
+        passEventStart = EngineEvents.begin();
+        drawnSceneObjects = 0;
         if(!excludedLayers.contains(Layer.WORLD_HUD))
         {
             gl.glMatrixMode(GL3bc.GL_MODELVIEW);
@@ -283,6 +356,7 @@ public class RenderingPipelineGL3
             for (int i = 0; i < wHud.size(); i++) {
                 wHud.get(i).draw(gl);
             }
+            drawnSceneObjects += wHud.size();
         }
         
 
@@ -298,6 +372,7 @@ public class RenderingPipelineGL3
             for (int i = 0; i < Hud.size(); i++) {
                 Hud.get(i).draw(gl);
             }
+            drawnSceneObjects += Hud.size();
         }
 
 
@@ -313,14 +388,20 @@ public class RenderingPipelineGL3
             for (int i = 0; i < menu.size(); i++) {
                 menu.get(i).draw(gl);
             }
+            drawnSceneObjects += menu.size();
         }
         
+        EngineEvents.commit(EngineEvents.EventType.RENDER_PASS, passEventStart, "HUD", drawnSceneObjects, 0);
+        Profiler.end();
+        
         //==================
         //Draw Scene Effects
         //==================
+        Profiler.begin(effectsScope);
         sceneEffectsManager.render(gl);
+        Profiler.end();
        
-                        
+        Profiler.end();                
     }    
     
     //========================
@@ -328,58 +409,144 @@ public class RenderingPipelineGL3
     //========================
     
     /**
-     * Private helper method that provides lighting effects to the scene
-     * @param gl
-     * @param sceneObjectManager
-     * @param viewport 
+     * Builds the culling graph, a task per world layer filling that layers visible list, and a task gathering the
+     * light sources, dark sources and unindexed shadow casters for the lighting pass. The tasks only read the scene
+     * so they all run at once.
      */
-    private static void renderLighting(GL3bc gl, SceneObjectManager sceneObjectManager, Viewport viewport, SceneEffectsManager sceneEffectsManager)
+    private static FrameTaskGraph createCullingGraph()
     {
-        //texture nicknames
-        int lightAccumulationTexture = Game.getInstance().getGraphicsWindow().getFboTextureArray()[0][0];
-        int lightTexture = Game.getInstance().getGraphicsWindow().getFboTextureArray()[0][1];
-        int shadowTexture = Game.getInstance().getGraphicsWindow().getFboTextureArray()[0][2];
-        
-        
-        //===========================================================
-        // Build list of LightSources, DarkSources and ShadowCasters
-        //===========================================================
-        
-        //variable to know if we added something to the light accumulation texture
-        boolean lightAccumulationOccupied = false;
+        FrameTaskGraph graph = new FrameTaskGraph();
+        for(final Layer layer: WORLD_LAYERS)
+        {
+            visibleLayerObjects[layer.ordinal()] = new ArrayList<>();
+            graph.addTask("Cull " + layer.name(), new Runnable(){
+                public void run()
+                {
+                    cullLayer(layer);
+                }
+            }, new String[]{Scene.SCENE_OBJECTS}, new String[]{"visible." + layer.name()});
+        }
+        graph.addTask("Gather Lighting", new Runnable(){
+            public void run()
+            {
+                if(Game.getInstance().getConfiguration().getEngineSettings().lighting)
+                    gatherLightingSources();
+            }
+        }, new String[]{Scene.SCENE_OBJECTS}, new String[]{"lighting"});
+        return graph;
+    }
+    
+    /**
+     * Returns true if area queries on a layer dont test every scene object in it, because the layer has a spatial
+     * index or a transform store. Render snapshots carry a transform store for both.
+     */
+    private static boolean isIndexed(SceneObjectManager sceneObjectManager, Layer layer)
+    {
+        return sceneObjectManager.hasSpatialIndex(layer) || sceneObjectManager.hasTransformStore(layer);
+    }
+    
+    /**
+     * Fills the visible list of a layer with the scene objects in it that the viewport can see
+     * @param layer Layer to cull
+     */
+    private static void cullLayer(Layer layer)
+    {
+        ArrayList<SceneObject> visibleSceneObjects = visibleLayerObjects[layer.ordinal()];
+        visibleSceneObjects.clear();
+        if(frameExcludedLayers.contains(layer))
+            return;
         
-        //get all the shadow casters
-        ArrayList<SceneObject> entityList = sceneObjectManager.get(CoreGroups.SHADOWCASTER);
-        ArrayList<ShadowCaster> allShadowCasters = new ArrayList<>();
-        for(SceneObject e:entityList)
+        if(isIndexed(frameSceneObjectManager, layer))
+        {
+            //narrow down to the scene objects near the viewport, then do the full test
+            float[] bounds = visibleLayerBounds[layer.ordinal()];
+            frameViewport.getVisibleBounds(layer, bounds);
+            frameSceneObjectManager.queryArea(layer, bounds[0], bounds[1], bounds[2], bounds[3], visibleSceneObjects);
+            for(int i = visibleSceneObjects.size() - 1; i >= 0; i--)
+            {
+                if(!frameViewport.isSceneObjectVisible(visibleSceneObjects.get(i), layer))
+                    visibleSceneObjects.remove(i);
+            }
+        }
+        else
+        {
+            for(SceneObject sceneObjectToTest: frameSceneObjectManager.get(layer))
+            {
+                if(frameViewport.isSceneObjectVisible(sceneObjectToTest, layer))               
+                    visibleSceneObjects.add(sceneObjectToTest);              
+            }
+        }
+    }
+    
+    /**
+     * Builds the lists of visible light sources and dark sources, and of the shadow casters in layers that arent
+     * indexed
+     */
+    private static void gatherLightingSources()
+    {
+        //get the shadow casters in layers that arent indexed, the indexed layers are queried per light
+        SceneObject[] allShadowCasters = frameSceneObjectManager.getGroupArray(CoreGroups.SHADOWCASTER);
+        unindexedShadowCasters.clear();
+        boolean anyLayerIndexed = false;
+        for(Layer layer: Layer.values())
+            anyLayerIndexed |= isIndexed(frameSceneObjectManager, layer);
+        for(SceneObject casterObject: allShadowCasters)
         {
-            allShadowCasters.add((ShadowCaster)e);
+            if(!anyLayerIndexed)
+            {
+                unindexedShadowCasters.add(casterObject);
+                continue;
+            }
+            
+            Layer casterLayer = frameSceneObjectManager.getLayerOfSceneObject(casterObject);
+            if(casterLayer == null || !isIndexed(frameSceneObjectManager, casterLayer))
+                unindexedShadowCasters.add(casterObject);
         }
         
         //build list of light sources 
-        ArrayList<SceneObject> allLightSources  = sceneObjectManager.get(CoreGroups.LIGHTSOURCE); 
-        ArrayList<LightSource> visibleLightSources = new ArrayList<>();
+        SceneObject[] allLightSources  = frameSceneObjectManager.getGroupArray(CoreGroups.LIGHTSOURCE); 
+        visibleLightSources.clear();
         for(SceneObject sceneObject: allLightSources)
         {
-            if(viewport.isSceneObjectVisible(sceneObject, Layer.MAIN) && ((LightSource)sceneObject).isOn())
+            if(frameViewport.isSceneObjectVisible(sceneObject, Layer.MAIN) && ((LightSource)sceneObject).isOn())
             {
                     visibleLightSources.add((LightSource)sceneObject); 
-                    lightAccumulationOccupied = true;
             }
         }
         
         //build list of dark sources 
-        ArrayList<SceneObject> allDarkSources  = sceneObjectManager.get(CoreGroups.DARKSOURCE); 
-        ArrayList<DarkSource> visibleDarkSources = new ArrayList<>();
+        SceneObject[] allDarkSources  = frameSceneObjectManager.getGroupArray(CoreGroups.DARKSOURCE); 
+        visibleDarkSources.clear();
         for(SceneObject sceneObject: allDarkSources)
         {
-            if(viewport.isSceneObjectVisible(sceneObject, Layer.MAIN))
+            if(frameViewport.isSceneObjectVisible(sceneObject, Layer.MAIN))
             {
                     visibleDarkSources.add((DarkSource)sceneObject); 
-                    lightAccumulationOccupied = true;
             }
         }
-
+    }
+    
+    /**
+     * Private helper method that provides lighting effects to the scene
+     * @param gl
+     * @param sceneObjectManager
+     * @param viewport 
+     */
+    private static void renderLighting(GL3bc gl, SceneObjectManager sceneObjectManager, Viewport viewport, SceneEffectsManager sceneEffectsManager)
+    {
+        //texture nicknames
+        int lightAccumulationTexture = Game.getInstance().getGraphicsWindow().getFboTextureArray()[0][0];
+        int lightTexture = Game.getInstance().getGraphicsWindow().getFboTextureArray()[0][1];
+        int shadowTexture = Game.getInstance().getGraphicsWindow().getFboTextureArray()[0][2];
+        
+        
+        //===========================================================
+        // Build list of LightSources, DarkSources and ShadowCasters
+        //===========================================================
+        
+        //the light sources, dark sources and unindexed shadow casters were gathered by the culling graph
+        boolean lightAccumulationOccupied = !visibleLightSources.isEmpty() || !visibleDarkSources.isEmpty();
+        
             
         //bind the light accumulation texture and clear it with the ambient color.
         gl.glFramebufferTexture2D(GL3bc.GL_FRAMEBUFFER, GL3bc.GL_COLOR_ATTACHMENT0, GL3bc.GL_TEXTURE_2D, lightAccumulationTexture, 0);
@@ -485,9 +652,23 @@ public class RenderingPipelineGL3
             gl.glClear(GL3bc.GL_COLOR_BUFFER_BIT);
 
             //get all casters that are in range of the light
-            ArrayList<ShadowCaster> castersInRange = new ArrayList<>();
-            for (ShadowCaster shadowCaster : allShadowCasters)
+            castersInRange.clear();
+            for(Layer casterLayer: Layer.values())
+            {
+                if(!isIndexed(sceneObjectManager, casterLayer))
+                    continue;
+                
+                nearbySceneObjects.clear();
+                sceneObjectManager.queryRadius(casterLayer, light.getPosition().x, light.getPosition().y, light.getSize() * 2, nearbySceneObjects);
+                for(SceneObject nearbyObject: nearbySceneObjects)
+                {
+                    if(nearbyObject.isInGroup(CoreGroups.SHADOWCASTER))
+                        castersInRange.add((ShadowCaster)nearbyObject);
+                }
+            }
+            for (SceneObject casterObject : unindexedShadowCasters)
             {
+                ShadowCaster shadowCaster = (ShadowCaster)casterObject;
                 if (Math.abs(Point.distance(shadowCaster.getPosition().x, shadowCaster.getPosition().y, light.getPosition().getX(), light.getPosition().getY())) < light.getSize() * 2) 
                 {
                     castersInRange.add(shadowCaster);
@@ -5,6 +5,7 @@ import java.util.HashMap;
 import com.jogamp.opengl.util.glsl.ShaderCode;
 import com.jogamp.opengl.util.glsl.ShaderProgram;
 import com.jogamp.opengl.util.glsl.ShaderState;
+import com.silvergobletgames.sylver.core.EngineEvents;
 import com.silvergobletgames.sylver.core.Game;
 import com.silvergobletgames.sylver.util.Log;
 import java.util.ArrayList;
@@ -51,10 +52,14 @@ public class ShaderLoader {
      * access to a compiled ShaderProgram
      * @param vertex name of the vertex shader
      * @param fragment name of the fragment shader
-     * @return built ShaderProgram
+     * @return built ShaderProgram, or null when running headless
      */
     public ShaderProgram getShaderProgram(String vertex, String fragment)
     {
+        //no shaders are compiled when headless
+        if(Game.getInstance().isHeadless())
+            return null;
+        
         //If we have previously loaded this shader, grab it from the cache
          if (shaderMap.get(vertex + fragment) != null)
 	    return shaderMap.get(vertex + fragment);
@@ -76,6 +81,11 @@ public class ShaderLoader {
      */
     public void loadShaderProgram(URI vertexURI, URI fragmentURI) 
     {
+        //there is no context to compile shaders with when headless
+        if(Game.getInstance().isHeadless())
+            return;
+        
+        long eventStart = EngineEvents.begin();
 
         //make the loading buffer context current
         Game.getInstance().getGraphicsWindow().getOffscreenLoadingBuffer().getContext().makeCurrent();
@@ -120,6 +130,8 @@ public class ShaderLoader {
         
         //saves the program to the hashmap       
         shaderMap.put(vertexName + fragName, program);
+        if(eventStart != 0)
+            EngineEvents.commit(EngineEvents.EventType.SHADER_LOAD, eventStart, vertexName + fragName, vertexCode.shaderSource()[0].length + fragmentCode.shaderSource()[0].length, 0);
         
         //release context
         Game.getInstance().getGraphicsWindow().getOffscreenLoadingBuffer().getContext().release();
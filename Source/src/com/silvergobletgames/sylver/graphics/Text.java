@@ -1,16 +1,20 @@
 package com.silvergobletgames.sylver.graphics;
 
+import com.silvergobletgames.sylver.core.EffectList;
 import com.jogamp.graph.font.FontFactory;
 import com.jogamp.opengl.util.awt.TextRenderer;
 import com.silvergobletgames.sylver.core.Game;
+import com.silvergobletgames.sylver.core.Profiler;
+import com.silvergobletgames.sylver.core.ProfilerScope;
 import com.silvergobletgames.sylver.core.SceneObject;
 import com.silvergobletgames.sylver.core.SceneObjectManager;
+import com.silvergobletgames.sylver.core.SceneSnapshotRing;
+import com.silvergobletgames.sylver.core.StateHasher;
 import com.silvergobletgames.sylver.graphics.TextEffect.TextEffectType;
 import com.silvergobletgames.sylver.netcode.NetworkedSceneObject;
 import com.silvergobletgames.sylver.netcode.RenderData;
 import com.silvergobletgames.sylver.netcode.SceneObjectRenderData;
 import com.silvergobletgames.sylver.netcode.SceneObjectRenderDataChanges;
-import com.silvergobletgames.sylver.util.LinearInterpolator;
 import com.silvergobletgames.sylver.util.Log;
 import com.silvergobletgames.sylver.util.SerializableEntry;
 import java.awt.FontMetrics;
@@ -24,6 +28,7 @@ import javax.media.opengl.GL3bc;
 import com.silvergobletgames.sylver.util.SylverVector2f;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -35,6 +40,9 @@ import java.util.logging.Logger;
 public class Text extends NetworkedSceneObject implements Anchorable
 {   
     
+    //interpolation tracks
+    private static final int X_TRACK = 0, Y_TRACK = 1, SCALE_TRACK = 2, ANGLE_TRACK = 3;
+    
     // The anchor 
     private Anchorable.Anchor anchor = Anchor.BOTTOMLEFT;
     // The string of this Text 
@@ -48,7 +56,11 @@ public class Text extends NetworkedSceneObject implements Anchorable
     // The text renderer to draw this text with 
     protected TextType textType;
     //map of text effects
-    private HashMap<String,TextEffect> textEffects = new HashMap();
+    private EffectList<TextEffect> textEffects = new EffectList<>();
+    //font metrics used to measure text when running headless
+    private static final ConcurrentHashMap<TextType,FontMetrics> headlessFontMetrics = new ConcurrentHashMap<>();
+    //profiler scope for text drawing
+    private static final ProfilerScope drawScope = Profiler.getScope("Text");
     
     //an open ended label interface for the extensible enum pattern
     public static interface TextType{
@@ -117,6 +129,8 @@ public class Text extends NetworkedSceneObject implements Anchorable
      
     public void draw(GL2 gl2)
     {
+        Profiler.begin(drawScope);
+        
         //get the text renderer
         TextRenderer tr = Game.getInstance().getGraphicsWindow().getTextRenderers().get(textType);
         
@@ -155,32 +169,14 @@ public class Text extends NetworkedSceneObject implements Anchorable
         
         //reset bound color to white
         Color.white.bind(gl2);
-                
+        
+        Profiler.end();
     }
     
     public void update()
     {
          //update TextEffects and remove them if expired   
-        for (Iterator<Map.Entry<String,TextEffect>> it = this.textEffects.entrySet().iterator(); it.hasNext();) 
-        {
-            //get image effect from iterator
-            Map.Entry<String,TextEffect> entry = it.next();
-            TextEffect effect = entry.getValue();
-            
-            //update the effect
-            effect.update();  
-            
-            //if expired, remove it
-            if(effect.isExpired())
-            {   
-                //remove effect
-                it.remove();
-                
-                //fire effects on remove
-                effect.onRemove(); 
-                              
-            }
-        }
+        this.textEffects.update();
         
     }
     
@@ -194,6 +190,14 @@ public class Text extends NetworkedSceneObject implements Anchorable
         
     }
     
+    public void hashState(StateHasher hasher)
+    {
+        super.hashState(hasher);
+        hasher.mix(this.text);
+        hasher.mix(this.scale);
+        hasher.mix(this.angle);
+    }
+    
     
     //====================
     //Anchorable Methods
@@ -245,6 +249,7 @@ public class Text extends NetworkedSceneObject implements Anchorable
      */
     public void setScale(float s){
         this.scale = s;
+        this.boundsChanged();
     }
     
     /**
@@ -259,6 +264,7 @@ public class Text extends NetworkedSceneObject implements Anchorable
      */
     public void setText(String s){
         this.text = s;
+        this.boundsChanged();
     }
     
     public String toString()
@@ -280,7 +286,7 @@ public class Text extends NetworkedSceneObject implements Anchorable
      */
     public float getWidth()
     {
-        FontMetrics fm = Game.getInstance().getGraphicsWindow().getFontMetrics().get(this.textType);     
+        FontMetrics fm = getFontMetrics(this.textType);     
         float width = fm.stringWidth(text); 
         width *= scale;
         return (float)width;
@@ -288,12 +294,38 @@ public class Text extends NetworkedSceneObject implements Anchorable
     
     public float getHeight()
     {
-        FontMetrics fm = Game.getInstance().getGraphicsWindow().getFontMetrics().get(this.textType);     
+        FontMetrics fm = getFontMetrics(this.textType);     
         float height = fm.getHeight(); 
         height *= scale;
         return (float)height;
     }
 
+    /**
+     * Gets the font metrics for a text type. When headless there are no text renderers, so the metrics of the
+     * core fonts are built from a java2d context instead, and custom text types are measured with the default font.
+     * @param type text type to get the metrics of
+     * @return FontMetrics for the text type
+     */
+    private static FontMetrics getFontMetrics(TextType type)
+    {
+        if(!Game.getInstance().isHeadless())
+            return Game.getInstance().getGraphicsWindow().getFontMetrics().get(type);
+        
+        if(!(type instanceof CoreTextType))
+            type = CoreTextType.DEFAULT;
+        
+        FontMetrics metrics = headlessFontMetrics.get(type);
+        if(metrics == null)
+        {
+            Graphics2D java2d = new BufferedImage(2, 2, BufferedImage.TYPE_4BYTE_ABGR_PRE).createGraphics();
+            metrics = java2d.getFontMetrics(OpenGLGameWindow.getCoreFont((CoreTextType)type));
+            java2d.dispose();
+            headlessFontMetrics.put(type, metrics);
+        }
+        
+        return metrics;
+    }
+
     public int length()
     {
         return text.length();
@@ -323,7 +355,7 @@ public class Text extends NetworkedSceneObject implements Anchorable
         if(this.hasTextEffectType(effect.textEffectType) == false)
         {
             //add the effect
-            this.textEffects.put(name,effect);
+            this.textEffects.put(name,effect,effect.textEffectType.ordinal());
 
             //set the render effects owning image
             effect.setOwningText(this);
@@ -343,17 +375,9 @@ public class Text extends NetworkedSceneObject implements Anchorable
     public void removeTextEffect(TextEffect effect)
     {
         //remove the effect
-        for(String key:this.textEffects.keySet())
-        {
-           TextEffect keyEffect = this.textEffects.get(key);
-           
-           if(keyEffect == effect)
-           {
-               this.removeTextEffect(key);
-               return;
-           }
-               
-        }
+        int index = this.textEffects.indexOf(effect);
+        if(index != -1)
+            this.removeTextEffect(this.textEffects.getName(index));
     }
     
     /**
@@ -377,8 +401,8 @@ public class Text extends NetworkedSceneObject implements Anchorable
     public void removeAllTextEffects() 
     {
         //call onRemove() for all the effects
-        for (TextEffect effect: textEffects.values())         
-            effect.onRemove();
+        for (int i = 0; i < textEffects.size(); i++)         
+            textEffects.get(i).onRemove();
         
         //clear the list
         textEffects.clear();
@@ -387,25 +411,29 @@ public class Text extends NetworkedSceneObject implements Anchorable
     
     public boolean hasTextEffect(String name)
     {
-        return this.textEffects.containsKey(name);
+        return this.textEffects.containsName(name);
     }
     
     public boolean hasTextEffectType(TextEffectType type)
     {
-        for(TextEffect effect: this.textEffects.values())
+        //only one effect of each of these types can be applied, duration effects can be stacked
+        switch(type)
         {
-            switch(type)
-            {             
-                case XTRANSLATE: if(effect.textEffectType.equals(TextEffectType.XTRANSLATE)){return true;} break;
-                case YTRANSLATE: if(effect.textEffectType.equals(TextEffectType.YTRANSLATE)){return true;} break;
-                case ANGLE: if(effect.textEffectType.equals(TextEffectType.ANGLE)){return true;} break;
-                case SCALE: if(effect.textEffectType.equals(TextEffectType.SCALE)){return true;} break;
-                case COLOR: if(effect.textEffectType.equals(TextEffectType.COLOR)){return true;} break;
-            }
+            case XTRANSLATE: case YTRANSLATE: case ANGLE: case SCALE: case COLOR:
+                return this.textEffects.hasType(type.ordinal());
         }
         return false;
     }
     
+    /**
+     * Gets the number of text effects currently applied to this text
+     * @return text effect count
+     */
+    public int getTextEffectCount()
+    {
+        return this.textEffects.size();
+    }
+    
     
     
     //====================
@@ -425,13 +453,35 @@ public class Text extends NetworkedSceneObject implements Anchorable
         renderData.data.add(6,this.textType);
         //render data for all the effects
          ArrayList<SerializableEntry> renderEffectData = new ArrayList();
-         for(String key: this.textEffects.keySet()){
-             renderEffectData.add(new SerializableEntry(key,this.textEffects.get(key).dumpRenderData()));
+         for(int i = 0; i < this.textEffects.size(); i++){
+             renderEffectData.add(new SerializableEntry(this.textEffects.getName(i),this.textEffects.get(i).dumpRenderData()));
          }
          renderData.data.add(7,renderEffectData);
         
         return renderData;
     }
+    
+    @Override
+    public void writeSnapshot(SceneSnapshotRing.SnapshotWriter writer)
+    {
+        //same values as dumpRenderData(), written without building the lists
+        writer.beginRenderData(CoreClasses.TEXT, this.ID, 8);
+        writer.writeValue(this.text);
+        writer.writeFloat(this.getPosition().x);
+        writer.writeFloat(this.getPosition().y);
+        writer.writeFloat(this.scale);
+        writer.writeFloat(this.angle);
+        writer.writeValue(this.color);
+        writer.writeValue(this.textType);
+        
+        writer.beginList(this.textEffects.size());
+        for(int i = 0; i < this.textEffects.size(); i++)
+        {
+            writer.beginEntry();
+            writer.writeValue(this.textEffects.getName(i));
+            writer.writeValue(this.textEffects.get(i).dumpRenderData());
+        }
+    }
        
     public static Text buildFromRenderData(SceneObjectRenderData renderData)
     {
@@ -567,47 +617,13 @@ public class Text extends NetworkedSceneObject implements Anchorable
         
          //if its a fresh packet, build the interpolators for position      
         //clear old interpolators
-        this.interpolators.clear();
+        this.clearInterpolation();
 
-        //x position interpolator
-        if(changeData.get(1) != null)
-        {
-            float startPosition=  interpolators.containsKey("xPosition")? (float)interpolators.get("xPosition").getB() : this.getPosition().x;          
-            LinearInterpolator lerp1= new LinearInterpolator(startPosition,(float)changeData.get(1),lastTime,futureTime);
-            this.interpolators.put("xPosition",lerp1);
-        }
-        else
-            this.interpolators.remove("xPosition");
-
-        //y position interpolator
-        if(changeData.get(2) != null)
-        {
-            float startPosition=  interpolators.containsKey("yPosition")? (float)interpolators.get("yPosition").getB() : this.getPosition().y;
-            LinearInterpolator lerp2= new LinearInterpolator(startPosition,(float)changeData.get(2),lastTime,futureTime);
-            this.interpolators.put("yPosition",lerp2);
-        }
-        else
-            this.interpolators.remove("yPosition");
-        
-        //scale interpolator     
-        if(changeData.get(3) != null)
-        {   
-            float startPosition=  interpolators.containsKey("scale")? (float)interpolators.get("scale").getB() : scale;
-            LinearInterpolator lerp3= new LinearInterpolator(startPosition,(float)changeData.get(3),lastTime,futureTime);
-            this.interpolators.put("scale",lerp3);
-        }
-        else
-            this.interpolators.remove("scale");
-        
-        //angle interpolator       
-        if(changeData.get(4) != null)
-        {
-            float startPosition=  interpolators.containsKey("angle")? (float)interpolators.get("angle").getB() : angle;
-            LinearInterpolator lerp4= new LinearInterpolator(startPosition,(float)changeData.get(4),lastTime,futureTime);
-            this.interpolators.put("angle",lerp4);
-        }
-        else
-            this.interpolators.remove("angle");
+        //position, scale and angle interpolation
+        this.interpolateTrack(X_TRACK, changeData.get(1), this.getPosition().x, lastTime, futureTime);
+        this.interpolateTrack(Y_TRACK, changeData.get(2), this.getPosition().y, lastTime, futureTime);
+        this.interpolateTrack(SCALE_TRACK, changeData.get(3), scale, lastTime, futureTime);
+        this.interpolateTrack(ANGLE_TRACK, changeData.get(4), angle, lastTime, futureTime);
         
         if(changeData.get(5) != null)
             this.color = (Color)changeData.get(5);
@@ -649,26 +665,26 @@ public class Text extends NetworkedSceneObject implements Anchorable
     
     public void interpolate(long currentTime)
     {
-        if(!this.interpolators.isEmpty())
+        if(this.isInterpolating())
         {
             //interpolate x and y positions
             float x = this.getPosition().x;
             float y = this.getPosition().y;             
-            if(this.interpolators.containsKey("xPosition") && currentTime <= this.interpolators.get("xPosition").getb())             
-               x = (float)this.interpolators.get("xPosition").interp(currentTime);
+            if(this.isTrackMoving(X_TRACK, currentTime))             
+               x = this.interpolatedValue(X_TRACK, currentTime);
             
-            if(this.interpolators.containsKey("yPosition")&& currentTime <= this.interpolators.get("yPosition").getb())
-               y = (float)this.interpolators.get("yPosition").interp(currentTime);
+            if(this.isTrackMoving(Y_TRACK, currentTime))
+               y = this.interpolatedValue(Y_TRACK, currentTime);
 
             this.setPosition(x, y);
             
             //interpolate scale
-            if(this.interpolators.containsKey("scale") && currentTime <= this.interpolators.get("scale").getb())
-                this.scale = (float)this.interpolators.get("scale").interp(currentTime);
+            if(this.isTrackMoving(SCALE_TRACK, currentTime))
+                this.scale = this.interpolatedValue(SCALE_TRACK, currentTime);
             
             //interpolate angle
-            if(this.interpolators.containsKey("angle") && currentTime <= this.interpolators.get("angle").getb())
-                this.angle = (float)this.interpolators.get("angle").interp(currentTime);
+            if(this.isTrackMoving(ANGLE_TRACK, currentTime))
+                this.angle = this.interpolatedValue(ANGLE_TRACK, currentTime);
         }
     }
     
@@ -3,9 +3,7 @@ package com.silvergobletgames.sylver.graphics;
 import com.silvergobletgames.sylver.core.Effect;
 import com.silvergobletgames.sylver.graphics.Anchorable.Anchor;
 import com.silvergobletgames.sylver.netcode.RenderData;
-import com.silvergobletgames.sylver.util.LinearInterpolator;
 import java.security.InvalidParameterException;
-import java.util.HashMap;
 import com.silvergobletgames.sylver.util.SylverVector2f;
 
 /**
@@ -26,8 +24,6 @@ public class TextEffect extends Effect
     protected boolean repeat;
     //delay
     protected int delay;
-    //interpolators
-    protected HashMap<String,LinearInterpolator> interpolators = new HashMap<>(); 
     
     //render effect type enum
     public static enum TextEffectType{
@@ -66,22 +62,15 @@ public class TextEffect extends Effect
         this.start = start;
         this.end = end;
         
-        //set up the interpolators
+        //set up the tween tracks
         if(type != TextEffect.TextEffectType.COLOR)
-        {
-           LinearInterpolator interpolator = new LinearInterpolator(((Number)start).floatValue(), ((Number)end).floatValue(), 1, duration);
-           interpolators.put("interpolator", interpolator);
-        }
+            this.setTrack(VALUE_TRACK, ((Number)start).floatValue(), ((Number)end).floatValue(), duration);
         else
         {
-            LinearInterpolator r = new LinearInterpolator(((Color)start).r, ((Color)end).r, 1, duration);
-            LinearInterpolator g = new LinearInterpolator(((Color)start).g, ((Color)end).g, 1, duration);
-            LinearInterpolator b = new LinearInterpolator(((Color)start).b, ((Color)end).b, 1, duration);
-            LinearInterpolator a = new LinearInterpolator(((Color)start).a, ((Color)end).a, 1, duration);
-            interpolators.put("r", r);
-            interpolators.put("g", g);
-            interpolators.put("b", b);
-            interpolators.put("a", a);
+            this.setTrack(RED_TRACK, ((Color)start).r, ((Color)end).r, duration);
+            this.setTrack(GREEN_TRACK, ((Color)start).g, ((Color)end).g, duration);
+            this.setTrack(BLUE_TRACK, ((Color)start).b, ((Color)end).b, duration);
+            this.setTrack(ALPHA_TRACK, ((Color)start).a, ((Color)end).a, duration);
         }
     }
 
@@ -132,18 +121,22 @@ public class TextEffect extends Effect
 
     public TextEffect copy()
     {
-        return new TextEffect(this.textEffectType,duration,this.start,this.end);
+        TextEffect returnCopy = new TextEffect(this.textEffectType,duration,this.start,this.end);
+        returnCopy.setEasing(this.getEasing());
+        return returnCopy;
     }
     
     private void adjustText()
     {
+        this.advanceTracks(timeElapsed);
+        
         //switch through the different types of effects doing the correct adjustments     
         switch(textEffectType)
         {
             case SCALE: 
             {   
                 SylverVector2f beforeCenter = new SylverVector2f(owningText.getPosition().x + owningText.getWidth()/2,owningText.getPosition().y + owningText.getHeight()/2);
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningText.setScale(adjustmentValue);
                 
                 owningText.setPosition(beforeCenter.x - owningText.getWidth()/2, beforeCenter.y - owningText.getHeight()/2);
@@ -151,10 +144,10 @@ public class TextEffect extends Effect
             }
             case COLOR:
             {
-                float r = (float)interpolators.get("r").interp(timeElapsed);
-                float g = (float)interpolators.get("g").interp(timeElapsed);
-                float b = (float)interpolators.get("b").interp(timeElapsed); 
-                float a = (float)interpolators.get("a").interp(timeElapsed); 
+                float r = this.getTrackValue(RED_TRACK);
+                float g = this.getTrackValue(GREEN_TRACK);
+                float b = this.getTrackValue(BLUE_TRACK); 
+                float a = this.getTrackValue(ALPHA_TRACK); 
                 owningText.setColor(new Color(r,g,b,a));              
                 break;
             } 
@@ -164,19 +157,19 @@ public class TextEffect extends Effect
             }
             case ANGLE: 
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningText.setRotation(adjustmentValue);
                 break;
             }
             case XTRANSLATE: 
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningText.setPosition(adjustmentValue,owningText.getPosition().y);
                  break;
             }
             case YTRANSLATE: 
             {
-                float adjustmentValue = (float)interpolators.get("interpolator").interp(timeElapsed);
+                float adjustmentValue = this.getTrackValue(VALUE_TRACK);
                 owningText.setPosition(owningText.getPosition().x,adjustmentValue);
                 break;
             }
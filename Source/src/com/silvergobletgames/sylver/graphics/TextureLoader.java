@@ -2,11 +2,16 @@ package com.silvergobletgames.sylver.graphics;
 
 import com.jogamp.opengl.util.texture.Texture;
 import com.jogamp.opengl.util.texture.TextureIO;
+import com.silvergobletgames.sylver.core.EngineEvents;
 import com.silvergobletgames.sylver.core.Game;
 import com.silvergobletgames.sylver.util.Log;
 import com.sun.nio.zipfs.ZipFileSystem;
+import java.awt.Dimension;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.*;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
@@ -21,10 +26,15 @@ import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarEntry;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.media.opengl.GL;
 import javax.media.opengl.GLException;
 
 /**
@@ -90,6 +100,15 @@ public class TextureLoader
         return null;
     }
     
+    /**
+     * Gets the number of textures that are loaded
+     * @return loaded texture count
+     */
+    public int getTextureCount()
+    {
+        return this.loadedTextures.size();
+    }
+    
     /**
      * Loads a texture into memory.  Works for a URI pointing to a location inside a .jar, or on disk. The texture 
      * can be retrieved by the given identifier. Can load .png, .jpg, .gif, .tga files.
@@ -98,10 +117,18 @@ public class TextureLoader
      */
     public void loadTexture(URI resourceURI, String identifier) 
     {                      
+        //when headless only record the textures metadata
+        if(Game.getInstance().isHeadless())
+        {
+            this.loadTextureMetadata(resourceURI, identifier);
+            return;
+        }
+        
         //make the loading buffer context current
         Game.getInstance().getGraphicsWindow().getOffscreenLoadingBuffer().getContext().makeCurrent();
         
         //load the texture from the resource     
+        long eventStart = EngineEvents.begin();
         try 
         {      
             //initialize texture variable
@@ -123,6 +150,8 @@ public class TextureLoader
             
             //store the texture in the map with the filename as the key
             loadedTextures.put(identifier, tex);
+            if(eventStart != 0)
+                EngineEvents.commit(EngineEvents.EventType.TEXTURE_LOAD, eventStart, identifier, tex != null ? tex.getEstimatedMemorySize() : 0, 0);
                 
         } 
         catch (Exception e) 
@@ -139,8 +168,20 @@ public class TextureLoader
         
     }
     
+    /**
+     * Loads a batch of textures into memory under a single context binding. Each entry maps a texture URI to its identifier.
+     * @param batch textures to load
+     */
     public void loadTextureBatch(ArrayList<SimpleEntry<URI,String>> batch)
     {
+        //when headless only record the textures metadata
+        if(Game.getInstance().isHeadless())
+        {
+            for(SimpleEntry<URI,String> entry : batch)
+                this.loadTextureMetadata(entry.getKey(), entry.getValue());
+            return;
+        }
+        
         //bind context
         Game.getInstance().getGraphicsWindow().getOffscreenLoadingBuffer().getContext().makeCurrent();
         
@@ -151,6 +192,7 @@ public class TextureLoader
             String identifier = entry.getValue();
         
             //load the texture from the resource     
+            long eventStart = EngineEvents.begin();
             try 
             {      
                 //initialize texture variable
@@ -172,6 +214,8 @@ public class TextureLoader
 
                 //store the texture in the map with the filename as the key
                 loadedTextures.put(identifier, tex);
+                if(eventStart != 0)
+                    EngineEvents.commit(EngineEvents.EventType.TEXTURE_LOAD, eventStart, identifier, tex != null ? tex.getEstimatedMemorySize() : 0, 0);
 
             } 
             catch (Exception e) 
@@ -186,6 +230,69 @@ public class TextureLoader
         Game.getInstance().getGraphicsWindow().getOffscreenLoadingBuffer().getContext().release();
     }
     
+    /**
+     * Registers a texture that has its image dimensions but no OpenGL texture behind it. Used when running headless
+     * so that Images and animations can still be sized from their textures. Only the image header is read.
+     * @param resourceURI URI pointing to the location of the texture
+     * @param identifier String identifier identifying the texture
+     */
+    private void loadTextureMetadata(URI resourceURI, String identifier)
+    {
+        try
+        {
+            Dimension size = readImageSize(resourceURI);
+            loadedTextures.put(identifier, new Texture(0, GL.GL_TEXTURE_2D, size.width, size.height, size.width, size.height, false));
+        }
+        catch(Exception e)
+        {
+            //log error to console
+            Log.error( "Error Loading Texture Metadata: " + resourceURI.toString() + " : " + e.getMessage(),e);
+        }
+    }
+    
+    /**
+     * Reads the dimensions of an image from its header without decoding it
+     * @param resourceURI URI pointing to the image
+     * @return size of the image
+     * @throws IOException if the image cant be read
+     */
+    private static Dimension readImageSize(URI resourceURI) throws IOException
+    {
+        String resourceRef = resourceURI.toString().toLowerCase();
+        
+        try(InputStream in = new BufferedInputStream(resourceURI.toURL().openStream()))
+        {
+            //ImageIO has no tga reader, but the size is at a fixed spot in the header
+            if(resourceRef.endsWith(".tga"))
+            {
+                DataInputStream data = new DataInputStream(in);
+                data.skipBytes(12);
+                int width = data.readUnsignedByte() | (data.readUnsignedByte() << 8);
+                int height = data.readUnsignedByte() | (data.readUnsignedByte() << 8);
+                return new Dimension(width,height);
+            }
+            
+            //read the header with an ImageIO reader
+            try(ImageInputStream imageStream = ImageIO.createImageInputStream(in))
+            {
+                Iterator<ImageReader> readers = ImageIO.getImageReaders(imageStream);
+                if(!readers.hasNext())
+                    throw new IOException("No image reader for " + resourceRef);
+                
+                ImageReader reader = readers.next();
+                try
+                {
+                    reader.setInput(imageStream, true, true);
+                    return new Dimension(reader.getWidth(0), reader.getHeight(0));
+                }
+                finally
+                {
+                    reader.dispose();
+                }
+            }
+        }
+    }
+    
     /**
      * Loads all textures located in the directory specified by the URI. Works for a URI pointing to a location inside a .jar, or on disk
      * @param directoryURI URI pointing to a directory of textures
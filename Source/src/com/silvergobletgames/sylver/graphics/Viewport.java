@@ -171,6 +171,18 @@ public class Viewport
         return this.panningVertical;
     }
     
+    /**
+     * Makes this viewport see the same area as another, used to snapshot the viewport for the render thread
+     * @param other Viewport to copy the position and dimensions of
+     */
+    public void set(Viewport other)
+    {
+        this.width = other.width;
+        this.height = other.height;
+        this.xPos = other.xPos;
+        this.yPos = other.yPos;
+    }
+    
     public void setDimensions(float x, float y)
     {
         this.width = x;
@@ -188,58 +200,86 @@ public class Viewport
      
     public boolean isSceneObjectVisible(SceneObject object, Layer layer)
     {
-        SylverVector2f positionOfObj = new SylverVector2f(0,0);
+        //determine max dimension of obj, scene objects of unknown types are tested at the origin
+        float maxDimension = getCullingRadius(object);
+        float objX = 0, objY = 0;
+        if(maxDimension >= 0)
+        {
+            objX = object.getPosition().x;
+            objY = object.getPosition().y;
+        }
+        else
+            maxDimension = 0;
+        
+        //coordinate transform of position based on layer      
+        float conversionFactor = Layer.getLayerConversionFactor(Layer.MAIN, layer);
+        float adjustedX = this.xPos * conversionFactor;
+        float adjustedY = this.yPos * conversionFactor;
+        
+        if(objX + maxDimension >= adjustedX && objX - maxDimension <= adjustedX + this.getWidth() &&
+           objY + maxDimension >= adjustedY && objY - maxDimension  <= adjustedY + this.getHeight())
+            return true;
+        else
+            return false;
+    }
+    
+    /**
+     * Gets the area of the given layer that the viewport sees, in that layers coordinates
+     * @param layer Layer to get the visible area of
+     * @param bounds array of at least 4 floats, filled with the minimum x, minimum y, maximum x and maximum y of the 
+     * visible area
+     */
+    public void getVisibleBounds(Layer layer, float[] bounds)
+    {
+        float conversionFactor = Layer.getLayerConversionFactor(Layer.MAIN, layer);
+        float adjustedX = this.xPos * conversionFactor;
+        float adjustedY = this.yPos * conversionFactor;
+        bounds[0] = adjustedX;
+        bounds[1] = adjustedY;
+        bounds[2] = adjustedX + this.getWidth();
+        bounds[3] = adjustedY + this.getHeight();
+    }
+    
+    /**
+     * Gets the distance around a SceneObjects position that it can draw to, which is what visibility is tested with.
+     * @param object SceneObject to measure
+     * @return culling radius of the SceneObject, or -1 for SceneObject types the viewport doesnt know about
+     */
+    public static float getCullingRadius(SceneObject object)
+    {
         float widthOfObj =0;
         float heightOfObj =0;
-        float maxDimension = 0;
-        
-        //determine position width and height for the various scene objects
         
+        //determine width and height for the various scene objects
         if(object instanceof Image)
         {
-            positionOfObj = new SylverVector2f(((Image)object).getPosition());
             widthOfObj = ((Image)object).getWidth() * ((Image)object).getScale();
             heightOfObj = ((Image)object).getHeight() * ((Image)object).getScale();
         }
         else if(object instanceof Text)
         {
-            positionOfObj = new SylverVector2f(object.getPosition());
             widthOfObj = ((Text)object).getWidth() * ((Text)object).getScale();
             heightOfObj = ((Text)object).getHeight() * ((Text)object).getScale();
         }
         else if(object instanceof AbstractParticleEmitter)
         {
-            positionOfObj = new SylverVector2f(object.getPosition());
             widthOfObj = 500;
             heightOfObj = 500; //TODO - more accurately figure this out
         }
         else if(object instanceof LightSource)
         {
-            positionOfObj = new SylverVector2f(object.getPosition());           
             widthOfObj = ((LightSource)object).getSize();
             heightOfObj = widthOfObj;          
         }
         else if(object instanceof DarkSource)
         {
-            positionOfObj = new SylverVector2f(object.getPosition());
             widthOfObj = ((DarkSource)object).getWidth();
             heightOfObj = ((DarkSource)object).getHeight();
         }
-        
-        
-        //determine max dimension of obj
-        maxDimension =(float)Math.sqrt(Math.pow(widthOfObj, 2) + Math.pow(heightOfObj, 2));
-        
-        //coordinate transform of position based on layer      
-        SylverVector2f adjustedViewportPos = new SylverVector2f(this.xPos,this.yPos);
-        adjustedViewportPos.scale(Layer.getLayerConversionFactor(Layer.MAIN, layer));
-        SylverVector2f adjustedViewportDimensions = new SylverVector2f(this.getWidth(),this.getHeight());
-        
-        if(positionOfObj.x + maxDimension >= adjustedViewportPos.x && positionOfObj.x - maxDimension <= adjustedViewportPos.x + adjustedViewportDimensions.x&&
-           positionOfObj.y + maxDimension >= adjustedViewportPos.y && positionOfObj.y - maxDimension  <= adjustedViewportPos.y + adjustedViewportDimensions.y)
-            return true;
         else
-            return false;
+            return -1;
+        
+        return (float)Math.sqrt(widthOfObj * widthOfObj + heightOfObj * heightOfObj);
     }
    
 }
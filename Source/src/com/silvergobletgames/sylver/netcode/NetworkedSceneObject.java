@@ -1,15 +1,30 @@
 
 package com.silvergobletgames.sylver.netcode;
 
+import com.silvergobletgames.sylver.core.EngineEvents;
+import com.silvergobletgames.sylver.core.Scene;
 import com.silvergobletgames.sylver.core.SceneObject;
+import com.silvergobletgames.sylver.core.SceneSnapshotRing;
 import com.silvergobletgames.sylver.util.LinearInterpolator;
+import com.silvergobletgames.sylver.util.TweenEngine;
+import java.util.Arrays;
 import java.util.HashMap;
 
 
 public abstract class NetworkedSceneObject extends SceneObject
 {
-    //interpolators that all scene objects will use for rendering
-    protected HashMap<String,LinearInterpolator> interpolators = new HashMap<>(); //TODO: move into networked scene object
+    /**
+     * Interpolators that scene objects used for rendering. Kept so subclasses that still fill it compile.
+     * @deprecated the engine no longer reads these, use interpolateTrack() and interpolatedValue()
+     */
+    @Deprecated
+    protected HashMap<String,LinearInterpolator> interpolators = new HashMap<>();
+    //tween engine the interpolation tracks are in, the owning scenes or the fallback, null before the first packet
+    private TweenEngine interpolationTweens;
+    //tween engine for the tracks of an object that isnt in a scene, such as a render copy, created when needed
+    private TweenEngine fallbackTweens;
+    //tween handle of each track, indexed by the subclasses track numbers, 0 if the track isnt interpolating
+    private int[] interpolationHandles = new int[0];
     
     
     //=============================
@@ -19,10 +34,236 @@ public abstract class NetworkedSceneObject extends SceneObject
     
     //public static SceneObject buildFromRenderData(SceneObjectRenderData data);
     
+    /**
+     * Writes this objects render data into a scene snapshot. The base version writes dumpRenderData(), subclasses that
+     * are snapshotted every tick can override this to write the same values straight into the snapshot, which must 
+     * read back as an equal dumpRenderData().
+     * @param writer writer of the snapshot being captured
+     */
+    public void writeSnapshot(SceneSnapshotRing.SnapshotWriter writer)
+    {
+        writer.writeValue(this.dumpRenderData());
+    }
+    
+    /**
+     * Generates the changes between two render data dumps. Callers should go through diffRenderData(), which records the delta.
+     */
     public abstract SceneObjectRenderDataChanges generateRenderDataChanges(SceneObjectRenderData oldData,SceneObjectRenderData newData);
     
+    /**
+     * Applies render data changes. Callers should go through applyRenderDataChanges(), which records the reconcile.
+     */
     public abstract void reconcileRenderDataChanges(long lastTime, long futureTime, SceneObjectRenderDataChanges renderDataChanges);
     
     public abstract void interpolate(long currenttime);
     
+    /**
+     * Copies the draw state that isnt in the render data into a render copy of this object, which was built from 
+     * this objects render data by buildFromRenderData(). Called on the update thread each time a render snapshot is 
+     * published when pipelined rendering is enabled, the render copy gets its render data afterwards. The base 
+     * version does nothing, objects that draw state their render data doesnt carry, like the particles of a particle 
+     * emitter, override this.
+     * @param renderCopy render copy of this object, which the render thread isnt drawing
+     */
+    public void copyDrawState(NetworkedSceneObject renderCopy)
+    {
+        
+    }
+    
+    /**
+     * Snaps this object to the state in a render data dump, without interpolating. Used to restore scene snapshots 
+     * and render copies. Restores arent network traffic, so they dont record delta or reconcile engine events.
+     * @param renderData render data to restore, from dumpRenderData() of an object of the same class
+     */
+    public final void restoreRenderData(SceneObjectRenderData renderData)
+    {
+        SceneObjectRenderDataChanges changes = this.generateRenderDataChanges(this.dumpRenderData(), renderData);
+        if(changes == null)
+            return;
+        
+        this.clearInterpolation();
+        this.reconcileRenderDataChanges(0, 0, changes);
+        this.interpolate(0);
+        this.clearInterpolation();
+    }
+    
+    
+    //=============================
+    // Interpolation Methods
+    //=============================
+    
+    /**
+     * Starts interpolating a track towards a new value. The track starts from the end of its previous interpolation
+     * if it has one, and from the current value otherwise. Tracks are linear and extrapolate, so sampling after 
+     * futureTime dead reckons along the same line until the next packet arrives. Tracks are re-armed in place, so no 
+     * garbage is made per packet.
+     * @param track track number, chosen by the subclass
+     * @param end value to reach at futureTime, or null to stop interpolating the track
+     * @param currentValue current value of the field the track drives
+     * @param lastTime time of the last packet
+     * @param futureTime time of this packet
+     */
+    protected final void interpolateTrack(int track, Object end, float currentValue, long lastTime, long futureTime)
+    {
+        if(end == null)
+        {
+            this.stopInterpolatingTrack(track);
+            return;
+        }
+        
+        //tracks live in the owning scenes tween engine, drop any left in another engine if the object has moved
+        TweenEngine tweens = this.currentTweens();
+        if(this.interpolationTweens != tweens)
+        {
+            this.clearInterpolation();
+            this.interpolationTweens = tweens;
+        }
+        if(track >= this.interpolationHandles.length)
+            this.interpolationHandles = Arrays.copyOf(this.interpolationHandles, track + 1);
+        
+        int handle = this.interpolationHandles[track];
+        float start = this.interpolationTweens.isValid(handle) ? this.interpolationTweens.getEnd(handle) : currentValue;
+        this.interpolationHandles[track] = this.interpolationTweens.setOrCreate(handle, start, (float)end, lastTime, futureTime, TweenEngine.Easing.LINEAR);
+        
+        //keep moving past futureTime if the next packet is late, as LinearInterpolator did
+        this.interpolationTweens.setExtrapolating(this.interpolationHandles[track], true);
+    }
+    
+    /**
+     * Gets the tween engine tracks should be created in, the owning scenes, or the fallback if this object isnt in a
+     * scene
+     */
+    private TweenEngine currentTweens()
+    {
+        Scene scene = this.owningScene;
+        if(scene != null)
+            return scene.getInterpolationTweens();
+        
+        if(this.fallbackTweens == null)
+            this.fallbackTweens = new TweenEngine(4);
+        return this.fallbackTweens;
+    }
+    
+    /**
+     * Stops interpolating a track
+     * @param track track number
+     */
+    protected final void stopInterpolatingTrack(int track)
+    {
+        if(track < this.interpolationHandles.length && this.interpolationTweens != null)
+        {
+            this.interpolationTweens.release(this.interpolationHandles[track]);
+            this.interpolationHandles[track] = 0;
+        }
+    }
+    
+    /**
+     * Stops interpolating every track
+     */
+    protected final void clearInterpolation()
+    {
+        for(int i = 0; i < this.interpolationHandles.length; i++)
+            this.stopInterpolatingTrack(i);
+    }
+    
+    /**
+     * Returns true if the track is interpolating
+     * @param track track number
+     * @return true if interpolating
+     */
+    protected final boolean isInterpolatingTrack(int track)
+    {
+        return track < this.interpolationHandles.length && this.interpolationHandles[track] != 0;
+    }
+    
+    /**
+     * Returns true if the track is interpolating and hasnt reached its end yet at the given time
+     * @param track track number
+     * @param currentTime time to check
+     * @return true if the track is still moving
+     */
+    protected final boolean isTrackMoving(int track, long currentTime)
+    {
+        return this.isInterpolatingTrack(track) && currentTime <= this.interpolationTweens.getEndTime(this.interpolationHandles[track]);
+    }
+    
+    /**
+     * Returns true if any track is interpolating
+     * @return true if interpolating
+     */
+    protected final boolean isInterpolating()
+    {
+        for(int i = 0; i < this.interpolationHandles.length; i++)
+        {
+            if(this.interpolationHandles[i] != 0)
+                return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Gets the value of an interpolating track at the given time. The first call at a time later than the tween 
+     * engine was last advanced to advances every track in it, so interpolating a whole scene samples it once per
+     * frame. Earlier times, like the one restoreRenderData() uses, sample just this track.
+     * @param track track number, must be interpolating
+     * @param currentTime time to sample at
+     * @return value of the track
+     */
+    protected final float interpolatedValue(int track, long currentTime)
+    {
+        TweenEngine tweens = this.interpolationTweens;
+        if(currentTime > tweens.getTime())
+            tweens.advance(currentTime);
+        
+        if(currentTime == tweens.getTime())
+            return tweens.getValue(this.interpolationHandles[track]);
+        else
+            return tweens.valueAt(this.interpolationHandles[track], currentTime);
+    }
+    
+    /**
+     * Sets the owning scene, releasing any interpolation tracks this object has in the tween engine of the scene
+     * it is leaving
+     * @param scene Scene to which this NetworkedSceneObject will belong
+     */
+    @Override
+    public void setOwningScene(Scene scene)
+    {
+        if(scene != this.owningScene)
+            this.clearInterpolation();
+        
+        super.setOwningScene(scene);
+    }
+    
+    /**
+     * Generates the render data changes between two render data dumps, recording a RENDER_DATA_DELTA engine event.
+     * Netcode should call this rather than generateRenderDataChanges() directly so that deltas show up in recordings.
+     * @param oldData previous render data
+     * @param newData current render data
+     * @return the changes between them
+     */
+    public final SceneObjectRenderDataChanges diffRenderData(SceneObjectRenderData oldData, SceneObjectRenderData newData)
+    {
+        long eventStart = EngineEvents.begin();
+        SceneObjectRenderDataChanges changes = this.generateRenderDataChanges(oldData, newData);
+        if(eventStart != 0)
+            EngineEvents.commit(EngineEvents.EventType.RENDER_DATA_DELTA, eventStart, this.ID, changes != null ? Integer.bitCount(changes.fields) : 0, 0);
+        return changes;
+    }
+    
+    /**
+     * Reconciles render data changes, recording a RENDER_DATA_RECONCILE engine event. Netcode should call this rather
+     * than reconcileRenderDataChanges() directly so that reconciliation shows up in recordings.
+     * @param lastTime time of the last change
+     * @param futureTime time of these changes
+     * @param renderDataChanges the changes to apply
+     */
+    public final void applyRenderDataChanges(long lastTime, long futureTime, SceneObjectRenderDataChanges renderDataChanges)
+    {
+        long eventStart = EngineEvents.begin();
+        this.reconcileRenderDataChanges(lastTime, futureTime, renderDataChanges);
+        if(eventStart != 0)
+            EngineEvents.commit(EngineEvents.EventType.RENDER_DATA_RECONCILE, eventStart, this.ID, renderDataChanges != null ? Integer.bitCount(renderDataChanges.fields) : 0, 0);
+    }
+    
 }
@@ -1,17 +1,40 @@
-
 package com.silvergobletgames.sylver.util;
 
 import java.util.ArrayList;
-import javax.swing.event.EventListenerList;
 
 
 /**
- *
+ * ArrayList that tells its DataChangeListeners when items are added or removed. Listeners are told after the change
+ * has been made.
  * @author mike
  */
 public class ChangeAlertList<E>  extends ArrayList<E>{
 
-    protected EventListenerList listenerList = new EventListenerList();
+    //delivers data change events to their listener method
+    private static final EventChannel.Dispatcher<DataChangeListener, DataChangeEvent> DISPATCHER = new EventChannel.Dispatcher<DataChangeListener, DataChangeEvent>(){
+        public void dispatch(DataChangeListener listener, Object source, DataChangeEvent event)
+        {
+            if(event.getType() == DataChangeEvent.ITEM_ADDED)
+                listener.itemAdded(event);
+            else
+                listener.itemRemoved(event);
+        }
+    };
+    //pool of data change events shared by every list
+    private static final Pool<DataChangeEvent> EVENT_POOL = new Pool<DataChangeEvent>("dataChangeEvents", 64){
+        protected DataChangeEvent create()
+        {
+            return new DataChangeEvent(this, null);
+        }
+        
+        protected void reset(DataChangeEvent event)
+        {
+            event.set(null, null, DataChangeEvent.ITEM_ADDED);
+        }
+    };
+    
+    //data change channel, created when the first listener is added
+    protected transient EventChannel<DataChangeListener, DataChangeEvent> dataChangeChannel;
     
     
     public ChangeAlertList()
@@ -25,59 +48,65 @@ public class ChangeAlertList<E>  extends ArrayList<E>{
     }
     
     public void addDataChangeListener(DataChangeListener l) {
-        listenerList.add(DataChangeListener.class, l);
+        this.getDataChangeChannel().addListener(l);
     }
     
     public void removeDataChangeListener(DataChangeListener l) {
-        listenerList.remove(DataChangeListener.class, l);
+        if(this.dataChangeChannel != null)
+            this.dataChangeChannel.removeListener(l);
     }
     
     public DataChangeListener[] getListDataListeners() {
-        return listenerList.getListeners(DataChangeListener.class);
+        return this.getDataChangeChannel().getListeners();
     }
     
-    protected void fireItemAdded(Object source, E item)
+    /**
+     * Gets the channel data change events are fired on, for example to batch it onto an EventBus
+     * @return the data change channel
+     */
+    public EventChannel<DataChangeListener, DataChangeEvent> getDataChangeChannel()
     {
-        Object[] listeners = listenerList.getListenerList();
-        DataChangeEvent e = null;
-
-        for (int i = listeners.length - 2; i >= 0; i -= 2) {
-            if (listeners[i] == DataChangeListener.class) {
-                if (e == null) {
-                    e = new DataChangeEvent(source, item);
-                }
-                ((DataChangeListener)listeners[i+1]).itemAdded(e);
-            }
+        if(this.dataChangeChannel == null)
+        {
+            this.dataChangeChannel = new EventChannel<>(DataChangeListener.class, DISPATCHER);
+            this.dataChangeChannel.setEventPool(EVENT_POOL);
         }
+        return this.dataChangeChannel;
     }
     
-     protected void fireItemRemoved(Object source, E item)
+    protected void fireItemAdded(Object source, E item)
     {
-        Object[] listeners = listenerList.getListenerList();
-        DataChangeEvent e = null;
-
-        for (int i = listeners.length - 2; i >= 0; i -= 2) {
-            if (listeners[i] == DataChangeListener.class) {
-                if (e == null) {
-                    e = new DataChangeEvent(source, item);
-                }
-                ((DataChangeListener)listeners[i+1]).itemRemoved(e);
-            }
-        }
+        this.fireDataChange(source, item, DataChangeEvent.ITEM_ADDED);
+    }
+    
+    protected void fireItemRemoved(Object source, E item)
+    {
+        this.fireDataChange(source, item, DataChangeEvent.ITEM_REMOVED);
+    }
+    
+    private void fireDataChange(Object source, E item, int type)
+    {
+        if(this.dataChangeChannel == null || !this.dataChangeChannel.hasListeners())
+            return;
+        
+        DataChangeEvent e = this.dataChangeChannel.obtainEvent();
+        e.set(source, item, type);
+        this.dataChangeChannel.fire(source, e);
     }
 
    @Override
     public boolean add(E element){
-       this.fireItemAdded(this, element);
-        return super.add(element);
+        boolean added = super.add(element);
+        this.fireItemAdded(this, element);
+        return added;
         
     }
     
     @Override
     public void add(int index, E element)
     {
-        this.fireItemAdded(this, element);
         super.add(index,element);
+        this.fireItemAdded(this, element);
     }
     
     @Override
@@ -90,8 +119,12 @@ public class ChangeAlertList<E>  extends ArrayList<E>{
        
     @Override
     public boolean remove(Object o){
-        this.fireItemRemoved(this, (E)o);
-        return super.remove((E)o);
+        int index = this.indexOf(o);
+        if(index == -1)
+            return false;
+        
+        this.remove(index);
+        return true;
       
     }      
 
@@ -1,8 +1,11 @@
-
 package com.silvergobletgames.sylver.util;
 
 import java.util.EventObject;
 
+/**
+ * Event fired by a ChangeAlertList when an item is added or removed. Events are pooled by the list, so a listener
+ * must not hold on to one after it returns.
+ */
 public class DataChangeEvent extends EventObject {
     
    public static final int ITEM_ADDED = 0;
@@ -10,7 +13,6 @@ public class DataChangeEvent extends EventObject {
     
    private int type;
    private Object item;
-   private Object source;
    
    public DataChangeEvent(Object source, Object item) 
    {
@@ -18,6 +20,23 @@ public class DataChangeEvent extends EventObject {
         this.item = item;
    }
    
+   public DataChangeEvent(Object source, Object item, int type) 
+   {
+        super(source);
+        this.item = item;
+        this.type = type;
+   }
+   
+   /**
+    * Reuses this event for another change
+    */
+   void set(Object source, Object item, int type)
+   {
+       this.source = source;
+       this.item = item;
+       this.type = type;
+   }
+   
    /**
      * Returns the event type. The possible values are:
      * <ul>
@@ -33,10 +52,5 @@ public class DataChangeEvent extends EventObject {
     {
         return item;
     }
-    
-    public Object getSource()
-    {
-        return source;
-    }
        
 }
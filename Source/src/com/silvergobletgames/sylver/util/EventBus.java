@@ -0,0 +1,73 @@
+package com.silvergobletgames.sylver.util;
+
+import java.util.Arrays;
+
+/**
+ * Queues the events of batched EventChannels and delivers them all at once when flushed, in the order they were
+ * fired. The game has a bus that it flushes once per tick, see Game.getEventBus(), so batching a channel onto it
+ * defers its events to the end of the tick. Events fired while the bus is flushing are delivered in the same flush.
+ *
+ * The queue is held in arrays that grow to fit the busiest tick and are then reused. A bus is not thread safe, events
+ * should be fired and flushed from the game loop thread.
+ * @author Mike
+ */
+public final class EventBus
+{
+    //queued events, with their channels and sources
+    private EventChannel[] channels = new EventChannel[64];
+    private Object[] sources = new Object[64];
+    private Object[] events = new Object[64];
+    private int count = 0;
+
+
+    //================
+    // Class Methods
+    //================
+
+    /**
+     * Queues an event for the next flush
+     */
+    void post(EventChannel channel, Object source, Object event)
+    {
+        if(this.count == this.channels.length)
+        {
+            this.channels = Arrays.copyOf(this.channels, this.count * 2);
+            this.sources = Arrays.copyOf(this.sources, this.count * 2);
+            this.events = Arrays.copyOf(this.events, this.count * 2);
+        }
+
+        this.channels[this.count] = channel;
+        this.sources[this.count] = source;
+        this.events[this.count] = event;
+        this.count++;
+    }
+
+    /**
+     * Delivers every queued event
+     */
+    public void flush()
+    {
+        try
+        {
+            for(int i = 0; i < this.count; i++)
+                this.channels[i].deliver(this.sources[i], this.events[i]);
+        }
+        finally
+        {
+            Arrays.fill(this.channels, 0, this.count, null);
+            Arrays.fill(this.sources, 0, this.count, null);
+            Arrays.fill(this.events, 0, this.count, null);
+            this.count = 0;
+        }
+    }
+
+    /**
+     * Gets the number of events waiting for the next flush
+     * @return queued event count
+     */
+    public int getQueuedCount()
+    {
+        return this.count;
+    }
+
+}
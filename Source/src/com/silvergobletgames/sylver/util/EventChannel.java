@@ -0,0 +1,178 @@
+package com.silvergobletgames.sylver.util;
+
+import java.lang.reflect.Array;
+
+/**
+ * A typed channel of events, delivered to listeners of type L. The listeners are held in a plain array that is only
+ * copied when a listener is added or removed, so firing an event is an indexed loop with no casts or allocation. As
+ * with EventListenerList, the most recently added listener is notified first, and listeners added or removed while an
+ * event is being delivered dont affect that delivery.
+ *
+ * A channel delivers events as they are fired, unless it is batched onto an EventBus, in which case the events are
+ * queued and delivered when the bus is flushed. A channel with an event pool frees each event back to the pool once
+ * it has been delivered, so listeners must not hold on to the events of a pooled channel.
+ * @author Mike
+ */
+public final class EventChannel<L, E>
+{
+    //listener type, and the listeners
+    private final Class<L> listenerType;
+    private Object[] listeners = new Object[0];
+    //calls the right listener method for an event
+    private final Dispatcher<L, E> dispatcher;
+    //bus we queue events on when batched, null to deliver immediately
+    private EventBus bus;
+    //pool the events are freed to once delivered, or null
+    private Pool<E> eventPool;
+
+    /**
+     * Delivers an event to one listener. Dispatchers are usually stateless constants shared by every channel of a
+     * type.
+     */
+    public static interface Dispatcher<L, E>
+    {
+        public void dispatch(L listener, Object source, E event);
+    }
+
+
+    //================
+    // Constructor
+    //================
+
+    /**
+     * Creates a channel
+     * @param listenerType type of the listeners
+     * @param dispatcher delivers events to listeners
+     */
+    public EventChannel(Class<L> listenerType, Dispatcher<L, E> dispatcher)
+    {
+        this.listenerType = listenerType;
+        this.dispatcher = dispatcher;
+    }
+
+
+    //================
+    // Class Methods
+    //================
+
+    public synchronized void addListener(L listener)
+    {
+        if(listener == null)
+            return;
+
+        Object[] updated = new Object[this.listeners.length + 1];
+        System.arraycopy(this.listeners, 0, updated, 0, this.listeners.length);
+        updated[this.listeners.length] = listener;
+        this.listeners = updated;
+    }
+
+    /**
+     * Removes a listener, the most recently added one if it was added more than once
+     * @param listener listener to remove
+     */
+    public synchronized void removeListener(L listener)
+    {
+        for(int i = this.listeners.length - 1; i >= 0; i--)
+        {
+            if(this.listeners[i] == listener)
+            {
+                Object[] updated = new Object[this.listeners.length - 1];
+                System.arraycopy(this.listeners, 0, updated, 0, i);
+                System.arraycopy(this.listeners, i + 1, updated, i, updated.length - i);
+                this.listeners = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets a copy of the listeners, in the order they were added
+     * @return array of the listeners
+     */
+    public L[] getListeners()
+    {
+        Object[] current = this.listeners;
+        L[] copy = (L[])Array.newInstance(this.listenerType, current.length);
+        System.arraycopy(current, 0, copy, 0, current.length);
+        return copy;
+    }
+
+    public boolean hasListeners()
+    {
+        return this.listeners.length > 0;
+    }
+
+    /**
+     * Fires an event. It is delivered now, or when the bus is flushed if the channel is batched. If nobody is
+     * listening the event is dropped, and freed if the channel is pooled.
+     * @param source source of the event
+     * @param event the event
+     */
+    public void fire(Object source, E event)
+    {
+        if(this.listeners.length == 0)
+        {
+            this.recycle(event);
+            return;
+        }
+
+        if(this.bus != null)
+            this.bus.post(this, source, event);
+        else
+            this.deliver(source, event);
+    }
+
+    /**
+     * Delivers an event to every listener, then frees it if the channel is pooled
+     */
+    void deliver(Object source, E event)
+    {
+        Object[] current = this.listeners;
+        for(int i = current.length - 1; i >= 0; i--)
+            this.dispatcher.dispatch((L)current[i], source, event);
+
+        this.recycle(event);
+    }
+
+    /**
+     * Batches this channel onto a bus. Events fired from then on are queued and delivered when the bus is flushed.
+     * @param bus EventBus to queue events on, or null to deliver events as they are fired
+     */
+    public void setBatched(EventBus bus)
+    {
+        this.bus = bus;
+    }
+
+    public boolean isBatched()
+    {
+        return this.bus != null;
+    }
+
+    /**
+     * Sets the pool events are freed to once they have been delivered
+     * @param eventPool pool of events, or null
+     */
+    public void setEventPool(Pool<E> eventPool)
+    {
+        this.eventPool = eventPool;
+    }
+
+    /**
+     * Gets an event to fire, from the event pool
+     * @return an event from the pool
+     */
+    public E obtainEvent()
+    {
+        if(this.eventPool == null)
+            throw new RuntimeException("EventChannel has no event pool");
+
+        return this.eventPool.obtain();
+    }
+
+    private void recycle(E event)
+    {
+        if(this.eventPool != null)
+            this.eventPool.free(event);
+    }
+
+}
@@ -21,6 +21,9 @@
  **/
 
 package com.silvergobletgames.sylver.util;
+
+import java.util.Map;
+
 /**
  * Handle linear interpolation of a single floating
  * point (double) variable.
@@ -59,9 +62,37 @@ public class LinearInterpolator {
      */
     public LinearInterpolator(double A, double B,
                               double a, double b) {
+        this.set(A, B, a, b);
+    }
+
+    /**
+     * Changes this interpolator to map [a,b] to [A,B], so an
+     * existing interpolator can be reused instead of creating
+     * a new one.
+     */
+    public LinearInterpolator set(double A, double B,
+                                  double a, double b) {
         this.A = A;  this.B = B;
         this.a = a;  this.b = b;
         this.f = (B - A) / (b - a);
+        return this;
+    }
+
+    /**
+     * Puts an interpolator mapping [a,b] to [A,B] into the map
+     * under the given key, reusing the interpolator already
+     * there if there is one.
+     */
+    public static LinearInterpolator reuse(Map<String,LinearInterpolator> map, String key,
+                                           double A, double B, double a, double b) {
+        LinearInterpolator interpolator = map.get(key);
+        if(interpolator == null) {
+            interpolator = new LinearInterpolator(A, B, a, b);
+            map.put(key, interpolator);
+        }
+        else
+            interpolator.set(A, B, a, b);
+        return interpolator;
     }
 
     /**
@@ -0,0 +1,192 @@
+package com.silvergobletgames.sylver.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A pool of reusable objects. obtain() hands out a freed object if there is one and creates a new one otherwise,
+ * and free() runs the reset hook and keeps the object for the next obtain(), up to the pools max size. Every pool
+ * counts its hits, misses and frees, and all of the pools can be listed with getPools() for reporting.
+ *
+ * Pools are safe to use from multiple threads. An object must not be used after it is freed.
+ * @author Mike
+ */
+public abstract class Pool<T>
+{
+    //every pool that has been created
+    private static final CopyOnWriteArrayList<Pool> pools = new CopyOnWriteArrayList<>();
+
+    //name of the pool
+    private final String name;
+    //max number of free objects the pool keeps
+    private final int maxSize;
+    //stack of free objects
+    private Object[] freeObjects = new Object[16];
+    private int freeCount = 0;
+
+    //statistics
+    private long hits;
+    private long misses;
+    private long frees;
+    private long discards;
+
+
+    //================
+    // Constructor
+    //================
+
+    /**
+     * Creates a pool
+     * @param name name of the pool, used in reports
+     * @param maxSize max number of free objects to keep, extra freed objects are left for the garbage collector
+     */
+    public Pool(String name, int maxSize)
+    {
+        this.name = name;
+        this.maxSize = maxSize;
+        pools.add(this);
+    }
+
+
+    //================
+    // Class Methods
+    //================
+
+    /**
+     * Creates a new object when the pool is empty
+     * @return new object
+     */
+    protected abstract T create();
+
+    /**
+     * Called on each object as it is freed, to clear any state that shouldnt carry over to its next use
+     * @param object object being freed
+     */
+    protected void reset(T object)
+    {
+
+    }
+
+    /**
+     * Gets an object from the pool, creating one if the pool is empty
+     * @return a free object
+     */
+    public T obtain()
+    {
+        synchronized(this)
+        {
+            if(this.freeCount > 0)
+            {
+                this.hits++;
+                Object object = this.freeObjects[--this.freeCount];
+                this.freeObjects[this.freeCount] = null;
+                return (T)object;
+            }
+            this.misses++;
+        }
+
+        return this.create();
+    }
+
+    /**
+     * Resets an object and returns it to the pool
+     * @param object object to free
+     */
+    public void free(T object)
+    {
+        if(object == null)
+            return;
+
+        this.reset(object);
+
+        synchronized(this)
+        {
+            this.frees++;
+            if(this.freeCount == this.maxSize)
+            {
+                this.discards++;
+                return;
+            }
+
+            if(this.freeCount == this.freeObjects.length)
+                this.freeObjects = Arrays.copyOf(this.freeObjects, Math.min(this.maxSize, this.freeCount * 2));
+            this.freeObjects[this.freeCount++] = object;
+        }
+    }
+
+    /**
+     * Drops all of the free objects
+     */
+    public synchronized void clear()
+    {
+        Arrays.fill(this.freeObjects, 0, this.freeCount, null);
+        this.freeCount = 0;
+    }
+
+
+    //================
+    // Accessors
+    //================
+
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Gets the number of objects waiting in the pool
+     * @return free object count
+     */
+    public synchronized int getFreeCount()
+    {
+        return this.freeCount;
+    }
+
+    /**
+     * Gets the number of obtains that were given a pooled object
+     * @return hit count
+     */
+    public synchronized long getHits()
+    {
+        return this.hits;
+    }
+
+    /**
+     * Gets the number of obtains that had to create an object
+     * @return miss count
+     */
+    public synchronized long getMisses()
+    {
+        return this.misses;
+    }
+
+    /**
+     * Gets the number of objects freed
+     * @return free count
+     */
+    public synchronized long getFrees()
+    {
+        return this.frees;
+    }
+
+    /**
+     * Gets the number of freed objects that were dropped because the pool was full
+     * @return discard count
+     */
+    public synchronized long getDiscards()
+    {
+        return this.discards;
+    }
+
+    /**
+     * Gets every pool that has been created
+     * @return list of pools
+     */
+    public static List<Pool> getPools()
+    {
+        return new ArrayList<Pool>(pools);
+    }
+
+}
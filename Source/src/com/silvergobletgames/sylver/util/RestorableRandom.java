@@ -0,0 +1,121 @@
+package com.silvergobletgames.sylver.util;
+
+import java.util.Random;
+
+/**
+ * A Random whose state can be read and put back, so a rolled back simulation draws the same numbers it drew the
+ * first time. It produces exactly the same sequence as java.util.Random for the same seed, and is thread safe.
+ * @author Mike
+ */
+public final class RestorableRandom extends Random
+{
+    //linear congruential generator constants, the same as java.util.Random
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    //generator state, set by setSeed() from the super constructor so these have no initializers
+    private long seed;
+    private boolean haveNextNextGaussian;
+    private double nextNextGaussian;
+
+
+    //================
+    // Constructors
+    //================
+
+    public RestorableRandom()
+    {
+        super();
+    }
+
+    public RestorableRandom(long seed)
+    {
+        super(seed);
+    }
+
+
+    //================
+    // Class Methods
+    //================
+
+    @Override
+    public synchronized void setSeed(long seed)
+    {
+        this.seed = (seed ^ MULTIPLIER) & MASK;
+        this.haveNextNextGaussian = false;
+    }
+
+    @Override
+    protected synchronized int next(int bits)
+    {
+        this.seed = (this.seed * MULTIPLIER + ADDEND) & MASK;
+        return (int)(this.seed >>> (48 - bits));
+    }
+
+    @Override
+    public synchronized double nextGaussian()
+    {
+        if(this.haveNextNextGaussian)
+        {
+            this.haveNextNextGaussian = false;
+            return this.nextNextGaussian;
+        }
+
+        //polar method, as java.util.Random does it
+        double v1, v2, s;
+        do
+        {
+            v1 = 2 * this.nextDouble() - 1;
+            v2 = 2 * this.nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        }
+        while(s >= 1 || s == 0);
+
+        double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+        this.nextNextGaussian = v2 * multiplier;
+        this.haveNextNextGaussian = true;
+        return v1 * multiplier;
+    }
+
+    /**
+     * Gets the generator state, read it along with hasNextGaussian() and getNextGaussian()
+     * @return the 48 bit generator state
+     */
+    public synchronized long getState()
+    {
+        return this.seed;
+    }
+
+    /**
+     * Returns true if the next nextGaussian() call returns a cached value
+     * @return true if a gaussian is cached
+     */
+    public synchronized boolean hasNextGaussian()
+    {
+        return this.haveNextNextGaussian;
+    }
+
+    /**
+     * Gets the cached gaussian, only meaningful if hasNextGaussian() is true
+     * @return the cached gaussian
+     */
+    public synchronized double getNextGaussian()
+    {
+        return this.nextNextGaussian;
+    }
+
+    /**
+     * Puts back a state read earlier, the numbers drawn after this are the ones that were drawn after it was read
+     * @param state generator state from getState()
+     * @param hasNextGaussian from hasNextGaussian()
+     * @param nextGaussian from getNextGaussian()
+     */
+    public synchronized void restoreState(long state, boolean hasNextGaussian, double nextGaussian)
+    {
+        this.seed = state & MASK;
+        this.haveNextNextGaussian = hasNextGaussian;
+        this.nextNextGaussian = nextGaussian;
+    }
+
+}
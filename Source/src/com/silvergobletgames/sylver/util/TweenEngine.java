@@ -0,0 +1,358 @@
+package com.silvergobletgames.sylver.util;
+
+import java.util.Arrays;
+
+/**
+ * Stores float tweens as tracks in primitive arrays. Each track eases from a start value at time t0 to an end value
+ * at time t1 along an easing curve, and is addressed by an int handle made of its slot and the slots generation, so
+ * a handle to a released track is detected rather than reading whatever reused the slot. Tracks are re-armed with
+ * set() instead of being recreated, so a tween engine doesnt allocate once its arrays have grown to fit.
+ *
+ * Tracks can be sampled one at a time with valueAt(), or all at once with advance() and then read with getValue().
+ * A track that is set between advances is sampled at the time of the last advance straight away, so getValue() is
+ * always current. Times are in whatever unit the caller uses, such as ticks or milliseconds.
+ *
+ * Tracks hold their start value before t0 and their end value after t1, unless they are set to extrapolate, in which
+ * case they carry on along the line through their start and end, the way netcode dead reckons a late packet.
+ * A tween engine is not thread safe.
+ * @author Mike
+ */
+public final class TweenEngine
+{
+    //bits of a handle that hold its slot, the rest hold the generation
+    private static final int SLOT_BITS = 16;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int GENERATION_MASK = (1 << (31 - SLOT_BITS)) - 1;
+
+    //track values, indexed by slot
+    private float[] starts;
+    private float[] ends;
+    private double[] startTimes;
+    private double[] endTimes;
+    private byte[] easings;
+    private float[] values;
+    private int[] generations;
+    private boolean[] active;
+    private boolean[] extrapolating;
+    //time of the last advance
+    private double time = 0;
+    //slots freed by release(), and the next slot that has never been used
+    private int[] freeSlots;
+    private int freeCount = 0;
+    private int nextSlot = 1;
+
+    /**
+     * Easing curves. Each maps progress from 0 to 1 onto eased progress, starting at 0 and ending at 1.
+     */
+    public static enum Easing
+    {
+        LINEAR, QUAD_IN, QUAD_OUT, QUAD_IN_OUT, CUBIC_IN, CUBIC_OUT, CUBIC_IN_OUT, SINE_IN, SINE_OUT, SINE_IN_OUT,
+        EXPO_IN, EXPO_OUT, BACK_OUT, BOUNCE_OUT;
+
+        private static final Easing[] VALUES = values();
+
+        /**
+         * Eases progress along this curve
+         * @param t progress between 0 and 1
+         * @return eased progress
+         */
+        public float apply(float t)
+        {
+            switch(this)
+            {
+                case QUAD_IN: return t * t;
+                case QUAD_OUT: return t * (2 - t);
+                case QUAD_IN_OUT: return t < .5f ? 2 * t * t : -1 + (4 - 2 * t) * t;
+                case CUBIC_IN: return t * t * t;
+                case CUBIC_OUT: { float u = t - 1; return u * u * u + 1; }
+                case CUBIC_IN_OUT: return t < .5f ? 4 * t * t * t : (t - 1) * (2 * t - 2) * (2 * t - 2) + 1;
+                case SINE_IN: return 1 - (float)Math.cos(t * Math.PI / 2);
+                case SINE_OUT: return (float)Math.sin(t * Math.PI / 2);
+                case SINE_IN_OUT: return (float)(-(Math.cos(Math.PI * t) - 1) / 2);
+                case EXPO_IN: return t == 0 ? 0 : (float)Math.pow(2, 10 * t - 10);
+                case EXPO_OUT: return t == 1 ? 1 : 1 - (float)Math.pow(2, -10 * t);
+                case BACK_OUT: { float u = t - 1; return 1 + 2.70158f * u * u * u + 1.70158f * u * u; }
+                case BOUNCE_OUT:
+                {
+                    if(t < 1 / 2.75f)
+                        return 7.5625f * t * t;
+                    else if(t < 2 / 2.75f) { t -= 1.5f / 2.75f; return 7.5625f * t * t + .75f; }
+                    else if(t < 2.5f / 2.75f) { t -= 2.25f / 2.75f; return 7.5625f * t * t + .9375f; }
+                    else { t -= 2.625f / 2.75f; return 7.5625f * t * t + .984375f; }
+                }
+                default: return t;
+            }
+        }
+    }
+
+
+    //================
+    // Constructor
+    //================
+
+    /**
+     * Creates a tween engine
+     * @param capacity number of tracks to make room for up front
+     */
+    public TweenEngine(int capacity)
+    {
+        capacity = Math.max(2, capacity + 1);
+        this.starts = new float[capacity];
+        this.ends = new float[capacity];
+        this.startTimes = new double[capacity];
+        this.endTimes = new double[capacity];
+        this.easings = new byte[capacity];
+        this.values = new float[capacity];
+        this.generations = new int[capacity];
+        this.active = new boolean[capacity];
+        this.extrapolating = new boolean[capacity];
+        this.freeSlots = new int[capacity];
+    }
+
+
+    //================
+    // Class Methods
+    //================
+
+    /**
+     * Creates a track
+     * @param start value at t0
+     * @param end value at t1 and after
+     * @param t0 start time
+     * @param t1 end time
+     * @param easing easing curve
+     * @return handle of the track, never 0
+     */
+    public int create(float start, float end, double t0, double t1, Easing easing)
+    {
+        int slot;
+        if(this.freeCount > 0)
+            slot = this.freeSlots[--this.freeCount];
+        else
+        {
+            if(this.nextSlot > SLOT_MASK)
+                throw new RuntimeException("TweenEngine ran out of tracks");
+
+            slot = this.nextSlot++;
+            if(slot == this.starts.length)
+                this.grow(slot * 2);
+        }
+
+        this.active[slot] = true;
+        this.extrapolating[slot] = false;
+        int handle = (this.generations[slot] << SLOT_BITS) | slot;
+        this.set(handle, start, end, t0, t1, easing);
+        return handle;
+    }
+
+    /**
+     * Re-arms a track with new values
+     * @param handle handle of the track
+     * @param start value at t0
+     * @param end value at t1 and after
+     * @param t0 start time
+     * @param t1 end time
+     * @param easing easing curve
+     */
+    public void set(int handle, float start, float end, double t0, double t1, Easing easing)
+    {
+        int slot = this.slotOf(handle);
+        this.starts[slot] = start;
+        this.ends[slot] = end;
+        this.startTimes[slot] = t0;
+        this.endTimes[slot] = t1;
+        this.easings[slot] = (byte)easing.ordinal();
+        this.values[slot] = this.sample(slot, this.time);
+    }
+
+    /**
+     * Changes the easing curve of a track
+     * @param handle handle of the track
+     * @param easing easing curve
+     */
+    public void setEasing(int handle, Easing easing)
+    {
+        int slot = this.slotOf(handle);
+        this.easings[slot] = (byte)easing.ordinal();
+        this.values[slot] = this.sample(slot, this.time);
+    }
+
+    /**
+     * Sets whether a track carries on past its start and end times along the line through its start and end values,
+     * rather than holding them. Tracks dont extrapolate when they are created.
+     * @param handle handle of the track
+     * @param extrapolating true to extrapolate
+     */
+    public void setExtrapolating(int handle, boolean extrapolating)
+    {
+        int slot = this.slotOf(handle);
+        this.extrapolating[slot] = extrapolating;
+        this.values[slot] = this.sample(slot, this.time);
+    }
+
+    /**
+     * Re-arms a track, creating it if the handle isnt valid. Handy for tracks kept in a field that starts at 0.
+     * @param handle handle of the track, or 0
+     * @return the handle of the track, which is new if the given one wasnt valid
+     */
+    public int setOrCreate(int handle, float start, float end, double t0, double t1, Easing easing)
+    {
+        if(!this.isValid(handle))
+            return this.create(start, end, t0, t1, easing);
+
+        this.set(handle, start, end, t0, t1, easing);
+        return handle;
+    }
+
+    /**
+     * Releases a track, its handle stops being valid
+     * @param handle handle of the track, invalid handles are ignored
+     */
+    public void release(int handle)
+    {
+        if(!this.isValid(handle))
+            return;
+
+        int slot = handle & SLOT_MASK;
+        this.active[slot] = false;
+        this.generations[slot] = (this.generations[slot] + 1) & GENERATION_MASK;
+        this.freeSlots[this.freeCount++] = slot;
+    }
+
+    /**
+     * Returns true if the handle belongs to a track that hasnt been released
+     * @param handle handle to check
+     * @return true if valid
+     */
+    public boolean isValid(int handle)
+    {
+        int slot = handle & SLOT_MASK;
+        return handle > 0 && slot < this.nextSlot && this.active[slot] && this.generations[slot] == handle >>> SLOT_BITS;
+    }
+
+    /**
+     * Samples every track at the given time, the results are read with getValue()
+     * @param time time to sample at
+     */
+    public void advance(double time)
+    {
+        this.time = time;
+        for(int slot = 1; slot < this.nextSlot; slot++)
+        {
+            if(this.active[slot])
+                this.values[slot] = this.sample(slot, time);
+        }
+    }
+
+    /**
+     * Gets the time of the last advance()
+     * @return time the tracks were last sampled at
+     */
+    public double getTime()
+    {
+        return this.time;
+    }
+
+    /**
+     * Gets the value of a track as of the last advance()
+     * @param handle handle of the track
+     * @return value of the track
+     */
+    public float getValue(int handle)
+    {
+        return this.values[this.slotOf(handle)];
+    }
+
+    /**
+     * Samples a track at the given time
+     * @param handle handle of the track
+     * @param time time to sample at
+     * @return value of the track at that time
+     */
+    public float valueAt(int handle, double time)
+    {
+        return this.sample(this.slotOf(handle), time);
+    }
+
+    public float getStart(int handle)
+    {
+        return this.starts[this.slotOf(handle)];
+    }
+
+    public float getEnd(int handle)
+    {
+        return this.ends[this.slotOf(handle)];
+    }
+
+    public double getEndTime(int handle)
+    {
+        return this.endTimes[this.slotOf(handle)];
+    }
+
+    /**
+     * Returns true if the track has reached its end value at the given time
+     * @param handle handle of the track
+     * @param time time to check
+     * @return true if finished
+     */
+    public boolean isFinished(int handle, double time)
+    {
+        return time >= this.endTimes[this.slotOf(handle)];
+    }
+
+    /**
+     * Eases between two values without a track, for one off tweens
+     * @param start value at t0 and before
+     * @param end value at t1 and after
+     * @param t0 start time
+     * @param t1 end time
+     * @param easing easing curve
+     * @param time time to sample at
+     * @return value at that time
+     */
+    public static float ease(float start, float end, double t0, double t1, Easing easing, double time)
+    {
+        if(time >= t1)
+            return end;
+        if(time <= t0)
+            return start;
+
+        float progress = easing.apply((float)((time - t0) / (t1 - t0)));
+        return start + (end - start) * progress;
+    }
+
+    private float sample(int slot, double time)
+    {
+        double t0 = this.startTimes[slot];
+        double t1 = this.endTimes[slot];
+
+        //outside the tween extrapolating tracks follow the line through the start and end
+        if(this.extrapolating[slot] && (time > t1 || time < t0) && t1 > t0)
+            return this.starts[slot] + (this.ends[slot] - this.starts[slot]) * (float)((time - t0) / (t1 - t0));
+
+        return ease(this.starts[slot], this.ends[slot], t0, t1, Easing.VALUES[this.easings[slot]], time);
+    }
+
+    private int slotOf(int handle)
+    {
+        if(!this.isValid(handle))
+            throw new RuntimeException("Invalid tween handle " + handle);
+
+        return handle & SLOT_MASK;
+    }
+
+    private void grow(int capacity)
+    {
+        this.starts = Arrays.copyOf(this.starts, capacity);
+        this.ends = Arrays.copyOf(this.ends, capacity);
+        this.startTimes = Arrays.copyOf(this.startTimes, capacity);
+        this.endTimes = Arrays.copyOf(this.endTimes, capacity);
+        this.easings = Arrays.copyOf(this.easings, capacity);
+        this.values = Arrays.copyOf(this.values, capacity);
+        this.generations = Arrays.copyOf(this.generations, capacity);
+        this.active = Arrays.copyOf(this.active, capacity);
+        this.extrapolating = Arrays.copyOf(this.extrapolating, capacity);
+        this.freeSlots = Arrays.copyOf(this.freeSlots, capacity);
+    }
+
+}
@@ -66,8 +66,7 @@ public class Button extends WindowComponent  {
         super(xPos,yPos);
         this.text = text;
         
-        text.getPosition().x = xPos ;
-        text.getPosition().y = yPos;              
+        text.setPosition(xPos, yPos);              
         
         this.width = text.getWidth();
         this.height = text.getHeight();        
@@ -82,8 +81,7 @@ public class Button extends WindowComponent  {
         
         //set text stuff
         this.text = text;        
-        text.getPosition().x = xPos ;
-        text.getPosition().y = yPos;
+        text.setPosition(xPos, yPos);
         
         //set image stuff
         image = new Image(ref);
@@ -108,8 +106,7 @@ public class Button extends WindowComponent  {
         
         if(text != null)
         {
-            this.text.getPosition().x = this.getPosition().x + this.textPaddingX;
-            this.text.getPosition().y=  this.getPosition().y + this.textPaddingY;
+            this.text.setPosition(this.getPosition().x + this.textPaddingX, this.getPosition().y + this.textPaddingY);
             this.text.update();
         }
         
@@ -84,8 +84,7 @@ public class RadioSet<E> extends WindowComponent {
         
         for(int i = 0; i< labels.size(); i++)
         {
-            labels.get(i).getPosition().x = this.getPosition().x +30;
-            labels.get(i).getPosition().y = this.getPosition().y + 3 + 25* i; 
+            labels.get(i).setPosition(this.getPosition().x +30, this.getPosition().y + 3 + 25* i); 
         }
     }
     
@@ -113,8 +112,7 @@ public class RadioSet<E> extends WindowComponent {
         
         //add the label
         Text t = new Text(entry.getKey());
-        t.getPosition().x = this.getPosition().x +50;
-        t.getPosition().y = this.getPosition().y + 20* elements.size();   
+        t.setPosition(this.getPosition().x +50, this.getPosition().y + 20* elements.size());   
         t.setScale(.7f);
         labels.add(t);
         
@@ -154,8 +154,9 @@ public class TextArea extends WindowComponent
             //populating text with typed keys
             if (focused) 
             {
-                for (Character typedCharacter : input.getTypedCharacters()) 
+                for (int i = 0; i < input.getTypedCharacterCount(); i++) 
                 {
+                    char typedCharacter = input.getTypedCharacter(i);
                     somethingTyped = true;
                     
                     //backspace
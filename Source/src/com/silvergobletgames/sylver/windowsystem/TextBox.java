@@ -156,8 +156,9 @@ public class TextBox extends WindowComponent {
                 if(focused)
                 {
                     String builder = "";
-                    for(Character c: input.getTypedCharacters())
+                    for(int i = 0; i < input.getTypedCharacterCount(); i++)
                     {
+                        char c = input.getTypedCharacter(i);
                         if(c == '\b')
                         {
                             if(builder.length()> 0)
@@ -13,7 +13,7 @@ import javax.media.opengl.GL3bc;
 import java.awt.event.ActionListener;
 import java.awt.event.ActionEvent;
 import javax.media.opengl.GL2;
-import javax.swing.event.EventListenerList;
+import com.silvergobletgames.sylver.util.EventChannel;
 import com.silvergobletgames.sylver.util.SylverVector2f;
 
 
@@ -36,7 +36,8 @@ public class Window extends SceneObject
     protected ArrayList<WindowComponent> windowComponents = new ArrayList<>();  
     
     //event handling stuff
-    protected EventListenerList listenerList = new EventListenerList();
+    protected EventChannel<ActionListener, ActionEvent> actionChannel = new EventChannel<>(ActionListener.class, WindowComponent.ACTION_DISPATCHER);
+    private ActionEvent lastActionEvent;
     
     
     //================
@@ -265,30 +266,29 @@ public class Window extends SceneObject
      *=======================
      */
     public void addActionListener(ActionListener l) {
-        listenerList.add(ActionListener.class, l);
+        actionChannel.addListener(l);
     }
     
     public void removeActionListener(ActionListener l) {
-        listenerList.remove(ActionListener.class, l);
+        actionChannel.removeListener(l);
     }
     
     public ActionListener[] getActionListeners() {
-        return listenerList.getListeners(ActionListener.class);
+        return actionChannel.getListeners();
+    }
+    
+    /**
+     * Gets the channel action events are fired on, for example to batch it onto an EventBus
+     * @return the action channel
+     */
+    public EventChannel<ActionListener, ActionEvent> getActionChannel()
+    {
+        return this.actionChannel;
     }
     
     protected void fireAction(Object source, String action)
     {
-        Object[] listeners = listenerList.getListenerList();
-        ActionEvent e = null;
-
-        for (int i = listeners.length - 2; i >= 0; i -= 2) {
-            if (listeners[i] == ActionListener.class) {
-                if (e == null) {
-                    e = new ActionEvent(source, ActionEvent.ACTION_PERFORMED, action);
-                }
-                ((ActionListener)listeners[i+1]).actionPerformed(e);
-            }
-        }
+        this.lastActionEvent = WindowComponent.fireActionEvent(this.actionChannel, this.lastActionEvent, source, action);
     }
     
     
@@ -6,9 +6,10 @@ import com.silvergobletgames.sylver.netcode.SceneObjectRenderData;
 import com.silvergobletgames.sylver.netcode.SceneObjectRenderDataChanges;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.Objects;
 import javax.media.opengl.GL2;
 import javax.media.opengl.GL3bc;
-import javax.swing.event.EventListenerList;
+import com.silvergobletgames.sylver.util.EventChannel;
 import com.silvergobletgames.sylver.util.SylverVector2f;
 
 public abstract class WindowComponent extends SceneObject 
@@ -20,8 +21,17 @@ public abstract class WindowComponent extends SceneObject
     protected float width;
     protected float height;
     
-    //event listener list
-    protected EventListenerList listenerList = new EventListenerList();
+    //delivers action events to action listeners, shared with Window
+    static final EventChannel.Dispatcher<ActionListener, ActionEvent> ACTION_DISPATCHER = new EventChannel.Dispatcher<ActionListener, ActionEvent>(){
+        public void dispatch(ActionListener listener, Object source, ActionEvent event)
+        {
+            listener.actionPerformed(event);
+        }
+    };
+    
+    //action channel, and the last action event we fired
+    protected EventChannel<ActionListener, ActionEvent> actionChannel = new EventChannel<>(ActionListener.class, ACTION_DISPATCHER);
+    private ActionEvent lastActionEvent;
     
     //hidden
     protected boolean hidden;
@@ -123,30 +133,50 @@ public abstract class WindowComponent extends SceneObject
     //=======================
      
     public void addActionListener(ActionListener l) {
-        listenerList.add(ActionListener.class, l);
+        actionChannel.addListener(l);
     }
     
     public void removeActionListener(ActionListener l) {
-        listenerList.remove(ActionListener.class, l);
+        actionChannel.removeListener(l);
     }
     
     public ActionListener[] getActionListeners() {
-        return listenerList.getListeners(ActionListener.class);
+        return actionChannel.getListeners();
+    }
+    
+    /**
+     * Gets the channel action events are fired on, for example to batch it onto an EventBus
+     * @return the action channel
+     */
+    public EventChannel<ActionListener, ActionEvent> getActionChannel()
+    {
+        return this.actionChannel;
     }
     
     public void fireAction(Object source, String action)
     {
-        Object[] listeners = listenerList.getListenerList();
-        ActionEvent e = null;
-
-        for (int i = listeners.length - 2; i >= 0; i -= 2) {
-            if (listeners[i] == ActionListener.class) {
-                if (e == null) {
-                    e = new ActionEvent(source, ActionEvent.ACTION_PERFORMED, action);
-                }
-                ((ActionListener)listeners[i+1]).actionPerformed(e);
-            }
-        }
+        this.lastActionEvent = WindowComponent.fireActionEvent(this.actionChannel, this.lastActionEvent, source, action);
+    }
+    
+    /**
+     * Fires an action event on a channel, shared with Window. Action events cant be changed, but the same source
+     * and action can share one, so the last event fired is reused when it matches.
+     * @param channel channel to fire on
+     * @param lastEvent the last event fired on the channel, or null
+     * @param source source of the action
+     * @param action action command, may be null
+     * @return the event that was fired, to pass back as lastEvent next time
+     */
+    static ActionEvent fireActionEvent(EventChannel<ActionListener, ActionEvent> channel, ActionEvent lastEvent, Object source, String action)
+    {
+        if(!channel.hasListeners())
+            return lastEvent;
+        
+        ActionEvent e = lastEvent;
+        if(e == null || e.getSource() != source || !Objects.equals(e.getActionCommand(), action))
+            e = new ActionEvent(source, ActionEvent.ACTION_PERFORMED, action);
+        channel.fire(source, e);
+        return e;
     }
     
 }